@@ -1,17 +1,31 @@
 package com.quickcommerce.order_service.controller;
 
+import com.quickcommerce.order_service.dto.CheckoutDTO;
+import com.quickcommerce.order_service.dto.CheckoutResultDTO;
+import com.quickcommerce.order_service.dto.CustomerOrderHistoryDTO;
 import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.dto.OrderPageDTO;
 import com.quickcommerce.order_service.entity.Order;
+import com.quickcommerce.order_service.service.CheckoutService;
+import com.quickcommerce.order_service.service.IdempotencyService;
+import com.quickcommerce.order_service.service.OrderBatchWriter;
+import com.quickcommerce.order_service.service.OrderHistoryProjection;
 import com.quickcommerce.order_service.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.BufferedOutputStream;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/orders")
@@ -21,13 +35,36 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final OrderBatchWriter orderBatchWriter;
+    private final CheckoutService checkoutService;
+    private final OrderHistoryProjection orderHistoryProjection;
 
     @PostMapping
-    @Operation(summary = "Create a new order")
-    public ResponseEntity<OrderDTO> createOrder(@RequestBody OrderDTO orderDTO) {
+    @Operation(summary = "Create a new order; retries with the same Idempotency-Key get the original order back")
+    public ResponseEntity<OrderDTO> createOrder(
+            @RequestBody OrderDTO orderDTO,
+            @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false) String idempotencyKey) {
         log.info("POST /orders - Creating order");
-        OrderDTO created = orderService.createOrder(orderDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        if (idempotencyKey == null) {
+            OrderDTO created = orderBatchWriter.createOrder(orderDTO);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        }
+        // the key is claimed in the order's own transaction, so keyed orders are not group committed
+        IdempotencyService.Result<OrderDTO> result = idempotencyService.execute(
+                idempotencyKey, orderDTO, OrderDTO.class, () -> orderService.createOrder(orderDTO));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.body());
+    }
+
+    @PostMapping("/checkout")
+    @Operation(summary = "Place an order, hold its stock and start its payment in one call; "
+            + "409 if stock ran out, 422 if the payment was refused, 503 if a service did not answer in time")
+    public ResponseEntity<CheckoutResultDTO> checkout(@RequestBody CheckoutDTO checkoutDTO) {
+        log.info("POST /orders/checkout - Checking out for customer {}", checkoutDTO.getCustomerId());
+        CheckoutResultDTO result = checkoutService.checkout(checkoutDTO);
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
     }
 
     @GetMapping("/{id}")
@@ -47,28 +84,81 @@ public class OrderController {
     }
 
     @GetMapping("/customer/{customerId}")
-    @Operation(summary = "Get all orders for a customer")
-    public ResponseEntity<List<OrderDTO>> getCustomerOrders(@PathVariable String customerId) {
+    @Operation(summary = "Get a page of a customer's orders, newest first")
+    public ResponseEntity<OrderPageDTO> getCustomerOrders(
+            @PathVariable String customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         log.info("GET /orders/customer/{} - Fetching customer orders", customerId);
-        List<OrderDTO> orders = orderService.getCustomerOrders(customerId);
+        OrderPageDTO orders = orderService.getCustomerOrders(customerId, cursor, limit);
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/customer/{customerId}/history")
+    @Operation(summary = "Get a customer's order summary and a page of their orders, newest first, "
+            + "from the order history projection; lag is how many order events it has yet to apply")
+    public ResponseEntity<CustomerOrderHistoryDTO> getCustomerHistory(
+            @PathVariable String customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        log.info("GET /orders/customer/{}/history - Fetching customer order history", customerId);
+        return ResponseEntity.ok(orderHistoryProjection.getHistory(customerId, cursor, limit));
+    }
+
+    @PostMapping("/history/rebuild")
+    @Operation(summary = "Rebuild the order history projection from order-events")
+    public ResponseEntity<Void> rebuildHistory() {
+        log.info("POST /orders/history/rebuild - Rebuilding the order history projection");
+        orderHistoryProjection.rebuild();
+        return ResponseEntity.accepted().build();
+    }
+
     @GetMapping("/status/{status}")
-    @Operation(summary = "Get orders by status")
-    public ResponseEntity<List<OrderDTO>> getOrdersByStatus(@PathVariable Order.OrderStatus status) {
+    @Operation(summary = "Get a page of orders by status, oldest first")
+    public ResponseEntity<OrderPageDTO> getOrdersByStatus(
+            @PathVariable Order.OrderStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         log.info("GET /orders/status/{} - Fetching orders by status", status);
-        List<OrderDTO> orders = orderService.getOrdersByStatus(status);
+        OrderPageDTO orders = orderService.getOrdersByStatus(status, cursor, limit);
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export the orders created in [from, to) as newline-delimited JSON, oldest first")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("GET /orders/export - Streaming orders created between {} and {}", from, to);
+        orderService.requireExportRange(from, to);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                    orderService.exportOrders(from, to, compressed);
+                }
+            } else {
+                orderService.exportOrders(from, to, new BufferedOutputStream(out, 64 * 1024));
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @PatchMapping("/{id}/status")
-    @Operation(summary = "Update order status")
+    @Operation(summary = "Update order status; 409 if the move is not allowed from the current status or version")
     public ResponseEntity<OrderDTO> updateOrderStatus(
             @PathVariable Long id,
-            @RequestParam Order.OrderStatus status) {
+            @RequestParam Order.OrderStatus status,
+            @RequestParam(required = false) Long expectedVersion) {
         log.info("PATCH /orders/{}/status - Updating status to {}", id, status);
-        OrderDTO updated = orderService.updateOrderStatus(id, status);
+        OrderDTO updated = orderService.updateOrderStatus(id, status, expectedVersion);
         return ResponseEntity.ok(updated);
     }
 
@@ -0,0 +1,43 @@
+package com.quickcommerce.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "An order to place together with its stock and payment")
+public class CheckoutDTO {
+
+    @JsonProperty("customerId")
+    private String customerId;
+
+    @JsonProperty("shippingAddress")
+    private String shippingAddress;
+
+    @JsonProperty("billingAddress")
+    private String billingAddress;
+
+    @JsonProperty("items")
+    private List<OrderItemDTO> items;
+
+    @JsonProperty("paymentMethod")
+    @Schema(example = "CREDIT_CARD")
+    private String paymentMethod;
+
+    public OrderDTO toOrder() {
+        return OrderDTO.builder()
+                .customerId(customerId)
+                .shippingAddress(shippingAddress)
+                .billingAddress(billingAddress)
+                .items(items)
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.quickcommerce.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "A placed order with the payment started for it")
+public class CheckoutResultDTO {
+
+    @JsonProperty("order")
+    private OrderDTO order;
+
+    @JsonProperty("paymentId")
+    private Long paymentId;
+
+    @JsonProperty("transactionId")
+    private String transactionId;
+
+    @JsonProperty("paymentStatus")
+    @Schema(example = "INITIATED")
+    private String paymentStatus;
+
+    @JsonProperty("reservationIds")
+    @Schema(description = "The confirmed stock reservations, one per order line")
+    private List<Long> reservationIds;
+}
@@ -0,0 +1,49 @@
+package com.quickcommerce.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "A customer's order history, read from the order history projection")
+public class CustomerOrderHistoryDTO {
+
+    @JsonProperty("customerId")
+    private String customerId;
+
+    @JsonProperty("orderCount")
+    private Long orderCount;
+
+    @JsonProperty("lifetimeSpend")
+    @Schema(description = "Total of the customer's orders that were not cancelled")
+    private BigDecimal lifetimeSpend;
+
+    @JsonProperty("ordersByStatus")
+    private Map<String, Long> ordersByStatus;
+
+    @JsonProperty("lastOrderAt")
+    private LocalDateTime lastOrderAt;
+
+    @JsonProperty("orders")
+    @Schema(description = "A page of the customer's orders, newest first")
+    private List<OrderSummaryDTO> orders;
+
+    @JsonProperty("nextCursor")
+    @Schema(description = "Pass as cursor to fetch the next page; absent on the last page")
+    private String nextCursor;
+
+    @JsonProperty("lag")
+    @Schema(description = "Order events not yet reflected in this history, or -1 if unknown")
+    private Long lag;
+}
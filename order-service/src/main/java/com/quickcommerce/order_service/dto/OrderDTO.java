@@ -10,6 +10,8 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Data
 @NoArgsConstructor
@@ -29,7 +31,8 @@ public class OrderDTO {
     private String customerId;
 
     @JsonProperty("totalAmount")
-    @Schema(example = "1999.98")
+    @Schema(example = "1999.98", accessMode = Schema.AccessMode.READ_ONLY,
+            description = "Sum of the line item totals, computed by the server")
     private BigDecimal totalAmount;
 
     @JsonProperty("status")
@@ -42,12 +45,20 @@ public class OrderDTO {
     @JsonProperty("billingAddress")
     private String billingAddress;
 
+    @JsonProperty("items")
+    private List<OrderItemDTO> items;
+
     @JsonProperty("createdAt")
     private LocalDateTime createdAt;
 
     @JsonProperty("updatedAt")
     private LocalDateTime updatedAt;
 
+    @JsonProperty("version")
+    @Schema(accessMode = Schema.AccessMode.READ_ONLY,
+            description = "Incremented by every status change; pass it back as expectedVersion to update conditionally")
+    private Long version;
+
     public static OrderDTO from(Order order) {
         return OrderDTO.builder()
                 .id(order.getId())
@@ -57,8 +68,10 @@ public class OrderDTO {
                 .status(order.getStatus().toString())
                 .shippingAddress(order.getShippingAddress())
                 .billingAddress(order.getBillingAddress())
+                .items(order.getItems().stream().map(OrderItemDTO::from).collect(Collectors.toList()))
                 .createdAt(order.getCreatedAt())
                 .updatedAt(order.getUpdatedAt())
+                .version(order.getVersion())
                 .build();
     }
 }
\ No newline at end of file
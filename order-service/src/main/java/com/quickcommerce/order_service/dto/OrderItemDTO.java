@@ -0,0 +1,48 @@
+package com.quickcommerce.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.quickcommerce.order_service.entity.OrderItem;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Order line item")
+public class OrderItemDTO {
+
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("productId")
+    private Long productId;
+
+    @JsonProperty("quantity")
+    @Schema(example = "2")
+    private Integer quantity;
+
+    @JsonProperty("unitPrice")
+    @Schema(example = "999.99",
+            description = "Ignored when order.catalog.enabled is set; the listed price from the product catalog is used")
+    private BigDecimal unitPrice;
+
+    @JsonProperty("totalPrice")
+    @Schema(example = "1999.98", accessMode = Schema.AccessMode.READ_ONLY)
+    private BigDecimal totalPrice;
+
+    public static OrderItemDTO from(OrderItem item) {
+        return OrderItemDTO.builder()
+                .id(item.getId())
+                .productId(item.getProductId())
+                .quantity(item.getQuantity())
+                .unitPrice(item.getUnitPrice())
+                .totalPrice(item.getTotalPrice())
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.quickcommerce.order_service.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "One page of orders; pass nextCursor back to fetch the following page")
+public class OrderPageDTO {
+    @JsonProperty("items")
+    private List<OrderDTO> items;
+
+    @JsonProperty("nextCursor")
+    @Schema(description = "Opaque continuation token, absent on the last page")
+    private String nextCursor;
+}
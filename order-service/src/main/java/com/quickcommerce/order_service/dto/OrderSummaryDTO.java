@@ -0,0 +1,39 @@
+package com.quickcommerce.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "An order as listed in a customer's order history, without its line items")
+public class OrderSummaryDTO {
+
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("orderNumber")
+    private String orderNumber;
+
+    @JsonProperty("status")
+    @Schema(example = "PENDING")
+    private String status;
+
+    @JsonProperty("totalAmount")
+    @Schema(example = "1999.98")
+    private BigDecimal totalAmount;
+
+    @JsonProperty("createdAt")
+    private LocalDateTime createdAt;
+
+    @JsonProperty("updatedAt")
+    private LocalDateTime updatedAt;
+}
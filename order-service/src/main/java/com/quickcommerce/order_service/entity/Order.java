@@ -4,16 +4,26 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Entity
 @Table(name = "orders", indexes = {
         @Index(name = "idx_order_number", columnList = "order_number"),
-        @Index(name = "idx_customer_id", columnList = "customer_id"),
-        @Index(name = "idx_status", columnList = "status")
+        @Index(name = "idx_orders_customer_created_at", columnList = "customer_id, created_at, id"),
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at, id"),
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at, id")
 })
 @Data
 @NoArgsConstructor
@@ -23,7 +33,7 @@ public class Order {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
-    @SequenceGenerator(name = "order_seq", sequenceName = "order_sequence", allocationSize = 1)
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_sequence", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -51,6 +61,22 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<OrderItem> items = new ArrayList<>();
+
+    public void addItem(OrderItem item) {
+        item.setOrder(this);
+        items.add(item);
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -63,7 +89,38 @@ public class Order {
         updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * Order lifecycle. An order is confirmed, shipped and delivered in that
+     * order, and can be cancelled until it ships. DELIVERED and CANCELLED are
+     * final.
+     */
     public enum OrderStatus {
-        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED
+        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED;
+
+        private static final Map<OrderStatus, Set<OrderStatus>> NEXT = new EnumMap<>(OrderStatus.class);
+        private static final Map<OrderStatus, Set<OrderStatus>> PREVIOUS = new EnumMap<>(OrderStatus.class);
+
+        static {
+            NEXT.put(PENDING, EnumSet.of(CONFIRMED, CANCELLED));
+            NEXT.put(CONFIRMED, EnumSet.of(SHIPPED, CANCELLED));
+            NEXT.put(SHIPPED, EnumSet.of(DELIVERED));
+            NEXT.put(DELIVERED, EnumSet.noneOf(OrderStatus.class));
+            NEXT.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+            for (OrderStatus status : values()) {
+                PREVIOUS.put(status, EnumSet.noneOf(OrderStatus.class));
+            }
+            NEXT.forEach((from, targets) -> targets.forEach(to -> PREVIOUS.get(to).add(from)));
+            NEXT.replaceAll((status, targets) -> Collections.unmodifiableSet(targets));
+            PREVIOUS.replaceAll((status, sources) -> Collections.unmodifiableSet(sources));
+        }
+
+        public boolean canMoveTo(OrderStatus target) {
+            return NEXT.get(this).contains(target);
+        }
+
+        /** The statuses an order can move to this one from. */
+        public Set<OrderStatus> sources() {
+            return PREVIOUS.get(this);
+        }
     }
 }
\ No newline at end of file
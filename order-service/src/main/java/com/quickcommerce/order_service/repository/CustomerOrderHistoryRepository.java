@@ -0,0 +1,209 @@
+package com.quickcommerce.order_service.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.quickcommerce.order_service.dto.OrderSummaryDTO;
+import com.quickcommerce.order_service.repository.OrderJdbcRepository.Keyset;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The customer order history read model and the offsets it has been built
+ * up to. Writes join the caller's transaction, so a batch of events and the
+ * offsets after it are committed together or not at all.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CustomerOrderHistoryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** The status each of these orders has in the read model; orders it has not seen are left out. */
+    public Map<Long, String> findStatuses(Collection<Long> orderIds) {
+        Map<Long, String> statuses = new HashMap<>(orderIds.size() * 2);
+        if (orderIds.isEmpty()) {
+            return statuses;
+        }
+        jdbcTemplate.query((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT order_id, status FROM customer_order_history WHERE order_id = ANY(?)");
+            statement.setArray(1, connection.createArrayOf("bigint", orderIds.toArray()));
+            return statement;
+        }, (ResultSet rs) -> {
+            statuses.put(rs.getLong("order_id"), rs.getString("status"));
+        });
+        return statuses;
+    }
+
+    public void saveOrders(List<OrderRow> orders) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO customer_order_history
+                    (order_id, customer_id, order_number, status, total_amount, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (order_id) DO UPDATE SET status = EXCLUDED.status, updated_at = EXCLUDED.updated_at
+                """, orders, orders.size(), (statement, order) -> {
+            statement.setLong(1, order.orderId());
+            statement.setString(2, order.customerId());
+            statement.setString(3, order.orderNumber());
+            statement.setString(4, order.status());
+            statement.setBigDecimal(5, order.totalAmount());
+            statement.setTimestamp(6, Timestamp.valueOf(order.createdAt()));
+            statement.setTimestamp(7, Timestamp.valueOf(order.updatedAt()));
+        });
+    }
+
+    /** Adds each customer's change in order count and spend to their summary, creating it if needed. */
+    public void addToSummaries(List<SummaryChange> changes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO customer_order_summary AS s
+                    (customer_id, order_count, lifetime_spend, last_order_at, updated_at)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (customer_id) DO UPDATE SET
+                    order_count = s.order_count + EXCLUDED.order_count,
+                    lifetime_spend = s.lifetime_spend + EXCLUDED.lifetime_spend,
+                    last_order_at = GREATEST(s.last_order_at, EXCLUDED.last_order_at),
+                    updated_at = EXCLUDED.updated_at
+                """, changes, changes.size(), (statement, change) -> {
+            statement.setString(1, change.customerId());
+            statement.setLong(2, change.orders());
+            statement.setBigDecimal(3, change.spend());
+            statement.setTimestamp(4, change.lastOrderAt() != null ? Timestamp.valueOf(change.lastOrderAt()) : null);
+            statement.setTimestamp(5, now);
+        });
+    }
+
+    public void addToStatusCounts(List<StatusCountChange> changes) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO customer_order_status_counts AS c (customer_id, status, order_count)
+                VALUES (?, ?, ?)
+                ON CONFLICT (customer_id, status) DO UPDATE SET order_count = c.order_count + EXCLUDED.order_count
+                """, changes, changes.size(), (statement, change) -> {
+            statement.setString(1, change.customerId());
+            statement.setString(2, change.status());
+            statement.setLong(3, change.delta());
+        });
+    }
+
+    public Optional<Summary> findSummary(String customerId) {
+        List<Summary> rows = jdbcTemplate.query("""
+                SELECT order_count, lifetime_spend, last_order_at FROM customer_order_summary WHERE customer_id = ?
+                """, (rs, rowNum) -> new Summary(rs.getLong("order_count"), rs.getBigDecimal("lifetime_spend"),
+                rs.getTimestamp("last_order_at") != null ? rs.getTimestamp("last_order_at").toLocalDateTime() : null),
+                customerId);
+        return rows.stream().findFirst();
+    }
+
+    /** The customer's order count per status, leaving out statuses with none. */
+    public Map<String, Long> findStatusCounts(String customerId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                SELECT status, order_count FROM customer_order_status_counts
+                WHERE customer_id = ? AND order_count > 0 ORDER BY status
+                """, (ResultSet rs) -> {
+            counts.put(rs.getString("status"), rs.getLong("order_count"));
+        }, customerId);
+        return counts;
+    }
+
+    /** Up to {@code limit} of the customer's orders after {@code after}, newest first, with the keyset of each. */
+    public List<KeyedOrder> findOrders(String customerId, Keyset after, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT order_id, order_number, status, total_amount, created_at, updated_at,
+                    created_at::text AS sort_key
+                FROM customer_order_history WHERE customer_id = ?""");
+        List<Object> args = new ArrayList<>(List.of(customerId));
+        if (after != null) {
+            sql.append(" AND (created_at, order_id) < (CAST(? AS timestamp), ?)");
+            args.add(after.value());
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY created_at DESC, order_id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new KeyedOrder(OrderSummaryDTO.builder()
+                .id(rs.getLong("order_id"))
+                .orderNumber(rs.getString("order_number"))
+                .status(rs.getString("status"))
+                .totalAmount(rs.getBigDecimal("total_amount"))
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+                .build(), new Keyset(rs.getLong("order_id"), rs.getString("sort_key"))), args.toArray());
+    }
+
+    /** The next offset to apply per partition of {@code topic}. */
+    public Map<Integer, Long> findOffsets(String projection, String topic) {
+        Map<Integer, Long> offsets = new HashMap<>();
+        jdbcTemplate.query("SELECT partition_id, next_offset FROM projection_offsets WHERE projection = ? AND topic = ?",
+                (ResultSet rs) -> {
+                    offsets.put(rs.getInt("partition_id"), rs.getLong("next_offset"));
+                }, projection, topic);
+        return offsets;
+    }
+
+    /**
+     * Moves a partition's offset from {@code expected} to {@code next}, or
+     * records it for the first time when {@code expected} is null. Returns
+     * false if the stored offset is not {@code expected}, because another
+     * consumer has moved it or the projection was reset.
+     */
+    public boolean advanceOffset(String projection, String topic, int partition, Long expected, long next) {
+        if (expected == null) {
+            return jdbcTemplate.update("""
+                    INSERT INTO projection_offsets (projection, topic, partition_id, next_offset) VALUES (?, ?, ?, ?)
+                    ON CONFLICT DO NOTHING
+                    """, projection, topic, partition, next) == 1;
+        }
+        return jdbcTemplate.update("""
+                UPDATE projection_offsets SET next_offset = ?
+                WHERE projection = ? AND topic = ? AND partition_id = ? AND next_offset = ?
+                """, next, projection, topic, partition, expected) == 1;
+    }
+
+    /** Empties the read model and points every partition back at {@code offsets}, to rebuild from there. */
+    public void reset(String projection, String topic, Map<Integer, Long> offsets) {
+        jdbcTemplate.update("DELETE FROM customer_order_history");
+        jdbcTemplate.update("DELETE FROM customer_order_summary");
+        jdbcTemplate.update("DELETE FROM customer_order_status_counts");
+        jdbcTemplate.update("DELETE FROM projection_offsets WHERE projection = ? AND topic = ?", projection, topic);
+        List<Map.Entry<Integer, Long>> entries = new ArrayList<>(offsets.entrySet());
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO projection_offsets (projection, topic, partition_id, next_offset) VALUES (?, ?, ?, ?)
+                """, entries, entries.size(), (statement, entry) -> {
+            statement.setString(1, projection);
+            statement.setString(2, topic);
+            statement.setInt(3, entry.getKey());
+            statement.setLong(4, entry.getValue());
+        });
+    }
+
+    public record OrderRow(long orderId, String customerId, String orderNumber, String status, BigDecimal totalAmount,
+            LocalDateTime createdAt, LocalDateTime updatedAt) {
+    }
+
+    public record SummaryChange(String customerId, long orders, BigDecimal spend, LocalDateTime lastOrderAt) {
+    }
+
+    public record StatusCountChange(String customerId, String status, long delta) {
+    }
+
+    public record Summary(long orderCount, BigDecimal lifetimeSpend, LocalDateTime lastOrderAt) {
+    }
+
+    public record KeyedOrder(OrderSummaryDTO order, Keyset keyset) {
+    }
+}
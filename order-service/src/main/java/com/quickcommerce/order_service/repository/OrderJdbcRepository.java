@@ -0,0 +1,221 @@
+package com.quickcommerce.order_service.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.dto.OrderItemDTO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keyset-paged order listings. Each page is one index range scan on
+ * (filter, created_at, id) plus one query for the items of the orders on it,
+ * however deep the page is.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderJdbcRepository {
+
+    private static final String ORDER_COLUMNS = """
+            o.id, o.order_number, o.customer_id, o.total_amount, o.status, o.shipping_address,
+            o.billing_address, o.created_at, o.updated_at, o.version, o.created_at::text AS sort_key""";
+
+    private static final RowMapper<OrderDTO> ORDER = (rs, rowNum) -> OrderDTO.builder()
+            .id(rs.getLong("id"))
+            .orderNumber(rs.getString("order_number"))
+            .customerId(rs.getString("customer_id"))
+            .totalAmount(rs.getBigDecimal("total_amount"))
+            .status(rs.getString("status"))
+            .shippingAddress(rs.getString("shipping_address"))
+            .billingAddress(rs.getString("billing_address"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .updatedAt(rs.getTimestamp("updated_at") != null ? rs.getTimestamp("updated_at").toLocalDateTime() : null)
+            .version(rs.getLong("version"))
+            .items(new ArrayList<>())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** A customer's orders, newest first. */
+    public OrderPage findByCustomer(String customerId, Keyset after, int limit) {
+        return findPage("o.customer_id = ?", customerId, true, after, limit);
+    }
+
+    /** Orders in a status, oldest first, so a backlog is worked through in arrival order. */
+    public OrderPage findByStatus(String status, Keyset after, int limit) {
+        return findPage("o.status = ?", status, false, after, limit);
+    }
+
+    /**
+     * Orders created in [from, to), oldest first, with their items. The range is
+     * read in buckets of {@code bucket} length, each in chunks of {@code chunkSize}
+     * seeking on (created_at, id), so no statement holds a cursor open for
+     * the whole export and every chunk is a short index range scan.
+     *
+     * @return the number of orders read
+     */
+    public long streamByCreatedAt(LocalDateTime from, LocalDateTime to, Duration bucket, int chunkSize,
+            Consumer<OrderDTO> action) {
+        long count = 0;
+        for (LocalDateTime start = from; start.isBefore(to); start = start.plus(bucket)) {
+            LocalDateTime end = start.plus(bucket).isBefore(to) ? start.plus(bucket) : to;
+            Keyset after = null;
+            do {
+                StringBuilder sql = new StringBuilder("SELECT ").append(ORDER_COLUMNS)
+                        .append(" FROM orders o WHERE o.created_at >= ? AND o.created_at < ?");
+                List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(start), Timestamp.valueOf(end)));
+                if (after != null) {
+                    sql.append(" AND (o.created_at, o.id) > (CAST(? AS timestamp), ?)");
+                    args.add(after.value());
+                    args.add(after.id());
+                }
+                sql.append(" ORDER BY o.created_at, o.id LIMIT ?");
+                args.add(chunkSize);
+                Rows chunk = query(sql.toString(), args, chunkSize);
+                chunk.orders().forEach(action);
+                count += chunk.orders().size();
+                after = chunk.orders().size() == chunkSize ? chunk.keysetAt(chunkSize - 1) : null;
+            } while (after != null);
+        }
+        return count;
+    }
+
+    /**
+     * Moves an order to {@code target} if its status is one of {@code from} and,
+     * when {@code expectedVersion} is given, its version matches. The check and
+     * the write are one conditional UPDATE, which also returns the order and its
+     * items, so a transition is a single round trip with no read first.
+     *
+     * @return the updated order, or empty if the order does not exist or did not match
+     */
+    public Optional<OrderDTO> transition(long id, Collection<String> from, String target, Long expectedVersion) {
+        if (from.isEmpty()) {
+            return Optional.empty();
+        }
+        StringBuilder sql = new StringBuilder("WITH o AS (UPDATE orders SET status = ?, version = version + 1, ")
+                .append("updated_at = ? WHERE id = ? AND status IN (")
+                .append(String.join(", ", Collections.nCopies(from.size(), "?"))).append(")");
+        List<Object> args = new ArrayList<>(List.of(target, Timestamp.valueOf(LocalDateTime.now()), id));
+        args.addAll(from);
+        if (expectedVersion != null) {
+            sql.append(" AND version = ?");
+            args.add(expectedVersion);
+        }
+        sql.append(" RETURNING *) ").append("""
+                SELECT o.*, i.id AS item_id, i.product_id, i.quantity, i.unit_price, i.total_price
+                FROM o LEFT JOIN order_items i ON i.order_id = o.id
+                ORDER BY i.id
+                """);
+
+        List<OrderDTO> updated = new ArrayList<>(1);
+        jdbcTemplate.query(sql.toString(), (ResultSet rs) -> {
+            if (updated.isEmpty()) {
+                updated.add(ORDER.mapRow(rs, 0));
+            }
+            if (rs.getObject("item_id") != null) {
+                updated.get(0).getItems().add(OrderItemDTO.builder()
+                        .id(rs.getLong("item_id"))
+                        .productId(rs.getLong("product_id"))
+                        .quantity(rs.getInt("quantity"))
+                        .unitPrice(rs.getBigDecimal("unit_price"))
+                        .totalPrice(rs.getBigDecimal("total_price"))
+                        .build());
+            }
+        }, args.toArray());
+        return updated.stream().findFirst();
+    }
+
+    /** An order's current status and version, to explain a transition that did not match. */
+    public Optional<OrderState> findState(long id) {
+        return jdbcTemplate.query("SELECT status, version FROM orders WHERE id = ?",
+                (rs, rowNum) -> new OrderState(rs.getString("status"), rs.getLong("version")), id)
+                .stream().findFirst();
+    }
+
+    private OrderPage findPage(String filter, Object filterValue, boolean newestFirst, Keyset after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(ORDER_COLUMNS).append(" FROM orders o WHERE ")
+                .append(filter);
+        List<Object> args = new ArrayList<>();
+        args.add(filterValue);
+        if (after != null) {
+            sql.append(" AND (o.created_at, o.id) ").append(newestFirst ? "<" : ">")
+                    .append(" (CAST(? AS timestamp), ?)");
+            args.add(after.value());
+            args.add(after.id());
+        }
+        sql.append(newestFirst ? " ORDER BY o.created_at DESC, o.id DESC" : " ORDER BY o.created_at, o.id")
+                .append(" LIMIT ?");
+        args.add(limit + 1);
+
+        Rows rows = query(sql.toString(), args, limit + 1);
+        if (rows.orders().size() <= limit) {
+            return new OrderPage(rows.orders(), null);
+        }
+        return new OrderPage(new ArrayList<>(rows.orders().subList(0, limit)), rows.keysetAt(limit - 1));
+    }
+
+    /** Runs an order query and attaches the items of every order it returned in one more statement. */
+    private Rows query(String sql, List<Object> args, int expected) {
+        Map<Long, OrderDTO> orders = new LinkedHashMap<>(expected * 2);
+        List<String> keys = new ArrayList<>(expected);
+        jdbcTemplate.query(sql, (ResultSet rs) -> {
+            OrderDTO order = ORDER.mapRow(rs, orders.size());
+            orders.put(order.getId(), order);
+            keys.add(rs.getString("sort_key"));
+        }, args.toArray());
+        if (!orders.isEmpty()) {
+            jdbcTemplate.query((Connection connection) -> {
+                PreparedStatement statement = connection.prepareStatement("""
+                        SELECT id, order_id, product_id, quantity, unit_price, total_price
+                        FROM order_items WHERE order_id = ANY(?) ORDER BY order_id, id
+                        """);
+                statement.setArray(1, connection.createArrayOf("bigint", orders.keySet().toArray()));
+                return statement;
+            }, (ResultSet rs) -> {
+                orders.get(rs.getLong("order_id")).getItems().add(OrderItemDTO.builder()
+                        .id(rs.getLong("id"))
+                        .productId(rs.getLong("product_id"))
+                        .quantity(rs.getInt("quantity"))
+                        .unitPrice(rs.getBigDecimal("unit_price"))
+                        .totalPrice(rs.getBigDecimal("total_price"))
+                        .build());
+            });
+        }
+        return new Rows(new ArrayList<>(orders.values()), keys);
+    }
+
+    /** Position of the last row on a page: its created_at, as text, and its id. */
+    public record Keyset(long id, String value) {
+    }
+
+    public record OrderPage(List<OrderDTO> items, Keyset next) {
+    }
+
+    public record OrderState(String status, long version) {
+    }
+
+    /** Orders as read, with the sort key of each. */
+    private record Rows(List<OrderDTO> orders, List<String> keys) {
+
+        Keyset keysetAt(int index) {
+            return new Keyset(orders.get(index).getId(), keys.get(index));
+        }
+    }
+}
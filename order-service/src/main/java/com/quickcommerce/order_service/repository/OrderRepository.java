@@ -1,6 +1,7 @@
 package com.quickcommerce.order_service.repository;
 
 import com.quickcommerce.order_service.entity.Order;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,22 +10,22 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Every finder that returns orders to callers fetch-joins the line items, so
+ * an order and its basket are read in one statement rather than one per order.
+ * Listings that can grow without bound are paged in {@link OrderJdbcRepository}.
+ */
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-        Optional<Order> findByOrderNumber(String orderNumber);
-
-        List<Order> findByCustomerId(String customerId);
+        @EntityGraph(attributePaths = "items")
+        Optional<Order> findWithItemsById(Long id);
 
-        List<Order> findByStatus(Order.OrderStatus status);
+        @EntityGraph(attributePaths = "items")
+        Optional<Order> findByOrderNumber(String orderNumber);
 
-        @Query("SELECT o FROM Order o WHERE o.customerId = :customerId AND o.status = :status")
+        @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o.customerId = :customerId AND o.status = :status")
         List<Order> findByCustomerIdAndStatus(
                         @Param("customerId") String customerId,
                         @Param("status") Order.OrderStatus status);
-
-        @Query("SELECT o FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate")
-        List<Order> findOrdersByDateRange(
-                        @Param("startDate") java.time.LocalDateTime startDate,
-                        @Param("endDate") java.time.LocalDateTime endDate);
-}
\ No newline at end of file
+}
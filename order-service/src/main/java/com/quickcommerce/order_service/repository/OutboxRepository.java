@@ -0,0 +1,162 @@
+package com.quickcommerce.order_service.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The outbox_events table: appended to by writers, drained in id order by the
+ * relay. Events whose send failed wait for {@code retry_at}, and hold back
+ * every later event with the same key until then; events that keep failing
+ * are moved to outbox_parked_events.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    /** Advisory lock held by whichever instance is relaying; any value unique within this database. */
+    private static final long RELAY_LOCK = 0x6f7574626f78L;
+
+    private static final String FIND_BATCH = """
+            SELECT id, topic, event_key, payload, created_at, attempts FROM outbox_events o
+            WHERE NOT EXISTS (
+                SELECT 1 FROM outbox_events r WHERE r.event_key = o.event_key AND r.retry_at > CURRENT_TIMESTAMP)
+            ORDER BY id LIMIT ?
+            """;
+
+    private static final String PARK = """
+            WITH parked AS (DELETE FROM outbox_events WHERE id = ? RETURNING *)
+            INSERT INTO outbox_parked_events (id, topic, event_key, payload, created_at, attempts, last_error)
+            SELECT id, topic, event_key, payload, created_at, attempts + 1, ? FROM parked
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Connection holding the session-level relay lock; only touched by the relay thread. */
+    private Connection lockConnection;
+
+    /** Joins the caller's transaction, so the event commits or rolls back with the change. */
+    public void append(String topic, String key, String payload) {
+        jdbcTemplate.update("INSERT INTO outbox_events (topic, event_key, payload) VALUES (?, ?, ?)",
+                topic, key, payload);
+    }
+
+    /** Appends several events in one JDBC batch, in list order. */
+    public void appendAll(List<NewEvent> events) {
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events (topic, event_key, payload) VALUES (?, ?, ?)",
+                events, events.size(), (statement, event) -> {
+                    statement.setString(1, event.topic());
+                    statement.setString(2, event.key());
+                    statement.setString(3, event.payload());
+                });
+    }
+
+    /**
+     * Takes the relay lock, or checks that this instance still holds it;
+     * false if another instance does. The lock is a session-level advisory
+     * lock on a connection kept aside for it, so the relay holds no
+     * transaction open while it waits for the broker. If that connection
+     * dies the lock goes with it and is taken again here.
+     */
+    public synchronized boolean tryLock() {
+        try {
+            if (lockConnection != null) {
+                if (lockConnection.isValid(1)) {
+                    return true;
+                }
+                unlock();
+            }
+            Connection connection = jdbcTemplate.getDataSource().getConnection();
+            boolean locked = false;
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, RELAY_LOCK);
+                try (ResultSet rs = statement.executeQuery()) {
+                    locked = rs.next() && rs.getBoolean(1);
+                }
+            } finally {
+                if (locked) {
+                    lockConnection = connection;
+                } else {
+                    connection.close();
+                }
+            }
+            return locked;
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Could not take the outbox relay lock", e);
+        }
+    }
+
+    /** Releases the relay lock, if held, and hands its connection back to the pool. */
+    public synchronized void unlock() {
+        if (lockConnection == null) {
+            return;
+        }
+        try (Connection connection = lockConnection) {
+            lockConnection = null;
+            // A pooled connection keeps its session, so the lock has to be released explicitly
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                statement.setLong(1, RELAY_LOCK);
+                statement.execute();
+            }
+        } catch (SQLException e) {
+            // The session is gone, and its lock with it
+        }
+    }
+
+    /** The oldest pending events, skipping every key that has an event waiting to be retried. */
+    public List<OutboxEvent> findBatch(int limit) {
+        return jdbcTemplate.query(FIND_BATCH,
+                (rs, rowNum) -> new OutboxEvent(rs.getLong("id"), rs.getString("topic"),
+                        rs.getString("event_key"), rs.getString("payload"),
+                        rs.getTimestamp("created_at").toLocalDateTime(), rs.getInt("attempts")),
+                limit);
+    }
+
+    /** When the oldest pending event was written, including events waiting to be retried. */
+    public Optional<LocalDateTime> oldestCreatedAt() {
+        return jdbcTemplate.query("SELECT created_at FROM outbox_events ORDER BY id LIMIT 1",
+                (rs, rowNum) -> rs.getTimestamp("created_at").toLocalDateTime()).stream().findFirst();
+    }
+
+    /** Counts a failed send and holds the event, and so its key, back for {@code delayMs}. */
+    public void retryLater(long id, long delayMs, String error) {
+        jdbcTemplate.update("""
+                UPDATE outbox_events
+                SET attempts = attempts + 1, retry_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 millisecond', last_error = ?
+                WHERE id = ?
+                """, delayMs, error, id);
+    }
+
+    /** Moves an event that keeps failing out of the way of its key's later events. */
+    public void park(long id, String error) {
+        jdbcTemplate.update(PARK, id, error);
+    }
+
+    public int delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement("DELETE FROM outbox_events WHERE id = ANY(?)");
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return statement;
+        });
+    }
+
+    public record NewEvent(String topic, String key, String payload) {
+    }
+
+    public record OutboxEvent(long id, String topic, String key, String payload, LocalDateTime createdAt,
+            int attempts) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.quickcommerce.order_service.service;
+
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The product-service and payment-service calls a checkout makes. Every call
+ * is bounded by {@code order.checkout.call-timeout-ms}, for connecting and
+ * again for the response, so a slow service costs a checkout at most that
+ * long per step.
+ */
+@Component
+public class CheckoutClient {
+
+    private final RestClient productService;
+    private final RestClient paymentService;
+
+    @Autowired
+    public CheckoutClient(
+            @LoadBalanced RestClient.Builder builder,
+            @Value("${order.checkout.product-service-url:http://product-service}") String productServiceUrl,
+            @Value("${order.checkout.payment-service-url:http://payment-service}") String paymentServiceUrl,
+            @Value("${order.checkout.call-timeout-ms:2000}") long callTimeoutMs) {
+        Duration timeout = Duration.ofMillis(callTimeoutMs);
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder().connectTimeout(timeout).build());
+        requestFactory.setReadTimeout(timeout);
+        this.productService = builder.clone().baseUrl(productServiceUrl).requestFactory(requestFactory).build();
+        this.paymentService = builder.clone().baseUrl(paymentServiceUrl).requestFactory(requestFactory).build();
+    }
+
+    /** Holds stock for an order line; empty if there is not enough of it. */
+    public Optional<Long> reserve(long productId, int quantity, long ttlSeconds) {
+        try {
+            Reservation reservation = productService.post()
+                    .uri("/products/reservations")
+                    .body(Map.of("productId", productId, "quantity", quantity, "ttlSeconds", ttlSeconds))
+                    .retrieve()
+                    .body(Reservation.class);
+            return Optional.of(reservation.id());
+        } catch (HttpClientErrorException.Conflict e) {
+            return Optional.empty();
+        }
+    }
+
+    /** Turns a hold into a sale; false if the hold had already expired or been released. */
+    public boolean confirmReservation(long reservationId) {
+        try {
+            productService.post().uri("/products/reservations/{id}/confirm", reservationId).retrieve().toBodilessEntity();
+            return true;
+        } catch (HttpClientErrorException.Conflict e) {
+            return false;
+        }
+    }
+
+    /** Gives held stock back; false if the hold was no longer active. */
+    public boolean releaseReservation(long reservationId) {
+        try {
+            productService.delete().uri("/products/reservations/{id}", reservationId).retrieve().toBodilessEntity();
+            return true;
+        } catch (HttpClientErrorException.Conflict e) {
+            return false;
+        }
+    }
+
+    /** Puts back stock that a confirmed reservation had taken. */
+    public void restock(List<StockLine> lines) {
+        // the stock endpoint takes the quantity to remove, so a restock is negative
+        productService.patch()
+                .uri("/products/stock")
+                .body(lines.stream().map(line -> new StockLine(line.productId(), -line.quantity())).toList())
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    /** Fails with 422 if payment-service would not accept this payment. */
+    public void validatePayment(BigDecimal amount, String paymentMethod) {
+        try {
+            paymentService.post()
+                    .uri("/payments/validate")
+                    .body(Map.of("amount", amount, "paymentMethod", String.valueOf(paymentMethod)))
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (HttpClientErrorException.UnprocessableEntity | HttpClientErrorException.BadRequest e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Payment refused: " + e.getResponseBodyAsString(), e);
+        }
+    }
+
+    /**
+     * Starts the order's payment. The request carries an idempotency key
+     * derived from the order id, so sending it again returns the payment the
+     * first attempt created, even if that attempt timed out.
+     */
+    public Payment initiatePayment(long orderId, BigDecimal amount, String paymentMethod) {
+        return paymentService.post()
+                .uri("/payments")
+                .header(IdempotencyService.KEY_HEADER, "checkout-order-" + orderId)
+                .body(Map.of("orderId", orderId, "amount", amount, "paymentMethod", paymentMethod))
+                .retrieve()
+                .body(Payment.class);
+    }
+
+    public void failPayment(long paymentId, String reason) {
+        paymentService.post()
+                .uri(uri -> uri.path("/payments/{id}/fail").queryParam("errorMessage", reason).build(paymentId))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    public record Reservation(Long id) {
+    }
+
+    public record Payment(Long id, String transactionId, String status) {
+    }
+
+    public record StockLine(Long productId, Integer quantity) {
+    }
+}
@@ -0,0 +1,280 @@
+package com.quickcommerce.order_service.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.quickcommerce.order_service.dto.CheckoutDTO;
+import com.quickcommerce.order_service.dto.CheckoutResultDTO;
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.dto.OrderItemDTO;
+import com.quickcommerce.order_service.entity.Order;
+import com.quickcommerce.order_service.service.CheckoutClient.Payment;
+import com.quickcommerce.order_service.service.CheckoutClient.StockLine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Places an order, holds its stock and starts its payment in one request.
+ * <ol>
+ * <li>The order is validated and priced locally, without saving it.</li>
+ * <li>Every line's stock is reserved and the payment is validated, all at
+ * once.</li>
+ * <li>The order is saved.</li>
+ * <li>The payment is initiated and every reservation confirmed, all at
+ * once.</li>
+ * </ol>
+ * Each concurrent step runs its calls on virtual threads and waits at most
+ * {@code order.checkout.call-timeout-ms} for them, so a checkout takes
+ * about as long as its slowest call per step rather than the sum of them.
+ * <p>
+ * If a step fails, whatever the earlier steps did is undone before the
+ * checkout fails: holds are released, stock from confirmed holds is put back,
+ * an initiated payment is failed and the order is cancelled. A call that
+ * timed out may still have happened; a hold it made expires after
+ * {@code reservation-ttl-seconds}. A payment request that got no answer is
+ * sent again with the same order-derived idempotency key, which returns the
+ * payment if the first attempt created one, and that payment is failed.
+ */
+@Service
+@Slf4j
+public class CheckoutService {
+
+    private final OrderService orderService;
+    private final CheckoutClient client;
+    private final MeterRegistry meterRegistry;
+    private final long callTimeoutNanos;
+    private final long reservationTtlSeconds;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter compensationFailures;
+
+    public CheckoutService(
+            OrderService orderService,
+            CheckoutClient client,
+            MeterRegistry meterRegistry,
+            @Value("${order.checkout.call-timeout-ms:2000}") long callTimeoutMs,
+            @Value("${order.checkout.reservation-ttl-seconds:600}") long reservationTtlSeconds) {
+        this.orderService = orderService;
+        this.client = client;
+        this.meterRegistry = meterRegistry;
+        this.callTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(callTimeoutMs);
+        this.reservationTtlSeconds = reservationTtlSeconds;
+        this.compensationFailures = Counter.builder("order.checkout.compensation.failures")
+                .description("Undo steps of failed checkouts that did not go through")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public CheckoutResultDTO checkout(CheckoutDTO checkout) {
+        long started = System.nanoTime();
+        String outcome = "failed";
+        try {
+            CheckoutResultDTO result = place(checkout);
+            outcome = "completed";
+            return result;
+        } catch (ResponseStatusException e) {
+            outcome = e.getStatusCode().is4xxClientError() ? "rejected" : "failed";
+            throw e;
+        } finally {
+            Timer.builder("order.checkout")
+                    .description("End-to-end checkout latency")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private CheckoutResultDTO place(CheckoutDTO checkout) {
+        Order pending = orderService.newOrder(checkout.toOrder());
+        List<OrderItemDTO> lines = checkout.getItems();
+        log.info("Checking out {} lines for customer {}", lines.size(), checkout.getCustomerId());
+
+        // Hold every line's stock and check the payment at the same time
+        List<Future<Optional<Long>>> reserving = new ArrayList<>(lines.size());
+        for (OrderItemDTO line : lines) {
+            reserving.add(executor.submit(
+                    () -> client.reserve(line.getProductId(), line.getQuantity(), reservationTtlSeconds)));
+        }
+        Future<Void> validating = executor.submit(() -> {
+            client.validatePayment(pending.getTotalAmount(), checkout.getPaymentMethod());
+            return null;
+        });
+        long deadline = System.nanoTime() + callTimeoutNanos;
+        List<Hold> held = new ArrayList<>(lines.size());
+        RuntimeException rejection = null;
+        for (int i = 0; i < lines.size(); i++) {
+            OrderItemDTO line = lines.get(i);
+            Attempt<Optional<Long>> reserved = await(reserving.get(i), deadline);
+            if (reserved.failure() != null) {
+                rejection = first(rejection, unavailable("reserve stock for product " + line.getProductId(),
+                        reserved.failure()));
+            } else if (reserved.value().isEmpty()) {
+                rejection = first(rejection, new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Not enough stock for product " + line.getProductId()));
+            } else {
+                held.add(new Hold(reserved.value().get(), line.getProductId(), line.getQuantity()));
+            }
+        }
+        Attempt<Void> validated = await(validating, deadline);
+        if (validated.failure() != null) {
+            rejection = first(rejection, validated.failure() instanceof ResponseStatusException refused
+                    ? refused
+                    : unavailable("validate the payment", validated.failure()));
+        }
+        if (rejection != null) {
+            undo(held, List.of(), null, null);
+            throw rejection;
+        }
+
+        OrderDTO order;
+        try {
+            order = orderService.saveNewOrders(List.of(pending)).get(0);
+        } catch (RuntimeException e) {
+            undo(held, List.of(), null, null);
+            throw e;
+        }
+
+        // Start the payment and turn the holds into sales at the same time
+        Future<Payment> paying = executor.submit(
+                () -> client.initiatePayment(order.getId(), order.getTotalAmount(), checkout.getPaymentMethod()));
+        List<Future<Boolean>> confirming = new ArrayList<>(held.size());
+        for (Hold hold : held) {
+            confirming.add(executor.submit(() -> client.confirmReservation(hold.reservationId())));
+        }
+        deadline = System.nanoTime() + callTimeoutNanos;
+        List<Hold> unconfirmed = new ArrayList<>();
+        List<Hold> confirmed = new ArrayList<>(held.size());
+        for (int i = 0; i < held.size(); i++) {
+            Attempt<Boolean> attempt = await(confirming.get(i), deadline);
+            if (attempt.failure() == null && attempt.value()) {
+                confirmed.add(held.get(i));
+            } else {
+                unconfirmed.add(held.get(i));
+                rejection = first(rejection, attempt.failure() != null
+                        ? unavailable("confirm reservation " + held.get(i).reservationId(), attempt.failure())
+                        : new ResponseStatusException(HttpStatus.CONFLICT,
+                                "Reservation " + held.get(i).reservationId() + " expired before checkout finished"));
+            }
+        }
+        Attempt<Payment> paid = await(paying, deadline);
+        Callable<Payment> payment = paid.value() != null ? paid::value : null;
+        if (paid.failure() != null) {
+            rejection = first(rejection, unavailable("initiate the payment", paid.failure()));
+            // an error response means payment-service rolled the payment back; anything else may have created it
+            if (!(paid.failure() instanceof RestClientResponseException)) {
+                payment = () -> client.initiatePayment(order.getId(), order.getTotalAmount(),
+                        checkout.getPaymentMethod());
+            }
+        }
+        if (rejection != null) {
+            undo(unconfirmed, confirmed, payment, order.getId());
+            throw rejection;
+        }
+
+        log.info("Checked out order {} with payment {}", order.getId(), paid.value().transactionId());
+        return CheckoutResultDTO.builder()
+                .order(order)
+                .paymentId(paid.value().id())
+                .transactionId(paid.value().transactionId())
+                .paymentStatus(paid.value().status())
+                .reservationIds(held.stream().map(Hold::reservationId).toList())
+                .build();
+    }
+
+    /**
+     * Undoes what a failed checkout had done so far, all at once, and waits for
+     * it. {@code payment} supplies the payment to fail, if there may be one.
+     */
+    private void undo(List<Hold> held, List<Hold> sold, Callable<Payment> payment, Long orderId) {
+        List<Callable<Void>> steps = new ArrayList<>();
+        for (Hold hold : held) {
+            steps.add(() -> {
+                if (!client.releaseReservation(hold.reservationId())) {
+                    log.warn("Reservation {} was no longer held when checkout released it", hold.reservationId());
+                }
+                return null;
+            });
+        }
+        if (!sold.isEmpty()) {
+            steps.add(() -> {
+                client.restock(sold.stream().map(hold -> new StockLine(hold.productId(), hold.quantity())).toList());
+                return null;
+            });
+        }
+        if (payment != null) {
+            steps.add(() -> {
+                client.failPayment(payment.call().id(), "Checkout did not complete");
+                return null;
+            });
+        }
+        if (orderId != null) {
+            steps.add(() -> {
+                orderService.cancelOrder(orderId);
+                return null;
+            });
+        }
+        List<Future<Void>> running = steps.stream().map(executor::submit).toList();
+        long deadline = System.nanoTime() + callTimeoutNanos;
+        for (Future<Void> step : running) {
+            Attempt<Void> undone = await(step, deadline);
+            if (undone.failure() != null) {
+                compensationFailures.increment();
+                log.error("Could not undo part of a failed checkout for order {}", orderId, undone.failure());
+            }
+        }
+    }
+
+    /** Waits for a call until the deadline, cancelling it if it is still running then. */
+    private static <T> Attempt<T> await(Future<T> call, long deadline) {
+        try {
+            return new Attempt<>(call.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS), null);
+        } catch (ExecutionException e) {
+            return new Attempt<>(null, e.getCause());
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            return new Attempt<>(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel(true);
+            return new Attempt<>(null, e);
+        }
+    }
+
+    private static ResponseStatusException unavailable(String step, Throwable cause) {
+        String reason = cause instanceof TimeoutException ? "timed out" : "failed";
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Checkout could not " + step + ": the call " + reason, cause);
+    }
+
+    private static RuntimeException first(RuntimeException current, RuntimeException candidate) {
+        return current != null ? current : candidate;
+    }
+
+    private record Hold(long reservationId, long productId, int quantity) {
+    }
+
+    private record Attempt<T>(T value, Throwable failure) {
+    }
+}
@@ -0,0 +1,233 @@
+package com.quickcommerce.order_service.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.entity.Order;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Group commit for new orders. With {@code order.group-commit.enabled},
+ * {@link #createOrder} validates the order on the caller's thread and puts it
+ * on a bounded queue. A single writer takes whatever has arrived within
+ * {@code max-wait-micros} of the first order, up to {@code max-batch-size},
+ * saves the lot in one transaction and then completes each caller. At peak
+ * that is one commit, one fsync and one pooled connection for hundreds of
+ * orders instead of one each.
+ * <p>
+ * If a batch fails, its orders are retried one at a time, so one bad order
+ * only fails its own request. A full queue is rejected with 503 rather than
+ * letting callers pile up. When disabled, every order is its own
+ * transaction, as before.
+ * <p>
+ * The writer claims each order before saving it. A caller that times out, or
+ * that queued its order while the writer was shutting down, claims it back
+ * instead and gets a 503 knowing the order was not created, so a retry cannot
+ * duplicate it. If the writer got there first the caller waits for that
+ * write to finish and returns its outcome.
+ */
+@Service
+@Slf4j
+public class OrderBatchWriter {
+
+    private final OrderService orderService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long timeoutMs;
+    private final BlockingQueue<PendingOrder> queue;
+    private final DistributionSummary batchSizes;
+    private volatile boolean running;
+    private Thread writer;
+
+    public OrderBatchWriter(
+            OrderService orderService,
+            MeterRegistry meterRegistry,
+            @Value("${order.group-commit.enabled:false}") boolean enabled,
+            @Value("${order.group-commit.queue-capacity:10000}") int queueCapacity,
+            @Value("${order.group-commit.max-batch-size:500}") int maxBatchSize,
+            @Value("${order.group-commit.max-wait-micros:1000}") long maxWaitMicros,
+            @Value("${order.group-commit.timeout-ms:5000}") long timeoutMs) {
+        this.orderService = orderService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.timeoutMs = timeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("order.group-commit.queue", queue, BlockingQueue::size)
+                .description("Orders waiting for the group commit writer")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("order.group-commit.batch")
+                .description("Orders saved per group commit")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "order-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /** Creates an order, in a shared transaction with other concurrent orders when group commit is enabled. */
+    public OrderDTO createOrder(OrderDTO orderDTO) {
+        if (!enabled) {
+            return orderService.createOrder(orderDTO);
+        }
+        PendingOrder pending = new PendingOrder(orderDTO, orderService.newOrder(orderDTO),
+                new CompletableFuture<>(), new AtomicBoolean());
+        if (!running || !queue.offer(pending)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many orders in flight, retry later");
+        }
+        // The writer may have drained the queue and exited between the check and the offer.
+        if (!running && pending.claim()) {
+            queue.remove(pending);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down, retry later");
+        }
+        try {
+            return pending.result().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.claim()) {
+                queue.remove(pending);
+            }
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted waiting for the order");
+        } catch (TimeoutException e) {
+            if (pending.claim()) {
+                queue.remove(pending);
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Timed out waiting for the order to be saved; it was not created, retry later");
+            }
+            return awaitWrite(pending);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to create order", e.getCause());
+        }
+    }
+
+    /** Waits for a write the writer has already started; it ends in a commit or a rollback either way. */
+    private OrderDTO awaitWrite(PendingOrder pending) {
+        try {
+            return pending.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Interrupted waiting for the order; it may still be created");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to create order", e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null || !first.claim()) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (Exception e) {
+                log.error("Group commit writer failed", e);
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** Adds what arrives within the wait window after the first order, up to a full batch. */
+    private void collect(List<PendingOrder> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        List<PendingOrder> drained = new ArrayList<>(maxBatchSize);
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(drained, maxBatchSize - batch.size());
+            drained.stream().filter(PendingOrder::claim).forEach(batch::add);
+            drained.clear();
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            if (next.claim()) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void write(List<PendingOrder> batch) {
+        batchSizes.record(batch.size());
+        List<OrderDTO> created;
+        try {
+            created = orderService.saveNewOrders(batch.stream().map(PendingOrder::order).toList());
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} orders failed, saving them one at a time: {}", batch.size(), e.getMessage());
+            for (PendingOrder pending : batch) {
+                try {
+                    pending.result().complete(orderService.createOrder(pending.request()));
+                } catch (RuntimeException single) {
+                    pending.result().completeExceptionally(single);
+                }
+            }
+            return;
+        }
+        log.info("Group commit saved {} orders", created.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(created.get(i));
+        }
+    }
+
+    private record PendingOrder(OrderDTO request, Order order, CompletableFuture<OrderDTO> result,
+            AtomicBoolean claimed) {
+
+        /** True for whichever of the writer and the caller gets to the order first. */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
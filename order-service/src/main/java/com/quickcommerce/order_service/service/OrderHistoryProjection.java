@@ -0,0 +1,395 @@
+package com.quickcommerce.order_service.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.order_service.dto.CustomerOrderHistoryDTO;
+import com.quickcommerce.order_service.entity.Order;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository.KeyedOrder;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository.OrderRow;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository.StatusCountChange;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository.Summary;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository.SummaryChange;
+import com.quickcommerce.order_service.repository.OrderJdbcRepository.Keyset;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The customer order history read model, kept up to date from
+ * {@code order-events} so customer history reads never touch the orders
+ * table.
+ * <p>
+ * A background thread consumes the topic in the {@value #GROUP} group, so
+ * with several instances each partition is applied by one of them. Every
+ * poll is applied in one transaction that also moves the stored offset of
+ * each partition it covers, and only if that offset is still where this
+ * consumer left it. The tables therefore always reflect a prefix of every
+ * partition, an event is never applied twice, and a consumer that lost its
+ * partition, or missed a rebuild, rolls back and seeks to the stored offsets.
+ * Kafka's own committed offsets are not used. An event that cannot be read
+ * fails its whole poll rather than being skipped, so the projection stops
+ * at it, counting each attempt in {@code order.history.unreadable} while the
+ * lag grows, instead of silently dropping an order from the prefix.
+ * <p>
+ * Events carry the order's status after the change, so applying one only
+ * needs the status the read model had before it. An event whose status the
+ * order could not move to from that one, such as a replayed or reordered
+ * event, is skipped so it cannot count an order's spend twice. Reads take
+ * the summary and a page of orders from one snapshot and report the current
+ * lag, the number of events published but not yet applied.
+ */
+@Service
+@Slf4j
+public class OrderHistoryProjection {
+
+    static final String TOPIC = "order-events";
+    static final String GROUP = "order-history-projection";
+    private static final String PROJECTION = "customer-order-history";
+    private static final String SCOPE = "HISTORY";
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final ObjectMapper objectMapper;
+    private final CustomerOrderHistoryRepository repository;
+    private final TransactionTemplate writes;
+    private final TransactionTemplate reads;
+    private final boolean enabled;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    /** Offset this consumer expects to find stored per assigned partition; only touched by the consumer thread. */
+    private final Map<TopicPartition, Long> expected = new HashMap<>();
+    private final AtomicLong lag = new AtomicLong(-1);
+    private final Counter unreadable;
+    private volatile boolean rebuildRequested;
+    private volatile boolean running;
+    private Thread consumerThread;
+
+    public OrderHistoryProjection(
+            ConsumerFactory<String, String> consumerFactory,
+            ObjectMapper objectMapper,
+            CustomerOrderHistoryRepository repository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${order.history.enabled:false}") boolean enabled,
+            @Value("${order.pagination.default-limit:50}") int defaultPageSize,
+            @Value("${order.pagination.max-limit:500}") int maxPageSize) {
+        this.consumerFactory = consumerFactory;
+        this.objectMapper = objectMapper;
+        this.repository = repository;
+        this.writes = new TransactionTemplate(transactionManager);
+        this.reads = new TransactionTemplate(transactionManager);
+        this.reads.setReadOnly(true);
+        this.reads.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.enabled = enabled;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        Gauge.builder("order.history.lag", lag, AtomicLong::get)
+                .description("Order events not yet applied to the customer order history, or -1 if unknown")
+                .register(meterRegistry);
+        this.unreadable = Counter.builder("order.history.unreadable")
+                .description("Attempts to apply an order event that could not be read; the projection stops at it")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        consumerThread = new Thread(this::consumeLoop, "order-history-projection");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (consumerThread == null) {
+            return;
+        }
+        running = false;
+        consumerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /** The customer's summary and a page of their orders, newest first, as of one point in the event stream. */
+    public CustomerOrderHistoryDTO getHistory(String customerId, String cursor, Integer limit) {
+        requireEnabled();
+        String scope = PageCursor.scope(SCOPE, customerId);
+        Keyset after = PageCursor.decode(scope, cursor);
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        return reads.execute(status -> {
+            Summary summary = repository.findSummary(customerId)
+                    .orElse(new Summary(0, BigDecimal.ZERO, null));
+            List<KeyedOrder> rows = repository.findOrders(customerId, after, pageSize + 1);
+            String next = rows.size() > pageSize ? PageCursor.encode(scope, rows.get(pageSize - 1).keyset()) : null;
+            return CustomerOrderHistoryDTO.builder()
+                    .customerId(customerId)
+                    .orderCount(summary.orderCount())
+                    .lifetimeSpend(summary.lifetimeSpend())
+                    .ordersByStatus(repository.findStatusCounts(customerId))
+                    .lastOrderAt(summary.lastOrderAt())
+                    .orders(rows.stream().limit(pageSize).map(KeyedOrder::order).toList())
+                    .nextCursor(next)
+                    .lag(lag.get())
+                    .build();
+        });
+    }
+
+    /**
+     * Empties the read model and replays the topic from the oldest event
+     * Kafka still holds. Other instances notice on their next write and
+     * follow. Returns at once; the rebuild runs on the consumer thread.
+     */
+    public void rebuild() {
+        requireEnabled();
+        rebuildRequested = true;
+        log.info("Customer order history rebuild requested");
+    }
+
+    long lag() {
+        return lag.get();
+    }
+
+    private void requireEnabled() {
+        if (!enabled) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order history projection is disabled");
+        }
+    }
+
+    private void consumeLoop() {
+        while (running) {
+            try {
+                consume();
+            } catch (Exception e) {
+                log.error("Order history consumer failed, reconnecting", e);
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    private void consume() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<String, String> consumer = consumerFactory.createConsumer(GROUP, "order-history", null,
+                properties)) {
+            consumer.subscribe(List.of(TOPIC), new ConsumerRebalanceListener() {
+
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    partitions.forEach(expected::remove);
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    seekToStored(consumer, partitions);
+                }
+            });
+            long nextLagCheck = System.nanoTime();
+            while (running) {
+                if (rebuildRequested) {
+                    rebuildRequested = false;
+                    reset(consumer);
+                }
+                ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(200));
+                if (!records.isEmpty() && !write(records)) {
+                    log.info("Order history offsets moved under this consumer, seeking to the stored offsets");
+                    seekToStored(consumer, consumer.assignment());
+                }
+                long now = System.nanoTime();
+                if (now - nextLagCheck >= 0) {
+                    updateLag(consumer);
+                    nextLagCheck = now + TimeUnit.SECONDS.toNanos(1);
+                }
+            }
+        } finally {
+            expected.clear();
+        }
+    }
+
+    private void seekToStored(Consumer<String, String> consumer, Collection<TopicPartition> partitions) {
+        Map<Integer, Long> stored = repository.findOffsets(PROJECTION, TOPIC);
+        for (TopicPartition partition : partitions) {
+            Long offset = stored.get(partition.partition());
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+            expected.put(partition, offset);
+        }
+    }
+
+    /** Applies a poll and moves the offsets past it, or does neither if another consumer has moved them. */
+    private boolean write(ConsumerRecords<String, String> records) {
+        Boolean written = writes.execute(status -> {
+            for (TopicPartition partition : records.partitions()) {
+                List<ConsumerRecord<String, String>> batch = records.records(partition);
+                long next = batch.get(batch.size() - 1).offset() + 1;
+                if (!repository.advanceOffset(PROJECTION, TOPIC, partition.partition(), expected.get(partition),
+                        next)) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+            }
+            List<OrderEvent> events = new ArrayList<>(records.count());
+            for (ConsumerRecord<String, String> record : records) {
+                events.add(parse(record));
+            }
+            apply(events);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(written)) {
+            return false;
+        }
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, String>> batch = records.records(partition);
+            expected.put(partition, batch.get(batch.size() - 1).offset() + 1);
+        }
+        return true;
+    }
+
+    /** Folds a batch of events into order rows and per-customer changes, then writes each kind in one batch. */
+    void apply(List<OrderEvent> events) {
+        Map<Long, String> statuses = repository.findStatuses(events.stream().map(OrderEvent::orderId).toList());
+        Map<Long, OrderRow> orders = new LinkedHashMap<>();
+        Map<String, SummaryChange> summaries = new LinkedHashMap<>();
+        Map<List<String>, Long> statusCounts = new LinkedHashMap<>();
+        for (OrderEvent event : events) {
+            String previous = statuses.get(event.orderId());
+            if (previous != null && !canMove(previous, event.status())) {
+                continue;
+            }
+            statuses.put(event.orderId(), event.status());
+            orders.put(event.orderId(), new OrderRow(event.orderId(), event.customerId(), event.orderNumber(),
+                    event.status(), event.totalAmount(), event.createdAt(), event.at()));
+
+            boolean cancelled = event.status().equals(Order.OrderStatus.CANCELLED.name());
+            long newOrders = previous == null ? 1 : 0;
+            BigDecimal spend = BigDecimal.ZERO;
+            if (previous == null && !cancelled) {
+                spend = event.totalAmount();
+            } else if (previous != null && cancelled) {
+                spend = event.totalAmount().negate();
+            }
+            summaries.merge(event.customerId(),
+                    new SummaryChange(event.customerId(), newOrders, spend, previous == null ? event.createdAt() : null),
+                    OrderHistoryProjection::combine);
+            if (previous != null) {
+                statusCounts.merge(List.of(event.customerId(), previous), -1L, Long::sum);
+            }
+            statusCounts.merge(List.of(event.customerId(), event.status()), 1L, Long::sum);
+        }
+        repository.saveOrders(new ArrayList<>(orders.values()));
+        repository.addToSummaries(new ArrayList<>(summaries.values()));
+        repository.addToStatusCounts(statusCounts.entrySet().stream()
+                .filter(count -> count.getValue() != 0)
+                .map(count -> new StatusCountChange(count.getKey().get(0), count.getKey().get(1), count.getValue()))
+                .toList());
+    }
+
+    private static boolean canMove(String from, String to) {
+        try {
+            return Order.OrderStatus.valueOf(from).canMoveTo(Order.OrderStatus.valueOf(to));
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping order event with an unknown status transition {} -> {}", from, to);
+            return false;
+        }
+    }
+
+    private void reset(Consumer<String, String> consumer) {
+        List<TopicPartition> partitions = consumer.partitionsFor(TOPIC, Duration.ofSeconds(10)).stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+        Map<Integer, Long> beginning = new HashMap<>();
+        consumer.beginningOffsets(partitions, Duration.ofSeconds(10))
+                .forEach((partition, offset) -> beginning.put(partition.partition(), offset));
+        writes.executeWithoutResult(status -> repository.reset(PROJECTION, TOPIC, beginning));
+        seekToStored(consumer, consumer.assignment());
+        log.info("Customer order history reset; replaying {} from the beginning", TOPIC);
+    }
+
+    private void updateLag(Consumer<String, String> consumer) {
+        try {
+            List<TopicPartition> partitions = consumer.partitionsFor(TOPIC, Duration.ofSeconds(5)).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions, Duration.ofSeconds(5));
+            Map<Integer, Long> stored = repository.findOffsets(PROJECTION, TOPIC);
+            long behind = 0;
+            for (Map.Entry<TopicPartition, Long> end : consumer.endOffsets(partitions, Duration.ofSeconds(5))
+                    .entrySet()) {
+                long applied = stored.getOrDefault(end.getKey().partition(), beginning.get(end.getKey()));
+                behind += Math.max(0, end.getValue() - applied);
+            }
+            lag.set(behind);
+        } catch (Exception e) {
+            log.warn("Could not work out the order history lag: {}", e.getMessage());
+        }
+    }
+
+    /** Reads an event, or throws so that the poll holding it is rolled back and retried rather than skipped. */
+    OrderEvent parse(ConsumerRecord<String, String> record) {
+        try {
+            JsonNode event = objectMapper.readTree(record.value());
+            LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault());
+            return new OrderEvent(
+                    event.get("orderId").asLong(),
+                    event.get("customerId").asText(),
+                    event.get("orderNumber").asText(),
+                    event.get("status").asText(),
+                    event.get("totalAmount").decimalValue(),
+                    event.hasNonNull("createdAt") ? LocalDateTime.parse(event.get("createdAt").asText()) : at,
+                    at);
+        } catch (Exception e) {
+            unreadable.increment();
+            throw new IllegalStateException("Unreadable order event at " + record.topic() + "-" + record.partition()
+                    + "@" + record.offset() + ": " + record.value(), e);
+        }
+    }
+
+    private static SummaryChange combine(SummaryChange a, SummaryChange b) {
+        LocalDateTime last = a.lastOrderAt() == null ? b.lastOrderAt()
+                : b.lastOrderAt() == null || a.lastOrderAt().isAfter(b.lastOrderAt()) ? a.lastOrderAt() : b.lastOrderAt();
+        return new SummaryChange(a.customerId(), a.orders() + b.orders(), a.spend().add(b.spend()), last);
+    }
+
+    record OrderEvent(long orderId, String customerId, String orderNumber, String status, BigDecimal totalAmount,
+            LocalDateTime createdAt, LocalDateTime at) {
+    }
+}
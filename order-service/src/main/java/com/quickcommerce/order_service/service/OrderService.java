@@ -1,17 +1,39 @@
 package com.quickcommerce.order_service.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.dto.OrderItemDTO;
+import com.quickcommerce.order_service.dto.OrderPageDTO;
 import com.quickcommerce.order_service.entity.Order;
+import com.quickcommerce.order_service.entity.OrderItem;
+import com.quickcommerce.order_service.repository.OrderJdbcRepository;
+import com.quickcommerce.order_service.repository.OrderJdbcRepository.OrderPage;
+import com.quickcommerce.order_service.repository.OrderJdbcRepository.OrderState;
 import com.quickcommerce.order_service.repository.OrderRepository;
+import com.quickcommerce.order_service.repository.OutboxRepository.NewEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -19,29 +41,83 @@ import java.util.stream.Collectors;
 @Transactional
 public class OrderService {
 
+    private static final String CUSTOMER_SCOPE = "CUSTOMER";
+    private static final String STATUS_SCOPE = "STATUS";
+
     private final OrderRepository orderRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OrderJdbcRepository orderJdbcRepository;
+    private final OutboxRelay outboxRelay;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+    private final ProductCatalog productCatalog;
+
+    @Value("${order.pagination.default-limit:50}")
+    private int defaultPageSize;
+
+    @Value("${order.pagination.max-limit:500}")
+    private int maxPageSize;
+
+    @Value("${order.export.bucket-hours:24}")
+    private int exportBucketHours;
+
+    @Value("${order.export.chunk-size:500}")
+    private int exportChunkSize;
 
     public OrderDTO createOrder(OrderDTO orderDTO) {
+        OrderDTO created = saveNewOrders(List.of(newOrder(orderDTO))).get(0);
+        log.info("Order created with ID: {} and order number: {}", created.getId(), created.getOrderNumber());
+        return created;
+    }
+
+    /**
+     * Validates a new order and builds it with its items and total, without
+     * saving it. Runs outside any transaction, so callers that batch the save,
+     * such as the group commit, do not borrow a connection per order for it.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Order newOrder(OrderDTO orderDTO) {
         log.info("Creating order for customer: {}", orderDTO.getCustomerId());
 
+        List<OrderItemDTO> lines = orderDTO.getItems();
+        if (lines == null || lines.isEmpty()) {
+            throw new RuntimeException("Order must contain at least one item");
+        }
+
         Order order = Order.builder()
-                .orderNumber("ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase())
+                .orderNumber(idGenerator.nextKey("ORD-"))
                 .customerId(orderDTO.getCustomerId())
-                .totalAmount(orderDTO.getTotalAmount())
                 .shippingAddress(orderDTO.getShippingAddress())
                 .billingAddress(orderDTO.getBillingAddress())
                 .build();
 
-        Order saved = orderRepository.save(order);
-        log.info("Order created with ID: {} and order number: {}", saved.getId(), saved.getOrderNumber());
+        // The total is always derived from the lines; a client-supplied totalAmount is ignored.
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItemDTO line : lines) {
+            OrderItem item = toItem(line);
+            order.addItem(item);
+            total = total.add(item.getTotalPrice());
+        }
+        order.setTotalAmount(total);
+        return order;
+    }
 
-        publishOrderEvent("OrderCreated", saved);
-        return OrderDTO.from(saved);
+    /** Saves orders built by {@link #newOrder} and queues an OrderCreated event for each, all in one transaction. */
+    public List<OrderDTO> saveNewOrders(List<Order> orders) {
+        // Orders and items are flushed as JDBC batches, which the driver rewrites into multi-row INSERTs
+        List<Order> saved = orderRepository.saveAll(orders);
+        List<OrderDTO> created = new ArrayList<>(saved.size());
+        List<NewEvent> events = new ArrayList<>(saved.size());
+        for (Order order : saved) {
+            OrderDTO dto = OrderDTO.from(order);
+            created.add(dto);
+            events.add(orderEvent("OrderCreated", dto));
+        }
+        outboxRelay.enqueueAll(events);
+        return created;
     }
 
     public OrderDTO getOrder(Long id) {
-        Order order = orderRepository.findById(id)
+        Order order = orderRepository.findWithItemsById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + id));
         return OrderDTO.from(order);
     }
@@ -53,31 +129,84 @@ public class OrderService {
     }
 
     @Transactional(readOnly = true)
-    public List<OrderDTO> getCustomerOrders(String customerId) {
-        return orderRepository.findByCustomerId(customerId).stream()
-                .map(OrderDTO::from)
-                .collect(Collectors.toList());
+    public OrderPageDTO getCustomerOrders(String customerId, String cursor, Integer limit) {
+        String scope = PageCursor.scope(CUSTOMER_SCOPE, customerId);
+        OrderPage page = orderJdbcRepository.findByCustomer(customerId,
+                PageCursor.decode(scope, cursor), pageSize(limit));
+        return toPage(scope, page);
     }
 
     @Transactional(readOnly = true)
-    public List<OrderDTO> getOrdersByStatus(Order.OrderStatus status) {
-        return orderRepository.findByStatus(status).stream()
-                .map(OrderDTO::from)
-                .collect(Collectors.toList());
+    public OrderPageDTO getOrdersByStatus(Order.OrderStatus status, String cursor, Integer limit) {
+        String scope = PageCursor.scope(STATUS_SCOPE, status);
+        OrderPage page = orderJdbcRepository.findByStatus(status.name(),
+                PageCursor.decode(scope, cursor), pageSize(limit));
+        return toPage(scope, page);
+    }
+
+    /**
+     * Writes the orders created in [from, to) to {@code out} as newline-delimited
+     * JSON, oldest first, with their items. Rows are read in short keyset chunks
+     * outside any transaction, so a long export holds neither a connection nor
+     * a snapshot between chunks. Returns the number of orders written.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long exportOrders(LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        requireExportRange(from, to);
+        ObjectWriter writer = objectMapper.writerFor(OrderDTO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long written;
+        try {
+            written = orderJdbcRepository.streamByCreatedAt(from, to, Duration.ofHours(exportBucketHours),
+                    exportChunkSize, order -> {
+                        try {
+                            writer.writeValue(out, order);
+                            out.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        log.info("Exported {} orders created between {} and {}", written, from, to);
+        return written;
+    }
+
+    /**
+     * Rejects an empty or inverted export range with 400. Callers that stream
+     * the export check this before the response is committed, since a failure
+     * inside the stream can only abort it.
+     */
+    public void requireExportRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Export range is empty: from " + from + " must be before to " + to);
+        }
     }
 
     public OrderDTO updateOrderStatus(Long id, Order.OrderStatus newStatus) {
-        log.info("Updating order status - ID: {}, new status: {}", id, newStatus);
+        return updateOrderStatus(id, newStatus, null);
+    }
 
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found: " + id));
+    /**
+     * Moves an order to {@code newStatus} if the transition table allows it from
+     * the order's current status and, when {@code expectedVersion} is given, the
+     * order has not changed since that version. Of two conflicting updates, such
+     * as a ship and a cancel, exactly one succeeds; the other gets a 409.
+     */
+    public OrderDTO updateOrderStatus(Long id, Order.OrderStatus newStatus, Long expectedVersion) {
+        log.info("Updating order status - ID: {}, new status: {}", id, newStatus);
 
-        order.setStatus(newStatus);
-        Order updated = orderRepository.save(order);
+        List<String> sources = newStatus.sources().stream().map(Enum::name).toList();
+        OrderDTO updated = orderJdbcRepository.transition(id, sources, newStatus.name(), expectedVersion)
+                .orElseThrow(() -> rejectedTransition(id, newStatus, expectedVersion));
 
         String eventType = "Order" + newStatus.toString();
         publishOrderEvent(eventType, updated);
-        return OrderDTO.from(updated);
+        return updated;
     }
 
     public void cancelOrder(Long id) {
@@ -85,16 +214,78 @@ public class OrderService {
         updateOrderStatus(id, Order.OrderStatus.CANCELLED);
     }
 
-    private void publishOrderEvent(String eventType, Order order) {
-        String message = String.format(
-                "{\"eventType\":\"%s\",\"orderId\":%d,\"orderNumber\":\"%s\",\"customerId\":\"%s\",\"totalAmount\":%s,\"status\":\"%s\"}",
-                eventType, order.getId(), order.getOrderNumber(), order.getCustomerId(),
-                order.getTotalAmount(), order.getStatus());
+    /** Reads the order only after the conditional update missed, to say why. */
+    private RuntimeException rejectedTransition(Long id, Order.OrderStatus newStatus, Long expectedVersion) {
+        OrderState state = orderJdbcRepository.findState(id).orElse(null);
+        if (state == null) {
+            return new RuntimeException("Order not found: " + id);
+        }
+        Order.OrderStatus current = Order.OrderStatus.valueOf(state.status());
+        if (!current.canMoveTo(newStatus)) {
+            return new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Order " + id + " is " + current + " and cannot move to " + newStatus);
+        }
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Order " + id + " was changed concurrently; it is now "
+                + current + " at version " + state.version() + (expectedVersion != null ? ", not " + expectedVersion : ""));
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    private OrderPageDTO toPage(String scope, OrderPage page) {
+        return OrderPageDTO.builder()
+                .items(page.items())
+                .nextCursor(PageCursor.encode(scope, page.next()))
+                .build();
+    }
+
+    /** Prices the line from the product catalog replica when it is enabled, otherwise from the request. */
+    private OrderItem toItem(OrderItemDTO line) {
+        if (line.getProductId() == null) {
+            throw new RuntimeException("Order item is missing a productId");
+        }
+        if (line.getQuantity() == null || line.getQuantity() <= 0) {
+            throw new RuntimeException("Invalid quantity for product " + line.getProductId() + ": " + line.getQuantity());
+        }
+        BigDecimal listed = productCatalog.isEnabled()
+                ? productCatalog.priceOf(line.getProductId())
+                : line.getUnitPrice();
+        if (listed == null || listed.signum() < 0) {
+            throw new RuntimeException("Invalid unit price for product " + line.getProductId() + ": " + listed);
+        }
+        BigDecimal unitPrice = listed.setScale(2, RoundingMode.HALF_UP);
+        return OrderItem.builder()
+                .productId(line.getProductId())
+                .quantity(line.getQuantity())
+                .unitPrice(unitPrice)
+                .totalPrice(unitPrice.multiply(BigDecimal.valueOf(line.getQuantity())))
+                .build();
+    }
+
+    private void publishOrderEvent(String eventType, OrderDTO order) {
+        NewEvent event = orderEvent(eventType, order);
+        outboxRelay.enqueue(event.topic(), event.key(), event.payload());
+        log.info("Queued {} event for order: {}", eventType, order.getId());
+    }
+
+    /** Builds the event with Jackson, so client-supplied fields such as the customer id are escaped. */
+    private NewEvent orderEvent(String eventType, OrderDTO order) {
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("eventType", eventType)
+                .put("orderId", order.getId())
+                .put("orderNumber", order.getOrderNumber())
+                .put("customerId", order.getCustomerId())
+                .put("totalAmount", order.getTotalAmount())
+                .put("status", order.getStatus())
+                .put("createdAt", order.getCreatedAt() != null ? order.getCreatedAt().toString() : null);
         try {
-            kafkaTemplate.send("order-events", order.getId().toString(), message);
-            log.info("Published {} event for order: {}", eventType, order.getId());
-        } catch (Exception e) {
-            log.error("Failed to publish event", e);
+            return new NewEvent("order-events", order.getId().toString(), objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize order event", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package com.quickcommerce.order_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.quickcommerce.order_service.repository.OrderJdbcRepository.Keyset;
+
+/**
+ * Opaque continuation tokens for keyset pages. A token carries the listing
+ * it was issued for, so it cannot be replayed against another one.
+ */
+final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    /**
+     * The scope of a filtered listing: the listing's name plus the filter
+     * value, so a cursor from one customer's or status's pages is rejected
+     * on another's. The value is Base64-encoded to keep ':' out of it.
+     */
+    static String scope(String listing, Object filter) {
+        return listing + "/" + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(filter).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String encode(String scope, Keyset keyset) {
+        if (keyset == null) {
+            return null;
+        }
+        String raw = scope + ":" + keyset.id() + ":" + keyset.value();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Keyset decode(String scope, String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 3);
+            if (parts.length == 3 && parts[0].equals(scope)) {
+                return new Keyset(Long.parseLong(parts[1]), parts[2]);
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through to the error below
+        }
+        throw new RuntimeException("Invalid page cursor: " + token);
+    }
+}
@@ -0,0 +1,87 @@
+package com.quickcommerce.order_service.service;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.entity.Order;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The order side of the payment saga. payment-service starts an order's
+ * payment from its OrderCreated event; when the payment completes the order
+ * is confirmed, and when it fails a still pending order is cancelled. An
+ * order that has moved on meanwhile, such as one cancelled by its customer,
+ * is left as it is. Payments completed or failed in bulk arrive as one
+ * PaymentBatchCompleted or PaymentBatchFailed event listing them all, and
+ * each of their orders is moved the same way. An order of a batch that
+ * cannot be moved, such as one that does not exist, does not stop the
+ * others; the event is failed once they have all been tried, so the error
+ * handler can retry it, and moving the others again changes nothing.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentEventListener {
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = "payment-events")
+    public void onPaymentEvent(String message) {
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(message);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable payment event: {}", message, e);
+            return;
+        }
+        String eventType = event.path("eventType").asText();
+        if (eventType.startsWith("PaymentBatch")) {
+            String each = "Payment" + eventType.substring("PaymentBatch".length());
+            RuntimeException failure = null;
+            for (JsonNode payment : event.path("payments")) {
+                long orderId = payment.path("orderId").asLong();
+                try {
+                    apply(each, orderId);
+                } catch (RuntimeException e) {
+                    log.warn("Order {} not moved by {} {}", orderId, eventType, event.path("batchId").asText(), e);
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } else {
+            apply(eventType, event.path("orderId").asLong());
+        }
+    }
+
+    private void apply(String eventType, long orderId) {
+        switch (eventType) {
+            case "PaymentCompleted" -> move(orderId, Order.OrderStatus.CONFIRMED, null);
+            case "PaymentFailed" -> {
+                OrderDTO order = orderService.getOrder(orderId);
+                if (Order.OrderStatus.PENDING.name().equals(order.getStatus())) {
+                    // the version keeps a confirmation racing this from being overridden
+                    move(orderId, Order.OrderStatus.CANCELLED, order.getVersion());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void move(long orderId, Order.OrderStatus status, Long expectedVersion) {
+        try {
+            orderService.updateOrderStatus(orderId, status, expectedVersion);
+        } catch (ResponseStatusException e) {
+            log.info("Order {} not moved to {} by its payment: {}", orderId, status, e.getReason());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.quickcommerce.order_service.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A local replica of product prices and statuses, so new orders are checked
+ * and priced without calling product-service.
+ * <p>
+ * product-service writes each product's latest price and status to the
+ * compacted {@value #TOPIC} topic, keyed by product id. A background thread
+ * reads every partition of it, with no consumer group, into a
+ * {@link ProductCatalogReplica}. On start it loads the last snapshot and
+ * carries on from the offsets saved with it, or reads the topic from the
+ * beginning if there is none, which compaction keeps to one record per
+ * product.
+ * <p>
+ * Lag is the number of records between the replica and the end of the
+ * topic, checked every second. The replica is current as of a check once it
+ * has read up to the end offsets seen then, so under steady writes it stays
+ * fresh even though the lag is never zero. Lookups are refused with 503 until
+ * the replica has caught up once, and again whenever it has not caught up
+ * for longer than {@code order.catalog.max-staleness-ms}, for example while
+ * Kafka is down and the lag is unknown (-1).
+ */
+@Service
+@Slf4j
+public class ProductCatalog {
+
+    static final String TOPIC = "product-catalog";
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long maxStalenessNanos;
+    private final Path snapshotPath;
+    private final long snapshotIntervalNanos;
+    private final ProductCatalogReplica replica = new ProductCatalogReplica();
+    /** Next offset to read per partition; only touched by the consumer thread. */
+    private final Map<TopicPartition, Long> positions = new HashMap<>();
+    private final AtomicLong lag = new AtomicLong(-1);
+    private final long startedAtNanos = System.nanoTime();
+    /** End offsets seen by the previous lag check, and when; only touched by the consumer thread. */
+    private Map<TopicPartition, Long> checkedEnds = Map.of();
+    private long checkedAtNanos;
+    private volatile long caughtUpAtNanos;
+    private volatile boolean ready;
+    private volatile boolean running;
+    private Thread consumerThread;
+
+    public ProductCatalog(
+            ConsumerFactory<String, String> consumerFactory,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${order.catalog.enabled:false}") boolean enabled,
+            @Value("${order.catalog.max-staleness-ms:30000}") long maxStalenessMs,
+            @Value("${order.catalog.snapshot-path:}") String snapshotPath,
+            @Value("${order.catalog.snapshot-interval-ms:60000}") long snapshotIntervalMs) {
+        this.consumerFactory = consumerFactory;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.snapshotIntervalNanos = TimeUnit.MILLISECONDS.toNanos(snapshotIntervalMs);
+    }
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("product.catalog.lag", lag, AtomicLong::get)
+                .description("Records the product catalog replica is behind the topic, or -1 if unknown")
+                .register(meterRegistry);
+        Gauge.builder("product.catalog.staleness", this, catalog -> catalog.stalenessNanos() / 1e9)
+                .description("Time since the product catalog replica was last caught up")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("product.catalog.size", replica, ProductCatalogReplica::size)
+                .description("Products in the catalog replica")
+                .register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        consumerThread = new Thread(this::consumeLoop, "order-product-catalog");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (consumerThread == null) {
+            return;
+        }
+        running = false;
+        consumerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The listed unit price of an orderable product; fails if it is unknown, not ACTIVE or the replica is stale. */
+    public BigDecimal priceOf(long productId) {
+        requireFresh();
+        ProductCatalogReplica.Entry entry = replica.find(productId);
+        if (entry == null) {
+            throw new RuntimeException("Product not found: " + productId);
+        }
+        if (!entry.active()) {
+            throw new RuntimeException("Product is not available: " + productId);
+        }
+        return entry.price();
+    }
+
+    /** Refuses with 503 if the replica has not loaded, or has not been caught up for too long. */
+    public void requireFresh() {
+        if (!ready) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product catalog is still loading");
+        }
+        long staleness = stalenessNanos();
+        if (staleness > maxStalenessNanos) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product catalog is "
+                    + TimeUnit.NANOSECONDS.toMillis(staleness) + " ms behind product-service");
+        }
+    }
+
+    long lag() {
+        return lag.get();
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    private long stalenessNanos() {
+        return System.nanoTime() - (ready ? caughtUpAtNanos : startedAtNanos);
+    }
+
+    private void consumeLoop() {
+        loadSnapshot();
+        while (running) {
+            try {
+                consume();
+            } catch (Exception e) {
+                log.error("Product catalog consumer failed, reconnecting", e);
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    private void consume() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<String, String> consumer = consumerFactory.createConsumer(null, "order-product-catalog", null,
+                properties)) {
+            List<TopicPartition> partitions = List.of();
+            while (running && partitions.isEmpty()) {
+                partitions = consumer.partitionsFor(TOPIC, Duration.ofSeconds(10)).stream()
+                        .map(info -> new TopicPartition(info.topic(), info.partition()))
+                        .toList();
+                if (partitions.isEmpty()) {
+                    log.info("Waiting for the {} topic to be created", TOPIC);
+                    LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(5));
+                }
+            }
+            consumer.assign(partitions);
+            for (TopicPartition partition : partitions) {
+                Long position = positions.get(partition);
+                if (position != null) {
+                    consumer.seek(partition, position);
+                } else {
+                    consumer.seekToBeginning(List.of(partition));
+                }
+            }
+
+            long nextLagCheck = System.nanoTime();
+            long nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+            while (running) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    apply(record);
+                }
+                long now = System.nanoTime();
+                if (now - nextLagCheck >= 0) {
+                    updateLag(consumer, partitions);
+                    nextLagCheck = now + TimeUnit.SECONDS.toNanos(1);
+                }
+                if (ready && now - nextSnapshot >= 0) {
+                    writeSnapshot();
+                    nextSnapshot = now + snapshotIntervalNanos;
+                }
+            }
+            writeSnapshot();
+        }
+    }
+
+    private void apply(ConsumerRecord<String, String> record) {
+        positions.put(new TopicPartition(record.topic(), record.partition()), record.offset() + 1);
+        try {
+            long productId = Long.parseLong(record.key());
+            if (record.value() == null) {
+                replica.remove(productId);
+                return;
+            }
+            JsonNode product = objectMapper.readTree(record.value());
+            String status = product.path("status").asText();
+            // Deletes are tombstones; DELETED is how they were written before, and compaction keeps those too.
+            if (status.equals("DELETED") || !product.hasNonNull("price")) {
+                replica.remove(productId);
+                return;
+            }
+            long priceCents = product.get("price").decimalValue().setScale(2, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+            replica.put(productId, priceCents, status.equals("ACTIVE"));
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable product catalog record at {}-{}@{}: {}", record.topic(), record.partition(),
+                    record.offset(), record.value(), e);
+        }
+    }
+
+    private void updateLag(Consumer<String, String> consumer, List<TopicPartition> partitions) {
+        try {
+            Map<TopicPartition, Long> ends = consumer.endOffsets(partitions, Duration.ofSeconds(5));
+            Map<TopicPartition, Long> read = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                read.put(partition, consumer.position(partition, Duration.ofSeconds(5)));
+            }
+            recordLag(ends, read, System.nanoTime());
+        } catch (Exception e) {
+            lagUnknown();
+            log.warn("Could not read the end of {}: {}", TOPIC, e.getMessage());
+        }
+    }
+
+    /**
+     * Records a lag check made at {@code nowNanos}. The replica is current as
+     * of now if it has read everything, or as of the previous check if it has
+     * read up to the ends that check saw.
+     */
+    void recordLag(Map<TopicPartition, Long> ends, Map<TopicPartition, Long> read, long nowNanos) {
+        long behind = 0;
+        boolean readPreviousEnds = !checkedEnds.isEmpty();
+        for (Map.Entry<TopicPartition, Long> end : ends.entrySet()) {
+            long position = read.getOrDefault(end.getKey(), 0L);
+            behind += Math.max(0, end.getValue() - position);
+            readPreviousEnds &= position >= checkedEnds.getOrDefault(end.getKey(), Long.MAX_VALUE);
+        }
+        lag.set(behind);
+        if (behind == 0) {
+            caughtUp(nowNanos);
+        } else if (readPreviousEnds) {
+            caughtUp(checkedAtNanos);
+        }
+        checkedEnds = ends;
+        checkedAtNanos = nowNanos;
+    }
+
+    /** The end of the topic could not be read, so how far behind the replica is is unknown. */
+    void lagUnknown() {
+        lag.set(-1);
+    }
+
+    private void caughtUp(long atNanos) {
+        if (ready && atNanos - caughtUpAtNanos <= 0) {
+            return;
+        }
+        caughtUpAtNanos = atNanos;
+        if (!ready) {
+            ready = true;
+            log.info("Product catalog replica caught up with {} products", replica.size());
+        }
+    }
+
+    private void loadSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            Map<TopicPartition, Long> saved = new HashMap<>();
+            int partitions = in.readInt();
+            for (int i = 0; i < partitions; i++) {
+                saved.put(new TopicPartition(TOPIC, in.readInt()), in.readLong());
+            }
+            replica.readFrom(in);
+            positions.putAll(saved);
+            log.info("Loaded {} products from the catalog snapshot {}", replica.size(), snapshotPath);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable catalog snapshot {}, rebuilding from {}", snapshotPath, TOPIC, e);
+        }
+    }
+
+    private void writeSnapshot() {
+        if (snapshotPath == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshotPath.toAbsolutePath().getParent());
+            Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(positions.size());
+                for (Map.Entry<TopicPartition, Long> position : positions.entrySet()) {
+                    out.writeInt(position.getKey().partition());
+                    out.writeLong(position.getValue());
+                }
+                replica.writeTo(out);
+            }
+            Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write the catalog snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.quickcommerce.order_service.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Product id to price and status, in parallel primitive arrays indexed by an
+ * open-addressing hash of the id: about 17 bytes per product and no boxing
+ * or per-entry objects. Prices are held in cents.
+ * <p>
+ * There is one writer, the catalog consumer. Lookups take an optimistic read
+ * stamp and only fall back to the read lock if a write overlapped, so readers
+ * never block each other or the writer in the common case.
+ */
+final class ProductCatalogReplica {
+
+    static final byte ACTIVE = 1;
+    static final byte INACTIVE = 2;
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final StampedLock lock = new StampedLock();
+    private Table table;
+    private int size;
+
+    ProductCatalogReplica() {
+        this.table = new Table(1024);
+    }
+
+    /** Price and availability of a product, or null if it is not in the catalog. */
+    Entry find(long productId) {
+        long stamp = lock.tryOptimisticRead();
+        Entry entry = read(productId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                entry = read(productId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return entry;
+    }
+
+    void put(long productId, long priceCents, boolean active) {
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.keys.length) {
+                table = table.resize(table.keys.length * 2);
+            }
+            int slot = table.slotOf(productId);
+            if (table.keys[slot] == 0) {
+                size++;
+            }
+            table.keys[slot] = productId;
+            table.prices[slot] = priceCents;
+            table.flags[slot] = active ? ACTIVE : INACTIVE;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void remove(long productId) {
+        long stamp = lock.writeLock();
+        try {
+            if (table.remove(productId)) {
+                size--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Writes every entry, holding off the writer while it does. */
+    void writeTo(DataOutputStream out) throws IOException {
+        long stamp = lock.readLock();
+        try {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(size);
+            for (int slot = 0; slot < table.keys.length; slot++) {
+                if (table.keys[slot] != 0) {
+                    out.writeLong(table.keys[slot]);
+                    out.writeLong(table.prices[slot]);
+                    out.writeByte(table.flags[slot]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Replaces the contents with a snapshot written by {@link #writeTo}. */
+    void readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported catalog snapshot version");
+        }
+        int count = in.readInt();
+        int capacity = 1024;
+        while (capacity < count * 2) {
+            capacity *= 2;
+        }
+        Table loaded = new Table(capacity);
+        for (int i = 0; i < count; i++) {
+            long productId = in.readLong();
+            int slot = loaded.slotOf(productId);
+            loaded.keys[slot] = productId;
+            loaded.prices[slot] = in.readLong();
+            loaded.flags[slot] = in.readByte();
+        }
+        long stamp = lock.writeLock();
+        try {
+            table = loaded;
+            size = count;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private Entry read(long productId) {
+        // one read of the field, so the arrays below always belong to the same table
+        Table current = table;
+        int slot = current.slotOf(productId);
+        if (current.keys[slot] != productId) {
+            return null;
+        }
+        return new Entry(productId, BigDecimal.valueOf(current.prices[slot], 2), current.flags[slot] == ACTIVE);
+    }
+
+    record Entry(long productId, BigDecimal price, boolean active) {
+    }
+
+    /** Linear probing over a power-of-two capacity; id 0 marks an empty slot. */
+    private static final class Table {
+
+        final long[] keys;
+        final long[] prices;
+        final byte[] flags;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            prices = new long[capacity];
+            flags = new byte[capacity];
+            mask = capacity - 1;
+        }
+
+        /** The slot holding {@code key}, or the empty slot where it would go. */
+        int slotOf(long key) {
+            int slot = hash(key) & mask;
+            // the table is at most half full, so a probe always ends; the bound only guards torn optimistic reads
+            for (int probes = 0; probes <= mask && keys[slot] != key && keys[slot] != 0; probes++) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        boolean remove(long key) {
+            int slot = slotOf(key);
+            if (keys[slot] != key) {
+                return false;
+            }
+            // shift later entries of the probe run back so none is left behind the gap
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    prices[gap] = prices[next];
+                    flags[gap] = flags[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+            prices[gap] = 0;
+            flags[gap] = 0;
+            return true;
+        }
+
+        Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    int target = resized.slotOf(keys[slot]);
+                    resized.keys[target] = keys[slot];
+                    resized.prices[target] = prices[slot];
+                    resized.flags[target] = flags[slot];
+                }
+            }
+            return resized;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Line items get their own sequence, allocated in blocks of 50 so a whole
+-- basket is numbered with one nextval and inserted as a single batch.
+CREATE SEQUENCE order_item_sequence START WITH 1 INCREMENT BY 50;
+
+ALTER TABLE order_items ALTER COLUMN id SET DEFAULT nextval('order_item_sequence');
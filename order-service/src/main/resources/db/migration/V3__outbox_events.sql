@@ -0,0 +1,11 @@
+-- Events written in the same transaction as the change they describe and
+-- relayed to Kafka afterwards, oldest first
+CREATE SEQUENCE outbox_event_sequence START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE outbox_events (
+    id BIGINT PRIMARY KEY DEFAULT nextval('outbox_event_sequence'),
+    topic VARCHAR(255) NOT NULL,
+    event_key VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,13 @@
+-- Composite indexes for keyset pagination; each ends in id so (created_at, id) seeks land on one entry
+CREATE INDEX idx_orders_customer_created_at ON orders (customer_id, created_at, id);
+
+CREATE INDEX idx_orders_status_created_at ON orders (status, created_at, id);
+
+CREATE INDEX idx_orders_created_at_id ON orders (created_at, id);
+
+-- Covered by the composites above
+DROP INDEX idx_customer_id;
+
+DROP INDEX idx_status;
+
+DROP INDEX idx_created_at;
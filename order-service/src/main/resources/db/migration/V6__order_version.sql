@@ -0,0 +1,2 @@
+-- Bumped by every status transition; a transition can be made conditional on it
+ALTER TABLE orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,3 @@
+-- Order ids are allocated in blocks of 50, like line items, so a group
+-- commit of many orders does not fetch a sequence value for each one
+ALTER SEQUENCE order_sequence INCREMENT BY 50;
@@ -0,0 +1,39 @@
+-- Read model of each customer's orders, built from order-events. Rows and
+-- the offsets they were built up to are written in the same transaction, so
+-- the tables always reflect a prefix of every partition of the topic.
+CREATE TABLE customer_order_history (
+    order_id BIGINT PRIMARY KEY,
+    customer_id VARCHAR(255) NOT NULL,
+    order_number VARCHAR(255) NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    total_amount NUMERIC(10, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_customer_order_history_customer ON customer_order_history (customer_id, created_at, order_id);
+
+CREATE TABLE customer_order_summary (
+    customer_id VARCHAR(255) PRIMARY KEY,
+    order_count BIGINT NOT NULL,
+    -- totals of the customer's orders that were not cancelled
+    lifetime_spend NUMERIC(14, 2) NOT NULL,
+    last_order_at TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE customer_order_status_counts (
+    customer_id VARCHAR(255) NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    order_count BIGINT NOT NULL,
+    PRIMARY KEY (customer_id, status)
+);
+
+-- Next offset to apply per partition of each projection's topic
+CREATE TABLE projection_offsets (
+    projection VARCHAR(100) NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    partition_id INT NOT NULL,
+    next_offset BIGINT NOT NULL,
+    PRIMARY KEY (projection, topic, partition_id)
+);
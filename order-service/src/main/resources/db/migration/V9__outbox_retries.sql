@@ -0,0 +1,20 @@
+-- A failed send holds its key back until retry_at; an event that keeps failing
+-- is parked so the key's later events can go out
+ALTER TABLE outbox_events ADD COLUMN attempts INT NOT NULL DEFAULT 0;
+
+ALTER TABLE outbox_events ADD COLUMN retry_at TIMESTAMP;
+
+ALTER TABLE outbox_events ADD COLUMN last_error TEXT;
+
+CREATE INDEX idx_outbox_events_retry_key ON outbox_events (event_key, retry_at) WHERE retry_at IS NOT NULL;
+
+CREATE TABLE outbox_parked_events (
+    id BIGINT PRIMARY KEY,
+    topic VARCHAR(255) NOT NULL,
+    event_key VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    attempts INT NOT NULL,
+    last_error TEXT,
+    parked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,50 @@
+package com.quickcommerce.order_service.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.quickcommerce.order_service.entity.Order.OrderStatus;
+
+class OrderStatusTest {
+
+    @Test
+    void ordersMoveForwardAndCanBeCancelledUntilShipped() {
+        assertTrue(OrderStatus.PENDING.canMoveTo(OrderStatus.CONFIRMED));
+        assertTrue(OrderStatus.CONFIRMED.canMoveTo(OrderStatus.SHIPPED));
+        assertTrue(OrderStatus.SHIPPED.canMoveTo(OrderStatus.DELIVERED));
+        assertTrue(OrderStatus.PENDING.canMoveTo(OrderStatus.CANCELLED));
+        assertTrue(OrderStatus.CONFIRMED.canMoveTo(OrderStatus.CANCELLED));
+
+        assertFalse(OrderStatus.SHIPPED.canMoveTo(OrderStatus.CANCELLED));
+        assertFalse(OrderStatus.DELIVERED.canMoveTo(OrderStatus.PENDING));
+        assertFalse(OrderStatus.PENDING.canMoveTo(OrderStatus.SHIPPED));
+        assertFalse(OrderStatus.CANCELLED.canMoveTo(OrderStatus.CONFIRMED));
+    }
+
+    @Test
+    void noStatusMovesToItself() {
+        for (OrderStatus status : OrderStatus.values()) {
+            assertFalse(status.canMoveTo(status), status::name);
+        }
+    }
+
+    @Test
+    void sourcesAreTheInverseOfTheTransitions() {
+        for (OrderStatus target : OrderStatus.values()) {
+            Set<OrderStatus> expected = EnumSet.noneOf(OrderStatus.class);
+            for (OrderStatus from : OrderStatus.values()) {
+                if (from.canMoveTo(target)) {
+                    expected.add(from);
+                }
+            }
+            assertEquals(expected, target.sources(), target::name);
+        }
+        assertTrue(OrderStatus.PENDING.sources().isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package com.quickcommerce.order_service.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.quickcommerce.order_service.repository.OrderJdbcRepository.Keyset;
+import com.quickcommerce.order_service.repository.OrderJdbcRepository.OrderPage;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Latency of the first and the thousandth page of one customer's orders, and
+ * a full date-range export. Seeds 100,000 orders, so it only runs with
+ * {@code -Dbenchmark=true -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_order}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class OrderPaginationBenchmarkTest {
+
+    private static final int ORDERS = 100_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int SAMPLES = 50;
+    private static final String CUSTOMER = "paging-" + System.nanoTime();
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void seed() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("""
+                INSERT INTO orders (order_number, customer_id, total_amount, status, shipping_address,
+                                    billing_address, created_at, updated_at)
+                SELECT ? || g, ?, 10.00, 'PENDING', 'Seeded', 'Seeded',
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 minute', TIMESTAMP '2024-01-01'
+                FROM generate_series(1, ?) AS g
+                """, CUSTOMER + "-", CUSTOMER, ORDERS);
+        jdbcTemplate.update("""
+                INSERT INTO order_items (order_id, product_id, quantity, unit_price, total_price)
+                SELECT id, 1, 1, 10.00, 10.00 FROM orders WHERE customer_id = ?
+                """, CUSTOMER);
+        jdbcTemplate.execute("ANALYZE orders");
+        jdbcTemplate.execute("ANALYZE order_items");
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (SELECT id FROM orders WHERE customer_id = ?)",
+                CUSTOMER);
+        jdbcTemplate.update("DELETE FROM orders WHERE customer_id = ?", CUSTOMER);
+        dataSource.close();
+    }
+
+    @Test
+    void deepPagesCostTheSameAsTheFirst() {
+        OrderJdbcRepository repository = new OrderJdbcRepository(jdbcTemplate);
+
+        Keyset after = null;
+        for (int page = 1; page < 1000; page++) {
+            after = repository.findByCustomer(CUSTOMER, after, PAGE_SIZE).next();
+            assertNotNull(after);
+        }
+        Keyset thousandth = after;
+
+        long first = medianNanos(() -> repository.findByCustomer(CUSTOMER, null, PAGE_SIZE));
+        long deep = medianNanos(() -> repository.findByCustomer(CUSTOMER, thousandth, PAGE_SIZE));
+        System.out.printf("page 1: %d us, page 1000: %d us%n", first / 1000, deep / 1000);
+        assertTrue(deep < first * 2 + 1_000_000, "page 1000 took " + deep + " ns against " + first);
+    }
+
+    @Test
+    void exportReadsTheWholeRangeInChunks() {
+        OrderJdbcRepository repository = new OrderJdbcRepository(jdbcTemplate);
+        AtomicLong items = new AtomicLong();
+        long start = System.nanoTime();
+        long orders = repository.streamByCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0),
+                LocalDateTime.of(2025, 1, 1, 0, 0), Duration.ofDays(1), 500,
+                order -> items.addAndGet(order.getItems().size()));
+        System.out.printf("exported %d orders in %d ms%n", orders, (System.nanoTime() - start) / 1_000_000);
+        assertTrue(orders >= ORDERS);
+        assertEquals(orders, items.get());
+    }
+
+    private static long medianNanos(Supplier<OrderPage> query) {
+        for (int i = 0; i < 10; i++) {
+            query.get();
+        }
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            assertEquals(PAGE_SIZE, query.get().items().size());
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -0,0 +1,118 @@
+package com.quickcommerce.order_service.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.quickcommerce.order_service.entity.Order.OrderStatus;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Throughput of conditional status updates when every update races others
+ * for the same order. Threads walk the same orders in the same sequence, so
+ * each transition is attempted by all of them at about the same moment and
+ * all but one lose the compare-and-set. Seeds 20,000 orders per run, so it
+ * only runs with
+ * {@code -Dbenchmark=true -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_order}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class OrderTransitionBenchmarkTest {
+
+    private static final int ORDERS = 20_000;
+    private static final int THREADS = 8;
+    private static final String CUSTOMER = "transitions-" + System.nanoTime();
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void connect() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(THREADS);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        jdbcTemplate.update("DELETE FROM orders WHERE customer_id LIKE ?", CUSTOMER + "%");
+        dataSource.close();
+    }
+
+    @Test
+    void conflictingUpdatesKeepTheirThroughputAndExactlyOneWins() throws Exception {
+        Result alone = run("alone", 1);
+        Result contended = run("contended", THREADS);
+        System.out.printf("1 thread: %.0f attempts/s, %d threads: %.0f attempts/s (%d conflicts)%n",
+                alone.attemptsPerSecond(), THREADS, contended.attemptsPerSecond(), contended.conflicts());
+
+        // every order is confirmed once, then exactly one of ship and cancel wins
+        assertEquals(2L * ORDERS, alone.wins());
+        assertEquals(2L * ORDERS, contended.wins());
+        assertEquals(ORDERS, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM orders WHERE customer_id = ? AND version = 2", Long.class,
+                CUSTOMER + "-contended"));
+        assertTrue(contended.attemptsPerSecond() > alone.attemptsPerSecond(),
+                "contended " + contended.attemptsPerSecond() + " attempts/s against " + alone.attemptsPerSecond());
+    }
+
+    private Result run(String label, int threads) throws Exception {
+        String customer = CUSTOMER + "-" + label;
+        List<Long> ids = jdbcTemplate.queryForList("""
+                INSERT INTO orders (order_number, customer_id, total_amount, status, shipping_address,
+                                    billing_address, created_at, updated_at)
+                SELECT ? || g, ?, 10.00, 'PENDING', 'Seeded', 'Seeded', now(), now()
+                FROM generate_series(1, ?) AS g
+                RETURNING id
+                """, Long.class, customer + "-", customer, ORDERS);
+        OrderJdbcRepository repository = new OrderJdbcRepository(jdbcTemplate);
+        AtomicLong wins = new AtomicLong();
+        AtomicLong attempts = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // half the threads try to ship each order while the other half try to cancel it
+                OrderStatus race = t % 2 == 0 ? OrderStatus.SHIPPED : OrderStatus.CANCELLED;
+                workers.add(executor.submit(() -> {
+                    for (long id : ids) {
+                        for (OrderStatus target : List.of(OrderStatus.CONFIRMED, race)) {
+                            attempts.incrementAndGet();
+                            if (repository.transition(id, target.sources().stream().map(Enum::name).toList(),
+                                    target.name(), null).isPresent()) {
+                                wins.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new Result(wins.get(), attempts.get() - wins.get(), attempts.get() / seconds);
+    }
+
+    private record Result(long wins, long conflicts, double attemptsPerSecond) {
+    }
+}
@@ -0,0 +1,195 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.web.client.RestClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.order_service.dto.CheckoutDTO;
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.dto.OrderItemDTO;
+import com.quickcommerce.order_service.entity.Order;
+import com.quickcommerce.order_service.service.CheckoutStandIns.Response;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * End-to-end latency of a three-line checkout as one call to
+ * {@code POST /orders/checkout} against the three sequential calls the
+ * frontend makes today: create the order, update stock, initiate the payment.
+ * product-service, payment-service and the order write are local stand-ins
+ * with fixed delays, and every call from the client pays a gateway round trip
+ * of {@code -Dcheckout.client-rtt-ms} (20 by default). Four clients keep the
+ * stand-ins, which share the test's CPUs, from becoming the bottleneck. Only
+ * runs with {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CheckoutLatencyBenchmarkTest {
+
+    private static final int CLIENTS = 4;
+    private static final int CHECKOUTS = 1_000;
+    private static final long PRODUCT_LATENCY_MS = 15;
+    private static final long PAYMENT_LATENCY_MS = 25;
+    private static final long ORDER_WRITE_MS = 10;
+    private static final long CLIENT_RTT_MS = Long.getLong("checkout.client-rtt-ms", 20);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final AtomicLong orderIds = new AtomicLong();
+    private CheckoutStandIns standIns;
+    private CheckoutService checkoutService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        standIns = new CheckoutStandIns();
+        standIns.productLatencyMs = PRODUCT_LATENCY_MS;
+        standIns.paymentLatencyMs = PAYMENT_LATENCY_MS;
+
+        OrderService orderService = mock(OrderService.class);
+        when(orderService.newOrder(any())).thenReturn(Order.builder()
+                .customerId("benchmark")
+                .totalAmount(new BigDecimal("29.97"))
+                .build());
+        when(orderService.saveNewOrders(anyList())).thenAnswer(call -> List.of(writeOrder()));
+        CheckoutClient client = new CheckoutClient(RestClient.builder(), standIns.url(), standIns.url(), 2_000);
+        checkoutService = new CheckoutService(orderService, client, new SimpleMeterRegistry(), 2_000, 60);
+
+        standIns.route("/orders/checkout", body -> {
+            try {
+                checkoutService.checkout(objectMapper.readValue(body, CheckoutDTO.class));
+                return new Response(201, "{}");
+            } catch (Exception e) {
+                return new Response(500, "");
+            }
+        });
+        standIns.route("/orders", body -> {
+            writeOrder();
+            return new Response(201, "{}");
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkoutService.stop();
+        standIns.close();
+    }
+
+    @Test
+    void oneCheckoutCallBeatsThreeSequentialCalls() throws Exception {
+        String checkout = objectMapper.writeValueAsString(CheckoutDTO.builder()
+                .customerId("benchmark")
+                .shippingAddress("1 Test Street")
+                .billingAddress("1 Test Street")
+                .paymentMethod("CREDIT_CARD")
+                .items(items())
+                .build());
+        String order = objectMapper.writeValueAsString(OrderDTO.builder()
+                .customerId("benchmark")
+                .shippingAddress("1 Test Street")
+                .billingAddress("1 Test Street")
+                .items(items())
+                .build());
+        String stock = "[{\"productId\":1,\"quantity\":1},{\"productId\":2,\"quantity\":1},"
+                + "{\"productId\":3,\"quantity\":1}]";
+        String payment = "{\"orderId\":1,\"amount\":29.97,\"paymentMethod\":\"CREDIT_CARD\"}";
+
+        double[] threeCalls = run(() -> {
+            send("POST", "/orders", order);
+            send("PATCH", "/products/stock", stock);
+            send("POST", "/payments", payment);
+        });
+        double[] oneCall = run(() -> send("POST", "/orders/checkout", checkout));
+
+        System.out.printf("three calls: p50 %.1f ms, p99 %.1f ms; checkout: p50 %.1f ms, p99 %.1f ms%n",
+                threeCalls[0], threeCalls[1], oneCall[0], oneCall[1]);
+        assertTrue(oneCall[0] < threeCalls[0], "checkout p50 " + oneCall[0] + " ms against " + threeCalls[0]);
+    }
+
+    /** p50 and p99 in milliseconds of {@code flow} run CHECKOUTS times by CLIENTS concurrent clients. */
+    private double[] run(Flow flow) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            flow.run();
+        }
+        long[] latencies = new long[CHECKOUTS];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < CHECKOUTS; i = next.getAndIncrement()) {
+                        long sent = System.nanoTime();
+                        flow.run();
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Arrays.sort(latencies);
+        return new double[] { latencies[CHECKOUTS / 2] / 1e6, latencies[(int) (CHECKOUTS * 0.99)] / 1e6 };
+    }
+
+    private void send(String method, String path, String body) throws Exception {
+        Thread.sleep(CLIENT_RTT_MS);
+        HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(standIns.url() + path))
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build(), HttpResponse.BodyHandlers.discarding());
+        assertTrue(response.statusCode() < 300, method + " " + path + " answered " + response.statusCode());
+    }
+
+    private OrderDTO writeOrder() {
+        try {
+            Thread.sleep(ORDER_WRITE_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return OrderDTO.builder()
+                .id(orderIds.incrementAndGet())
+                .totalAmount(new BigDecimal("29.97"))
+                .status("PENDING")
+                .build();
+    }
+
+    private static List<OrderItemDTO> items() {
+        List<OrderItemDTO> items = new ArrayList<>();
+        for (long product = 1; product <= 3; product++) {
+            items.add(OrderItemDTO.builder().productId(product).quantity(1).unitPrice(new BigDecimal("9.99")).build());
+        }
+        return items;
+    }
+
+    private interface Flow {
+        void run() throws Exception;
+    }
+}
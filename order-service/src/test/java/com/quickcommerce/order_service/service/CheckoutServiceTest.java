@@ -0,0 +1,157 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.quickcommerce.order_service.dto.CheckoutDTO;
+import com.quickcommerce.order_service.dto.CheckoutResultDTO;
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.dto.OrderItemDTO;
+import com.quickcommerce.order_service.entity.Order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CheckoutServiceTest {
+
+    private static final long CALL_TIMEOUT_MS = 1_000;
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CheckoutStandIns standIns;
+    private CheckoutService checkoutService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        standIns = new CheckoutStandIns();
+        CheckoutClient client = new CheckoutClient(RestClient.builder(), standIns.url(), standIns.url(),
+                CALL_TIMEOUT_MS);
+        checkoutService = new CheckoutService(orderService, client, meterRegistry, CALL_TIMEOUT_MS, 60);
+        when(orderService.newOrder(any())).thenReturn(Order.builder()
+                .customerId("customer-1")
+                .totalAmount(new BigDecimal("25.00"))
+                .build());
+        when(orderService.saveNewOrders(anyList())).thenReturn(List.of(OrderDTO.builder()
+                .id(42L)
+                .customerId("customer-1")
+                .totalAmount(new BigDecimal("25.00"))
+                .status("PENDING")
+                .build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkoutService.stop();
+        standIns.close();
+    }
+
+    @Test
+    void holdsStockSavesTheOrderAndStartsItsPayment() {
+        CheckoutResultDTO result = checkoutService.checkout(checkout());
+
+        assertEquals(42L, result.getOrder().getId());
+        assertEquals("INITIATED", result.getPaymentStatus());
+        assertEquals(2, result.getReservationIds().size());
+        assertEquals(1, count("POST /payments/validate"));
+        assertEquals(1, standIns.calls.stream().filter("POST /payments"::equals).count());
+        assertEquals(2, count("POST /products/reservations/"));
+        assertEquals(0, count("DELETE"));
+    }
+
+    @Test
+    void outOfStockReleasesTheOtherHoldsAndSavesNothing() {
+        standIns.outOfStock.add(2L);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> checkoutService.checkout(checkout()));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        assertEquals(1, count("DELETE /products/reservations/"));
+        verify(orderService, never()).saveNewOrders(anyList());
+        assertEquals(0, standIns.calls.stream().filter("POST /payments"::equals).count());
+    }
+
+    @Test
+    void refusedPaymentReleasesTheHolds() {
+        standIns.validateStatus = 422;
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> checkoutService.checkout(checkout()));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+        assertEquals(2, count("DELETE /products/reservations/"));
+        verify(orderService, never()).saveNewOrders(anyList());
+    }
+
+    @Test
+    void failedPaymentPutsTheStockBackAndCancelsTheOrder() {
+        standIns.initiateStatus = 500;
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> checkoutService.checkout(checkout()));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(1, count("PATCH /products/stock"));
+        verify(orderService).cancelOrder(42L);
+    }
+
+    @Test
+    void paymentThatTimedOutIsFoundByItsOrderAndFailed() {
+        standIns.initiateLatencyMs = 3_000;
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> checkoutService.checkout(checkout()));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(2, standIns.calls.stream().filter("POST /payments"::equals).count());
+        assertEquals(1, standIns.calls.stream().filter(call -> call.matches("POST /payments/\\d+/fail")).count());
+        verify(orderService).cancelOrder(42L);
+    }
+
+    @Test
+    void slowServiceFailsTheCheckoutAtTheDeadline() {
+        standIns.productLatencyMs = 4_000;
+
+        long started = System.nanoTime();
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> checkoutService.checkout(checkout()));
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertTrue(elapsedMs < 3_000, "took " + elapsedMs + " ms");
+        verify(orderService, never()).cancelOrder(anyLong());
+    }
+
+    private long count(String prefix) {
+        return standIns.calls.stream().filter(call -> call.startsWith(prefix)).count();
+    }
+
+    private static CheckoutDTO checkout() {
+        return CheckoutDTO.builder()
+                .customerId("customer-1")
+                .shippingAddress("1 Test Street")
+                .billingAddress("1 Test Street")
+                .paymentMethod("CREDIT_CARD")
+                .items(List.of(
+                        OrderItemDTO.builder().productId(1L).quantity(1).unitPrice(new BigDecimal("10.00")).build(),
+                        OrderItemDTO.builder().productId(2L).quantity(1).unitPrice(new BigDecimal("15.00")).build()))
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.quickcommerce.order_service.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-ins for the product-service and payment-service endpoints a
+ * checkout calls, with a configurable delay per service. Extra routes, such as
+ * order-service itself for a benchmark, can be added with {@link #route}.
+ */
+final class CheckoutStandIns implements AutoCloseable {
+
+    private static final Pattern PRODUCT_ID = Pattern.compile("\"productId\":(\\d+)");
+
+    static {
+        // without it small responses wait out the client's delayed ACK, about 40 ms a call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    final Set<Long> outOfStock = ConcurrentHashMap.newKeySet();
+    final List<String> calls = new CopyOnWriteArrayList<>();
+    volatile long productLatencyMs;
+    volatile long paymentLatencyMs;
+    volatile int validateStatus = 204;
+    volatile int initiateStatus = 201;
+    /** Delay of the first payment request per idempotency key; a repeat is answered at once. */
+    volatile long initiateLatencyMs;
+
+    private final HttpServer server;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<String, Long> paymentsByKey = new ConcurrentHashMap<>();
+
+    CheckoutStandIns() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/products", this::products);
+        server.createContext("/payments", this::payments);
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** Serves {@code path} with {@code handler}, which maps a request body to the response. */
+    void route(String path, Function<String, Response> handler) {
+        server.createContext(path, exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Response response = handler.apply(body);
+            respond(exchange, response.status(), response.body());
+        });
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void products(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String call = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+        sleep(productLatencyMs);
+        if (call.equals("POST /products/reservations")) {
+            long productId = productId(body);
+            calls.add(call + " " + productId);
+            if (outOfStock.contains(productId)) {
+                respond(exchange, 409, "");
+            } else {
+                respond(exchange, 201, "{\"id\":" + ids.incrementAndGet() + ",\"status\":\"ACTIVE\"}");
+            }
+            return;
+        }
+        calls.add(call);
+        respond(exchange, call.startsWith("DELETE") ? 204 : 200, "{}");
+    }
+
+    private void payments(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        String call = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+        calls.add(call);
+        sleep(paymentLatencyMs);
+        switch (call) {
+            case "POST /payments/validate" -> respond(exchange, validateStatus, "");
+            case "POST /payments" -> {
+                String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+                long fresh = ids.incrementAndGet();
+                Long first = key == null ? null : paymentsByKey.putIfAbsent(key, fresh);
+                long id = first != null ? first : fresh;
+                if (first == null) {
+                    sleep(initiateLatencyMs);
+                }
+                respond(exchange, initiateStatus, initiateStatus >= 300 ? ""
+                        : "{\"id\":" + id + ",\"transactionId\":\"TXN-" + id + "\",\"status\":\"INITIATED\"}");
+            }
+            default -> respond(exchange, 200, "{}");
+        }
+    }
+
+    private static long productId(String body) {
+        Matcher matcher = PRODUCT_ID.matcher(body);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    record Response(int status, String body) {
+    }
+}
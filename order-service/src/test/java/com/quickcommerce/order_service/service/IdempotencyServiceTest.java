@@ -0,0 +1,196 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.repository.IdempotencyRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IdempotencyServiceTest {
+
+    private final InMemoryKeys keys = new InMemoryKeys();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyService service = newService();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void retryReplaysTheOriginalResponseWithoutRunningAgain() {
+        OrderDTO request = request("customer-1");
+
+        IdempotencyService.Result<OrderDTO> first = service.execute("key-1", request, OrderDTO.class,
+                () -> create(request));
+        IdempotencyService.Result<OrderDTO> retry = service.execute("key-1", request, OrderDTO.class,
+                () -> create(request));
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(1, runs.get());
+        assertEquals(first.body().getOrderNumber(), retry.body().getOrderNumber());
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheRequestInFlight() throws Exception {
+        OrderDTO request = request("customer-1");
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<IdempotencyService.Result<OrderDTO>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> service.execute("key-1", request, OrderDTO.class, () -> {
+                    await(release);
+                    return create(request);
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            int replays = 0;
+            String orderNumber = null;
+            for (Future<IdempotencyService.Result<OrderDTO>> result : results) {
+                IdempotencyService.Result<OrderDTO> response = result.get(10, TimeUnit.SECONDS);
+                replays += response.replayed() ? 1 : 0;
+                orderNumber = orderNumber == null ? response.body().getOrderNumber() : orderNumber;
+                assertEquals(orderNumber, response.body().getOrderNumber());
+            }
+            assertEquals(1, runs.get());
+            assertEquals(7, replays);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keyStoredByAnotherInstanceIsReplayedFromTheDatabase() {
+        OrderDTO request = request("customer-1");
+        service.execute("key-1", request, OrderDTO.class, () -> create(request));
+
+        IdempotencyService other = newService();
+        IdempotencyService.Result<OrderDTO> retry = other.execute("key-1", request, OrderDTO.class,
+                () -> create(request));
+
+        assertTrue(retry.replayed());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        service.execute("key-1", request("customer-1"), OrderDTO.class, () -> create(request("customer-1")));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.execute("key-1", request("customer-2"), OrderDTO.class,
+                        () -> create(request("customer-2"))));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestReleasesItsKey() {
+        OrderDTO request = request("customer-1");
+        assertThrows(IllegalStateException.class, () -> service.execute("key-1", request, OrderDTO.class, () -> {
+            throw new IllegalStateException("rolled back");
+        }));
+        keys.rows.remove("key-1");
+
+        IdempotencyService.Result<OrderDTO> retry = service.execute("key-1", request, OrderDTO.class,
+                () -> create(request));
+        assertFalse(retry.replayed());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void replayLookupStaysUnderAMillisecond() {
+        OrderDTO request = request("customer-1");
+        service.execute("key-1", request, OrderDTO.class, () -> create(request));
+        for (int i = 0; i < 10_000; i++) {
+            service.execute("key-1", request, OrderDTO.class, () -> create(request));
+        }
+        double meanMs = meterRegistry.get("idempotency.lookup").timer().mean(TimeUnit.MILLISECONDS);
+        assertTrue(meanMs < 1, "mean lookup " + meanMs + " ms");
+        assertEquals(0, keys.reads.get(), "replays on the same instance should not read the table");
+    }
+
+    private IdempotencyService newService() {
+        return new IdempotencyService(keys, TransactionOperations.withoutTransaction(), objectMapper,
+                meterRegistry, 24, 1000, 5000, 100);
+    }
+
+    private OrderDTO create(OrderDTO request) {
+        runs.incrementAndGet();
+        return OrderDTO.builder()
+                .id((long) runs.get())
+                .orderNumber("ORD-" + runs.get())
+                .customerId(request.getCustomerId())
+                .totalAmount(request.getTotalAmount())
+                .status("PENDING")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static OrderDTO request(String customerId) {
+        return OrderDTO.builder()
+                .customerId(customerId)
+                .totalAmount(new BigDecimal("10.00"))
+                .shippingAddress("1 Test Street")
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** The idempotency_keys table as a map; a claimed key stays taken until it is removed. */
+    private static final class InMemoryKeys extends IdempotencyRepository {
+
+        private final Map<String, StoredResponse> rows = new ConcurrentHashMap<>();
+        private final AtomicInteger reads = new AtomicInteger();
+
+        InMemoryKeys() {
+            super(null);
+        }
+
+        @Override
+        public boolean claim(String key, String requestHash, LocalDateTime expiresAt) {
+            return rows.putIfAbsent(key, new StoredResponse(requestHash, null)) == null;
+        }
+
+        @Override
+        public void complete(String key, String responseBody) {
+            rows.computeIfPresent(key, (k, row) -> new StoredResponse(row.requestHash(), responseBody));
+        }
+
+        @Override
+        public Optional<StoredResponse> find(String key) {
+            reads.incrementAndGet();
+            return Optional.ofNullable(rows.get(key)).filter(row -> row.responseBody() != null);
+        }
+    }
+}
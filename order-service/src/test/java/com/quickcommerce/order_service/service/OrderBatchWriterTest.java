@@ -0,0 +1,172 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.entity.Order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderBatchWriterTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> batches = new CopyOnWriteArrayList<>();
+    private OrderBatchWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void concurrentOrdersShareATransactionAndEachCallerGetsItsOwn() throws Exception {
+        when(orderService.newOrder(any())).thenAnswer(call -> build(call.getArgument(0)));
+        when(orderService.saveNewOrders(anyList())).thenAnswer(call -> {
+            List<Order> orders = call.getArgument(0);
+            batches.add(orders.size());
+            return orders.stream().map(OrderBatchWriterTest::saved).toList();
+        });
+        writer = start(true, 20_000);
+
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        try {
+            List<Future<OrderDTO>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String customer = "customer-" + i;
+                results.add(executor.submit(() -> {
+                    go.await();
+                    return writer.createOrder(OrderDTO.builder().customerId(customer).build());
+                }));
+            }
+            go.countDown();
+            for (int i = 0; i < 50; i++) {
+                assertEquals("customer-" + i, results.get(i).get(10, TimeUnit.SECONDS).getCustomerId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(50, batches.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batches.size() < 10, "orders were written in " + batches.size() + " transactions");
+        assertEquals(batches.size(), meterRegistry.get("order.group-commit.batch").summary().count());
+    }
+
+    @Test
+    void failedBatchIsRetriedOneOrderAtATime() {
+        when(orderService.newOrder(any())).thenAnswer(call -> build(call.getArgument(0)));
+        when(orderService.saveNewOrders(anyList())).thenThrow(new RuntimeException("constraint violation"));
+        when(orderService.createOrder(any())).thenAnswer(call -> {
+            OrderDTO request = call.getArgument(0);
+            if (request.getCustomerId().equals("bad")) {
+                throw new RuntimeException("constraint violation");
+            }
+            return saved(build(request));
+        });
+        writer = start(true, 1000);
+
+        assertEquals("good", writer.createOrder(OrderDTO.builder().customerId("good").build()).getCustomerId());
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> writer.createOrder(OrderDTO.builder().customerId("bad").build()));
+        assertEquals("constraint violation", e.getMessage());
+    }
+
+    @Test
+    void orderStillQueuedAtTheTimeoutIsNeverSaved() throws Exception {
+        when(orderService.newOrder(any())).thenAnswer(call -> build(call.getArgument(0)));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> savedCustomers = new CopyOnWriteArrayList<>();
+        when(orderService.saveNewOrders(anyList())).thenAnswer(call -> {
+            List<Order> orders = call.getArgument(0);
+            writing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            orders.forEach(order -> savedCustomers.add(order.getCustomerId()));
+            return orders.stream().map(OrderBatchWriterTest::saved).toList();
+        });
+        writer = start(true, 0, 200);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<OrderDTO> slow = executor.submit(
+                    () -> writer.createOrder(OrderDTO.builder().customerId("in-flight").build()));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> writer.createOrder(OrderDTO.builder().customerId("queued").build()));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+
+            release.countDown();
+            assertEquals("in-flight", slow.get(5, TimeUnit.SECONDS).getCustomerId());
+        } finally {
+            executor.shutdownNow();
+        }
+        writer.stop();
+        assertEquals(List.of("in-flight"), savedCustomers);
+    }
+
+    @Test
+    void ordersAfterShutdownAreRejectedWithoutBeingSaved() throws InterruptedException {
+        when(orderService.newOrder(any())).thenAnswer(call -> build(call.getArgument(0)));
+        writer = start(true, 1000);
+        writer.stop();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> writer.createOrder(OrderDTO.builder().customerId("late").build()));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        verify(orderService, never()).saveNewOrders(anyList());
+    }
+
+    @Test
+    void disabledWriterCreatesEachOrderInItsOwnTransaction() {
+        OrderDTO request = OrderDTO.builder().customerId("customer-1").build();
+        when(orderService.createOrder(request)).thenReturn(saved(build(request)));
+        writer = start(false, 1000);
+
+        assertEquals("customer-1", writer.createOrder(request).getCustomerId());
+        verify(orderService, never()).saveNewOrders(anyList());
+    }
+
+    private OrderBatchWriter start(boolean enabled, long maxWaitMicros) {
+        return start(enabled, maxWaitMicros, 5000);
+    }
+
+    private OrderBatchWriter start(boolean enabled, long maxWaitMicros, long timeoutMs) {
+        OrderBatchWriter started = new OrderBatchWriter(orderService, meterRegistry, enabled, 100, 500,
+                maxWaitMicros, timeoutMs);
+        started.start();
+        return started;
+    }
+
+    private static Order build(OrderDTO request) {
+        return Order.builder().customerId(request.getCustomerId()).build();
+    }
+
+    private static OrderDTO saved(Order order) {
+        return OrderDTO.builder().customerId(order.getCustomerId()).build();
+    }
+}
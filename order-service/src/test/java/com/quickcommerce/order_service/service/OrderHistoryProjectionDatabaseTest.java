@@ -0,0 +1,137 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.order_service.dto.CustomerOrderHistoryDTO;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Builds the customer order history from an embedded order-events topic into
+ * the order database, pages through it, then rebuilds it and checks nothing
+ * was counted twice. A rebuild empties the read model of the database it
+ * runs against, so it only runs with
+ * {@code -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_order}.
+ */
+@EmbeddedKafka(kraft = true, partitions = 3, topics = OrderHistoryProjection.TOPIC)
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class OrderHistoryProjectionDatabaseTest {
+
+    private static final String CUSTOMER = "history-" + System.nanoTime();
+
+    private HikariDataSource dataSource;
+    private KafkaTemplate<String, String> template;
+    private OrderHistoryProjection projection;
+
+    @BeforeEach
+    void setUp(EmbeddedKafkaBroker broker) {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+
+        Map<String, Object> consumerProps = new HashMap<>(KafkaTestUtils.consumerProps("unused", "false", broker));
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        Map<String, Object> producerProps = new HashMap<>(KafkaTestUtils.producerProps(broker));
+        producerProps.put("key.serializer", StringSerializer.class);
+        producerProps.put("value.serializer", StringSerializer.class);
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProps));
+
+        projection = new OrderHistoryProjection(new DefaultKafkaConsumerFactory<>(consumerProps), new ObjectMapper(),
+                new CustomerOrderHistoryRepository(new JdbcTemplate(dataSource)),
+                new JdbcTransactionManager(dataSource), new SimpleMeterRegistry(), true, 2, 500);
+        projection.start();
+        // offsets left by the application or an earlier run do not match this broker
+        projection.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        projection.stop();
+        template.destroy();
+        new JdbcTemplate(dataSource).update("DELETE FROM projection_offsets WHERE topic = ?",
+                OrderHistoryProjection.TOPIC);
+        dataSource.close();
+    }
+
+    @Test
+    void buildsPagesAndRebuildsTheHistory() throws Exception {
+        for (long order = 1; order <= 5; order++) {
+            send(order, "PENDING");
+        }
+        send(2, "CONFIRMED");
+        send(3, "CANCELLED");
+        send(2, "SHIPPED");
+
+        await(() -> projection.lag() == 0 && history(null).getOrderCount() == 5);
+        assertHistory(5, "40.00", 3);
+
+        // whether order 6 is applied before or after the replay, it must be counted once
+        projection.rebuild();
+        send(6, "PENDING");
+        await(() -> projection.lag() == 0 && history(null).getOrderCount() == 6);
+        assertHistory(6, "50.00", 4);
+    }
+
+    private void assertHistory(long newest, String spend, long pending) {
+        CustomerOrderHistoryDTO first = history(null);
+        assertEquals(new BigDecimal(spend), first.getLifetimeSpend());
+        assertEquals(Map.of("PENDING", pending, "SHIPPED", 1L, "CANCELLED", 1L), first.getOrdersByStatus());
+        assertEquals(2, first.getOrders().size());
+        assertEquals(newest, first.getOrders().get(0).getId());
+        assertNotNull(first.getNextCursor());
+
+        CustomerOrderHistoryDTO page = first;
+        while (page.getNextCursor() != null) {
+            page = history(page.getNextCursor());
+        }
+        assertEquals(1L, page.getOrders().get(page.getOrders().size() - 1).getId());
+    }
+
+    private CustomerOrderHistoryDTO history(String cursor) {
+        return projection.getHistory(CUSTOMER, cursor, 2);
+    }
+
+    private void send(long orderId, String status) throws Exception {
+        template.send(OrderHistoryProjection.TOPIC, Long.toString(orderId), String.format(
+                "{\"eventType\":\"Order%s\",\"orderId\":%d,\"orderNumber\":\"ORD-%d\",\"customerId\":\"%s\","
+                        + "\"totalAmount\":10.00,\"status\":\"%s\",\"createdAt\":\"2026-03-01T12:00:0%d\"}",
+                status, orderId, orderId, CUSTOMER, status, orderId)).get();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository.OrderRow;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository.StatusCountChange;
+import com.quickcommerce.order_service.repository.CustomerOrderHistoryRepository.SummaryChange;
+import com.quickcommerce.order_service.service.OrderHistoryProjection.OrderEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderHistoryProjectionTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private final CustomerOrderHistoryRepository repository = mock(CustomerOrderHistoryRepository.class);
+    private final ConsumerFactory<String, String> consumerFactory = mock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderHistoryProjection projection = new OrderHistoryProjection(consumerFactory,
+            new ObjectMapper(), repository, mock(PlatformTransactionManager.class), meterRegistry, false, 50, 500);
+
+    @Test
+    void foldsABatchIntoOneChangePerCustomerAndStatus() {
+        when(repository.findStatuses(any())).thenReturn(new HashMap<>());
+
+        projection.apply(List.of(
+                event(1, "alice", "PENDING", "10.00"),
+                event(2, "alice", "PENDING", "5.50"),
+                event(1, "alice", "CONFIRMED", "10.00"),
+                event(3, "bob", "PENDING", "7.00"),
+                event(3, "bob", "CANCELLED", "7.00")));
+
+        Map<String, SummaryChange> summaries = summaries();
+        assertEquals(2, summaries.get("alice").orders());
+        assertEquals(new BigDecimal("15.50"), summaries.get("alice").spend());
+        assertEquals(1, summaries.get("bob").orders());
+        assertEquals(0, summaries.get("bob").spend().signum());
+
+        Map<String, Long> counts = statusCounts();
+        assertEquals(Map.of("alice/PENDING", 1L, "alice/CONFIRMED", 1L, "bob/CANCELLED", 1L), counts);
+        assertEquals(3, orders().size());
+        assertEquals("CONFIRMED", orders().get(0).status());
+    }
+
+    @Test
+    void movesOrdersItHasAlreadySeenAndSkipsRepeats() {
+        when(repository.findStatuses(any())).thenReturn(new HashMap<>(Map.of(1L, "SHIPPED", 2L, "CONFIRMED")));
+
+        projection.apply(List.of(
+                event(1, "alice", "SHIPPED", "10.00"),
+                event(2, "alice", "CANCELLED", "4.00")));
+
+        SummaryChange alice = summaries().get("alice");
+        assertEquals(0, alice.orders());
+        assertEquals(new BigDecimal("-4.00"), alice.spend());
+        assertEquals(Map.of("alice/CONFIRMED", -1L, "alice/CANCELLED", 1L), statusCounts());
+        assertEquals(List.of(2L), orders().stream().map(OrderRow::orderId).toList());
+    }
+
+    @Test
+    void replayedAndReorderedEventsCountTheSpendOnce() {
+        when(repository.findStatuses(any())).thenReturn(new HashMap<>());
+
+        projection.apply(List.of(
+                event(1, "alice", "PENDING", "10.00"),
+                event(1, "alice", "CANCELLED", "10.00"),
+                event(1, "alice", "CONFIRMED", "10.00"),
+                event(1, "alice", "CANCELLED", "10.00"),
+                event(2, "alice", "CONFIRMED", "6.00"),
+                event(2, "alice", "PENDING", "6.00")));
+
+        SummaryChange alice = summaries().get("alice");
+        assertEquals(2, alice.orders());
+        assertEquals(new BigDecimal("6.00"), alice.spend());
+        assertEquals(Map.of("alice/CANCELLED", 1L, "alice/CONFIRMED", 1L), statusCounts());
+        assertEquals(List.of("CANCELLED", "CONFIRMED"), orders().stream().map(OrderRow::status).toList());
+    }
+
+    @Test
+    void refusesAnUnreadableEventAndCountsIt() {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("order-events", 0, 7, "1",
+                "{\"eventType\":\"OrderCreated\",\"orderId\":1,\"customerId\":\"a\"b\"}");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> projection.parse(record));
+
+        assertTrue(e.getMessage().startsWith("Unreadable order event at order-events-0@7"), e.getMessage());
+        assertEquals(1, meterRegistry.counter("order.history.unreadable").count());
+    }
+
+    private static OrderEvent event(long orderId, String customerId, String status, String total) {
+        return new OrderEvent(orderId, customerId, "ORD-" + orderId, status, new BigDecimal(total), CREATED,
+                CREATED.plusMinutes(orderId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OrderRow> orders() {
+        ArgumentCaptor<List<OrderRow>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveOrders(captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, SummaryChange> summaries() {
+        ArgumentCaptor<List<SummaryChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).addToSummaries(captor.capture());
+        Map<String, SummaryChange> byCustomer = new HashMap<>();
+        captor.getValue().forEach(change -> byCustomer.put(change.customerId(), change));
+        return byCustomer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> statusCounts() {
+        ArgumentCaptor<List<StatusCountChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).addToStatusCounts(captor.capture());
+        Map<String, Long> counts = new HashMap<>();
+        captor.getValue().forEach(change -> counts.put(change.customerId() + "/" + change.status(), change.delta()));
+        return counts;
+    }
+}
@@ -0,0 +1,169 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.dto.OrderItemDTO;
+import com.quickcommerce.order_service.repository.OrderJdbcRepository;
+import com.quickcommerce.order_service.repository.OutboxRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Orders per second and p99 latency of 64 concurrent clients creating orders,
+ * each in its own transaction and then through the group commit writer, over
+ * the same 10-connection pool. Writes 40,000 orders, so it only runs with
+ * {@code -Dbenchmark=true -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_order}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ OrderService.class, SnowflakeIdGenerator.class, OrderJdbcRepository.class, OutboxRelay.class,
+        OutboxRepository.class, OrderIngestBenchmarkTest.Metrics.class })
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class OrderIngestBenchmarkTest {
+
+    private static final int CLIENTS = 64;
+    private static final int ORDERS = 20_000;
+    private static final String CUSTOMER = "ingest-" + System.nanoTime();
+
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @MockitoBean
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("it.datasource.url"));
+        registry.add("spring.datasource.username",
+                () -> System.getProperty("it.datasource.username", "quickcommerce_user"));
+        registry.add("spring.datasource.password",
+                () -> System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "10");
+        registry.add("order.id.node-id", () -> "1");
+        registry.add("order.outbox.enabled", () -> "false");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE payload LIKE ?", "%" + CUSTOMER + "%");
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (SELECT id FROM orders WHERE customer_id = ?)",
+                CUSTOMER);
+        jdbcTemplate.update("DELETE FROM orders WHERE customer_id = ?", CUSTOMER);
+    }
+
+    @Test
+    void groupCommitOutrunsPerRequestTransactions() throws Exception {
+        Result perRequest = run(orderService::createOrder);
+
+        OrderBatchWriter writer = new OrderBatchWriter(orderService, new SimpleMeterRegistry(), true,
+                10_000, 500, 1000, 30_000);
+        writer.start();
+        Result groupCommit;
+        try {
+            groupCommit = run(writer::createOrder);
+        } finally {
+            writer.stop();
+        }
+
+        System.out.printf("per request: %.0f orders/s, p99 %.1f ms; group commit: %.0f orders/s, p99 %.1f ms%n",
+                perRequest.ordersPerSecond(), perRequest.p99Millis(),
+                groupCommit.ordersPerSecond(), groupCommit.p99Millis());
+        assertTrue(groupCommit.ordersPerSecond() > perRequest.ordersPerSecond(),
+                "group commit " + groupCommit.ordersPerSecond() + " orders/s against " + perRequest.ordersPerSecond());
+    }
+
+    private Result run(Function<OrderDTO, OrderDTO> create) throws Exception {
+        for (int i = 0; i < 500; i++) {
+            create.apply(order());
+        }
+        long[] latencies = new long[ORDERS];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < ORDERS; i = next.getAndIncrement()) {
+                        long sent = System.nanoTime();
+                        create.apply(order());
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        return new Result(ORDERS / seconds, latencies[(int) (ORDERS * 0.99)] / 1e6);
+    }
+
+    private static OrderDTO order() {
+        List<OrderItemDTO> items = new ArrayList<>();
+        for (long product = 1; product <= 3; product++) {
+            items.add(OrderItemDTO.builder().productId(product).quantity(1).unitPrice(new BigDecimal("9.99")).build());
+        }
+        return OrderDTO.builder()
+                .customerId(CUSTOMER)
+                .shippingAddress("1 Test Street")
+                .billingAddress("1 Test Street")
+                .items(items)
+                .build();
+    }
+
+    private record Result(double ordersPerSecond, double p99Millis) {
+    }
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
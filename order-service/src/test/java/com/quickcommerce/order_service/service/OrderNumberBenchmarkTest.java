@@ -0,0 +1,58 @@
+package com.quickcommerce.order_service.service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Order numbers from {@link SnowflakeIdGenerator} against the truncated
+ * random UUIDs they replace, single-threaded and with every available core
+ * contending. Runs with {@code -Dbenchmark=true}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderNumberBenchmarkTest {
+
+    private final SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, System::currentTimeMillis);
+
+    @Benchmark
+    public String snowflake() {
+        return generator.nextKey("ORD-");
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        for (int threads : new int[] { 1, Runtime.getRuntime().availableProcessors() }) {
+            Options options = new OptionsBuilder()
+                    .include(OrderNumberBenchmarkTest.class.getName())
+                    .threads(threads)
+                    .forks(1)
+                    .warmupIterations(3)
+                    .warmupTime(TimeValue.seconds(1))
+                    .measurementIterations(5)
+                    .measurementTime(TimeValue.seconds(1))
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.dto.OrderItemDTO;
+import com.quickcommerce.order_service.repository.OrderJdbcRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Counts the SQL Hibernate prepares for a 50-item order. Needs the order
+ * database, so it only runs with
+ * {@code -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_order}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ OrderService.class, SnowflakeIdGenerator.class })
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class OrderStatementCountTest {
+
+    private static final int ITEMS = 50;
+
+    @MockitoBean
+    private OutboxRelay outboxRelay;
+
+    @MockitoBean
+    private OrderJdbcRepository orderJdbcRepository;
+
+    @MockitoBean
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("it.datasource.url"));
+        registry.add("spring.datasource.username",
+                () -> System.getProperty("it.datasource.username", "quickcommerce_user"));
+        registry.add("spring.datasource.password",
+                () -> System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        registry.add("order.id.node-id", () -> "1");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                RecordingInspector.class::getName);
+    }
+
+    @Test
+    void fiftyItemOrderIsWrittenAndReadInFixedStatements() {
+        List<OrderItemDTO> items = new ArrayList<>();
+        for (int i = 1; i <= ITEMS; i++) {
+            items.add(OrderItemDTO.builder()
+                    .productId((long) i)
+                    .quantity(i % 3 + 1)
+                    .unitPrice(new BigDecimal("2.50"))
+                    .build());
+        }
+        OrderDTO request = OrderDTO.builder()
+                .customerId("statement-count")
+                .shippingAddress("1 Test Street")
+                .billingAddress("1 Test Street")
+                .totalAmount(BigDecimal.ONE)
+                .items(items)
+                .build();
+
+        RecordingInspector.STATEMENTS.clear();
+        OrderDTO created = orderService.createOrder(request);
+        entityManager.flush();
+        // nextval for the order, one nextval for the block of 50 item ids,
+        // the order insert, and the item insert prepared once and batched
+        assertEquals(4, RecordingInspector.STATEMENTS.size(), RecordingInspector.STATEMENTS::toString);
+        assertEquals(1, count("insert into order_items"));
+
+        entityManager.clear();
+        RecordingInspector.STATEMENTS.clear();
+        OrderDTO read = orderService.getOrder(created.getId());
+        assertEquals(1, RecordingInspector.STATEMENTS.size(), RecordingInspector.STATEMENTS::toString);
+        assertEquals(ITEMS, read.getItems().size());
+
+        BigDecimal expected = items.stream()
+                .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, expected.compareTo(read.getTotalAmount()));
+    }
+
+    private static long count(String prefix) {
+        return RecordingInspector.STATEMENTS.stream()
+                .filter(sql -> sql.toLowerCase().startsWith(prefix))
+                .count();
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
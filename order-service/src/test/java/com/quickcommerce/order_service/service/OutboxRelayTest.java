@@ -0,0 +1,304 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import com.quickcommerce.order_service.repository.OutboxRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Relays outbox events through an embedded broker while sends for chosen keys
+ * are made to fail, then checks what was left in the outbox and that each
+ * key's events reached the topic exactly once and in order once the failure
+ * cleared.
+ */
+@EmbeddedKafka(kraft = true, partitions = 3, topics = OutboxRelayTest.TOPIC)
+class OutboxRelayTest {
+
+    static final String TOPIC = "order-events";
+
+    private final InMemoryOutbox outbox = new InMemoryOutbox();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FailingTemplate template;
+    private Consumer<String, String> consumer;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp(EmbeddedKafkaBroker broker) {
+        Map<String, Object> producerProps = new HashMap<>(KafkaTestUtils.producerProps(broker));
+        producerProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        producerProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        template = new FailingTemplate(new DefaultKafkaProducerFactory<>(producerProps));
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps(
+                "outbox-relay-test-" + System.nanoTime(), "false", broker);
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumer = new DefaultKafkaConsumerFactory<String, String>(consumerProps).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+        // the broker is shared by the class; skip what earlier tests sent
+        consumer.seekToEnd(consumer.assignment());
+        consumer.assignment().forEach(consumer::position);
+
+        relay = new OutboxRelay(outbox, template, meterRegistry, false, 100, 10, 10, 5000, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+        template.destroy();
+    }
+
+    @Test
+    void failedKeysStayInTheOutboxAndAreDeliveredInOrderLater() {
+        for (int i = 1; i <= 5; i++) {
+            relay.enqueue(TOPIC, "A", "A-" + i);
+            relay.enqueue(TOPIC, "B", "B-" + i);
+            relay.enqueue(TOPIC, "C", "C-" + i);
+        }
+        // B fails from its third event onwards, as a partition would after losing its leader
+        template.failFrom("B", "B-3");
+
+        assertEquals(12, relay.relayOnce());
+        assertEquals(List.of("B-3", "B-4", "B-5"), outbox.payloads());
+        assertEquals(12, meterRegistry.counter("outbox.events", "outcome", "sent").count());
+        assertEquals(1, meterRegistry.counter("outbox.events", "outcome", "failed").count());
+        // B waits out its retry delay
+        assertEquals(0, relay.relayOnce());
+
+        template.heal();
+        outbox.retryNow();
+        assertEquals(3, relay.relayOnce());
+        assertTrue(outbox.payloads().isEmpty());
+        assertEquals(0, relay.relayOnce());
+
+        Map<String, List<String>> byKey = receivedByKey(15);
+        for (String key : List.of("A", "B", "C")) {
+            assertEquals(List.of(key + "-1", key + "-2", key + "-3", key + "-4", key + "-5"), byKey.get(key));
+        }
+    }
+
+    @Test
+    void laterEventsForAFailedKeyAreNotSentUntilItGoesThrough() {
+        relay.enqueue(TOPIC, "A", "A-1");
+        relay.enqueue(TOPIC, "A", "A-2");
+        relay.enqueue(TOPIC, "A", "A-3");
+        template.failOnly("A-2");
+
+        assertEquals(1, relay.relayOnce());
+        assertEquals(List.of("A-2", "A-3"), outbox.payloads());
+        assertEquals(List.of("A-1", "A-2"), template.attempted());
+
+        template.heal();
+        outbox.retryNow();
+        assertEquals(2, relay.relayOnce());
+        assertEquals(List.of("A-1", "A-2", "A-3"), receivedByKey(3).get("A"));
+    }
+
+    @Test
+    void parksAnEventThatKeepsFailingAndMovesItsKeyOn() {
+        relay.enqueue(TOPIC, "A", "A-1");
+        relay.enqueue(TOPIC, "A", "A-2");
+        template.failOnly("A-1");
+
+        assertEquals(-1, relay.relayOnce());
+        outbox.retryNow();
+        assertEquals(-1, relay.relayOnce());
+        assertEquals(List.of("A-1", "A-2"), outbox.payloads());
+
+        outbox.retryNow();
+        assertEquals(-1, relay.relayOnce());
+        assertEquals(List.of("A-1"), outbox.parkedPayloads());
+        assertEquals(1, meterRegistry.counter("outbox.events", "outcome", "parked").count());
+
+        assertEquals(1, relay.relayOnce());
+        assertTrue(outbox.payloads().isEmpty());
+        assertEquals(List.of("A-2"), receivedByKey(1).get("A"));
+    }
+
+    @Test
+    void reportsTheAgeOfTheOldestPendingEvent() {
+        outbox.appendAt(TOPIC, "A", "A-1", LocalDateTime.now().minusSeconds(30));
+        template.failFrom("A", "A-1");
+
+        relay.relayOnce();
+        // still counted while its key waits to be retried
+        relay.relayOnce();
+        double lag = meterRegistry.get("outbox.relay.lag").gauge().value();
+        assertTrue(lag >= 30 && lag < 60, "lag " + lag);
+
+        template.heal();
+        outbox.retryNow();
+        relay.relayOnce();
+        relay.relayOnce();
+        assertEquals(0, meterRegistry.get("outbox.relay.lag").gauge().value());
+    }
+
+    private Map<String, List<String>> receivedByKey(int count) {
+        Map<String, List<String>> byKey = new HashMap<>();
+        for (ConsumerRecord<String, String> record : KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(30), count)) {
+            byKey.computeIfAbsent(record.key(), key -> new ArrayList<>()).add(record.value());
+        }
+        return byKey;
+    }
+
+    /** Sends through the embedded broker unless a failure has been injected for the record. */
+    private static final class FailingTemplate extends KafkaTemplate<String, String> {
+
+        private final Map<String, String> failingFrom = new ConcurrentHashMap<>();
+        private final Set<String> failingKeys = ConcurrentHashMap.newKeySet();
+        private final Set<String> failingPayloads = ConcurrentHashMap.newKeySet();
+        private final List<String> attempted = new ArrayList<>();
+
+        FailingTemplate(DefaultKafkaProducerFactory<String, String> producerFactory) {
+            super(producerFactory);
+        }
+
+        void failFrom(String key, String payload) {
+            failingFrom.put(key, payload);
+        }
+
+        void failOnly(String payload) {
+            failingPayloads.add(payload);
+        }
+
+        void heal() {
+            failingFrom.clear();
+            failingKeys.clear();
+            failingPayloads.clear();
+        }
+
+        synchronized List<String> attempted() {
+            return new ArrayList<>(attempted);
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, String>> send(String topic, String key, String data) {
+            synchronized (this) {
+                attempted.add(data);
+            }
+            if (data.equals(failingFrom.get(key))) {
+                failingKeys.add(key);
+            }
+            if (failingKeys.contains(key) || failingPayloads.contains(data)) {
+                return CompletableFuture.failedFuture(new KafkaException("Injected failure for " + data));
+            }
+            return super.send(topic, key, data);
+        }
+    }
+
+    /** The outbox table as a list, in id order, with its retry delays and parked events. */
+    private static final class InMemoryOutbox extends OutboxRepository {
+
+        private final List<OutboxEvent> events = new ArrayList<>();
+        private final Map<Long, LocalDateTime> retryAt = new HashMap<>();
+        private final List<OutboxEvent> parked = new ArrayList<>();
+        private long nextId = 1;
+
+        InMemoryOutbox() {
+            super(null);
+        }
+
+        @Override
+        public synchronized void append(String topic, String key, String payload) {
+            appendAt(topic, key, payload, LocalDateTime.now());
+        }
+
+        synchronized void appendAt(String topic, String key, String payload, LocalDateTime createdAt) {
+            events.add(new OutboxEvent(nextId++, topic, key, payload, createdAt, 0));
+        }
+
+        @Override
+        public boolean tryLock() {
+            return true;
+        }
+
+        @Override
+        public synchronized List<OutboxEvent> findBatch(int limit) {
+            LocalDateTime now = LocalDateTime.now();
+            Set<String> waiting = events.stream()
+                    .filter(event -> retryAt.containsKey(event.id()) && retryAt.get(event.id()).isAfter(now))
+                    .map(OutboxEvent::key)
+                    .collect(Collectors.toSet());
+            return events.stream().filter(event -> !waiting.contains(event.key())).limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public synchronized Optional<LocalDateTime> oldestCreatedAt() {
+            return events.stream().findFirst().map(OutboxEvent::createdAt);
+        }
+
+        @Override
+        public synchronized void retryLater(long id, long delayMs, String error) {
+            for (int i = 0; i < events.size(); i++) {
+                OutboxEvent event = events.get(i);
+                if (event.id() == id) {
+                    events.set(i, new OutboxEvent(id, event.topic(), event.key(), event.payload(),
+                            event.createdAt(), event.attempts() + 1));
+                    retryAt.put(id, LocalDateTime.now().plusNanos(delayMs * 1_000_000));
+                }
+            }
+        }
+
+        @Override
+        public synchronized void park(long id, String error) {
+            events.stream().filter(event -> event.id() == id).forEach(parked::add);
+            events.removeIf(event -> event.id() == id);
+        }
+
+        @Override
+        public synchronized int delete(List<Long> ids) {
+            int before = events.size();
+            events.removeIf(event -> ids.contains(event.id()));
+            return before - events.size();
+        }
+
+        /** Lets every held-back key go on the next batch, as if its delay had passed. */
+        synchronized void retryNow() {
+            retryAt.clear();
+        }
+
+        synchronized List<String> payloads() {
+            return events.stream().map(OutboxEvent::payload).collect(Collectors.toList());
+        }
+
+        synchronized List<String> parkedPayloads() {
+            return parked.stream().map(OutboxEvent::payload).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.quickcommerce.order_service.repository.OrderJdbcRepository.Keyset;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripsWithinOneFilteredListing() {
+        String scope = PageCursor.scope("CUSTOMER", "cust:42");
+        Keyset keyset = new Keyset(7, "2026-01-01T10:00:00");
+        assertEquals(keyset, PageCursor.decode(scope, PageCursor.encode(scope, keyset)));
+    }
+
+    @Test
+    void missingCursorMeansFirstPage() {
+        assertNull(PageCursor.encode(PageCursor.scope("STATUS", "PENDING"), null));
+        assertNull(PageCursor.decode(PageCursor.scope("STATUS", "PENDING"), null));
+    }
+
+    @Test
+    void rejectsCursorsIssuedForAnotherFilterValue() {
+        String token = PageCursor.encode(PageCursor.scope("CUSTOMER", "alice"), new Keyset(7, "x"));
+        assertThrows(RuntimeException.class, () -> PageCursor.decode(PageCursor.scope("CUSTOMER", "bob"), token));
+        assertThrows(RuntimeException.class, () -> PageCursor.decode(PageCursor.scope("STATUS", "alice"), token));
+        assertThrows(RuntimeException.class, () -> PageCursor.decode(PageCursor.scope("CUSTOMER", "alice"), "junk!"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.order_service.dto.OrderDTO;
+import com.quickcommerce.order_service.entity.Order;
+
+class PaymentEventListenerTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final PaymentEventListener listener = new PaymentEventListener(orderService, new ObjectMapper());
+
+    @Test
+    void confirmsTheOrderOfACompletedPayment() {
+        listener.onPaymentEvent(event("PaymentCompleted", 42));
+
+        verify(orderService).updateOrderStatus(42L, Order.OrderStatus.CONFIRMED, null);
+    }
+
+    @Test
+    void cancelsAPendingOrderWhosePaymentFailedAtTheVersionItWasRead() {
+        when(orderService.getOrder(42L)).thenReturn(OrderDTO.builder().id(42L).status("PENDING").version(3L).build());
+
+        listener.onPaymentEvent(event("PaymentFailed", 42));
+
+        verify(orderService).updateOrderStatus(42L, Order.OrderStatus.CANCELLED, 3L);
+    }
+
+    @Test
+    void movesEveryOrderOfABatchEvent() {
+        listener.onPaymentEvent("{\"eventType\":\"PaymentBatchCompleted\",\"batchId\":\"BULK-1\","
+                + "\"status\":\"COMPLETED\",\"count\":2,\"payments\":["
+                + "{\"paymentId\":7,\"transactionId\":\"TXN-7\",\"orderId\":42,\"amount\":25.00},"
+                + "{\"paymentId\":8,\"transactionId\":\"TXN-8\",\"orderId\":43,\"amount\":5.00}]}");
+
+        verify(orderService).updateOrderStatus(42L, Order.OrderStatus.CONFIRMED, null);
+        verify(orderService).updateOrderStatus(43L, Order.OrderStatus.CONFIRMED, null);
+    }
+
+    @Test
+    void movesTheRestOfABatchPastAnOrderThatFails() {
+        when(orderService.getOrder(42L)).thenThrow(new RuntimeException("Order not found: 42"));
+        when(orderService.getOrder(43L)).thenReturn(OrderDTO.builder().id(43L).status("PENDING").version(1L).build());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> listener.onPaymentEvent(
+                "{\"eventType\":\"PaymentBatchFailed\",\"batchId\":\"BULK-1\",\"status\":\"FAILED\",\"count\":2,"
+                        + "\"payments\":[{\"paymentId\":7,\"transactionId\":\"TXN-7\",\"orderId\":42,\"amount\":25.00},"
+                        + "{\"paymentId\":8,\"transactionId\":\"TXN-8\",\"orderId\":43,\"amount\":5.00}]}"));
+
+        assertEquals("Order not found: 42", e.getMessage());
+        verify(orderService).updateOrderStatus(43L, Order.OrderStatus.CANCELLED, 1L);
+    }
+
+    @Test
+    void leavesOrdersThatMovedOnAlone() {
+        when(orderService.getOrder(42L)).thenReturn(OrderDTO.builder().id(42L).status("SHIPPED").version(5L).build());
+        when(orderService.updateOrderStatus(43L, Order.OrderStatus.CONFIRMED, null)).thenThrow(
+                new ResponseStatusException(HttpStatus.CONFLICT, "Order 43 is CANCELLED and cannot move to CONFIRMED"));
+
+        listener.onPaymentEvent(event("PaymentFailed", 42));
+        listener.onPaymentEvent(event("PaymentCompleted", 43));
+        listener.onPaymentEvent(event("PaymentRefunded", 44));
+        listener.onPaymentEvent("not an event");
+
+        // the conflict for order 43 is not thrown back at the consumer
+        verify(orderService, never()).updateOrderStatus(eq(42L), any(), any());
+        verify(orderService, never()).updateOrderStatus(eq(44L), any(), any());
+    }
+
+    private static String event(String eventType, long orderId) {
+        return String.format("{\"eventType\":\"%s\",\"paymentId\":7,\"transactionId\":\"TXN-7\",\"orderId\":%d,"
+                + "\"amount\":25.00,\"status\":\"COMPLETED\"}", eventType, orderId);
+    }
+}
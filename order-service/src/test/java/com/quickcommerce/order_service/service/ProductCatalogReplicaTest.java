@@ -0,0 +1,97 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class ProductCatalogReplicaTest {
+
+    @Test
+    void matchesAHashMapThroughPutsAndRemoves() {
+        ProductCatalogReplica replica = new ProductCatalogReplica();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long id = 1 + random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                replica.remove(id);
+                expected.remove(id);
+            } else {
+                long cents = random.nextInt(100_000);
+                replica.put(id, cents, true);
+                expected.put(id, cents);
+            }
+        }
+        assertEquals(expected.size(), replica.size());
+        for (long id = 1; id <= 5000; id++) {
+            ProductCatalogReplica.Entry entry = replica.find(id);
+            if (expected.containsKey(id)) {
+                assertEquals(BigDecimal.valueOf(expected.get(id), 2), entry.price());
+            } else {
+                assertNull(entry, "id " + id);
+            }
+        }
+    }
+
+    @Test
+    void snapshotRestoresEveryEntry() throws Exception {
+        ProductCatalogReplica replica = new ProductCatalogReplica();
+        for (long id = 1; id <= 3000; id++) {
+            replica.put(id, id * 10, id % 7 != 0);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        replica.writeTo(new DataOutputStream(bytes));
+
+        ProductCatalogReplica restored = new ProductCatalogReplica();
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(3000, restored.size());
+        for (long id = 1; id <= 3000; id++) {
+            assertEquals(replica.find(id), restored.find(id));
+        }
+        assertFalse(restored.find(7).active());
+    }
+
+    @Test
+    void readersNeverSeeAHalfWrittenEntry() throws Exception {
+        ProductCatalogReplica replica = new ProductCatalogReplica();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            Random random = new Random(7);
+            while (writing.get()) {
+                long id = 1 + random.nextInt(20_000);
+                ProductCatalogReplica.Entry entry = replica.find(id);
+                // every price written for a product is its id in cents
+                if (entry != null && entry.price().compareTo(BigDecimal.valueOf(id, 2)) != 0) {
+                    failure.set("product " + id + " read with price " + entry.price());
+                }
+            }
+        });
+        reader.start();
+        Random random = new Random(11);
+        for (int i = 0; i < 500_000; i++) {
+            long id = 1 + random.nextInt(20_000);
+            if (random.nextInt(4) == 0) {
+                replica.remove(id);
+            } else {
+                replica.put(id, id, true);
+            }
+        }
+        writing.set(false);
+        reader.join();
+        assertNull(failure.get(), failure::get);
+    }
+}
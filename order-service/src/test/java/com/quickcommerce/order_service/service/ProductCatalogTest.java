@@ -0,0 +1,159 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Builds the replica from an embedded product-catalog topic, then restarts it
+ * from its snapshot and checks it carries on from where it left off. The
+ * staleness tests feed lag checks in directly.
+ */
+@EmbeddedKafka(kraft = true, partitions = 3, topics = ProductCatalog.TOPIC)
+class ProductCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    private DefaultKafkaConsumerFactory<String, String> consumerFactory;
+    private KafkaTemplate<String, String> template;
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    void setUp(EmbeddedKafkaBroker broker) {
+        Map<String, Object> consumerProps = new HashMap<>(KafkaTestUtils.consumerProps("unused", "false", broker));
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerFactory = new DefaultKafkaConsumerFactory<>(consumerProps);
+        Map<String, Object> producerProps = new HashMap<>(KafkaTestUtils.producerProps(broker));
+        producerProps.put("key.serializer", StringSerializer.class);
+        producerProps.put("value.serializer", StringSerializer.class);
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProps));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (catalog != null) {
+            catalog.stop();
+        }
+        template.destroy();
+    }
+
+    @Test
+    void pricesProductsFromTheTopicAndResumesFromItsSnapshot() throws Exception {
+        send(1, "12.50", "ACTIVE");
+        send(2, "3.00", "INACTIVE");
+        send(3, "8.00", "ACTIVE");
+        send(1, "11.99", "ACTIVE");
+        template.send(ProductCatalog.TOPIC, "3", null).get();
+
+        Path snapshot = directory.resolve("catalog.snapshot");
+        catalog = start(snapshot);
+        await(catalog::isReady);
+
+        assertEquals(new BigDecimal("11.99"), catalog.priceOf(1));
+        assertEquals("Product is not available: 2", assertThrows(RuntimeException.class,
+                () -> catalog.priceOf(2)).getMessage());
+        assertEquals("Product not found: 3", assertThrows(RuntimeException.class,
+                () -> catalog.priceOf(3)).getMessage());
+        catalog.stop();
+        assertTrue(Files.exists(snapshot));
+
+        send(4, "1.25", "ACTIVE");
+        catalog = start(snapshot);
+        await(catalog::isReady);
+        assertEquals(new BigDecimal("11.99"), catalog.priceOf(1));
+        assertEquals(new BigDecimal("1.25"), catalog.priceOf(4));
+        assertEquals(0, catalog.lag());
+    }
+
+    @Test
+    void refusesLookupsUntilCaughtUp() {
+        catalog = new ProductCatalog(consumerFactory, new ObjectMapper(), new SimpleMeterRegistry(), true, 30_000,
+                "", 60_000);
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> catalog.priceOf(1));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+    }
+
+    @Test
+    void staysFreshUnderSteadyWritesWhileItKeepsReachingTheCheckedEnd() throws InterruptedException {
+        catalog = new ProductCatalog(consumerFactory, new ObjectMapper(), new SimpleMeterRegistry(), true, 200,
+                "", 60_000);
+        TopicPartition partition = new TopicPartition(ProductCatalog.TOPIC, 0);
+        catalog.recordLag(Map.of(partition, 10L), Map.of(partition, 4L), System.nanoTime());
+        assertFalse(catalog.isReady());
+
+        for (long end = 20; end <= 100; end += 10) {
+            Thread.sleep(50);
+            catalog.recordLag(Map.of(partition, end), Map.of(partition, end - 8), System.nanoTime());
+            assertTrue(catalog.lag() > 0);
+            catalog.requireFresh();
+        }
+    }
+
+    @Test
+    void goesStaleWhenTheEndOfTheTopicCannotBeRead() throws InterruptedException {
+        catalog = new ProductCatalog(consumerFactory, new ObjectMapper(), new SimpleMeterRegistry(), true, 200,
+                "", 60_000);
+        TopicPartition partition = new TopicPartition(ProductCatalog.TOPIC, 0);
+        catalog.recordLag(Map.of(partition, 10L), Map.of(partition, 10L), System.nanoTime());
+        catalog.requireFresh();
+
+        catalog.lagUnknown();
+        Thread.sleep(300);
+        assertEquals(-1, catalog.lag());
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, catalog::requireFresh);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+    }
+
+    private ProductCatalog start(Path snapshot) {
+        ProductCatalog started = new ProductCatalog(consumerFactory, new ObjectMapper(), new SimpleMeterRegistry(),
+                true, 30_000, snapshot.toString(), 60_000);
+        started.start();
+        return started;
+    }
+
+    private void send(long productId, String price, String status) throws Exception {
+        template.send(ProductCatalog.TOPIC, Long.toString(productId), String.format(
+                "{\"productId\":%d,\"sku\":\"SKU-%d\",\"price\":%s,\"status\":\"%s\"}",
+                productId, productId, price, status)).get();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.quickcommerce.order_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void idsAreUniqueAndIncreasingPerThreadUnderContention() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, System::currentTimeMillis);
+        ConcurrentHashMap<Long, Boolean> seen = new ConcurrentHashMap<>(THREADS * IDS_PER_THREAD * 2);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextId();
+                        assertTrue(id > previous, "id went backwards: " + previous + " then " + id);
+                        assertEquals(null, seen.putIfAbsent(id, Boolean.TRUE), "duplicate id " + id);
+                        previous = id;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+        seen.keySet().forEach(id -> assertEquals(7, id >>> SnowflakeIdGenerator.SEQUENCE_BITS
+                & SnowflakeIdGenerator.MAX_NODE));
+    }
+
+    @Test
+    void sequenceOverflowCarriesIntoTheNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, () -> SnowflakeIdGenerator.EPOCH_MILLIS + 1000);
+        long previous = 0;
+        for (int i = 0; i < 3 * (SnowflakeIdGenerator.SEQUENCE_MASK + 1); i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertEquals(1002, previous >>> (SnowflakeIdGenerator.NODE_BITS + SnowflakeIdGenerator.SEQUENCE_BITS));
+    }
+
+    @Test
+    void clockSteppingBackDoesNotReuseIds() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH_MILLIS + 5000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+        long before = generator.nextId();
+        clock.addAndGet(-2000);
+        long after = generator.nextId();
+        assertTrue(after > before);
+        clock.addAndGet(3000);
+        assertTrue(generator.nextId() > after);
+    }
+
+    @Test
+    void nodesProduceDisjointIds() {
+        long clock = SnowflakeIdGenerator.EPOCH_MILLIS + 42;
+        long a = new SnowflakeIdGenerator(1, () -> clock).nextId();
+        long b = new SnowflakeIdGenerator(2, () -> clock).nextId();
+        assertTrue(a != b);
+        assertThrows(IllegalStateException.class, () -> new SnowflakeIdGenerator(1024, () -> clock));
+    }
+
+    @Test
+    void keysAreFixedWidthAndSortLikeTheIds() {
+        String small = SnowflakeIdGenerator.format("ORD-", 35);
+        String large = SnowflakeIdGenerator.format("ORD-", Long.MAX_VALUE);
+        assertEquals(small.length(), large.length());
+        assertTrue(small.compareTo(large) < 0);
+        assertTrue(SnowflakeIdGenerator.format("ORD-", 36).compareTo(small) > 0);
+        assertEquals("ORD-000000000000Z", small);
+    }
+}
@@ -0,0 +1,91 @@
+package com.quickcommerce.payment_service.config;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import com.quickcommerce.payment_service.service.OrderEventListener;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Configuration
+@Slf4j
+public class OrderEventsKafkaConfig {
+
+    /**
+     * Batch listener containers for {@code order-events}, one consumer thread
+     * per partition: a thread more would sit idle, a thread fewer would leave
+     * partitions sharing one. The partition count is read when the application
+     * starts; if the topic cannot be described then, {@code concurrency} is
+     * used. A batch that fails as a whole, which only happens when the retry
+     * topic cannot be written, is retried with backoff until it goes through,
+     * so no order event is ever skipped.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> orderEventsListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaAdmin kafkaAdmin,
+            ObjectProvider<OrderEventListener> orderEventListener,
+            @Value("${payment.saga.concurrency:3}") int concurrency,
+            @Value("${payment.saga.max-concurrency:16}") int maxConcurrency) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(Math.min(partitions(kafkaAdmin, OrderEventListener.TOPIC, concurrency), maxConcurrency));
+        // looked up on use: the listener bean is built from this factory's endpoints
+        factory.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer,
+                    Collection<TopicPartition> partitions) {
+                orderEventListener.getObject().partitionsRevoked(partitions);
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                orderEventListener.getObject().partitionsRevoked(partitions);
+            }
+        });
+        ExponentialBackOff backOff = new ExponentialBackOff(1000, 2);
+        backOff.setMaxInterval(30_000);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+        return factory;
+    }
+
+    private static int partitions(KafkaAdmin kafkaAdmin, String topic, int fallback) {
+        AdminClient admin = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        try {
+            int partitions = admin.describeTopics(List.of(topic)).allTopicNames().get(10, TimeUnit.SECONDS)
+                    .get(topic).partitions().size();
+            log.info("{} has {} partitions, consuming it on as many threads", topic, partitions);
+            return partitions;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.warn("Could not count the partitions of {}, consuming it on {} threads: {}", topic, fallback,
+                    e.getMessage());
+            return fallback;
+        } finally {
+            // without a broker, a plain close would wait out the request's own timeout
+            admin.close(Duration.ZERO);
+        }
+    }
+}
@@ -1,15 +1,32 @@
 package com.quickcommerce.payment_service.controller;
 
+import com.quickcommerce.payment_service.dto.BulkTransitionDTO;
+import com.quickcommerce.payment_service.dto.BulkTransitionResultDTO;
 import com.quickcommerce.payment_service.dto.PaymentDTO;
+import com.quickcommerce.payment_service.dto.SettlementImportDTO;
+import com.quickcommerce.payment_service.service.BulkTransitionService;
+import com.quickcommerce.payment_service.service.IdempotencyService;
+import com.quickcommerce.payment_service.service.PaymentProcessor;
 import com.quickcommerce.payment_service.service.PaymentService;
+import com.quickcommerce.payment_service.service.ReconciliationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -20,13 +37,76 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentProcessor paymentProcessor;
+    private final ReconciliationService reconciliationService;
+    private final IdempotencyService idempotencyService;
+    private final BulkTransitionService bulkTransitionService;
 
     @PostMapping
-    @Operation(summary = "Initiate a new payment")
-    public ResponseEntity<PaymentDTO> initiatePayment(@RequestBody PaymentDTO paymentDTO) {
+    @Operation(summary = "Initiate a new payment; retries with the same Idempotency-Key get the original payment back")
+    public ResponseEntity<PaymentDTO> initiatePayment(
+            @RequestBody PaymentDTO paymentDTO,
+            @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false) String idempotencyKey) {
         log.info("POST /payments - Initiating payment");
-        PaymentDTO created = paymentService.initiatePayment(paymentDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        if (idempotencyKey == null) {
+            PaymentDTO created = paymentService.initiatePayment(paymentDTO);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        }
+        IdempotencyService.Result<PaymentDTO> result = idempotencyService.execute(
+                idempotencyKey, paymentDTO, PaymentDTO.class, () -> paymentService.initiatePayment(paymentDTO));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.body());
+    }
+
+    @PostMapping("/validate")
+    @Operation(summary = "Check a payment could be initiated without creating it; 422 if it could not")
+    public ResponseEntity<Void> validatePayment(@RequestBody PaymentDTO paymentDTO) {
+        log.info("POST /payments/validate - Validating payment");
+        paymentService.validatePayment(paymentDTO);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping(value = "/settlements", consumes = "text/csv")
+    @Operation(summary = "Import a provider settlement file: CSV with transaction_id, amount and status columns")
+    public ResponseEntity<SettlementImportDTO> importSettlement(InputStream csv) throws IOException {
+        log.info("POST /payments/settlements - Importing settlement file");
+        SettlementImportDTO imported = reconciliationService.importSettlement(csv);
+        return ResponseEntity.status(HttpStatus.CREATED).body(imported);
+    }
+
+    @DeleteMapping("/settlements/{batchId}")
+    @Operation(summary = "Delete an imported settlement file")
+    public ResponseEntity<Void> deleteSettlement(@PathVariable Long batchId) {
+        log.info("DELETE /payments/settlements/{} - Deleting settlement file", batchId);
+        reconciliationService.deleteSettlement(batchId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(value = "/reconciliation", produces = "text/csv")
+    @Operation(summary = "Reconcile the payments created in [from, to) against an imported settlement file; "
+            + "streams a CSV line per mismatch")
+    public ResponseEntity<StreamingResponseBody> reconcile(
+            @RequestParam Long settlementBatch,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("GET /payments/reconciliation - Reconciling payments created between {} and {} against batch {}",
+                from, to, settlementBatch);
+        reconciliationService.requireRange(from, to);
+        StreamingResponseBody body = out -> reconciliationService.reconcile(settlementBatch, from, to,
+                new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+
+    @PostMapping("/bulk-transitions")
+    @Operation(summary = "Move many payments, by payment or transaction id, to COMPLETED, FAILED, REFUNDED or "
+            + "CANCELLED; each moves if its own status allows and the result says what happened to each")
+    public ResponseEntity<BulkTransitionResultDTO> transitionPayments(@RequestBody BulkTransitionDTO request) {
+        log.info("POST /payments/bulk-transitions - Moving payments to {}", request.getTargetStatus());
+        BulkTransitionResultDTO result = bulkTransitionService.transition(request);
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/{id}")
@@ -54,15 +134,18 @@ public class PaymentController {
     }
 
     @PostMapping("/{id}/process")
-    @Operation(summary = "Process a payment")
+    @Operation(summary = "Start processing an initiated payment; 202 with the PROCESSING payment, "
+            + "poll it for the outcome; 409 if it is not INITIATED")
     public ResponseEntity<PaymentDTO> processPayment(@PathVariable Long id) {
         log.info("POST /payments/{}/process - Processing payment", id);
-        PaymentDTO processed = paymentService.processPayment(id);
-        return ResponseEntity.ok(processed);
+        PaymentDTO processing = paymentProcessor.process(id);
+        return ResponseEntity.accepted()
+                .location(URI.create("/payments/" + id))
+                .body(processing);
     }
 
     @PostMapping("/{id}/complete")
-    @Operation(summary = "Complete a payment")
+    @Operation(summary = "Complete a processing payment; 409 if it is not PROCESSING")
     public ResponseEntity<PaymentDTO> completePayment(@PathVariable Long id) {
         log.info("POST /payments/{}/complete - Completing payment", id);
         PaymentDTO completed = paymentService.completePayment(id);
@@ -70,7 +153,7 @@ public class PaymentController {
     }
 
     @PostMapping("/{id}/fail")
-    @Operation(summary = "Fail a payment")
+    @Operation(summary = "Fail a payment that has not completed; 409 if it already has or is final")
     public ResponseEntity<PaymentDTO> failPayment(
             @PathVariable Long id,
             @RequestParam String errorMessage) {
@@ -80,7 +163,7 @@ public class PaymentController {
     }
 
     @PostMapping("/{id}/refund")
-    @Operation(summary = "Refund a payment")
+    @Operation(summary = "Refund a completed payment; 409 if it is not COMPLETED")
     public ResponseEntity<PaymentDTO> refundPayment(@PathVariable Long id) {
         log.info("POST /payments/{}/refund - Refunding payment", id);
         PaymentDTO refunded = paymentService.refundPayment(id);
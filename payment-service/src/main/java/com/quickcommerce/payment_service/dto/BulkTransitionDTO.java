@@ -0,0 +1,32 @@
+package com.quickcommerce.payment_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Payments to move to one status, by payment id, transaction id or both")
+public class BulkTransitionDTO {
+
+    @JsonProperty("targetStatus")
+    @Schema(example = "COMPLETED", allowableValues = {"COMPLETED", "FAILED", "REFUNDED", "CANCELLED"})
+    private String targetStatus;
+
+    @JsonProperty("paymentIds")
+    private List<Long> paymentIds;
+
+    @JsonProperty("transactionIds")
+    private List<String> transactionIds;
+
+    @JsonProperty("errorMessage")
+    @Schema(description = "Required when failing payments")
+    private String errorMessage;
+}
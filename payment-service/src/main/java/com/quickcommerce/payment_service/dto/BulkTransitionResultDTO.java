@@ -0,0 +1,64 @@
+package com.quickcommerce.payment_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "What a bulk transition did to each payment asked for")
+public class BulkTransitionResultDTO {
+
+    @JsonProperty("targetStatus")
+    private String targetStatus;
+
+    @JsonProperty("applied")
+    private int applied;
+
+    @JsonProperty("rejected")
+    @Schema(description = "Payments whose status cannot move to the target status")
+    private int rejected;
+
+    @JsonProperty("notFound")
+    private int notFound;
+
+    @JsonProperty("results")
+    @Schema(description = "One per distinct id asked for, payment ids first, each in the order given")
+    private List<Item> results;
+
+    public enum Outcome {
+        APPLIED, REJECTED, NOT_FOUND
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+
+        @JsonProperty("paymentId")
+        private Long paymentId;
+
+        @JsonProperty("transactionId")
+        private String transactionId;
+
+        @JsonProperty("outcome")
+        private Outcome outcome;
+
+        @JsonProperty("previousStatus")
+        private String previousStatus;
+
+        @JsonProperty("status")
+        @Schema(description = "The payment's status now")
+        private String status;
+    }
+}
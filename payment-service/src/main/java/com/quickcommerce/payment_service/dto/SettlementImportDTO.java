@@ -0,0 +1,23 @@
+package com.quickcommerce.payment_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "An imported settlement file")
+public class SettlementImportDTO {
+
+    @JsonProperty("batchId")
+    @Schema(description = "Pass as settlementBatch to reconcile against this file")
+    private Long batchId;
+
+    @JsonProperty("lines")
+    private Long lines;
+}
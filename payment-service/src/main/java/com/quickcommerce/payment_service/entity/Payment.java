@@ -8,6 +8,11 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
 @Entity
 @Table(name = "payments", indexes = {
@@ -71,7 +76,39 @@ public class Payment {
         CREDIT_CARD, DEBIT_CARD, PAYPAL, BANK_TRANSFER, OTHER
     }
 
+    /**
+     * Payment lifecycle. A payment is processed, then completed or failed; it
+     * can fail or be cancelled before processing, and only a completed payment
+     * can be refunded. FAILED, REFUNDED and CANCELLED are final.
+     */
     public enum PaymentStatus {
-        INITIATED, PROCESSING, COMPLETED, FAILED, REFUNDED, CANCELLED
+        INITIATED, PROCESSING, COMPLETED, FAILED, REFUNDED, CANCELLED;
+
+        private static final Map<PaymentStatus, Set<PaymentStatus>> NEXT = new EnumMap<>(PaymentStatus.class);
+        private static final Map<PaymentStatus, Set<PaymentStatus>> PREVIOUS = new EnumMap<>(PaymentStatus.class);
+
+        static {
+            NEXT.put(INITIATED, EnumSet.of(PROCESSING, FAILED, CANCELLED));
+            NEXT.put(PROCESSING, EnumSet.of(COMPLETED, FAILED));
+            NEXT.put(COMPLETED, EnumSet.of(REFUNDED));
+            NEXT.put(FAILED, EnumSet.noneOf(PaymentStatus.class));
+            NEXT.put(REFUNDED, EnumSet.noneOf(PaymentStatus.class));
+            NEXT.put(CANCELLED, EnumSet.noneOf(PaymentStatus.class));
+            for (PaymentStatus status : values()) {
+                PREVIOUS.put(status, EnumSet.noneOf(PaymentStatus.class));
+            }
+            NEXT.forEach((from, targets) -> targets.forEach(to -> PREVIOUS.get(to).add(from)));
+            NEXT.replaceAll((status, targets) -> Collections.unmodifiableSet(targets));
+            PREVIOUS.replaceAll((status, sources) -> Collections.unmodifiableSet(sources));
+        }
+
+        public boolean canMoveTo(PaymentStatus target) {
+            return NEXT.get(this).contains(target);
+        }
+
+        /** The statuses a payment can move to this one from. */
+        public Set<PaymentStatus> sources() {
+            return PREVIOUS.get(this);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.quickcommerce.payment_service.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/** The idempotency_keys table. Claims and responses join the caller's transaction. */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Claims {@code key} for this request, or takes over an expired claim.
+     * Blocks while another transaction holds an uncommitted claim on the same
+     * key, and returns false if that transaction commits.
+     */
+    public boolean claim(String key, String requestHash, LocalDateTime expiresAt) {
+        return jdbcTemplate.update("""
+                INSERT INTO idempotency_keys (idempotency_key, request_hash, expires_at)
+                VALUES (?, ?, ?)
+                ON CONFLICT (idempotency_key) DO UPDATE
+                    SET request_hash = EXCLUDED.request_hash, response_body = NULL,
+                        created_at = CURRENT_TIMESTAMP, expires_at = EXCLUDED.expires_at
+                    WHERE idempotency_keys.expires_at <= CURRENT_TIMESTAMP
+                """, key, requestHash, Timestamp.valueOf(expiresAt)) == 1;
+    }
+
+    public void complete(String key, String responseBody) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET response_body = ? WHERE idempotency_key = ?",
+                responseBody, key);
+    }
+
+    public Optional<StoredResponse> find(String key) {
+        List<StoredResponse> rows = jdbcTemplate.query("""
+                SELECT request_hash, response_body FROM idempotency_keys
+                WHERE idempotency_key = ? AND expires_at > CURRENT_TIMESTAMP AND response_body IS NOT NULL
+                """, (rs, rowNum) -> new StoredResponse(rs.getString("request_hash"), rs.getString("response_body")),
+                key);
+        return rows.stream().findFirst();
+    }
+
+    /** Deletes up to {@code limit} expired keys, oldest first. */
+    public int deleteExpired(LocalDateTime now, int limit) {
+        return jdbcTemplate.update("""
+                DELETE FROM idempotency_keys WHERE idempotency_key IN (
+                    SELECT idempotency_key FROM idempotency_keys WHERE expires_at < ? ORDER BY expires_at LIMIT ?)
+                """, Timestamp.valueOf(now), limit);
+    }
+
+    public record StoredResponse(String requestHash, String responseBody) {
+    }
+}
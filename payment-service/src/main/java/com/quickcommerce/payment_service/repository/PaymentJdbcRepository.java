@@ -0,0 +1,145 @@
+package com.quickcommerce.payment_service.repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+
+import lombok.RequiredArgsConstructor;
+
+/** Payment status changes in plain SQL, where the JPA read-modify-write would cost a read and race. */
+@Repository
+@RequiredArgsConstructor
+public class PaymentJdbcRepository {
+
+    private static final RowMapper<PaymentDTO> PAYMENT = (rs, rowNum) -> PaymentDTO.builder()
+            .id(rs.getLong("id"))
+            .transactionId(rs.getString("transaction_id"))
+            .orderId(rs.getLong("order_id"))
+            .amount(rs.getBigDecimal("amount"))
+            .paymentMethod(rs.getString("payment_method"))
+            .status(rs.getString("status"))
+            .referenceNumber(rs.getString("reference_number"))
+            .errorMessage(rs.getString("error_message"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .updatedAt(rs.getTimestamp("updated_at") != null ? rs.getTimestamp("updated_at").toLocalDateTime() : null)
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Moves a payment to {@code target} if its status is one of {@code from},
+     * setting the reference number and error message when they are given, and
+     * appends the change to payment_history. The check, the write and the
+     * history row are one statement, which also returns the payment, so a
+     * transition is a single round trip with no read first. The payment row
+     * is locked before its status is checked, so of two racing transitions
+     * the second sees the first's result and only one is applied.
+     *
+     * @return the updated payment, or empty if the payment does not exist or did not match
+     */
+    public Optional<PaymentDTO> transition(long id, Collection<String> from, String target, String referenceNumber,
+            String errorMessage) {
+        if (from.isEmpty()) {
+            return Optional.empty();
+        }
+        String sql = """
+                WITH locked AS (SELECT id, status FROM payments WHERE id = ? FOR UPDATE),
+                p AS (
+                    UPDATE payments SET status = ?, updated_at = ?,
+                        reference_number = COALESCE(CAST(? AS varchar), payments.reference_number),
+                        error_message = COALESCE(CAST(? AS text), payments.error_message)
+                    FROM locked WHERE payments.id = locked.id AND locked.status IN (%s)
+                    RETURNING payments.*, locked.status AS old_status),
+                h AS (
+                    INSERT INTO payment_history (payment_id, old_status, new_status, changed_at)
+                    SELECT id, old_status, status, updated_at FROM p)
+                SELECT * FROM p
+                """.formatted(String.join(", ", Collections.nCopies(from.size(), "?")));
+        List<Object> args = new ArrayList<>(List.of(id, target));
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.add(referenceNumber);
+        args.add(errorMessage);
+        args.addAll(from);
+        return jdbcTemplate.query(sql, PAYMENT, args.toArray()).stream().findFirst();
+    }
+
+    /**
+     * Moves every payment in {@code ids} whose status is one of {@code from}
+     * to {@code target}, and appends a payment_history row for each one moved.
+     * Like {@link #transition}, this is one statement: the payments are locked
+     * in id order, so two of these over overlapping ids wait rather than
+     * deadlock, then updated and recorded as a set.
+     *
+     * @return a row per payment found, saying whether it moved; ids with no payment have none
+     */
+    public List<BulkTransition> transitionAll(List<Long> ids, Collection<String> from, String target,
+            String errorMessage) {
+        return transitionAll("id", "bigint", ids.toArray(), from, target, errorMessage);
+    }
+
+    /** {@link #transitionAll} by transaction id. */
+    public List<BulkTransition> transitionAllByTransactionId(List<String> transactionIds, Collection<String> from,
+            String target, String errorMessage) {
+        return transitionAll("transaction_id", "varchar", transactionIds.toArray(), from, target, errorMessage);
+    }
+
+    private List<BulkTransition> transitionAll(String column, String type, Object[] keys, Collection<String> from,
+            String target, String errorMessage) {
+        String sql = """
+                WITH locked AS (
+                    SELECT id, transaction_id, order_id, amount, status FROM payments
+                    WHERE %s = ANY(?) ORDER BY id FOR UPDATE),
+                p AS (
+                    UPDATE payments SET status = ?, updated_at = ?,
+                        error_message = COALESCE(CAST(? AS text), payments.error_message)
+                    FROM locked WHERE payments.id = locked.id AND locked.status = ANY(?)
+                    RETURNING payments.id, payments.updated_at),
+                h AS (
+                    INSERT INTO payment_history (payment_id, old_status, new_status, changed_at)
+                    SELECT locked.id, locked.status, ?, p.updated_at FROM locked JOIN p ON p.id = locked.id)
+                SELECT locked.*, p.id IS NOT NULL AS applied FROM locked LEFT JOIN p ON p.id = locked.id
+                """.formatted(column);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf(type, keys));
+            ps.setString(2, target);
+            ps.setTimestamp(3, now);
+            ps.setString(4, errorMessage);
+            ps.setArray(5, con.createArrayOf("varchar", from.toArray()));
+            ps.setString(6, target);
+            return ps;
+        }, (rs, rowNum) -> new BulkTransition(rs.getLong("id"), rs.getString("transaction_id"),
+                rs.getLong("order_id"), rs.getBigDecimal("amount"), rs.getString("status"), rs.getBoolean("applied")));
+    }
+
+    /** Ids of payments in {@code status} last changed before {@code before}, oldest first. */
+    public List<Long> findIdsByStatusUpdatedBefore(String status, LocalDateTime before, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM payments WHERE status = ? AND updated_at < ? ORDER BY updated_at LIMIT ?",
+                Long.class, status, Timestamp.valueOf(before), limit);
+    }
+
+    /** A payment's current status, to explain a transition that did not match. */
+    public Optional<String> findStatus(long id) {
+        return jdbcTemplate.queryForList("SELECT status FROM payments WHERE id = ?", String.class, id)
+                .stream().findFirst();
+    }
+
+    /** A payment a bulk transition found, with its status before the transition and whether it moved. */
+    public record BulkTransition(long id, String transactionId, long orderId, BigDecimal amount, String oldStatus,
+            boolean applied) {
+    }
+}
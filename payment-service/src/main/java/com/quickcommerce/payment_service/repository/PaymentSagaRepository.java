@@ -0,0 +1,71 @@
+package com.quickcommerce.payment_service.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The payment_sagas table, one row per order a payment was started or
+ * cancelled for. Every way of starting an order's payment goes through the
+ * order's row first, so two of them for the same order run one after the
+ * other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentSagaRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Records that the saga is starting the order's payment. Returns false if
+     * the order was seen before, whether a payment was started for it or it
+     * was cancelled; waits first if another transaction is doing so.
+     */
+    public boolean begin(long orderId) {
+        return jdbcTemplate.update("""
+                INSERT INTO payment_sagas (order_id, state) VALUES (?, 'STARTED')
+                ON CONFLICT (order_id) DO NOTHING
+                """, orderId) == 1;
+    }
+
+    /**
+     * Locks the order's row until the transaction ends, creating it if need
+     * be, without changing its state. Returns the state, STARTED or CANCELLED.
+     */
+    public String lock(long orderId) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO payment_sagas (order_id, state) VALUES (?, 'STARTED')
+                ON CONFLICT (order_id) DO UPDATE SET updated_at = CURRENT_TIMESTAMP
+                RETURNING state
+                """, String.class, orderId);
+    }
+
+    public void recordPayment(long orderId, long paymentId) {
+        jdbcTemplate.update("UPDATE payment_sagas SET payment_id = ?, updated_at = CURRENT_TIMESTAMP WHERE order_id = ?",
+                paymentId, orderId);
+    }
+
+    /** Marks the order cancelled, so a creation event arriving after this starts nothing. */
+    public void cancel(long orderId) {
+        jdbcTemplate.update("""
+                INSERT INTO payment_sagas (order_id, state) VALUES (?, 'CANCELLED')
+                ON CONFLICT (order_id) DO UPDATE SET state = 'CANCELLED', updated_at = CURRENT_TIMESTAMP
+                """, orderId);
+    }
+
+    /** Notes whether a cancelled order still has a payment to cancel or refund once the provider settles it. */
+    public void setRefundPending(long orderId, boolean pending) {
+        jdbcTemplate.update("UPDATE payment_sagas SET refund_pending = ?, updated_at = CURRENT_TIMESTAMP WHERE order_id = ?",
+                pending, orderId);
+    }
+
+    /** Cancelled orders with a refund pending, oldest change first. */
+    public List<Long> findRefundPending(int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT order_id FROM payment_sagas WHERE refund_pending ORDER BY updated_at LIMIT ?",
+                Long.class, limit);
+    }
+}
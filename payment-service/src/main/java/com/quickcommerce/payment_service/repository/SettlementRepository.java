@@ -0,0 +1,97 @@
+package com.quickcommerce.payment_service.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Imported settlement lines and the reads that match payments against them.
+ * The reads stream rows through a forward-only cursor a fetch at a time, so
+ * they must run inside a transaction: outside one the driver reads the whole
+ * result into memory.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SettlementRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Joins the caller's transaction, so a file is imported whole or not at all. */
+    public void insert(long batchId, List<SettlementLine> lines) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO settlement_lines (batch_id, transaction_id, amount, status) VALUES (?, ?, ?, ?)
+                """, lines, lines.size(), (statement, line) -> {
+            statement.setLong(1, batchId);
+            statement.setString(2, line.transactionId());
+            statement.setBigDecimal(3, line.amount());
+            statement.setString(4, line.status());
+        });
+    }
+
+    public int delete(long batchId) {
+        return jdbcTemplate.update("DELETE FROM settlement_lines WHERE batch_id = ?", batchId);
+    }
+
+    /**
+     * Each payment created in [from, to) with the batch's line for it, or no
+     * line, in no particular order.
+     */
+    public void streamPayments(long batchId, LocalDateTime from, LocalDateTime to, int fetchSize,
+            Consumer<PaymentLine> action) {
+        jdbcTemplate.query((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement("""
+                    SELECT p.id, p.transaction_id, p.amount, p.status,
+                        s.amount AS settled_amount, s.status AS settled_status
+                    FROM payments p
+                    LEFT JOIN settlement_lines s ON s.batch_id = ? AND s.transaction_id = p.transaction_id
+                    WHERE p.created_at >= ? AND p.created_at < ?
+                    """, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, batchId);
+            statement.setTimestamp(2, Timestamp.valueOf(from));
+            statement.setTimestamp(3, Timestamp.valueOf(to));
+            return statement;
+        }, (ResultSet rs) -> {
+            String settledStatus = rs.getString("settled_status");
+            action.accept(new PaymentLine(rs.getLong("id"), rs.getString("transaction_id"),
+                    rs.getBigDecimal("amount"), rs.getString("status"),
+                    settledStatus == null ? null : new SettlementLine(rs.getString("transaction_id"),
+                            rs.getBigDecimal("settled_amount"), settledStatus)));
+        });
+    }
+
+    /** The batch's lines for transactions no payment has. */
+    public void streamUnknown(long batchId, int fetchSize, Consumer<SettlementLine> action) {
+        jdbcTemplate.query((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement("""
+                    SELECT s.transaction_id, s.amount, s.status FROM settlement_lines s
+                    WHERE s.batch_id = ?
+                        AND NOT EXISTS (SELECT 1 FROM payments p WHERE p.transaction_id = s.transaction_id)
+                    """, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, batchId);
+            return statement;
+        }, (ResultSet rs) -> {
+            action.accept(new SettlementLine(rs.getString("transaction_id"), rs.getBigDecimal("amount"),
+                    rs.getString("status")));
+        });
+    }
+
+    public record SettlementLine(String transactionId, BigDecimal amount, String status) {
+    }
+
+    /** A payment and the settlement line for it, if there is one. */
+    public record PaymentLine(long paymentId, String transactionId, BigDecimal amount, String status,
+            SettlementLine settlement) {
+    }
+}
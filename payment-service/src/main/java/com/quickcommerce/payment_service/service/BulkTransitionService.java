@@ -0,0 +1,242 @@
+package com.quickcommerce.payment_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.quickcommerce.payment_service.dto.BulkTransitionDTO;
+import com.quickcommerce.payment_service.dto.BulkTransitionResultDTO;
+import com.quickcommerce.payment_service.dto.BulkTransitionResultDTO.Item;
+import com.quickcommerce.payment_service.dto.BulkTransitionResultDTO.Outcome;
+import com.quickcommerce.payment_service.entity.Payment;
+import com.quickcommerce.payment_service.repository.PaymentJdbcRepository;
+import com.quickcommerce.payment_service.repository.PaymentJdbcRepository.BulkTransition;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves many payments to one status at once, for settlement runs that
+ * finish thousands of payments together. The ids are taken in chunks; each
+ * chunk is one transaction holding one statement, which checks, updates and
+ * records the history of every payment in it, and aggregated
+ * {@code PaymentBatch...} events listing the payments it moved. A chunk that
+ * fails leaves the chunks before it applied.
+ * <p>
+ * Single payment events are keyed by payment id, so each payment's events
+ * stay in order on one partition. A chunk therefore gets one event per
+ * partition its payments hash to, keyed by the id of one of them; if the
+ * partitions cannot be counted, every payment gets an event of its own.
+ * <p>
+ * Each payment moves only if the transition table allows it from its own
+ * status, as a single transition would; the others are reported as rejected
+ * with their status and left as they are. A payment named both by id and by
+ * transaction id is moved and reported once.
+ */
+@Service
+@Slf4j
+public class BulkTransitionService {
+
+    /** PROCESSING is left to the processor, which calls the provider; nothing moves to INITIATED. */
+    private static final Set<Payment.PaymentStatus> TARGETS = EnumSet.of(Payment.PaymentStatus.COMPLETED,
+            Payment.PaymentStatus.FAILED, Payment.PaymentStatus.REFUNDED, Payment.PaymentStatus.CANCELLED);
+    private static final String TOPIC = "payment-events";
+
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final OutboxRelay outboxRelay;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactions;
+    private final int chunkSize;
+    private final int maxIds;
+
+    public BulkTransitionService(
+            PaymentJdbcRepository paymentJdbcRepository,
+            OutboxRelay outboxRelay,
+            KafkaTemplate<String, String> kafkaTemplate,
+            SnowflakeIdGenerator idGenerator,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Value("${payment.bulk.chunk-size:1000}") int chunkSize,
+            @Value("${payment.bulk.max-ids:100000}") int maxIds) {
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.outboxRelay = outboxRelay;
+        this.kafkaTemplate = kafkaTemplate;
+        this.idGenerator = idGenerator;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxIds = maxIds;
+    }
+
+    public BulkTransitionResultDTO transition(BulkTransitionDTO request) {
+        Payment.PaymentStatus target = target(request.getTargetStatus());
+        if (target == Payment.PaymentStatus.FAILED
+                && (request.getErrorMessage() == null || request.getErrorMessage().isBlank())) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Failing payments needs an errorMessage");
+        }
+        List<Long> ids = distinct(request.getPaymentIds());
+        List<String> transactionIds = distinct(request.getTransactionIds());
+        if (ids.size() + transactionIds.size() > maxIds) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "At most " + maxIds + " payments can be moved at once");
+        }
+        List<String> sources = target.sources().stream().map(Enum::name).toList();
+        String errorMessage = target == Payment.PaymentStatus.FAILED ? request.getErrorMessage() : null;
+        log.info("Moving {} payments and {} transactions to {}", ids.size(), transactionIds.size(), target);
+        int partitions = partitions();
+
+        List<Item> results = new ArrayList<>(ids.size() + transactionIds.size());
+        Set<String> moved = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            Map<Long, BulkTransition> found = applyChunk(target, partitions,
+                    () -> paymentJdbcRepository.transitionAll(chunk, sources, target.name(), errorMessage),
+                    BulkTransition::id);
+            chunk.forEach(id -> results.add(item(found.get(id), target, id, null)));
+            found.values().forEach(payment -> moved.add(payment.transactionId()));
+        }
+        // payments already named by id have their result
+        transactionIds = transactionIds.stream().filter(transactionId -> !moved.contains(transactionId)).toList();
+        for (int from = 0; from < transactionIds.size(); from += chunkSize) {
+            List<String> chunk = transactionIds.subList(from, Math.min(from + chunkSize, transactionIds.size()));
+            Map<String, BulkTransition> found = applyChunk(target, partitions,
+                    () -> paymentJdbcRepository.transitionAllByTransactionId(chunk, sources, target.name(),
+                            errorMessage),
+                    BulkTransition::transactionId);
+            chunk.forEach(transactionId -> results.add(item(found.get(transactionId), target, null, transactionId)));
+        }
+
+        Map<Outcome, Long> counts = results.stream().collect(Collectors.groupingBy(Item::getOutcome,
+                () -> new EnumMap<>(Outcome.class), Collectors.counting()));
+        counts.forEach((outcome, count) -> meterRegistry.counter("payment.bulk.transitions",
+                "target", target.name(), "outcome", outcome.name()).increment(count));
+        log.info("Moved payments to {}: {}", target, counts);
+        return BulkTransitionResultDTO.builder()
+                .targetStatus(target.name())
+                .applied(counts.getOrDefault(Outcome.APPLIED, 0L).intValue())
+                .rejected(counts.getOrDefault(Outcome.REJECTED, 0L).intValue())
+                .notFound(counts.getOrDefault(Outcome.NOT_FOUND, 0L).intValue())
+                .results(results)
+                .build();
+    }
+
+    /** Runs one chunk's statement and queues its event in one transaction; returns the payments found by key. */
+    private <K> Map<K, BulkTransition> applyChunk(Payment.PaymentStatus target, int partitions,
+            Supplier<List<BulkTransition>> statement, Function<BulkTransition, K> key) {
+        List<BulkTransition> found = transactions.execute(status -> {
+            List<BulkTransition> rows = statement.get();
+            Map<Integer, List<BulkTransition>> byPartition = new LinkedHashMap<>();
+            for (BulkTransition row : rows) {
+                if (row.applied()) {
+                    int partition = partitions > 0 ? partition(row.id(), partitions) : byPartition.size();
+                    byPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(row);
+                }
+            }
+            byPartition.values().forEach(moved -> publishBatchEvent(target, moved));
+            return rows;
+        });
+        return found.stream().collect(Collectors.toMap(key, Function.identity()));
+    }
+
+    private static Item item(BulkTransition found, Payment.PaymentStatus target, Long id, String transactionId) {
+        if (found == null) {
+            return Item.builder().paymentId(id).transactionId(transactionId).outcome(Outcome.NOT_FOUND).build();
+        }
+        return Item.builder()
+                .paymentId(found.id())
+                .transactionId(found.transactionId())
+                .outcome(found.applied() ? Outcome.APPLIED : Outcome.REJECTED)
+                .previousStatus(found.oldStatus())
+                .status(found.applied() ? target.name() : found.oldStatus())
+                .build();
+    }
+
+    /** Partitions of the payment events topic, or 0 if they cannot be counted now. */
+    private int partitions() {
+        try {
+            List<?> partitions = kafkaTemplate.partitionsFor(TOPIC);
+            return partitions != null ? partitions.size() : 0;
+        } catch (RuntimeException e) {
+            log.warn("Could not count the partitions of {}, sending one event per payment: {}", TOPIC,
+                    e.getMessage());
+            return 0;
+        }
+    }
+
+    /** The partition Kafka's default partitioner picks for a payment's events, which are keyed by its id. */
+    static int partition(long paymentId, int partitions) {
+        return Utils.toPositive(Utils.murmur2(Long.toString(paymentId).getBytes(StandardCharsets.UTF_8)))
+                % partitions;
+    }
+
+    /** One event for payments that share a partition, keyed by the first of them. */
+    private void publishBatchEvent(Payment.PaymentStatus target, List<BulkTransition> moved) {
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("eventType", "PaymentBatch" + target.name().charAt(0)
+                        + target.name().substring(1).toLowerCase(Locale.ROOT))
+                .put("batchId", idGenerator.nextKey("BULK-"))
+                .put("status", target.name())
+                .put("count", moved.size());
+        ArrayNode payments = message.putArray("payments");
+        for (BulkTransition payment : moved) {
+            payments.addObject()
+                    .put("paymentId", payment.id())
+                    .put("transactionId", payment.transactionId())
+                    .put("orderId", payment.orderId())
+                    .put("amount", payment.amount());
+        }
+        try {
+            outboxRelay.enqueue(TOPIC, Long.toString(moved.get(0).id()), objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize payment batch event", e);
+        }
+    }
+
+    private static Payment.PaymentStatus target(String targetStatus) {
+        for (Payment.PaymentStatus status : TARGETS) {
+            if (status.name().equals(targetStatus)) {
+                return status;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "targetStatus must be one of " + TARGETS + ", not " + targetStatus);
+    }
+
+    private static <T> List<T> distinct(List<T> ids) {
+        if (ids == null) {
+            return List.of();
+        }
+        return List.copyOf(ids.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+}
@@ -0,0 +1,221 @@
+package com.quickcommerce.payment_service.service;
+
+import static com.quickcommerce.payment_service.service.TransactionCallbacks.afterCommit;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quickcommerce.payment_service.repository.IdempotencyRepository;
+import com.quickcommerce.payment_service.repository.IdempotencyRepository.StoredResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a request at most once per Idempotency-Key and replays its response
+ * to retries of the same key until the key expires.
+ * <p>
+ * Recent keys are held in a bounded in-memory index, so a replay on the
+ * instance that served the original request is a map lookup. Concurrent
+ * duplicates on this instance wait on the first request's future instead of
+ * running again. The key is also claimed in idempotency_keys in the same
+ * transaction as the request's own writes: a duplicate on another instance
+ * blocks on that row until the first transaction ends, then replays the
+ * stored response, or runs the request itself if the first one rolled back.
+ * <p>
+ * A key sent again with a different request body is rejected with 422.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final TransactionOperations transactions;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final long waitTimeoutMs;
+    private final int cleanupBatchSize;
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+    private final Timer lookupTimer;
+    private final Counter executed;
+    private final Counter replayed;
+
+    public IdempotencyService(
+            IdempotencyRepository idempotencyRepository,
+            TransactionOperations transactions,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${payment.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${payment.idempotency.cache-size:100000}") long cacheSize,
+            @Value("${payment.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs,
+            @Value("${payment.idempotency.cleanup-batch-size:1000}") int cleanupBatchSize) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.transactions = transactions;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotencyKeys");
+        this.lookupTimer = Timer.builder("idempotency.lookup")
+                .description("Time to fingerprint a request and find its key in memory")
+                .register(meterRegistry);
+        this.executed = Counter.builder("idempotency.requests").tag("outcome", "executed").register(meterRegistry);
+        this.replayed = Counter.builder("idempotency.requests").tag("outcome", "replayed").register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code action} for the first request with {@code key}, or returns
+     * the response it produced. The action's transaction joins the one the
+     * key is claimed in.
+     */
+    public <T> Result<T> execute(String key, Object request, Class<T> type, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    KEY_HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        while (true) {
+            long start = System.nanoTime();
+            String requestHash = fingerprint(request);
+            CompletableFuture<StoredResponse> claim = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(key, claim);
+            lookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            if (existing == null) {
+                return run(key, requestHash, type, action, claim);
+            }
+            StoredResponse stored = await(key, existing);
+            if (stored != null) {
+                return replay(key, requestHash, type, stored);
+            }
+            // the request in flight failed and gave the key up; try to claim it again
+        }
+    }
+
+    private <T> Result<T> run(String key, String requestHash, Class<T> type, Supplier<T> action,
+            CompletableFuture<StoredResponse> claim) {
+        try {
+            return transactions.execute(status -> {
+                if (!idempotencyRepository.claim(key, requestHash, LocalDateTime.now().plus(ttl))) {
+                    // another instance committed this key while we waited on its row
+                    StoredResponse stored = idempotencyRepository.find(key)
+                            .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                                    "Request with " + KEY_HEADER + " " + key + " is still in progress"));
+                    claim.complete(stored);
+                    return replay(key, requestHash, type, stored);
+                }
+                T body = action.get();
+                String json = toJson(body);
+                idempotencyRepository.complete(key, json);
+                // waiters only see the response once it is durable
+                afterCommit(() -> claim.complete(new StoredResponse(requestHash, json)));
+                executed.increment();
+                return new Result<>(body, false);
+            });
+        } catch (RuntimeException e) {
+            responses.asMap().remove(key, claim);
+            claim.complete(null);
+            throw e;
+        }
+    }
+
+    private <T> Result<T> replay(String key, String requestHash, Class<T> type, StoredResponse stored) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    KEY_HEADER + " " + key + " was already used for a different request");
+        }
+        try {
+            T body = objectMapper.readValue(stored.responseBody(), type);
+            replayed.increment();
+            log.debug("Replaying response for {} {}", KEY_HEADER, key);
+            return new Result<>(body, true);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read stored response for " + KEY_HEADER + " " + key, e);
+        }
+    }
+
+    private StoredResponse await(String key, CompletableFuture<StoredResponse> inFlight) {
+        try {
+            return inFlight.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Request with " + KEY_HEADER + " " + key + " is still in progress");
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Request with " + KEY_HEADER + " " + key + " is still in progress");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed waiting for " + KEY_HEADER + " " + key, e.getCause());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.idempotency.cleanup-interval-ms:600000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void deleteExpiredKeys() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = idempotencyRepository.deleteExpired(now, cleanupBatchSize);
+            total += deleted;
+        } while (deleted == cleanupBatchSize);
+        if (total > 0) {
+            log.info("Deleted {} expired idempotency keys", total);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to fingerprint request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize response", e);
+        }
+    }
+
+    /** A response, and whether it was replayed from an earlier request rather than produced now. */
+    public record Result<T>(T body, boolean replayed) {
+    }
+}
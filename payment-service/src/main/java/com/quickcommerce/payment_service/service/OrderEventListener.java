@@ -0,0 +1,210 @@
+package com.quickcommerce.payment_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Feeds {@code order-events} to the {@link OrderPaymentSaga}.
+ * <p>
+ * Events arrive in batches, one consumer thread per partition. An order's
+ * events share its key and so its partition; within a batch each order's
+ * events are applied in order, and different orders' events at the same time
+ * on virtual threads. Each order applied holds a connection, so at most
+ * {@code key-parallelism} orders are applied at once across every partition
+ * this instance consumes, not per batch. An event that fails is forwarded to
+ * a retry topic instead of holding up its partition, and so are the events
+ * for the same order after it in the batch, rather than overtaking it.
+ * Retries back off over a series of retry topics and end in a dead-letter
+ * topic; an event that cannot even be read goes there directly.
+ * <p>
+ * How far behind each partition this instance is goes to the
+ * {@code payment.saga.lag} gauge after every batch.
+ */
+@Component
+@Slf4j
+public class OrderEventListener {
+
+    public static final String TOPIC = "order-events";
+    static final String RETRY_TOPIC = "order-events-payment-retry";
+    static final String DLT_TOPIC = RETRY_TOPIC + "-dlt";
+
+    private final OrderPaymentSaga saga;
+    private final ObjectMapper objectMapper;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore keySlots;
+    private final long sendTimeoutMs;
+    private final Map<TopicPartition, AtomicLong> lag = new ConcurrentHashMap<>();
+
+    public OrderEventListener(
+            OrderPaymentSaga saga,
+            ObjectMapper objectMapper,
+            KafkaTemplate<String, String> kafkaTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${payment.saga.key-parallelism:3}") int keyParallelism,
+            @Value("${payment.saga.send-timeout-ms:30000}") long sendTimeoutMs) {
+        this.saga = saga;
+        this.objectMapper = objectMapper;
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.keySlots = new Semaphore(keyParallelism);
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(sendTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applies a batch, forwarding what failed. Returns once every event in it
+     * was applied or forwarded, so the batch's offsets can be committed; if
+     * forwarding failed, throws so the whole batch is delivered again.
+     */
+    @KafkaListener(id = "payment-saga", topics = TOPIC, groupId = "${payment.saga.group-id:payment-saga}",
+            containerFactory = "orderEventsListenerContainerFactory")
+    public void onOrderEvents(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer)
+            throws InterruptedException {
+        Map<String, List<ConsumerRecord<String, String>>> byKey = new LinkedHashMap<>();
+        for (ConsumerRecord<String, String> record : records) {
+            byKey.computeIfAbsent(record.key(), key -> new ArrayList<>()).add(record);
+        }
+        List<Future<Void>> orders = new ArrayList<>(byKey.size());
+        for (List<ConsumerRecord<String, String>> events : byKey.values()) {
+            orders.add(executor.submit(() -> applyInOrder(events)));
+        }
+        // wait for all of them, so a redelivered batch never races what is left of this one
+        Throwable failure = null;
+        for (Future<Void> order : orders) {
+            try {
+                order.get();
+            } catch (ExecutionException e) {
+                failure = failure == null ? e.getCause() : failure;
+            }
+        }
+        if (failure != null) {
+            throw new KafkaException("Could not forward failed order events", failure);
+        }
+        for (TopicPartition partition : consumer.assignment()) {
+            consumer.currentLag(partition).ifPresent(behind -> lagOf(partition).set(behind));
+        }
+    }
+
+    private Void applyInOrder(List<ConsumerRecord<String, String>> events) throws Exception {
+        keySlots.acquire();
+        try {
+            RuntimeException failure = null;
+            for (ConsumerRecord<String, String> record : events) {
+                if (failure == null) {
+                    try {
+                        saga.apply(objectMapper.readTree(record.value()));
+                        count("applied");
+                        continue;
+                    } catch (JsonProcessingException e) {
+                        log.error("Dead-lettering unreadable order event at {}-{}@{}", record.topic(),
+                                record.partition(), record.offset(), e);
+                        forward(record, DLT_TOPIC, e);
+                        continue;
+                    } catch (RuntimeException e) {
+                        log.warn("Order event for order {} failed, retrying it later: {}", record.key(),
+                                e.getMessage());
+                        failure = e;
+                    }
+                }
+                forward(record, RETRY_TOPIC, failure);
+                count("retried");
+            }
+        } finally {
+            keySlots.release();
+        }
+        return null;
+    }
+
+    private void forward(ConsumerRecord<String, String> record, String topic, Exception cause) throws Exception {
+        ProducerRecord<String, String> forwarded = new ProducerRecord<>(topic, record.key(), record.value());
+        forwarded.headers().add(KafkaHeaders.EXCEPTION_MESSAGE,
+                String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        kafkaTemplate.send(forwarded).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applies an event that failed before. Each failure moves it to the next
+     * retry topic, which holds it for longer; after the last attempt it goes
+     * to the dead-letter topic.
+     */
+    @RetryableTopic(attempts = "${payment.saga.retry.attempts:5}", kafkaTemplate = "kafkaTemplate",
+            backoff = @Backoff(delayExpression = "${payment.saga.retry.delay-ms:1000}",
+                    multiplierExpression = "${payment.saga.retry.multiplier:2}"))
+    @KafkaListener(id = "payment-saga-retry", topics = RETRY_TOPIC, groupId = "${payment.saga.group-id:payment-saga}")
+    public void onRetry(ConsumerRecord<String, String> record) throws JsonProcessingException {
+        saga.apply(objectMapper.readTree(record.value()));
+        count("applied");
+    }
+
+    @DltHandler
+    public void onDeadLetter(ConsumerRecord<String, String> record) {
+        log.error("Gave up on order event for order {} from {}: {}", record.key(), record.topic(), record.value());
+        count("dead-lettered");
+    }
+
+    /** Zeroes the lag of partitions taken away from this instance, which another instance reports now. */
+    public void partitionsRevoked(Collection<TopicPartition> partitions) {
+        partitions.forEach(partition -> lagOf(partition).set(0));
+    }
+
+    long lag() {
+        return lag.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    private AtomicLong lagOf(TopicPartition partition) {
+        return lag.computeIfAbsent(partition, p -> {
+            AtomicLong behind = new AtomicLong();
+            Gauge.builder("payment.saga.lag", behind, AtomicLong::get)
+                    .description("Order events not yet consumed by this instance")
+                    .tag("topic", p.topic())
+                    .tag("partition", Integer.toString(p.partition()))
+                    .register(meterRegistry);
+            return behind;
+        });
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("payment.saga.events", "outcome", outcome).increment();
+    }
+}
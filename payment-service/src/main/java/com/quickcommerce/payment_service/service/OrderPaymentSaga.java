@@ -0,0 +1,101 @@
+package com.quickcommerce.payment_service.service;
+
+import java.math.RoundingMode;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+import com.quickcommerce.payment_service.entity.Payment;
+import com.quickcommerce.payment_service.repository.PaymentSagaRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The payment side of an order's life, driven by order-service's order
+ * events. A created order gets a payment; a cancelled order's payment is
+ * cancelled if it has not been processed yet and refunded if it completed.
+ * Every change publishes a payment event, which order-service consumes to
+ * confirm or cancel the order.
+ * <p>
+ * Applying an event twice changes nothing the second time, and a creation
+ * that arrives after its order's cancellation starts no payment, so events
+ * may be redelivered or retried out of order.
+ * <p>
+ * A payment still with the provider when its order is cancelled cannot be
+ * cancelled or refunded yet. The order is marked refund pending instead, and
+ * a sweeper settles it once the payment completes or fails, which
+ * PaymentProcessor bounds by failing payments left processing too long.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OrderPaymentSaga {
+
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final PaymentService paymentService;
+    private final PaymentSagaRepository paymentSagaRepository;
+    private final TransactionOperations transactionOperations;
+
+    /** Applies one order event in its own transaction. Throws if it should be tried again later. */
+    @Transactional
+    public void apply(JsonNode event) {
+        long orderId = event.path("orderId").asLong();
+        switch (event.path("eventType").asText()) {
+            case "OrderCreated" -> paymentService.startOrderPayment(orderId,
+                    event.path("totalAmount").decimalValue().setScale(2, RoundingMode.HALF_UP));
+            case "OrderCANCELLED" -> cancel(orderId);
+            default -> {
+            }
+        }
+    }
+
+    /** Settles cancelled orders whose payment was still processing, each in its own transaction. */
+    @Scheduled(fixedDelayString = "${payment.saga.refund-sweep-interval-ms:30000}")
+    public void settlePendingRefunds() {
+        for (long orderId : paymentSagaRepository.findRefundPending(SWEEP_BATCH_SIZE)) {
+            try {
+                transactionOperations.executeWithoutResult(status -> {
+                    paymentSagaRepository.lock(orderId);
+                    if (settle(orderId)) {
+                        paymentSagaRepository.setRefundPending(orderId, false);
+                        log.info("Settled the payments of cancelled order {}", orderId);
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not settle the payments of cancelled order {}: {}", orderId, e.getMessage());
+            }
+        }
+    }
+
+    private void cancel(long orderId) {
+        paymentSagaRepository.cancel(orderId);
+        if (!settle(orderId)) {
+            paymentSagaRepository.setRefundPending(orderId, true);
+        }
+    }
+
+    /** Cancels or refunds a cancelled order's payments; false if one is still with the provider. */
+    private boolean settle(long orderId) {
+        boolean settled = true;
+        for (PaymentDTO payment : paymentService.getOrderPayments(orderId)) {
+            switch (Payment.PaymentStatus.valueOf(payment.getStatus())) {
+                case INITIATED -> paymentService.cancelPayment(payment.getId());
+                case COMPLETED -> paymentService.refundPayment(payment.getId());
+                case PROCESSING -> {
+                    log.info("Payment {} for cancelled order {} is still processing; refund pending",
+                            payment.getId(), orderId);
+                    settled = false;
+                }
+                default -> log.debug("Payment {} for cancelled order {} is already {}", payment.getId(), orderId,
+                        payment.getStatus());
+            }
+        }
+        return settled;
+    }
+}
@@ -0,0 +1,218 @@
+package com.quickcommerce.payment_service.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+import com.quickcommerce.payment_service.service.PaymentProvider.Authorization;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Processes payments in the background. {@link #process} moves the payment
+ * to PROCESSING and returns; the provider is then called on a virtual thread,
+ * so a slow provider holds neither a request thread nor a database connection
+ * while it answers. The payment is completed or failed with the answer.
+ * <p>
+ * Provider calls are bounded three ways. A bulkhead caps how many run at
+ * once; a call that cannot get a slot within the queue timeout fails the
+ * payment. A circuit breaker fails payments at once while the provider keeps
+ * erroring or timing out, rather than piling calls onto it. Each call has a
+ * timeout, after which it is abandoned and the payment failed.
+ * <p>
+ * A payment is settled by the instance that started it, so one can be left
+ * PROCESSING when that instance stops or crashes mid-call, or when the write
+ * of the provider's answer fails. A sweep fails any payment that has been
+ * processing for longer than a call could take, on startup and then on a
+ * schedule, so such a payment, and the order waiting on it, is not stuck.
+ */
+@Service
+@Slf4j
+public class PaymentProcessor {
+
+    /** Time allowed, beyond the queue and call timeouts, for a settled payment's write. */
+    static final long SETTLE_GRACE_MS = 10_000;
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final PaymentService paymentService;
+    private final PaymentProvider provider;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService callExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final long queueTimeoutMs;
+    private final long callTimeoutMs;
+
+    public PaymentProcessor(
+            PaymentService paymentService,
+            PaymentProvider provider,
+            MeterRegistry meterRegistry,
+            @Value("${payment.processing.max-concurrent:200}") int maxConcurrent,
+            @Value("${payment.processing.queue-timeout-ms:2000}") long queueTimeoutMs,
+            @Value("${payment.processing.call-timeout-ms:5000}") long callTimeoutMs,
+            @Value("${payment.processing.circuit.window-size:50}") int windowSize,
+            @Value("${payment.processing.circuit.minimum-calls:20}") int minimumCalls,
+            @Value("${payment.processing.circuit.failure-rate-percent:50}") int failureRatePercent,
+            @Value("${payment.processing.circuit.open-ms:10000}") long openMs) {
+        this.paymentService = paymentService;
+        this.provider = provider;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRatePercent, openMs);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.callTimeoutMs = callTimeoutMs;
+        Gauge.builder("payment.provider.in-flight", bulkhead, b -> maxConcurrent - b.availablePermits())
+                .description("Provider calls running now")
+                .register(meterRegistry);
+        Gauge.builder("payment.provider.queued", bulkhead, Semaphore::getQueueLength)
+                .description("Provider calls waiting for a bulkhead slot")
+                .register(meterRegistry);
+        Gauge.builder("payment.provider.circuit", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lets the payments already handed over settle, then abandons any provider
+     * call still running. Calls stay open to the settling payments until then,
+     * so none is left waiting on a call it cannot make.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(queueTimeoutMs + callTimeoutMs + SETTLE_GRACE_MS, TimeUnit.MILLISECONDS);
+        callExecutor.shutdownNow();
+    }
+
+    /**
+     * Fails payments that have been processing for longer than the queue and
+     * call timeouts allow, whose instance must have lost them. The provider
+     * may have charged one of them; as with a call that times out, a real
+     * integration looks the payment up with the provider first.
+     */
+    @Scheduled(fixedDelayString = "${payment.processing.stale-sweep-interval-ms:60000}")
+    public void failStalePayments() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(
+                TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs + callTimeoutMs + SETTLE_GRACE_MS));
+        List<Long> stale = paymentService.findProcessingSince(before, SWEEP_BATCH_SIZE);
+        for (Long id : stale) {
+            log.warn("Payment {} has been PROCESSING since before {}; failing it", id, before);
+            apply(id, () -> paymentService.failPayment(id, "Payment provider outcome unknown, try again"));
+        }
+        meterRegistry.counter("payment.provider.stale").increment(stale.size());
+    }
+
+    /**
+     * Moves the payment to PROCESSING and hands it to the provider in the
+     * background. Returns the processing payment; poll it to see the outcome.
+     */
+    public PaymentDTO process(Long id) {
+        PaymentDTO processing = paymentService.processPayment(id);
+        try {
+            executor.execute(() -> settle(processing));
+        } catch (RejectedExecutionException e) {
+            fail(processing, "Payment processing is shutting down, try again");
+        }
+        return processing;
+    }
+
+    /** Asks the provider and completes or fails the payment with its answer. */
+    void settle(PaymentDTO payment) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome;
+        try {
+            outcome = authorizeAndSettle(payment);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+            log.warn("Payment {} left PROCESSING by shutdown until the stale payment sweep fails it", payment.getId());
+        }
+        sample.stop(meterRegistry.timer("payment.provider.calls", "outcome", outcome));
+    }
+
+    private String authorizeAndSettle(PaymentDTO payment) throws InterruptedException {
+        if (!bulkhead.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+            fail(payment, "Payment provider busy, try again");
+            return "rejected";
+        }
+        Authorization authorization = null;
+        String failure;
+        String outcome;
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                failure = "Payment provider unavailable, try again";
+                outcome = "rejected";
+            } else {
+                Future<Authorization> call;
+                try {
+                    call = callExecutor.submit(() -> provider.authorize(payment));
+                } catch (RejectedExecutionException e) {
+                    // shutting down, so a half-open breaker left waiting on this trial no longer matters
+                    fail(payment, "Payment processing is shutting down, try again");
+                    return "rejected";
+                }
+                try {
+                    authorization = call.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+                    circuitBreaker.onSuccess();
+                    failure = authorization.approved() ? null : authorization.declineReason();
+                    outcome = authorization.approved() ? "approved" : "declined";
+                } catch (TimeoutException e) {
+                    call.cancel(true);
+                    circuitBreaker.onFailure();
+                    // the provider may still have charged; a real integration looks the payment up before retrying
+                    failure = "Payment provider did not answer in " + callTimeoutMs + " ms";
+                    outcome = "timeout";
+                } catch (ExecutionException e) {
+                    circuitBreaker.onFailure();
+                    log.warn("Payment provider failed for payment {}", payment.getId(), e.getCause());
+                    failure = "Payment provider error: " + e.getCause().getMessage();
+                    outcome = "error";
+                }
+            }
+        } finally {
+            // the slot bounds provider calls only, not the database writes that follow
+            bulkhead.release();
+        }
+
+        if (failure != null) {
+            fail(payment, failure);
+        } else {
+            String referenceNumber = authorization.referenceNumber();
+            apply(payment.getId(), () -> paymentService.completePayment(payment.getId(), referenceNumber));
+        }
+        return outcome;
+    }
+
+    private void fail(PaymentDTO payment, String reason) {
+        apply(payment.getId(), () -> paymentService.failPayment(payment.getId(), reason));
+    }
+
+    /** Applies the outcome unless the payment was moved on meanwhile, such as cancelled. */
+    private void apply(Long id, Runnable transition) {
+        try {
+            transition.run();
+        } catch (ResponseStatusException e) {
+            log.warn("Payment {} not settled: {}", id, e.getReason());
+        } catch (RuntimeException e) {
+            log.error("Payment {} left PROCESSING until the stale payment sweep fails it", id, e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.quickcommerce.payment_service.service;
+
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+
+/**
+ * The external provider that authorizes a payment. Calls may block for as
+ * long as the provider takes; {@link PaymentProcessor} runs them on virtual
+ * threads and bounds them with a bulkhead, a circuit breaker and a timeout.
+ */
+public interface PaymentProvider {
+
+    /**
+     * Asks the provider to authorize the payment. A decline is an answer, not
+     * a failure; an exception means the provider could not answer.
+     */
+    Authorization authorize(PaymentDTO payment) throws Exception;
+
+    record Authorization(boolean approved, String referenceNumber, String declineReason) {
+
+        public static Authorization approved(String referenceNumber) {
+            return new Authorization(true, referenceNumber, null);
+        }
+
+        public static Authorization declined(String reason) {
+            return new Authorization(false, null, reason);
+        }
+    }
+}
@@ -1,16 +1,28 @@
 package com.quickcommerce.payment_service.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.quickcommerce.payment_service.dto.PaymentDTO;
 import com.quickcommerce.payment_service.entity.Payment;
+import com.quickcommerce.payment_service.repository.PaymentJdbcRepository;
 import com.quickcommerce.payment_service.repository.PaymentRepository;
+import com.quickcommerce.payment_service.repository.PaymentSagaRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,24 +31,116 @@ import java.util.stream.Collectors;
 @Transactional
 public class PaymentService {
 
-    private final PaymentRepository paymentRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    /** Statuses in which a payment still stands for its order; an order has at most one such payment. */
+    private static final Set<Payment.PaymentStatus> LIVE = EnumSet.of(
+            Payment.PaymentStatus.INITIATED, Payment.PaymentStatus.PROCESSING, Payment.PaymentStatus.COMPLETED);
 
+    private final PaymentRepository paymentRepository;
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final PaymentSagaRepository paymentSagaRepository;
+    private final OutboxRelay outboxRelay;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Initiates a payment for an order. If the order already has a payment
+     * that is not failed or cancelled, such as one the payment saga started
+     * from the order's creation event, that payment is returned instead,
+     * taking this request's payment method while it is still INITIATED. A
+     * different amount, or an order that has been cancelled, is a 409.
+     */
     public PaymentDTO initiatePayment(PaymentDTO paymentDTO) {
         log.info("Initiating payment for order: {}", paymentDTO.getOrderId());
 
+        if ("CANCELLED".equals(paymentSagaRepository.lock(paymentDTO.getOrderId()))) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Order " + paymentDTO.getOrderId() + " was cancelled");
+        }
+        Payment.PaymentMethod method = Payment.PaymentMethod.valueOf(paymentDTO.getPaymentMethod());
+        Optional<Payment> live = findLivePayment(paymentDTO.getOrderId());
+        if (live.isPresent()) {
+            return reuse(live.get(), paymentDTO.getAmount(), method);
+        }
+        return create(paymentDTO.getOrderId(), paymentDTO.getAmount(), method);
+    }
+
+    /**
+     * Starts the payment for a newly created order, unless the order was seen
+     * before: its creation event delivered again, its cancellation delivered
+     * first, or a payment initiated for it directly. The customer has not
+     * chosen a payment method yet, so the payment starts as OTHER.
+     *
+     * @return the new payment, or empty if none was started
+     */
+    public Optional<PaymentDTO> startOrderPayment(long orderId, BigDecimal amount) {
+        if (!paymentSagaRepository.begin(orderId)) {
+            log.info("Payment for order {} already started or cancelled", orderId);
+            return Optional.empty();
+        }
+        // payments initiated before the saga existed have no row for their order
+        if (findLivePayment(orderId).isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(create(orderId, amount, Payment.PaymentMethod.OTHER));
+    }
+
+    private PaymentDTO create(long orderId, BigDecimal amount, Payment.PaymentMethod method) {
         Payment payment = Payment.builder()
-                .transactionId("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase())
-                .orderId(paymentDTO.getOrderId())
-                .amount(paymentDTO.getAmount())
-                .paymentMethod(Payment.PaymentMethod.valueOf(paymentDTO.getPaymentMethod()))
+                .transactionId(idGenerator.nextKey("TXN-"))
+                .orderId(orderId)
+                .amount(amount)
+                .paymentMethod(method)
                 .build();
 
         Payment saved = paymentRepository.save(payment);
+        paymentSagaRepository.recordPayment(orderId, saved.getId());
         log.info("Payment initiated with transaction ID: {}", saved.getTransactionId());
 
-        publishPaymentEvent("PaymentInitiated", saved);
-        return PaymentDTO.from(saved);
+        PaymentDTO initiated = PaymentDTO.from(saved);
+        publishPaymentEvent("PaymentInitiated", initiated);
+        return initiated;
+    }
+
+    private Optional<Payment> findLivePayment(long orderId) {
+        return paymentRepository.findByOrderId(orderId).stream()
+                .filter(payment -> LIVE.contains(payment.getStatus()))
+                .findFirst();
+    }
+
+    private PaymentDTO reuse(Payment payment, BigDecimal amount, Payment.PaymentMethod method) {
+        if (payment.getAmount().compareTo(amount) != 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order " + payment.getOrderId()
+                    + " already has payment " + payment.getId() + " for " + payment.getAmount());
+        }
+        if (payment.getStatus() == Payment.PaymentStatus.INITIATED && payment.getPaymentMethod() != method) {
+            payment.setPaymentMethod(method);
+        }
+        log.info("Order {} already has payment {}", payment.getOrderId(), payment.getId());
+        return PaymentDTO.from(payment);
+    }
+
+    /**
+     * Checks the amount and method of a payment about to be initiated, so a
+     * checkout can refuse it before it creates anything. Touches no data.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void validatePayment(PaymentDTO paymentDTO) {
+        if (paymentDTO.getAmount() == null || paymentDTO.getAmount().signum() <= 0) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Payment amount must be positive: " + paymentDTO.getAmount());
+        }
+        // amount is NUMERIC(10, 2)
+        BigDecimal amount = paymentDTO.getAmount().stripTrailingZeros();
+        if (amount.scale() > 2 || amount.precision() - amount.scale() > 8) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Payment amount does not fit 8 digits and 2 decimal places: " + paymentDTO.getAmount());
+        }
+        boolean known = Arrays.stream(Payment.PaymentMethod.values())
+                .anyMatch(method -> method.name().equals(paymentDTO.getPaymentMethod()));
+        if (!known) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Unknown payment method: " + paymentDTO.getPaymentMethod());
+        }
     }
 
     public PaymentDTO getPayment(Long id) {
@@ -58,68 +162,94 @@ public class PaymentService {
                 .collect(Collectors.toList());
     }
 
+    /** Ids of payments that have been PROCESSING since before {@code before}, oldest first. */
+    @Transactional(readOnly = true)
+    public List<Long> findProcessingSince(LocalDateTime before, int limit) {
+        return paymentJdbcRepository.findIdsByStatusUpdatedBefore(Payment.PaymentStatus.PROCESSING.name(), before,
+                limit);
+    }
+
     public PaymentDTO processPayment(Long id) {
         log.info("Processing payment: {}", id);
 
-        Payment payment = paymentRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Payment not found: " + id));
-
-        // Simulate payment processing
-        payment.setStatus(Payment.PaymentStatus.PROCESSING);
-        payment.setReferenceNumber("REF-" + UUID.randomUUID().toString().substring(0, 12).toUpperCase());
-
-        Payment updated = paymentRepository.save(payment);
+        PaymentDTO updated = transition(id, Payment.PaymentStatus.PROCESSING, null, null);
         publishPaymentEvent("PaymentProcessing", updated);
-        return PaymentDTO.from(updated);
+        return updated;
     }
 
     public PaymentDTO completePayment(Long id) {
-        log.info("Completing payment: {}", id);
+        return completePayment(id, null);
+    }
 
-        Payment payment = paymentRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Payment not found: " + id));
+    /** Completes a processing payment, recording the provider's reference for it when there is one. */
+    public PaymentDTO completePayment(Long id, String referenceNumber) {
+        log.info("Completing payment: {}", id);
 
-        payment.setStatus(Payment.PaymentStatus.COMPLETED);
-        Payment updated = paymentRepository.save(payment);
+        PaymentDTO updated = transition(id, Payment.PaymentStatus.COMPLETED, referenceNumber, null);
         publishPaymentEvent("PaymentCompleted", updated);
-        return PaymentDTO.from(updated);
+        return updated;
     }
 
     public PaymentDTO failPayment(Long id, String errorMessage) {
         log.info("Failing payment: {} with error: {}", id, errorMessage);
 
-        Payment payment = paymentRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Payment not found: " + id));
-
-        payment.setStatus(Payment.PaymentStatus.FAILED);
-        payment.setErrorMessage(errorMessage);
-        Payment updated = paymentRepository.save(payment);
+        PaymentDTO updated = transition(id, Payment.PaymentStatus.FAILED, null, errorMessage);
         publishPaymentEvent("PaymentFailed", updated);
-        return PaymentDTO.from(updated);
+        return updated;
     }
 
     public PaymentDTO refundPayment(Long id) {
         log.info("Refunding payment: {}", id);
 
-        Payment payment = paymentRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Payment not found: " + id));
-
-        payment.setStatus(Payment.PaymentStatus.REFUNDED);
-        Payment updated = paymentRepository.save(payment);
+        PaymentDTO updated = transition(id, Payment.PaymentStatus.REFUNDED, null, null);
         publishPaymentEvent("PaymentRefunded", updated);
-        return PaymentDTO.from(updated);
+        return updated;
+    }
+
+    public PaymentDTO cancelPayment(Long id) {
+        log.info("Cancelling payment: {}", id);
+
+        PaymentDTO updated = transition(id, Payment.PaymentStatus.CANCELLED, null, null);
+        publishPaymentEvent("PaymentCancelled", updated);
+        return updated;
+    }
+
+    /**
+     * Moves a payment to {@code target} if the transition table allows it
+     * from the payment's current status, recording the change in
+     * payment_history. Of two conflicting transitions, such as a complete and
+     * a fail, exactly one succeeds; the other gets a 409.
+     */
+    private PaymentDTO transition(Long id, Payment.PaymentStatus target, String referenceNumber,
+            String errorMessage) {
+        List<String> sources = target.sources().stream().map(Enum::name).toList();
+        return paymentJdbcRepository.transition(id, sources, target.name(), referenceNumber, errorMessage)
+                .orElseThrow(() -> rejectedTransition(id, target));
+    }
+
+    /** Reads the payment only after the conditional update missed, to say why. */
+    private RuntimeException rejectedTransition(Long id, Payment.PaymentStatus target) {
+        String current = paymentJdbcRepository.findStatus(id).orElse(null);
+        if (current == null) {
+            return new RuntimeException("Payment not found: " + id);
+        }
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "Payment " + id + " is " + current + " and cannot move to " + target);
     }
 
-    private void publishPaymentEvent(String eventType, Payment payment) {
-        String message = String.format(
-                "{\"eventType\":\"%s\",\"paymentId\":%d,\"transactionId\":\"%s\",\"orderId\":%d,\"amount\":%s,\"status\":\"%s\"}",
-                eventType, payment.getId(), payment.getTransactionId(), payment.getOrderId(),
-                payment.getAmount(), payment.getStatus());
+    private void publishPaymentEvent(String eventType, PaymentDTO payment) {
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("eventType", eventType)
+                .put("paymentId", payment.getId())
+                .put("transactionId", payment.getTransactionId())
+                .put("orderId", payment.getOrderId())
+                .put("amount", payment.getAmount())
+                .put("status", payment.getStatus());
         try {
-            kafkaTemplate.send("payment-events", payment.getId().toString(), message);
-            log.info("Published {} event for payment: {}", eventType, payment.getId());
-        } catch (Exception e) {
-            log.error("Failed to publish event", e);
+            outboxRelay.enqueue("payment-events", payment.getId().toString(), objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize payment event", e);
         }
+        log.info("Queued {} event for payment: {}", eventType, payment.getId());
     }
 }
\ No newline at end of file
@@ -0,0 +1,403 @@
+package com.quickcommerce.payment_service.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.quickcommerce.payment_service.dto.SettlementImportDTO;
+import com.quickcommerce.payment_service.entity.Payment;
+import com.quickcommerce.payment_service.repository.SettlementRepository;
+import com.quickcommerce.payment_service.repository.SettlementRepository.PaymentLine;
+import com.quickcommerce.payment_service.repository.SettlementRepository.SettlementLine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Matches payments against a settlement file from the provider. The file is
+ * imported into settlement_lines first. A reconciliation then splits its
+ * date range into slices, which run in parallel on a fork-join pool. Each
+ * slice streams its payments, joined to their settlement lines, through a
+ * forward-only cursor and writes whatever does not match to the report. A
+ * last pass reports settlement lines for transactions with no payment.
+ * Nothing holds more than one fetch of rows per slice, so memory stays the
+ * same however long the range is.
+ * <p>
+ * A completed payment should be settled as SETTLED and a refunded one as
+ * REFUNDED, for the same amount. No other status should be settled at all.
+ * Lines for payments outside the range are left for the run that covers
+ * them.
+ * <p>
+ * The report ends with an {@value #REPORT_END} line once the whole range is
+ * read, or an {@code ERROR} line with the reason if part of it failed, so a
+ * truncated report can be told apart from a complete one.
+ */
+@Service
+@Slf4j
+public class ReconciliationService {
+
+    static final String REPORT_HEADER =
+            "kind,transaction_id,payment_id,payment_amount,payment_status,settled_amount,settled_status\n";
+
+    static final String REPORT_END = "END,,,,,,";
+
+    private static final int REPORT_FLUSH_CHARS = 64 * 1024;
+    /** Connections left for payment traffic while a reconciliation holds one per slice. */
+    private static final int CONNECTION_HEADROOM = 2;
+
+    private final SettlementRepository settlementRepository;
+    private final SnowflakeIdGenerator idGenerator;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate writes;
+    private final TransactionTemplate cursors;
+    private final ForkJoinPool pool;
+    private final Duration slice;
+    private final int fetchSize;
+    private final int importBatchSize;
+
+    public ReconciliationService(
+            SettlementRepository settlementRepository,
+            SnowflakeIdGenerator idGenerator,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${payment.reconciliation.parallelism:0}") int parallelism,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+            @Value("${payment.reconciliation.slice-hours:6}") long sliceHours,
+            @Value("${payment.reconciliation.fetch-size:1000}") int fetchSize,
+            @Value("${payment.reconciliation.import-batch-size:1000}") int importBatchSize) {
+        this.settlementRepository = settlementRepository;
+        this.idGenerator = idGenerator;
+        this.meterRegistry = meterRegistry;
+        this.writes = new TransactionTemplate(transactionManager);
+        this.cursors = new TransactionTemplate(transactionManager);
+        this.cursors.setReadOnly(true);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism
+                : Math.min(Runtime.getRuntime().availableProcessors(),
+                        Math.max(1, connectionPoolSize - CONNECTION_HEADROOM)));
+        this.slice = Duration.ofHours(sliceHours);
+        this.fetchSize = fetchSize;
+        this.importBatchSize = importBatchSize;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Imports a settlement file: CSV with a header naming at least the
+     * transaction_id, amount and status columns, in any order. The file is
+     * read and written a batch at a time, in one transaction, so it is
+     * imported whole or not at all.
+     */
+    public SettlementImportDTO importSettlement(InputStream csv) throws IOException {
+        long batchId = idGenerator.nextId();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        Long lines;
+        try {
+            lines = writes.execute(status -> {
+                try {
+                    return importLines(batchId, reader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Settlement file lists a transaction more than once");
+        }
+        log.info("Imported settlement batch {} with {} lines", batchId, lines);
+        return SettlementImportDTO.builder().batchId(batchId).lines(lines).build();
+    }
+
+    public void deleteSettlement(long batchId) {
+        int deleted = settlementRepository.delete(batchId);
+        log.info("Deleted settlement batch {} with {} lines", batchId, deleted);
+    }
+
+    /**
+     * Rejects an empty or inverted range with 400. The controller checks this
+     * before the report starts streaming, since a failure inside the stream
+     * can only end it with an error line.
+     */
+    public void requireRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Reconciliation range is empty: from " + from + " must be before to " + to);
+        }
+    }
+
+    /**
+     * Reconciles the payments created in [from, to) against a settlement
+     * batch, writing a CSV line to {@code out} for each mismatch. Returns the
+     * counts once the whole range has been read.
+     */
+    public Summary reconcile(long batchId, LocalDateTime from, LocalDateTime to, Writer out) throws IOException {
+        requireRange(from, to);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Run run = new Run(batchId, out);
+        out.write(REPORT_HEADER);
+        try {
+            pool.invoke(new Slice(run, from, to));
+            Report unknown = new Report(run);
+            cursors.executeWithoutResult(status -> settlementRepository.streamUnknown(batchId, fetchSize,
+                    line -> unknown.add(Kind.UNKNOWN_TRANSACTION, null, line)));
+            unknown.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            log.error("Reconciliation against settlement batch {} failed part way", batchId, e);
+            synchronized (out) {
+                out.write("ERROR," + String.valueOf(e.getMessage()).replaceAll("[,\\r\\n]", " ") + ",,,,,\n");
+                out.flush();
+            }
+            throw e;
+        }
+        out.write(REPORT_END + "\n");
+        out.flush();
+
+        Summary summary = run.summary();
+        sample.stop(meterRegistry.timer("payment.reconciliation"));
+        summary.mismatches().forEach((kind, count) ->
+                meterRegistry.counter("payment.reconciliation.mismatches", "kind", kind.name()).increment(count));
+        log.info("Reconciled {} payments created between {} and {} against settlement batch {}: {}",
+                summary.payments(), from, to, batchId, summary.mismatches());
+        return summary;
+    }
+
+    /** What is wrong with a payment and its settlement line, or null if they agree. */
+    static Kind compare(String paymentStatus, BigDecimal amount, SettlementLine settlement) {
+        String expected = switch (Payment.PaymentStatus.valueOf(paymentStatus)) {
+            case COMPLETED -> "SETTLED";
+            case REFUNDED -> "REFUNDED";
+            default -> null;
+        };
+        if (settlement == null) {
+            return expected == null ? null : Kind.MISSING_FROM_SETTLEMENT;
+        }
+        if (!settlement.status().equals(expected)) {
+            return Kind.STATUS_MISMATCH;
+        }
+        return amount.compareTo(settlement.amount()) == 0 ? null : Kind.AMOUNT_MISMATCH;
+    }
+
+    private long importLines(long batchId, BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Settlement file is empty");
+        }
+        List<String> columns = Arrays.stream(fields(header.replace("\uFEFF", "")))
+                .map(column -> column.toLowerCase(Locale.ROOT))
+                .toList();
+        int transactionColumn = column(columns, "transaction_id");
+        int amountColumn = column(columns, "amount");
+        int statusColumn = column(columns, "status");
+
+        List<SettlementLine> batch = new ArrayList<>(importBatchSize);
+        long count = 0;
+        long lineNumber = 1;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = fields(line);
+            if (fields.length != columns.size()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Settlement line " + lineNumber
+                        + " has " + fields.length + " fields, expected " + columns.size());
+            }
+            BigDecimal amount;
+            try {
+                amount = new BigDecimal(fields[amountColumn]);
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Settlement line " + lineNumber + " has an invalid amount: " + fields[amountColumn]);
+            }
+            batch.add(new SettlementLine(fields[transactionColumn], amount,
+                    fields[statusColumn].toUpperCase(Locale.ROOT)));
+            if (batch.size() == importBatchSize) {
+                settlementRepository.insert(batchId, batch);
+                count += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            settlementRepository.insert(batchId, batch);
+            count += batch.size();
+        }
+        return count;
+    }
+
+    private static int column(List<String> columns, String name) {
+        int index = columns.indexOf(name);
+        if (index < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Settlement file has no " + name + " column: " + columns);
+        }
+        return index;
+    }
+
+    /** Splits a CSV line on commas, dropping surrounding whitespace and quotes; quoted commas are not supported. */
+    private static String[] fields(String line) {
+        String[] fields = line.split(",", -1);
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i].strip();
+            if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+                field = field.substring(1, field.length() - 1);
+            }
+            fields[i] = field;
+        }
+        return fields;
+    }
+
+    public enum Kind {
+        /** A completed or refunded payment the provider has not settled. */
+        MISSING_FROM_SETTLEMENT,
+        /** Settled with a status that does not match the payment's. */
+        STATUS_MISMATCH,
+        /** Settled for a different amount. */
+        AMOUNT_MISMATCH,
+        /** Settled, but no payment has the transaction id. */
+        UNKNOWN_TRANSACTION
+    }
+
+    public record Summary(long payments, long matched, Map<Kind, Long> mismatches) {
+    }
+
+    /** One reconciliation: the report all slices write to and the counts they add to. */
+    private static final class Run {
+
+        private final long batchId;
+        private final Writer out;
+        private final LongAdder payments = new LongAdder();
+        private final LongAdder matched = new LongAdder();
+        private final Map<Kind, LongAdder> mismatches = new EnumMap<>(Kind.class);
+
+        Run(long batchId, Writer out) {
+            this.batchId = batchId;
+            this.out = out;
+            for (Kind kind : Kind.values()) {
+                mismatches.put(kind, new LongAdder());
+            }
+        }
+
+        Summary summary() {
+            Map<Kind, Long> counts = new EnumMap<>(Kind.class);
+            mismatches.forEach((kind, count) -> counts.put(kind, count.sum()));
+            return new Summary(payments.sum(), matched.sum(), counts);
+        }
+    }
+
+    /** Report lines from one slice, handed to the shared writer in large pieces. */
+    private static final class Report {
+
+        private final Run run;
+        private final StringBuilder pending = new StringBuilder(REPORT_FLUSH_CHARS + 256);
+
+        Report(Run run) {
+            this.run = run;
+        }
+
+        void add(Kind kind, PaymentLine payment, SettlementLine settlement) {
+            run.mismatches.get(kind).increment();
+            pending.append(kind).append(',')
+                    .append(payment != null ? payment.transactionId() : settlement.transactionId()).append(',');
+            if (payment != null) {
+                pending.append(payment.paymentId()).append(',').append(payment.amount().toPlainString()).append(',')
+                        .append(payment.status()).append(',');
+            } else {
+                pending.append(",,,");
+            }
+            if (settlement != null) {
+                pending.append(settlement.amount().toPlainString()).append(',').append(settlement.status());
+            } else {
+                pending.append(',');
+            }
+            pending.append('\n');
+            if (pending.length() >= REPORT_FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            synchronized (run.out) {
+                try {
+                    run.out.append(pending);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            pending.setLength(0);
+        }
+    }
+
+    /** A part of the range, halved until it is no longer than a slice, then read through one cursor. */
+    @SuppressWarnings("serial")
+    private final class Slice extends RecursiveAction {
+
+        private final Run run;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+
+        Slice(Run run, LocalDateTime from, LocalDateTime to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            Duration length = Duration.between(from, to);
+            if (length.compareTo(slice) > 0) {
+                LocalDateTime middle = from.plus(length.dividedBy(2));
+                invokeAll(new Slice(run, from, middle), new Slice(run, middle, to));
+                return;
+            }
+            Report report = new Report(run);
+            cursors.executeWithoutResult(status -> settlementRepository.streamPayments(run.batchId, from, to,
+                    fetchSize, payment -> {
+                        run.payments.increment();
+                        Kind kind = compare(payment.status(), payment.amount(), payment.settlement());
+                        if (kind == null) {
+                            run.matched.increment();
+                        } else {
+                            report.add(kind, payment, payment.settlement());
+                        }
+                    }));
+            report.flush();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.quickcommerce.payment_service.service;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An in-process stand-in for the payment provider, used until a real one is
+ * wired in and to load-test processing offline. Each call takes the base
+ * latency plus an exponentially distributed extra, which gives the long tail
+ * real providers have. A configurable share of calls hang past any sensible
+ * timeout, fail with an error, or are declined. The profile can be swapped at
+ * runtime to move between a healthy and a degraded provider mid-test.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.provider.type", havingValue = "simulator", matchIfMissing = true)
+@Slf4j
+public class SimulatedPaymentProvider implements PaymentProvider {
+
+    private volatile Profile profile;
+
+    public SimulatedPaymentProvider(
+            @Value("${payment.provider.simulator.latency-ms:150}") long latencyMs,
+            @Value("${payment.provider.simulator.latency-tail-ms:50}") long latencyTailMs,
+            @Value("${payment.provider.simulator.error-rate:0}") double errorRate,
+            @Value("${payment.provider.simulator.decline-rate:0}") double declineRate,
+            @Value("${payment.provider.simulator.timeout-rate:0}") double timeoutRate,
+            @Value("${payment.provider.simulator.hang-ms:60000}") long hangMs) {
+        this.profile = checked(new Profile(latencyMs, latencyTailMs, errorRate, declineRate, timeoutRate, hangMs));
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(Profile profile) {
+        this.profile = checked(profile);
+    }
+
+    private static Profile checked(Profile profile) {
+        if (profile.errorRate() + profile.declineRate() + profile.timeoutRate() > 1) {
+            throw new IllegalArgumentException("Error, decline and timeout rates add up to more than 1: " + profile);
+        }
+        log.info("Simulated payment provider profile: {}", profile);
+        return profile;
+    }
+
+    @Override
+    public Authorization authorize(PaymentDTO payment) throws InterruptedException {
+        Profile current = profile;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double roll = random.nextDouble();
+        if (roll < current.timeoutRate()) {
+            Thread.sleep(current.hangMs());
+            throw new IllegalStateException("Simulated provider did not answer in " + current.hangMs() + " ms");
+        }
+        long tail = current.latencyTailMs() > 0
+                ? (long) (-current.latencyTailMs() * Math.log(1 - random.nextDouble()))
+                : 0;
+        Thread.sleep(current.latencyMs() + tail);
+
+        roll -= current.timeoutRate();
+        if (roll < current.errorRate()) {
+            throw new IllegalStateException("Simulated provider error");
+        }
+        roll -= current.errorRate();
+        if (roll < current.declineRate()) {
+            return Authorization.declined("Simulated decline");
+        }
+        return Authorization.approved("SIM-" + UUID.randomUUID().toString().substring(0, 12).toUpperCase());
+    }
+
+    /**
+     * How the simulated provider behaves. Latency is {@code latencyMs} plus an
+     * exponential extra averaging {@code latencyTailMs}. The rates are shares
+     * of all calls: a timed-out call sleeps {@code hangMs} and then fails.
+     */
+    public record Profile(long latencyMs, long latencyTailMs, double errorRate, double declineRate,
+            double timeoutRate, long hangMs) {
+    }
+}
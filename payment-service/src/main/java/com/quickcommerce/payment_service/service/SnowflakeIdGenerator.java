@@ -0,0 +1,120 @@
+package com.quickcommerce.payment_service.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.netflix.appinfo.EurekaInstanceConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Snowflake-style 64-bit ids: 41 bits of milliseconds since 2024-01-01,
+ * 10 bits of node id and a 12-bit sequence within the millisecond. Ids from
+ * one node are strictly increasing, and ids from different nodes never
+ * collide as long as their node ids differ.
+ * <p>
+ * The millisecond and sequence are kept in one {@link AtomicLong} and
+ * advanced with a single compare-and-set, so there is no lock and nothing
+ * to wait on. A burst of more than 4096 ids in a millisecond carries into
+ * the next millisecond early. If the wall clock steps back, the generator
+ * keeps counting on from the last millisecond it issued rather than
+ * reusing ids.
+ * <p>
+ * The node id is {@code payment.id.node-id} when set. Otherwise it is the
+ * low 10 bits of the Eureka instance's IPv4 address, which is unique for
+ * instances within a /22 network.
+ */
+@Component
+@Slf4j
+public class SnowflakeIdGenerator {
+
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /** Base-36 width of the largest id, so formatted keys sort in id order. */
+    private static final int KEY_WIDTH = Long.toString(Long.MAX_VALUE, 36).length();
+
+    private final long node;
+    private final LongSupplier clock;
+    /** (milliseconds since the epoch << SEQUENCE_BITS) | sequence of the last id issued. */
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(
+            @Value("${payment.id.node-id:-1}") long configuredNode,
+            ObjectProvider<EurekaInstanceConfig> eurekaInstance) {
+        this(configuredNode >= 0 ? configuredNode : nodeOf(eurekaInstance.getIfAvailable()),
+                System::currentTimeMillis);
+        log.info("Payment id generator using node id {}", node);
+    }
+
+    SnowflakeIdGenerator(long node, LongSupplier clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalStateException("Node id must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            // A new millisecond restarts the sequence; otherwise count on, carrying into the millisecond field
+            long next = now > current >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                        | node << SEQUENCE_BITS
+                        | next & SEQUENCE_MASK;
+            }
+        }
+    }
+
+    /** The next id as {@code prefix} plus fixed-width base 36, so keys sort the same way the ids do. */
+    public String nextKey(String prefix) {
+        return format(prefix, nextId());
+    }
+
+    static String format(String prefix, long id) {
+        String digits = Long.toString(id, 36).toUpperCase();
+        StringBuilder key = new StringBuilder(prefix.length() + KEY_WIDTH).append(prefix);
+        for (int i = digits.length(); i < KEY_WIDTH; i++) {
+            key.append('0');
+        }
+        return key.append(digits).toString();
+    }
+
+    long node() {
+        return node;
+    }
+
+    private static long nodeOf(EurekaInstanceConfig instance) {
+        if (instance != null) {
+            String ip = instance.getIpAddress();
+            if (ip != null) {
+                try {
+                    byte[] address = InetAddress.getByName(ip).getAddress();
+                    if (address.length == 4) {
+                        return (address[2] & 0x03) << 8 | address[3] & 0xff;
+                    }
+                } catch (UnknownHostException e) {
+                    log.warn("Could not read the instance address {}, using its instance id", ip);
+                }
+            }
+            if (instance.getInstanceId() != null) {
+                return Math.floorMod(instance.getInstanceId().hashCode(), MAX_NODE + 1);
+            }
+        }
+        throw new IllegalStateException("No node id: set payment.id.node-id or register with Eureka");
+    }
+}
@@ -0,0 +1,13 @@
+-- Responses to requests sent with an Idempotency-Key, replayed when the key
+-- is seen again until it expires. A key is claimed in the same transaction
+-- as the payment it creates, so a concurrent duplicate on another instance
+-- waits on the unique index until that transaction ends.
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,12 @@
+-- Settlement files imported from the provider, one row per settled
+-- transaction, kept per import so a run can be repeated against the same file
+CREATE TABLE settlement_lines (
+    batch_id BIGINT NOT NULL,
+    transaction_id VARCHAR(100) NOT NULL,
+    amount NUMERIC(10, 2) NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    imported_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (batch_id, transaction_id)
+);
+
+CREATE INDEX idx_settlement_lines_transaction_id ON settlement_lines (transaction_id);
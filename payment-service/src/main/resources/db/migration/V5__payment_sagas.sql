@@ -0,0 +1,8 @@
+-- What the payment saga has seen of each order, so an order event delivered
+-- twice or late does not start a second payment or one for a cancelled order
+CREATE TABLE payment_sagas (
+    order_id BIGINT PRIMARY KEY,
+    state VARCHAR(20) NOT NULL,
+    payment_id BIGINT,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
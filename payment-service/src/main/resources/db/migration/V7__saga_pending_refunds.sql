@@ -0,0 +1,5 @@
+-- A cancelled order whose payment was still with the provider; the saga's
+-- sweeper cancels or refunds that payment once it settles
+ALTER TABLE payment_sagas ADD COLUMN refund_pending BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE INDEX idx_payment_sagas_refund_pending ON payment_sagas (order_id) WHERE refund_pending;
@@ -0,0 +1,54 @@
+package com.quickcommerce.payment_service.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.quickcommerce.payment_service.entity.Payment.PaymentStatus;
+
+class PaymentStatusTest {
+
+    @Test
+    void paymentsAreProcessedThenSettledAndOnlyCompletedOnesRefunded() {
+        assertTrue(PaymentStatus.INITIATED.canMoveTo(PaymentStatus.PROCESSING));
+        assertTrue(PaymentStatus.PROCESSING.canMoveTo(PaymentStatus.COMPLETED));
+        assertTrue(PaymentStatus.PROCESSING.canMoveTo(PaymentStatus.FAILED));
+        assertTrue(PaymentStatus.INITIATED.canMoveTo(PaymentStatus.FAILED));
+        assertTrue(PaymentStatus.INITIATED.canMoveTo(PaymentStatus.CANCELLED));
+        assertTrue(PaymentStatus.COMPLETED.canMoveTo(PaymentStatus.REFUNDED));
+
+        assertFalse(PaymentStatus.FAILED.canMoveTo(PaymentStatus.COMPLETED));
+        assertFalse(PaymentStatus.COMPLETED.canMoveTo(PaymentStatus.FAILED));
+        assertFalse(PaymentStatus.INITIATED.canMoveTo(PaymentStatus.COMPLETED));
+        assertFalse(PaymentStatus.INITIATED.canMoveTo(PaymentStatus.REFUNDED));
+        assertFalse(PaymentStatus.REFUNDED.canMoveTo(PaymentStatus.REFUNDED));
+    }
+
+    @Test
+    void finalStatusesGoNowhere() {
+        for (PaymentStatus status : EnumSet.of(PaymentStatus.FAILED, PaymentStatus.REFUNDED, PaymentStatus.CANCELLED)) {
+            for (PaymentStatus target : PaymentStatus.values()) {
+                assertFalse(status.canMoveTo(target), status + " -> " + target);
+            }
+        }
+    }
+
+    @Test
+    void sourcesAreTheInverseOfTheTransitions() {
+        for (PaymentStatus target : PaymentStatus.values()) {
+            Set<PaymentStatus> expected = EnumSet.noneOf(PaymentStatus.class);
+            for (PaymentStatus from : PaymentStatus.values()) {
+                if (from.canMoveTo(target)) {
+                    expected.add(from);
+                }
+            }
+            assertEquals(expected, target.sources(), target::name);
+        }
+        assertTrue(PaymentStatus.INITIATED.sources().isEmpty());
+    }
+}
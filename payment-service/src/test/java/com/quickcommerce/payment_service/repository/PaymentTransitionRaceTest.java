@@ -0,0 +1,119 @@
+package com.quickcommerce.payment_service.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.quickcommerce.payment_service.entity.Payment.PaymentStatus;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Races a complete against a fail on each of many processing payments, both
+ * released by the same barrier, and checks that exactly one wins per payment
+ * and that payment_history holds exactly the changes that were applied.
+ * Needs the payment database, so it only runs with
+ * {@code -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_payment}.
+ */
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class PaymentTransitionRaceTest {
+
+    private static final int PAYMENTS = 500;
+    private static final String PREFIX = "RACE-" + System.nanoTime() + "-";
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void connect() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        jdbcTemplate.update("""
+                DELETE FROM payment_history WHERE payment_id IN
+                    (SELECT id FROM payments WHERE transaction_id LIKE ?)
+                """, PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM payments WHERE transaction_id LIKE ?", PREFIX + "%");
+        dataSource.close();
+    }
+
+    @Test
+    void completeAndFailRaceAndExactlyOneWins() throws Exception {
+        List<Long> ids = jdbcTemplate.queryForList("""
+                INSERT INTO payments (transaction_id, order_id, amount, payment_method, status, created_at, updated_at)
+                SELECT ? || g, g, 10.00, 'CREDIT_CARD', 'INITIATED', now(), now()
+                FROM generate_series(1, ?) AS g
+                RETURNING id
+                """, Long.class, PREFIX, PAYMENTS);
+        PaymentJdbcRepository repository = new PaymentJdbcRepository(jdbcTemplate);
+        for (long id : ids) {
+            repository.transition(id, List.of("INITIATED"), "PROCESSING", "REF-" + id, null).orElseThrow();
+        }
+
+        AtomicLong completed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> racers = new ArrayList<>();
+            racers.add(executor.submit(() -> race(repository, ids, barrier, PaymentStatus.COMPLETED, completed)));
+            racers.add(executor.submit(() -> race(repository, ids, barrier, PaymentStatus.FAILED, failed)));
+            for (Future<?> racer : racers) {
+                racer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        System.out.printf("%d completed, %d failed%n", completed.get(), failed.get());
+
+        assertEquals(PAYMENTS, completed.get() + failed.get());
+        assertEquals(completed.get(), count("SELECT count(*) FROM payments WHERE transaction_id LIKE ? "
+                + "AND status = 'COMPLETED'"));
+        assertEquals(failed.get(), count("SELECT count(*) FROM payments WHERE transaction_id LIKE ? "
+                + "AND status = 'FAILED' AND error_message = 'declined'"));
+        // INITIATED -> PROCESSING and one settlement per payment, each from the status it really left
+        assertEquals(2L * PAYMENTS, count("""
+                SELECT count(*) FROM payment_history h JOIN payments p ON p.id = h.payment_id
+                WHERE p.transaction_id LIKE ?
+                """));
+        assertEquals(PAYMENTS, count("""
+                SELECT count(*) FROM payment_history h JOIN payments p ON p.id = h.payment_id
+                WHERE p.transaction_id LIKE ? AND h.old_status = 'PROCESSING' AND h.new_status = p.status
+                """));
+    }
+
+    private static Void race(PaymentJdbcRepository repository, List<Long> ids, CyclicBarrier barrier,
+            PaymentStatus target, AtomicLong wins) throws Exception {
+        List<String> sources = target.sources().stream().map(Enum::name).toList();
+        String errorMessage = target == PaymentStatus.FAILED ? "declined" : null;
+        for (long id : ids) {
+            barrier.await();
+            if (repository.transition(id, sources, target.name(), null, errorMessage).isPresent()) {
+                wins.incrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    private static long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class, PREFIX + "%");
+    }
+}
@@ -0,0 +1,120 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.payment_service.dto.BulkTransitionDTO;
+import com.quickcommerce.payment_service.dto.BulkTransitionResultDTO;
+import com.quickcommerce.payment_service.repository.OutboxRepository;
+import com.quickcommerce.payment_service.repository.PaymentJdbcRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Completes 50,000 processing payments in one bulk request, half by payment
+ * id and half by transaction id, on a single connection, and checks that it
+ * takes under the minute the settlement runs allow, with a history row per
+ * payment and one event per chunk. The outbox relay is not started, so the
+ * events stay in the outbox until the test removes them. Only runs with
+ * {@code -Dbenchmark=true -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_payment}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class BulkTransitionBenchmarkTest {
+
+    private static final int PAYMENTS = 50_000;
+    private static final int CHUNK_SIZE = 1_000;
+    private static final String PREFIX = "BULK-" + System.nanoTime() + "-";
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void connect() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(1);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE payload LIKE '%\"batchId\":\"' || ?", PREFIX + "%");
+        jdbcTemplate.update("""
+                DELETE FROM payment_history WHERE payment_id IN
+                    (SELECT id FROM payments WHERE transaction_id LIKE ?)
+                """, PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM payments WHERE transaction_id LIKE ?", PREFIX + "%");
+        dataSource.close();
+    }
+
+    @Test
+    void completesFiftyThousandPaymentsWithinAMinute() {
+        List<Long> ids = jdbcTemplate.queryForList("""
+                INSERT INTO payments (transaction_id, order_id, amount, payment_method, status, created_at, updated_at)
+                SELECT ? || g, g, 10.00, 'CREDIT_CARD', 'PROCESSING', now(), now()
+                FROM generate_series(1, ?) AS g
+                RETURNING id
+                """, Long.class, PREFIX, PAYMENTS);
+        List<String> transactionIds = jdbcTemplate.queryForList(
+                "SELECT transaction_id FROM payments WHERE transaction_id LIKE ? AND id >= ? ORDER BY id",
+                String.class, PREFIX + "%", ids.get(PAYMENTS / 2));
+
+        long start = System.nanoTime();
+        BulkTransitionResultDTO result = service().transition(BulkTransitionDTO.builder()
+                .targetStatus("COMPLETED")
+                .paymentIds(ids.subList(0, PAYMENTS / 2))
+                .transactionIds(transactionIds)
+                .build());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("completed %d payments in %.1f s, %.0f per minute%n", result.getApplied(), seconds,
+                result.getApplied() / seconds * 60);
+
+        assertEquals(PAYMENTS, result.getApplied());
+        assertTrue(seconds < 60, seconds + " s");
+        assertEquals(PAYMENTS, count("""
+                SELECT count(*) FROM payment_history h JOIN payments p ON p.id = h.payment_id
+                WHERE p.transaction_id LIKE ? AND h.old_status = 'PROCESSING' AND h.new_status = 'COMPLETED'
+                """));
+        assertEquals(PAYMENTS / CHUNK_SIZE, count(
+                "SELECT count(*) FROM outbox_events WHERE payload LIKE '%\"batchId\":\"' || ?"));
+    }
+
+    private static BulkTransitionService service() {
+        SnowflakeIdGenerator idGenerator = mock(SnowflakeIdGenerator.class);
+        AtomicLong keys = new AtomicLong();
+        when(idGenerator.nextKey("BULK-")).thenAnswer(call -> PREFIX + keys.incrementAndGet());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OutboxRelay outboxRelay = new OutboxRelay(new OutboxRepository(jdbcTemplate), null, meterRegistry,
+                false, 500, 100, 1_000, 30_000, 10);
+        // one partition, so each chunk is one event
+        KafkaTemplate<String, String> kafkaTemplate = mock();
+        when(kafkaTemplate.partitionsFor("payment-events"))
+                .thenReturn(List.of(new PartitionInfo("payment-events", 0, null, null, null)));
+        return new BulkTransitionService(new PaymentJdbcRepository(jdbcTemplate), outboxRelay, kafkaTemplate,
+                idGenerator, new ObjectMapper(), meterRegistry, new JdbcTransactionManager(dataSource), CHUNK_SIZE,
+                PAYMENTS);
+    }
+
+    private static long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class, PREFIX + "%");
+    }
+}
@@ -0,0 +1,196 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.payment_service.dto.BulkTransitionDTO;
+import com.quickcommerce.payment_service.dto.BulkTransitionResultDTO;
+import com.quickcommerce.payment_service.dto.BulkTransitionResultDTO.Item;
+import com.quickcommerce.payment_service.dto.BulkTransitionResultDTO.Outcome;
+import com.quickcommerce.payment_service.repository.PaymentJdbcRepository;
+import com.quickcommerce.payment_service.repository.PaymentJdbcRepository.BulkTransition;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BulkTransitionServiceTest {
+
+    private static final List<String> COMPLETE_FROM = List.of("PROCESSING");
+
+    private final PaymentJdbcRepository repository = mock(PaymentJdbcRepository.class);
+    private final OutboxRelay outboxRelay = mock(OutboxRelay.class);
+    private final KafkaTemplate<String, String> kafkaTemplate = mock();
+    private final SnowflakeIdGenerator idGenerator = mock(SnowflakeIdGenerator.class);
+    private final BulkTransitionService service = new BulkTransitionService(repository, outboxRelay, kafkaTemplate,
+            idGenerator, new ObjectMapper(), new SimpleMeterRegistry(), mock(PlatformTransactionManager.class), 2, 5);
+
+    @BeforeEach
+    void setUp() {
+        partitions(3);
+    }
+
+    @Test
+    void movesIdsInChunksWithOneEventPerChunkAndReportsEachId() {
+        when(idGenerator.nextKey("BULK-")).thenReturn("BULK-1");
+        when(repository.transitionAll(List.of(1L, 2L), COMPLETE_FROM, "COMPLETED", null)).thenReturn(List.of(
+                new BulkTransition(1, "TXN-1", 11, new BigDecimal("10.00"), "PROCESSING", true),
+                new BulkTransition(2, "TXN-2", 12, new BigDecimal("5.00"), "FAILED", false)));
+        when(repository.transitionAll(List.of(3L), COMPLETE_FROM, "COMPLETED", null)).thenReturn(List.of());
+
+        BulkTransitionResultDTO result = service.transition(request("COMPLETED", null, Arrays.asList(1L, 2L, 3L, 2L,
+                null)));
+
+        assertEquals(1, result.getApplied());
+        assertEquals(1, result.getRejected());
+        assertEquals(1, result.getNotFound());
+        assertEquals(List.of(
+                new Item(1L, "TXN-1", Outcome.APPLIED, "PROCESSING", "COMPLETED"),
+                new Item(2L, "TXN-2", Outcome.REJECTED, "FAILED", "FAILED"),
+                new Item(3L, null, Outcome.NOT_FOUND, null, null)), result.getResults());
+        // the last chunk moved nothing, so it has no event
+        ArgumentCaptor<String> event = ArgumentCaptor.forClass(String.class);
+        verify(outboxRelay).enqueue(eq("payment-events"), eq("1"), event.capture());
+        assertEquals("{\"eventType\":\"PaymentBatchCompleted\",\"batchId\":\"BULK-1\",\"status\":\"COMPLETED\","
+                + "\"count\":1,\"payments\":[{\"paymentId\":1,\"transactionId\":\"TXN-1\",\"orderId\":11,"
+                + "\"amount\":10.00}]}", event.getValue());
+    }
+
+    @Test
+    void findsPaymentsByTransactionId() {
+        when(idGenerator.nextKey("BULK-")).thenReturn("BULK-1");
+        when(repository.transitionAllByTransactionId(List.of("TXN-1", "TXN-9"), List.of("INITIATED", "PROCESSING"),
+                "FAILED", "settlement rejected")).thenReturn(List.of(
+                        new BulkTransition(1, "TXN-1", 11, new BigDecimal("10.00"), "INITIATED", true)));
+
+        BulkTransitionResultDTO result = service.transition(BulkTransitionDTO.builder()
+                .targetStatus("FAILED")
+                .transactionIds(List.of("TXN-1", "TXN-9"))
+                .errorMessage("settlement rejected")
+                .build());
+
+        assertEquals(List.of(
+                new Item(1L, "TXN-1", Outcome.APPLIED, "INITIATED", "FAILED"),
+                new Item(null, "TXN-9", Outcome.NOT_FOUND, null, null)), result.getResults());
+        verify(outboxRelay).enqueue(eq("payment-events"), eq("1"),
+                contains("\"eventType\":\"PaymentBatchFailed\""));
+    }
+
+    @Test
+    void escapesTransactionIdsInTheEvent() throws Exception {
+        String transactionId = "TXN-\"1\\";
+        when(idGenerator.nextKey("BULK-")).thenReturn("BULK-1");
+        when(repository.transitionAllByTransactionId(List.of(transactionId), COMPLETE_FROM, "COMPLETED", null))
+                .thenReturn(List.of(new BulkTransition(1, transactionId, 11, BigDecimal.ONE, "PROCESSING", true)));
+
+        service.transition(BulkTransitionDTO.builder()
+                .targetStatus("COMPLETED")
+                .transactionIds(List.of(transactionId))
+                .build());
+
+        ArgumentCaptor<String> event = ArgumentCaptor.forClass(String.class);
+        verify(outboxRelay).enqueue(eq("payment-events"), eq("1"), event.capture());
+        JsonNode payment = new ObjectMapper().readTree(event.getValue()).path("payments").get(0);
+        assertEquals(transactionId, payment.path("transactionId").asText());
+    }
+
+    @Test
+    void keysEachEventByAPaymentOnThePartitionItsOwnEventsUse() {
+        when(idGenerator.nextKey("BULK-")).thenReturn("BULK-1", "BULK-2");
+        long first = 1;
+        long samePartition = LongStream.range(2, 100)
+                .filter(id -> BulkTransitionService.partition(id, 3) == BulkTransitionService.partition(first, 3))
+                .findFirst().orElseThrow();
+        long otherPartition = LongStream.range(2, 100)
+                .filter(id -> BulkTransitionService.partition(id, 3) != BulkTransitionService.partition(first, 3))
+                .findFirst().orElseThrow();
+        List<Long> ids = List.of(first, samePartition, otherPartition);
+        when(repository.transitionAll(anyList(), eq(COMPLETE_FROM), eq("COMPLETED"), any())).thenAnswer(call -> {
+            List<Long> chunk = call.getArgument(0);
+            return chunk.stream().map(id -> new BulkTransition(id, "TXN-" + id, id, BigDecimal.ONE, "PROCESSING",
+                    true)).toList();
+        });
+        BulkTransitionService oneChunk = new BulkTransitionService(repository, outboxRelay, kafkaTemplate,
+                idGenerator, new ObjectMapper(), new SimpleMeterRegistry(), mock(PlatformTransactionManager.class), 3,
+                5);
+
+        oneChunk.transition(request("COMPLETED", null, ids));
+
+        verify(outboxRelay).enqueue(eq("payment-events"), eq(Long.toString(first)),
+                contains("\"count\":2"));
+        verify(outboxRelay).enqueue(eq("payment-events"), eq(Long.toString(otherPartition)),
+                contains("\"count\":1"));
+    }
+
+    @Test
+    void movesAPaymentNamedByIdAndTransactionIdOnce() {
+        when(idGenerator.nextKey("BULK-")).thenReturn("BULK-1");
+        when(repository.transitionAll(List.of(1L), COMPLETE_FROM, "COMPLETED", null)).thenReturn(List.of(
+                new BulkTransition(1, "TXN-1", 11, new BigDecimal("10.00"), "PROCESSING", true)));
+        when(repository.transitionAllByTransactionId(List.of("TXN-2"), COMPLETE_FROM, "COMPLETED", null))
+                .thenReturn(List.of());
+
+        BulkTransitionResultDTO result = service.transition(BulkTransitionDTO.builder()
+                .targetStatus("COMPLETED")
+                .paymentIds(List.of(1L))
+                .transactionIds(List.of("TXN-1", "TXN-2"))
+                .build());
+
+        assertEquals(List.of(
+                new Item(1L, "TXN-1", Outcome.APPLIED, "PROCESSING", "COMPLETED"),
+                new Item(null, "TXN-2", Outcome.NOT_FOUND, null, null)), result.getResults());
+        verify(repository, never()).transitionAllByTransactionId(eq(List.of("TXN-1", "TXN-2")), any(), anyString(),
+                any());
+    }
+
+    @Test
+    void refusesTargetsItCannotMoveToAndRequestsTooLargeOrIncomplete() {
+        assertUnprocessable(request("PROCESSING", null, List.of(1L)), "targetStatus must be one of");
+        assertUnprocessable(request("FAILED", " ", List.of(1L)), "needs an errorMessage");
+        assertUnprocessable(request("COMPLETED", null, LongStream.rangeClosed(1, 6).boxed().toList()),
+                "At most 5");
+        verify(repository, never()).transitionAll(anyList(), any(), anyString(), any());
+    }
+
+    private void assertUnprocessable(BulkTransitionDTO request, String reason) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> service.transition(request));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+        assertTrue(e.getReason().contains(reason), e.getReason());
+    }
+
+    private void partitions(int count) {
+        when(kafkaTemplate.partitionsFor("payment-events")).thenReturn(IntStream.range(0, count)
+                .mapToObj(partition -> new PartitionInfo("payment-events", partition, null, null, null))
+                .toList());
+    }
+
+    private static BulkTransitionDTO request(String targetStatus, String errorMessage, List<Long> ids) {
+        return BulkTransitionDTO.builder().targetStatus(targetStatus).errorMessage(errorMessage).paymentIds(ids)
+                .build();
+    }
+}
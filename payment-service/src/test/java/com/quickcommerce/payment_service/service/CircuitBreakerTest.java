@@ -0,0 +1,85 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.quickcommerce.payment_service.service.CircuitBreaker.State;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, 1_000, now::get);
+
+    @Test
+    void staysClosedUntilEnoughCallsFail() {
+        call(false);
+        call(true);
+        call(false);
+        assertEquals(State.CLOSED, breaker.state());
+        call(false);
+        call(true);
+        assertEquals(State.CLOSED, breaker.state(), "2 of 5 failed");
+        call(true);
+        assertEquals(State.OPEN, breaker.state(), "3 of 6 failed");
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void onlyTheLastWindowOfCallsCounts() {
+        call(true);
+        for (int i = 0; i < 10; i++) {
+            call(false);
+        }
+        // the first failure has left the window of ten
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(State.CLOSED, breaker.state());
+        call(true);
+        assertEquals(State.OPEN, breaker.state());
+    }
+
+    @Test
+    void letsOneTrialThroughAfterTheOpenPeriod() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(State.OPEN, breaker.state());
+        advance(999);
+        assertFalse(breaker.tryAcquire());
+
+        advance(1);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire(), "one trial at a time");
+        breaker.onFailure();
+        assertEquals(State.OPEN, breaker.state());
+
+        advance(1_000);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(State.CLOSED, breaker.state());
+        call(true);
+        call(true);
+        assertEquals(State.CLOSED, breaker.state(), "the window starts over when it closes");
+    }
+
+    private void call(boolean failure) {
+        assertTrue(breaker.tryAcquire());
+        if (failure) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
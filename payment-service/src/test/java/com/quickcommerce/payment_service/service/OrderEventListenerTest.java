@@ -0,0 +1,185 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.payment_service.config.OrderEventsKafkaConfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the order-events listeners against an embedded broker with the saga
+ * mocked: batches spread over one consumer per partition, each order's events
+ * applied in order, failed events retried through the retry topics and given
+ * up on in the dead-letter topic.
+ */
+@SpringBootTest(classes = OrderEventListenerTest.Config.class, properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.key-deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+        "spring.kafka.consumer.value-deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "payment.saga.retry.attempts=3",
+        "payment.saga.retry.delay-ms=100" })
+@EmbeddedKafka(kraft = true, partitions = 3, topics = OrderEventListener.TOPIC)
+class OrderEventListenerTest {
+
+    @Configuration
+    @EnableKafka
+    @ImportAutoConfiguration(KafkaAutoConfiguration.class)
+    @Import({ OrderEventsKafkaConfig.class, OrderEventListener.class })
+    static class Config {
+
+        @Bean
+        SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+
+    @MockitoBean
+    private OrderPaymentSaga saga;
+
+    @Autowired
+    private KafkaTemplate<String, String> template;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private OrderEventListener listener;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Test
+    void consumesEachPartitionOnItsOwnThreadAndAppliesEachOrdersEventsInOrder() throws Exception {
+        assertEquals(3, ((ConcurrentMessageListenerContainer<?, ?>) registry.getListenerContainer("payment-saga"))
+                .getConcurrency());
+        Map<Long, List<String>> applied = new ConcurrentHashMap<>();
+        doAnswer(call -> {
+            JsonNode event = call.getArgument(0);
+            applied.computeIfAbsent(event.get("orderId").asLong(), id -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(event.get("eventType").asText());
+            return null;
+        }).when(saga).apply(argThat(event -> event.get("orderId").asLong() < 100));
+
+        for (long order = 1; order <= 30; order++) {
+            send(order, "OrderCreated");
+        }
+        for (long order = 1; order <= 30; order++) {
+            send(order, "OrderCONFIRMED");
+            send(order, "OrderCANCELLED");
+        }
+
+        await(() -> applied.values().stream().mapToInt(List::size).sum() == 90 && listener.lag() == 0);
+        for (long order = 1; order <= 30; order++) {
+            assertEquals(List.of("OrderCreated", "OrderCONFIRMED", "OrderCANCELLED"), applied.get(order));
+        }
+        assertEquals(3, meterRegistry.find("payment.saga.lag").gauges().size());
+    }
+
+    @Test
+    void retriesAFailedEventUntilItApplies() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(call -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("payment still processing");
+            }
+            return null;
+        }).when(saga).apply(argThat(event -> event.get("orderId").asLong() == 100));
+
+        send(100, "OrderCANCELLED");
+
+        await(() -> attempts.get() == 3);
+        Thread.sleep(500);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void deadLettersEventsThatKeepFailingAndEventsThatCannotBeRead() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(call -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("payment service down");
+        }).when(saga).apply(argThat(event -> event.get("orderId").asLong() == 200));
+
+        send(200, "OrderCANCELLED");
+        template.send(OrderEventListener.TOPIC, "201", "not an event").get();
+
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-reader", "false", broker);
+        props.put("auto.offset.reset", "earliest");
+        Set<String> deadLettered = new HashSet<>();
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
+                new StringDeserializer()).createConsumer()) {
+            consumer.subscribe(List.of(OrderEventListener.DLT_TOPIC));
+            long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+            while (deadLettered.size() < 2 && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, String> record : KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1))) {
+                    deadLettered.add(record.key());
+                }
+            }
+        }
+        assertEquals(Set.of("200", "201"), deadLettered);
+        // one attempt from order-events, then the three the retry topics allow
+        assertEquals(4, attempts.get());
+    }
+
+    private void send(long orderId, String eventType) throws Exception {
+        template.send(OrderEventListener.TOPIC, Long.toString(orderId), String.format(
+                "{\"eventType\":\"%s\",\"orderId\":%d,\"totalAmount\":10.00}", eventType, orderId)).get();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+import com.quickcommerce.payment_service.repository.PaymentSagaRepository;
+
+class OrderPaymentSagaTest {
+
+    private final PaymentService paymentService = mock(PaymentService.class);
+    private final PaymentSagaRepository sagaRepository = mock(PaymentSagaRepository.class);
+    private final OrderPaymentSaga saga = new OrderPaymentSaga(paymentService, sagaRepository,
+            TransactionOperations.withoutTransaction());
+
+    @Test
+    void startsAPaymentForTheOrderTotal() throws Exception {
+        saga.apply(event("OrderCreated", 7, "24.5"));
+
+        verify(paymentService).startOrderPayment(7, new BigDecimal("24.50"));
+    }
+
+    @Test
+    void cancelsUnprocessedPaymentsAndRefundsCompletedOnes() throws Exception {
+        when(paymentService.getOrderPayments(7L)).thenReturn(List.of(payment(1, "INITIATED"),
+                payment(2, "COMPLETED"), payment(3, "FAILED")));
+
+        saga.apply(event("OrderCANCELLED", 7, "24.50"));
+
+        verify(sagaRepository).cancel(7);
+        verify(paymentService).cancelPayment(1L);
+        verify(paymentService).refundPayment(2L);
+        verify(paymentService, never()).cancelPayment(3L);
+        verify(paymentService, never()).refundPayment(3L);
+    }
+
+    @Test
+    void marksARefundPendingWhileThePaymentIsProcessing() throws Exception {
+        when(paymentService.getOrderPayments(7L)).thenReturn(List.of(payment(1, "PROCESSING")));
+
+        saga.apply(event("OrderCANCELLED", 7, "24.50"));
+
+        verify(sagaRepository).cancel(7);
+        verify(sagaRepository).setRefundPending(7, true);
+        verify(paymentService, never()).refundPayment(anyLong());
+    }
+
+    @Test
+    void sweeperRefundsAPendingPaymentOnceItCompletes() {
+        when(sagaRepository.findRefundPending(anyInt())).thenReturn(List.of(7L, 8L));
+        when(paymentService.getOrderPayments(7L)).thenReturn(List.of(payment(1, "COMPLETED")));
+        when(paymentService.getOrderPayments(8L)).thenReturn(List.of(payment(2, "PROCESSING")));
+
+        saga.settlePendingRefunds();
+
+        verify(paymentService).refundPayment(1L);
+        verify(sagaRepository).setRefundPending(7, false);
+        verify(sagaRepository, never()).setRefundPending(eq(8L), anyBoolean());
+    }
+
+    @Test
+    void ignoresOtherOrderEvents() throws Exception {
+        saga.apply(event("OrderSHIPPED", 7, "24.50"));
+
+        verify(paymentService, never()).startOrderPayment(anyLong(), any());
+        verify(paymentService, never()).getOrderPayments(anyLong());
+    }
+
+    private static JsonNode event(String eventType, long orderId, String totalAmount) throws Exception {
+        return new ObjectMapper().readTree(String.format(
+                "{\"eventType\":\"%s\",\"orderId\":%d,\"totalAmount\":%s,\"status\":\"PENDING\"}",
+                eventType, orderId, totalAmount));
+    }
+
+    private static PaymentDTO payment(long id, String status) {
+        return PaymentDTO.builder().id(id).orderId(7L).status(status).build();
+    }
+}
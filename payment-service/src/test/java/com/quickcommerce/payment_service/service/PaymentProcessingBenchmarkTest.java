@@ -0,0 +1,101 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Settlement latency of background processing against the simulated
+ * provider: 50 ms plus a 50 ms mean tail per call, 2% errors and 1% of calls
+ * that hang for 10 s. Payments arrive at a steady rate well within what the
+ * bulkhead allows, and status changes are stubbed, so this measures the
+ * processor alone. A hung call must cost its payment no more than the call
+ * timeout and must not hold up the others. Only runs with
+ * {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaymentProcessingBenchmarkTest {
+
+    private static final int PAYMENTS = 10_000;
+    private static final int PER_SECOND = 2_000;
+    private static final int MAX_CONCURRENT = 1_000;
+    private static final long CALL_TIMEOUT_MS = 1_000;
+
+    private final long[] started = new long[PAYMENTS + 1];
+    private final long[] settled = new long[PAYMENTS + 1];
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    private final CountDownLatch done = new CountDownLatch(PAYMENTS);
+
+    @Test
+    void hungProviderCallsOnlyCostTheirOwnPayments() throws Exception {
+        SimulatedPaymentProvider simulator = new SimulatedPaymentProvider(50, 50, 0.02, 0, 0.01, 10_000);
+        // a breaker that does not trip on the steady 3% failure rate
+        PaymentProcessor processor = new PaymentProcessor(new StubPaymentService(), simulator,
+                new SimpleMeterRegistry(), MAX_CONCURRENT, 60_000, CALL_TIMEOUT_MS, 100, 100, 50, 10_000);
+        long start = System.nanoTime();
+        long interval = TimeUnit.SECONDS.toNanos(1) / PER_SECOND;
+        for (int id = 1; id <= PAYMENTS; id++) {
+            LockSupport.parkNanos(start + id * interval - System.nanoTime());
+            processor.process((long) id);
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES), done.getCount() + " payments never settled");
+        processor.stop();
+
+        long[] latencies = new long[PAYMENTS];
+        for (int id = 1; id <= PAYMENTS; id++) {
+            latencies[id - 1] = settled[id] - started[id];
+        }
+        Arrays.sort(latencies);
+        double p50 = latencies[PAYMENTS / 2] / 1e6;
+        double p99 = latencies[(int) (PAYMENTS * 0.99)] / 1e6;
+        double p999 = latencies[(int) (PAYMENTS * 0.999)] / 1e6;
+        System.out.printf("settled in p50 %.0f ms, p99 %.0f ms, p99.9 %.0f ms; failures %s%n", p50, p99, p999,
+                failures);
+
+        assertTrue(p50 < 200, "p50 " + p50 + " ms");
+        assertTrue(p999 < CALL_TIMEOUT_MS * 1.5, "p99.9 " + p999 + " ms against a " + CALL_TIMEOUT_MS + " ms timeout");
+        assertTrue(failures.values().stream().mapToInt(Integer::intValue).sum() < PAYMENTS * 0.05,
+                "failures " + failures);
+    }
+
+    /** Records when each payment started and settled instead of writing to a database. */
+    private class StubPaymentService extends PaymentService {
+
+        StubPaymentService() {
+            super(null, null, null, null, null, null);
+        }
+
+        @Override
+        public PaymentDTO processPayment(Long id) {
+            started[id.intValue()] = System.nanoTime();
+            return PaymentDTO.builder().id(id).status("PROCESSING").build();
+        }
+
+        @Override
+        public PaymentDTO completePayment(Long id, String referenceNumber) {
+            settled[id.intValue()] = System.nanoTime();
+            done.countDown();
+            return null;
+        }
+
+        @Override
+        public PaymentDTO failPayment(Long id, String errorMessage) {
+            settled[id.intValue()] = System.nanoTime();
+            failures.merge(errorMessage.replaceAll("\\d+", "N"), 1, Integer::sum);
+            done.countDown();
+            return null;
+        }
+    }
+}
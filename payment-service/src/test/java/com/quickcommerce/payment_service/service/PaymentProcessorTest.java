@@ -0,0 +1,150 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+import com.quickcommerce.payment_service.service.PaymentProvider.Authorization;
+import com.quickcommerce.payment_service.service.SimulatedPaymentProvider.Profile;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PaymentProcessorTest {
+
+    private final PaymentService paymentService = mock(PaymentService.class);
+    private PaymentProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        when(paymentService.processPayment(anyLong()))
+                .thenAnswer(call -> PaymentDTO.builder().id(call.getArgument(0)).status("PROCESSING").build());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        processor.stop();
+    }
+
+    @Test
+    void returnsBeforeTheProviderAnswersThenCompletesWithItsReference() throws Exception {
+        CountDownLatch answer = new CountDownLatch(1);
+        processor = processor(payment -> {
+            answer.await();
+            return Authorization.approved("REF-" + payment.getId());
+        }, 10, 1_000);
+
+        assertEquals("PROCESSING", processor.process(7L).getStatus());
+        verify(paymentService, never()).completePayment(anyLong(), eq("REF-7"));
+
+        answer.countDown();
+        verify(paymentService, timeout(1_000)).completePayment(7L, "REF-7");
+    }
+
+    @Test
+    void failsDeclinedPaymentsAndThoseTheProviderDoesNotAnswerInTime() {
+        SimulatedPaymentProvider simulator = new SimulatedPaymentProvider(0, 0, 0, 1, 0, 0);
+        processor = processor(simulator, 10, 200);
+        processor.process(1L);
+        verify(paymentService, timeout(1_000)).failPayment(1L, "Simulated decline");
+
+        simulator.setProfile(new Profile(0, 0, 0, 0, 1, 60_000));
+        processor.process(2L);
+        verify(paymentService, timeout(2_000)).failPayment(eq(2L), contains("did not answer in 200 ms"));
+    }
+
+    @Test
+    void opensTheCircuitAfterRepeatedErrorsAndStopsCallingTheProvider() {
+        AtomicInteger calls = new AtomicInteger();
+        processor = processor(payment -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("provider down");
+        }, 10, 1_000);
+
+        for (long id = 1; id <= 4; id++) {
+            processor.process(id);
+            verify(paymentService, timeout(1_000)).failPayment(id, "Payment provider error: provider down");
+        }
+        for (long id = 5; id <= 8; id++) {
+            processor.process(id);
+            verify(paymentService, timeout(1_000)).failPayment(id, "Payment provider unavailable, try again");
+        }
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void bulkheadCapsConcurrentProviderCalls() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        processor = processor(payment -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return Authorization.approved("REF");
+        }, 3, 1_000);
+
+        for (long id = 1; id <= 20; id++) {
+            processor.process(id);
+        }
+        verify(paymentService, timeout(5_000).times(20)).completePayment(anyLong(), eq("REF"));
+        verify(paymentService, times(0)).failPayment(anyLong(), contains("busy"));
+        assertEquals(3, peak.get());
+    }
+
+    @Test
+    void failsPaymentsHandedOverAfterShutdown() throws InterruptedException {
+        processor = processor(payment -> Authorization.approved("REF"), 10, 1_000);
+        processor.stop();
+
+        processor.process(9L);
+
+        verify(paymentService).failPayment(eq(9L), contains("shutting down"));
+        verify(paymentService, never()).completePayment(anyLong(), anyString());
+    }
+
+    @Test
+    void failsPaymentsProcessingForLongerThanACallCouldTake() {
+        processor = processor(payment -> Authorization.approved("REF"), 10, 1_000);
+        when(paymentService.findProcessingSince(any(), anyInt())).thenReturn(List.of(3L, 4L));
+        when(paymentService.failPayment(4L, "Payment provider outcome unknown, try again"))
+                .thenThrow(new IllegalStateException("database down"));
+
+        long staleAfterNanos = (5_000 + 1_000 + PaymentProcessor.SETTLE_GRACE_MS) * 1_000_000;
+        LocalDateTime start = LocalDateTime.now();
+        processor.failStalePayments();
+        LocalDateTime end = LocalDateTime.now();
+
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(paymentService).findProcessingSince(before.capture(), anyInt());
+        assertFalse(before.getValue().isBefore(start.minusNanos(staleAfterNanos)));
+        assertFalse(before.getValue().isAfter(end.minusNanos(staleAfterNanos)));
+        verify(paymentService).failPayment(3L, "Payment provider outcome unknown, try again");
+        verify(paymentService).failPayment(4L, "Payment provider outcome unknown, try again");
+    }
+
+    private PaymentProcessor processor(PaymentProvider provider, int maxConcurrent, long callTimeoutMs) {
+        return new PaymentProcessor(paymentService, provider, new SimpleMeterRegistry(), maxConcurrent, 5_000,
+                callTimeoutMs, 4, 4, 100, 60_000);
+    }
+}
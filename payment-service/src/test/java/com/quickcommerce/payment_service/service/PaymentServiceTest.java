@@ -0,0 +1,45 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.payment_service.dto.PaymentDTO;
+import com.quickcommerce.payment_service.repository.PaymentJdbcRepository;
+import com.quickcommerce.payment_service.repository.PaymentRepository;
+import com.quickcommerce.payment_service.repository.PaymentSagaRepository;
+
+class PaymentServiceTest {
+
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final PaymentSagaRepository sagaRepository = mock(PaymentSagaRepository.class);
+    private final PaymentService paymentService = new PaymentService(paymentRepository,
+            mock(PaymentJdbcRepository.class), sagaRepository, mock(OutboxRelay.class),
+            mock(SnowflakeIdGenerator.class), new ObjectMapper());
+
+    @Test
+    void refusesToStartAPaymentForACancelledOrder() {
+        when(sagaRepository.lock(7L)).thenReturn("CANCELLED");
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> paymentService.initiatePayment(PaymentDTO.builder()
+                        .orderId(7L)
+                        .amount(new BigDecimal("24.50"))
+                        .paymentMethod("CREDIT_CARD")
+                        .build()));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        verify(paymentRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,118 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+import com.quickcommerce.payment_service.repository.SettlementRepository;
+import com.quickcommerce.payment_service.service.ReconciliationService.Kind;
+import com.quickcommerce.payment_service.service.ReconciliationService.Summary;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Reconciles a month of payments, one every 10 seconds, against a settlement
+ * file with a known set of mismatches, first on one thread and then on one
+ * per core, and prints the time and heap each run took. Seeds about 260,000
+ * payments in a range far in the past, so it only runs with
+ * {@code -Dbenchmark=true -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_payment}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class ReconciliationBenchmarkTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2001, 1, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(30);
+    private static final String PREFIX = "RECON-" + System.nanoTime() + "-";
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static long payments;
+    private static long batchId;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(Runtime.getRuntime().availableProcessors() + 2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        payments = jdbcTemplate.update("""
+                INSERT INTO payments (transaction_id, order_id, amount, payment_method, status, created_at, updated_at)
+                SELECT ? || g, g, 10.00, 'CREDIT_CARD', 'COMPLETED', t, t
+                FROM generate_series(?::timestamp, ?::timestamp - interval '1 second', interval '10 seconds')
+                    WITH ORDINALITY AS s(t, g)
+                """, PREFIX, FROM.toString(), TO.toString());
+
+        // every 1,000th payment is unsettled, every 1,000th + 1 settled for the wrong amount, plus one unknown line
+        StringBuilder csv = new StringBuilder("transaction_id,amount,status\n");
+        for (long g = 1; g <= payments; g++) {
+            if (g % 1_000 != 0) {
+                csv.append(PREFIX).append(g).append(',').append(g % 1_000 == 1 ? "9.99" : "10.00").append(",SETTLED\n");
+            }
+        }
+        csv.append(PREFIX).append("unknown,1.00,SETTLED\n");
+        batchId = service(1).importSettlement(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8))).getBatchId();
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        jdbcTemplate.update("DELETE FROM settlement_lines WHERE transaction_id LIKE ?", PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM payments WHERE transaction_id LIKE ?", PREFIX + "%");
+        dataSource.close();
+    }
+
+    @Test
+    void reconcilesAMonthOnOneThreadAndOnEveryCore() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        double oneThread = run(1);
+        double allCores = run(cores);
+        System.out.printf("%d payments: 1 thread %.1f s, %d threads %.1f s (%.1fx)%n",
+                payments, oneThread, cores, allCores, oneThread / allCores);
+    }
+
+    private double run(int parallelism) throws Exception {
+        ReconciliationService service = service(parallelism);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        Summary summary = service.reconcile(batchId, FROM, TO, Writer.nullWriter());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        service.stop();
+        System.out.printf("%d threads: %.0f payments/s, heap grew by at most %d MB%n", parallelism,
+                summary.payments() / seconds, Math.max(0, heapAfter - heapBefore) >> 20);
+
+        assertEquals(payments, summary.payments());
+        assertEquals(payments / 1_000, summary.mismatches().get(Kind.MISSING_FROM_SETTLEMENT));
+        assertEquals((payments + 999) / 1_000, summary.mismatches().get(Kind.AMOUNT_MISMATCH));
+        assertEquals(1L, summary.mismatches().get(Kind.UNKNOWN_TRANSACTION));
+        return seconds;
+    }
+
+    private static ReconciliationService service(int parallelism) {
+        SnowflakeIdGenerator idGenerator = mock(SnowflakeIdGenerator.class);
+        AtomicLong ids = new AtomicLong(System.nanoTime());
+        when(idGenerator.nextId()).thenAnswer(call -> ids.incrementAndGet());
+        return new ReconciliationService(new SettlementRepository(jdbcTemplate), idGenerator,
+                new JdbcTransactionManager(dataSource), new SimpleMeterRegistry(), parallelism, 10, 6, 1_000, 1_000);
+    }
+}
@@ -0,0 +1,184 @@
+package com.quickcommerce.payment_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.quickcommerce.payment_service.repository.SettlementRepository;
+import com.quickcommerce.payment_service.repository.SettlementRepository.PaymentLine;
+import com.quickcommerce.payment_service.repository.SettlementRepository.SettlementLine;
+import com.quickcommerce.payment_service.service.ReconciliationService.Kind;
+import com.quickcommerce.payment_service.service.ReconciliationService.Summary;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReconciliationServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    private final SettlementRepository repository = mock(SettlementRepository.class);
+    private final SnowflakeIdGenerator idGenerator = mock(SnowflakeIdGenerator.class);
+    private final ReconciliationService service = new ReconciliationService(repository, idGenerator,
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 4, 10, 6, 100, 2);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    void comparesStatusAndAmount() {
+        BigDecimal ten = new BigDecimal("10.00");
+        assertNull(ReconciliationService.compare("COMPLETED", ten, line("SETTLED", "10")));
+        assertNull(ReconciliationService.compare("REFUNDED", ten, line("REFUNDED", "10.00")));
+        assertNull(ReconciliationService.compare("INITIATED", ten, null));
+        assertNull(ReconciliationService.compare("FAILED", ten, null));
+
+        assertEquals(Kind.MISSING_FROM_SETTLEMENT, ReconciliationService.compare("COMPLETED", ten, null));
+        assertEquals(Kind.MISSING_FROM_SETTLEMENT, ReconciliationService.compare("REFUNDED", ten, null));
+        assertEquals(Kind.STATUS_MISMATCH, ReconciliationService.compare("COMPLETED", ten, line("REFUNDED", "10")));
+        assertEquals(Kind.STATUS_MISMATCH, ReconciliationService.compare("FAILED", ten, line("SETTLED", "10")));
+        assertEquals(Kind.AMOUNT_MISMATCH, ReconciliationService.compare("COMPLETED", ten, line("SETTLED", "9.99")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importsTheFileInBatchesWithColumnsInAnyOrder() throws Exception {
+        when(idGenerator.nextId()).thenReturn(42L);
+        String csv = "\uFEFFStatus,settled_at,Transaction_ID,amount\n"
+                + "settled,2026-03-01,TXN-1,10.00\n"
+                + "\n"
+                + "\"REFUNDED\",2026-03-01,\"TXN-2\",5\n"
+                + "settled,2026-03-02,TXN-3,7.50\n";
+
+        assertEquals(3L, service.importSettlement(stream(csv)).getLines());
+
+        ArgumentCaptor<List<SettlementLine>> batches = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).insert(eq(42L), batches.capture());
+        // the service reuses its batch list, so check what was inserted last
+        assertEquals(List.of(new SettlementLine("TXN-3", new BigDecimal("7.50"), "SETTLED")),
+                batches.getAllValues().get(1));
+    }
+
+    @Test
+    void rejectsFilesItCannotRead() {
+        ResponseStatusException missing = assertThrows(ResponseStatusException.class,
+                () -> service.importSettlement(stream("transaction_id,amount\nTXN-1,10\n")));
+        assertTrue(missing.getReason().contains("no status column"), missing.getReason());
+
+        ResponseStatusException amount = assertThrows(ResponseStatusException.class,
+                () -> service.importSettlement(stream("transaction_id,amount,status\nTXN-1,ten,SETTLED\n")));
+        assertTrue(amount.getReason().contains("line 2"), amount.getReason());
+        verify(repository, times(0)).insert(anyLong(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void readsTheRangeInSlicesAndReportsEveryMismatch() throws Exception {
+        List<LocalDateTime[]> slices = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(call -> {
+            LocalDateTime from = call.getArgument(1);
+            LocalDateTime to = call.getArgument(2);
+            slices.add(new LocalDateTime[] { from, to });
+            Consumer<PaymentLine> action = call.getArgument(4);
+            // one payment an hour: every fifth is missing from the settlement
+            LocalDateTime first = from.truncatedTo(ChronoUnit.HOURS);
+            for (LocalDateTime hour = first.isBefore(from) ? first.plusHours(1) : first; hour.isBefore(to);
+                    hour = hour.plusHours(1)) {
+                long id = Duration.between(FROM, hour).toHours();
+                action.accept(new PaymentLine(id, "TXN-" + id, BigDecimal.TEN, "COMPLETED",
+                        id % 5 == 0 ? null : line("SETTLED", "10")));
+            }
+            return null;
+        }).when(repository).streamPayments(eq(7L), any(), any(), anyInt(), any());
+        doAnswer(call -> {
+            ((Consumer<SettlementLine>) call.getArgument(2)).accept(line("SETTLED", "3"));
+            return null;
+        }).when(repository).streamUnknown(eq(7L), anyInt(), any());
+
+        StringWriter report = new StringWriter();
+        Summary summary = service.reconcile(7L, FROM, FROM.plusDays(3), report);
+
+        assertEquals(72, summary.payments());
+        assertEquals(57, summary.matched());
+        assertEquals(15L, summary.mismatches().get(Kind.MISSING_FROM_SETTLEMENT));
+        assertEquals(1L, summary.mismatches().get(Kind.UNKNOWN_TRANSACTION));
+
+        slices.sort((a, b) -> a[0].compareTo(b[0]));
+        assertEquals(FROM, slices.get(0)[0]);
+        for (int i = 0; i < slices.size(); i++) {
+            assertTrue(Duration.between(slices.get(i)[0], slices.get(i)[1]).toHours() <= 6);
+            if (i > 0) {
+                assertEquals(slices.get(i - 1)[1], slices.get(i)[0], "slices leave no gaps");
+            }
+        }
+        assertEquals(FROM.plusDays(3), slices.get(slices.size() - 1)[1]);
+
+        List<String> lines = report.toString().lines().toList();
+        assertEquals(ReconciliationService.REPORT_HEADER.strip(), lines.get(0));
+        assertEquals(18, lines.size());
+        assertEquals(ReconciliationService.REPORT_END, lines.get(17));
+        assertTrue(lines.contains("MISSING_FROM_SETTLEMENT,TXN-5,5,10,COMPLETED,,"), lines.toString());
+        assertTrue(lines.contains("UNKNOWN_TRANSACTION,TXN-X,,,,3,SETTLED"), lines.toString());
+    }
+
+    @Test
+    void endsAReportCutShortWithAnErrorLine() {
+        doThrow(new IllegalStateException("connection lost")).when(repository)
+                .streamPayments(eq(7L), any(), any(), anyInt(), any());
+
+        StringWriter report = new StringWriter();
+        assertThrows(IllegalStateException.class, () -> service.reconcile(7L, FROM, FROM.plusDays(1), report));
+
+        List<String> lines = report.toString().lines().toList();
+        String last = lines.get(lines.size() - 1);
+        assertTrue(last.startsWith("ERROR,") && last.contains("connection lost"), last);
+        assertTrue(last.endsWith(",,,,,"), last);
+    }
+
+    @Test
+    void rejectsAnEmptyRangeAsABadRequest() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.requireRange(FROM, FROM));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    private static SettlementLine line(String status, String amount) {
+        return new SettlementLine("TXN-X", new BigDecimal(amount), status);
+    }
+
+    private static ByteArrayInputStream stream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
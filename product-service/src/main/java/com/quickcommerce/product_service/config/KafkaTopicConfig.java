@@ -0,0 +1,30 @@
+package com.quickcommerce.product_service.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+import com.quickcommerce.product_service.service.ProductEventPublisher;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    /**
+     * Compacted, so the log keeps the latest record for every product and a
+     * consumer can rebuild the whole catalog by reading it from the start.
+     * Deleted products are tombstones, kept for {@code delete-retention-ms}.
+     */
+    @Bean
+    public NewTopic productCatalogTopic(
+            @Value("${product.catalog.partitions:6}") int partitions,
+            @Value("${product.catalog.delete-retention-ms:604800000}") long deleteRetentionMs) {
+        return TopicBuilder.name(ProductEventPublisher.CATALOG_TOPIC)
+                .partitions(partitions)
+                .compact()
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, Long.toString(deleteRetentionMs))
+                .build();
+    }
+}
@@ -1,17 +1,29 @@
 package com.quickcommerce.product_service.controller;
 
+import com.quickcommerce.product_service.dto.ProductAuditPageDTO;
 import com.quickcommerce.product_service.dto.ProductDTO;
+import com.quickcommerce.product_service.dto.ProductPageDTO;
+import com.quickcommerce.product_service.dto.StockLineDTO;
+import com.quickcommerce.product_service.dto.StockUpdateResultDTO;
+import com.quickcommerce.product_service.service.ProductAuditService;
 import com.quickcommerce.product_service.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedOutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/products")
@@ -20,6 +32,7 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Product Management", description = "APIs for managing products")
 public class ProductController {
     private final ProductService productService;
+    private final ProductAuditService productAuditService;
 
     @PostMapping
     @Operation(summary = "Create a new product")
@@ -53,22 +66,90 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all products as newline-delimited JSON, streamed from a database cursor")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("GET /products - Streaming product export");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                    productService.exportProducts(compressed);
+                }
+            } else {
+                productService.exportProducts(new BufferedOutputStream(out, 64 * 1024));
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @GetMapping("/search")
     @Operation(summary = "Search products by keyword and category")
     public ResponseEntity<List<ProductDTO>> searchProducts(
             @RequestParam(required = false) String keyword,
-            @RequestParam(required = false) String category) {
-        log.info("GET /products/search - Searching with keyword: {}, category: {}", keyword, category);
-        List<ProductDTO> products = productService.searchProducts(keyword, category);
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer limit) {
+        log.info("GET /products/search - Searching with keyword: {}, category: {}, limit: {}", keyword, category, limit);
+        List<ProductDTO> products = productService.searchProducts(keyword, category, limit);
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/category/{category}")
-    @Operation(summary = "Get products by category")
-    public ResponseEntity<List<ProductDTO>> getByCategory(@PathVariable String category) {
-        log.info("GET /products/category/{} - Fetching products in category", category);
-        List<ProductDTO> products = productService.getProductsByCategory(category);
-        return ResponseEntity.ok(products);
+    @Operation(summary = "Get a page of products in a category, sorted by createdAt (default), price or name")
+    public ResponseEntity<ProductPageDTO> getByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        log.info("GET /products/category/{} - Fetching products in category, sort: {}, limit: {}", category, sort, limit);
+        return ResponseEntity.ok(productService.getProductsByCategory(category, sort, cursor, limit));
+    }
+
+    @GetMapping("/status/{status}")
+    @Operation(summary = "Get a page of products with a status, sorted by createdAt (default), price or name")
+    public ResponseEntity<ProductPageDTO> getByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        log.info("GET /products/status/{} - Fetching products by status, sort: {}, limit: {}", status, sort, limit);
+        return ResponseEntity.ok(productService.getProductsByStatus(status, sort, cursor, limit));
+    }
+
+    @GetMapping("/low-stock")
+    @Operation(summary = "Get a page of products below their category's stock threshold, or below an explicit threshold, lowest stock first")
+    public ResponseEntity<ProductPageDTO> getLowStock(
+            @RequestParam(required = false) Integer threshold,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        log.info("GET /products/low-stock - Fetching products below {}, limit: {}", threshold, limit);
+        return ResponseEntity.ok(productService.getLowStockProducts(threshold, cursor, limit));
+    }
+
+    @GetMapping("/{id}/audit")
+    @Operation(summary = "Get a page of a product's change history, newest first, optionally within [from, to)")
+    public ResponseEntity<ProductAuditPageDTO> getAuditHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        log.info("GET /products/{}/audit - Fetching audit history from {} to {}", id, from, to);
+        return ResponseEntity.ok(productAuditService.getHistory(id, from, to, cursor, limit));
+    }
+
+    @PostMapping("/catalog/republish")
+    @Operation(summary = "Publish every product's price and status to the product-catalog topic")
+    public ResponseEntity<Long> republishCatalog() {
+        log.info("POST /products/catalog/republish - Republishing the catalog");
+        return ResponseEntity.ok(productService.republishCatalog());
     }
 
     @PutMapping("/{id}")
@@ -89,11 +170,37 @@ public class ProductController {
 
     @PatchMapping("/{id}/stock")
     @Operation(summary = "Update product stock")
-    public ResponseEntity<Void> updateStock(
+    public ResponseEntity<StockUpdateResultDTO> updateStock(
             @PathVariable Long id,
             @RequestParam Integer quantity) {
         log.info("PATCH /products/{}/stock - Updating stock with quantity: {}", id, quantity);
-        productService.updateStock(id, quantity);
-        return ResponseEntity.ok().build();
+        StockUpdateResultDTO result = productService.updateStock(id, quantity);
+        return ResponseEntity.status(result.isSuccess() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+    }
+
+    @PatchMapping("/stock")
+    @Operation(summary = "Update stock for several products at once; all lines are applied or none")
+    public ResponseEntity<StockUpdateResultDTO> updateStock(@RequestBody List<StockLineDTO> lines) {
+        log.info("PATCH /products/stock - Updating stock for {} lines", lines.size());
+        StockUpdateResultDTO result = productService.updateStock(lines);
+        return ResponseEntity.status(result.isSuccess() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+    }
+
+    @PutMapping("/{id}/stock/shards")
+    @Operation(summary = "Split a hot product's stock across sharded counters")
+    public ResponseEntity<Void> shardStock(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer shards) {
+        log.info("PUT /products/{}/stock/shards - Sharding stock into {} counters", id, shards);
+        productService.shardStock(id, shards);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{id}/stock/shards")
+    @Operation(summary = "Merge a product's sharded stock back into a single counter")
+    public ResponseEntity<Void> unshardStock(@PathVariable Long id) {
+        log.info("DELETE /products/{}/stock/shards - Merging stock shards", id);
+        productService.unshardStock(id);
+        return ResponseEntity.noContent().build();
     }
 }
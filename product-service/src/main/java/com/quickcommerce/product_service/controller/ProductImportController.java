@@ -0,0 +1,46 @@
+package com.quickcommerce.product_service.controller;
+
+import com.quickcommerce.product_service.dto.ProductImportJobDTO;
+import com.quickcommerce.product_service.service.ProductImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/products/import")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Product Import", description = "APIs for loading a catalog in bulk")
+public class ProductImportController {
+    private final ProductImportService productImportService;
+
+    @PostMapping(consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE })
+    @Operation(summary = "Import products from a CSV or NDJSON upload, inserting new SKUs and updating existing ones")
+    public ResponseEntity<ProductImportJobDTO> importProducts(HttpServletRequest request) throws IOException {
+        ProductImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                        ? ProductImportService.Format.NDJSON
+                        : ProductImportService.Format.CSV;
+        log.info("POST /products/import - Importing {} upload", format);
+        return productImportService.startImport(request.getInputStream(), format)
+                .map(job -> ResponseEntity.accepted().location(URI.create("/products/import/" + job.getId())).body(job))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get the progress of an import")
+    public ResponseEntity<ProductImportJobDTO> getImport(@PathVariable String jobId) {
+        log.info("GET /products/import/{} - Fetching import progress", jobId);
+        return ResponseEntity.ok(productImportService.getJob(jobId));
+    }
+}
@@ -0,0 +1,59 @@
+package com.quickcommerce.product_service.controller;
+
+import com.quickcommerce.product_service.dto.ReservationDTO;
+import com.quickcommerce.product_service.service.ReservationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/products/reservations")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Stock Reservations", description = "APIs for holding stock until an order is paid")
+public class ReservationController {
+    private final ReservationService reservationService;
+
+    @PostMapping
+    @Operation(summary = "Hold stock for a limited time")
+    public ResponseEntity<ReservationDTO> reserve(@RequestBody ReservationDTO reservationDTO) {
+        log.info("POST /products/reservations - Reserving {} of product {}",
+                reservationDTO.getQuantity(), reservationDTO.getProductId());
+        return reservationService.reserve(reservationDTO.getProductId(), reservationDTO.getQuantity(),
+                reservationDTO.getTtlSeconds())
+                .map(reservation -> ResponseEntity.status(HttpStatus.CREATED).body(reservation))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get reservation by ID")
+    public ResponseEntity<ReservationDTO> getReservation(@PathVariable Long id) {
+        log.info("GET /products/reservations/{} - Fetching reservation", id);
+        return ResponseEntity.ok(reservationService.getReservation(id));
+    }
+
+    @PostMapping("/{id}/confirm")
+    @Operation(summary = "Turn a reservation into a sale")
+    public ResponseEntity<ReservationDTO> confirm(@PathVariable Long id) {
+        log.info("POST /products/reservations/{}/confirm - Confirming reservation", id);
+        if (!reservationService.confirm(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(reservationService.getReservation(id));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Release a reservation")
+    public ResponseEntity<Void> release(@PathVariable Long id) {
+        log.info("DELETE /products/reservations/{} - Releasing reservation", id);
+        if (!reservationService.release(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.quickcommerce.product_service.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.quickcommerce.product_service.repository.ProductAuditRepository.AuditRecord;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "One recorded change to a product; only the fields that changed are listed")
+public class ProductAuditDTO {
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("productId")
+    private Long productId;
+
+    @JsonProperty("action")
+    @Schema(description = "CREATED, UPDATED, DELETED or STOCK_CHANGED", example = "UPDATED")
+    private String action;
+
+    @JsonProperty("oldValues")
+    @JsonRawValue
+    @Schema(description = "Field values before the change", example = "{\"price\":999.99}")
+    private String oldValues;
+
+    @JsonProperty("newValues")
+    @JsonRawValue
+    @Schema(description = "Field values after the change", example = "{\"price\":949.99}")
+    private String newValues;
+
+    @JsonProperty("changedAt")
+    private LocalDateTime changedAt;
+
+    public static ProductAuditDTO from(AuditRecord record) {
+        return ProductAuditDTO.builder()
+                .id(record.id())
+                .productId(record.productId())
+                .action(record.action())
+                .oldValues(record.oldValues())
+                .newValues(record.newValues())
+                .changedAt(record.changedAt())
+                .build();
+    }
+}
@@ -15,7 +15,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @Valid
 @Schema(description = "Product Information")
 public class ProductDTO {
@@ -43,6 +43,14 @@ public class ProductDTO {
     @Schema(description = "Available Quantity", example = "50")
     private Integer quantity;
 
+    @JsonProperty("reservedQuantity")
+    @Schema(description = "Quantity held by active reservations", example = "5")
+    private Integer reservedQuantity;
+
+    @JsonProperty("availableQuantity")
+    @Schema(description = "Quantity that can still be reserved or sold", example = "45")
+    private Integer availableQuantity;
+
     @JsonProperty("category")
     @Schema(description = "Product Category", example = "Electronics")
     private String category;
@@ -58,6 +66,7 @@ public class ProductDTO {
     private LocalDateTime updatedAt;
 
     public static ProductDTO from(Product product) {
+        int reserved = product.getReservedQuantity() != null ? product.getReservedQuantity() : 0;
         return ProductDTO.builder()
                 .id(product.getId())
                 .sku(product.getSku())
@@ -65,6 +74,8 @@ public class ProductDTO {
                 .description(product.getDescription())
                 .price(product.getPrice())
                 .quantity(product.getQuantity())
+                .reservedQuantity(reserved)
+                .availableQuantity(product.getQuantity() - reserved)
                 .category(product.getCategory())
                 .status(product.getStatus().toString())
                 .createdAt(product.getCreatedAt())
@@ -0,0 +1,52 @@
+package com.quickcommerce.product_service.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Progress of a bulk product import")
+public class ProductImportJobDTO {
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("format")
+    @Schema(description = "Input format", example = "CSV")
+    private String format;
+
+    @JsonProperty("status")
+    @Schema(description = "RUNNING, COMPLETED or FAILED", example = "RUNNING")
+    private String status;
+
+    @JsonProperty("rowsRead")
+    private long rowsRead;
+
+    @JsonProperty("inserted")
+    private long inserted;
+
+    @JsonProperty("updated")
+    private long updated;
+
+    @JsonProperty("rejected")
+    private long rejected;
+
+    @JsonProperty("errors")
+    @Schema(description = "The first rejected rows and why, plus the failure if the import stopped")
+    private List<String> errors;
+
+    @JsonProperty("startedAt")
+    private LocalDateTime startedAt;
+
+    @JsonProperty("finishedAt")
+    private LocalDateTime finishedAt;
+}
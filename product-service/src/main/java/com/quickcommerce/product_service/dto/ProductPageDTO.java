@@ -0,0 +1,25 @@
+package com.quickcommerce.product_service.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "One page of products; pass nextCursor back to fetch the following page")
+public class ProductPageDTO {
+    @JsonProperty("items")
+    private List<ProductDTO> items;
+
+    @JsonProperty("nextCursor")
+    @Schema(description = "Opaque continuation token, absent on the last page")
+    private String nextCursor;
+}
@@ -0,0 +1,56 @@
+package com.quickcommerce.product_service.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.Reservation;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Stock held for a limited time")
+public class ReservationDTO {
+    @JsonProperty("id")
+    @Schema(description = "Reservation ID", example = "1")
+    private Long id;
+
+    @JsonProperty("productId")
+    @Schema(description = "Product ID", example = "1")
+    private Long productId;
+
+    @JsonProperty("quantity")
+    @Schema(description = "Quantity held", example = "2")
+    private Integer quantity;
+
+    @JsonProperty("ttlSeconds")
+    @Schema(description = "How long to hold the stock; defaults to the configured TTL", example = "900")
+    private Long ttlSeconds;
+
+    @JsonProperty("status")
+    @Schema(description = "Reservation Status", example = "ACTIVE", accessMode = Schema.AccessMode.READ_ONLY)
+    private String status;
+
+    @JsonProperty("expiresAt")
+    private LocalDateTime expiresAt;
+
+    @JsonProperty("createdAt")
+    private LocalDateTime createdAt;
+
+    public static ReservationDTO from(Reservation reservation) {
+        return ReservationDTO.builder()
+                .id(reservation.id())
+                .productId(reservation.productId())
+                .quantity(reservation.quantity())
+                .status(reservation.status())
+                .expiresAt(reservation.expiresAt())
+                .createdAt(reservation.createdAt())
+                .build();
+    }
+}
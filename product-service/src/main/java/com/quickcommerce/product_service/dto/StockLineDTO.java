@@ -0,0 +1,32 @@
+package com.quickcommerce.product_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Stock change for a single product")
+public class StockLineDTO {
+    @JsonProperty("productId")
+    @Schema(description = "Product ID", example = "1")
+    private Long productId;
+
+    @JsonProperty("quantity")
+    @Schema(description = "Quantity to take from stock; negative values restock", example = "2")
+    private Integer quantity;
+
+    @JsonProperty("applied")
+    @Schema(description = "Whether enough stock remained for this line", accessMode = Schema.AccessMode.READ_ONLY)
+    private Boolean applied;
+
+    @JsonProperty("remaining")
+    @Schema(description = "Stock left after the change", accessMode = Schema.AccessMode.READ_ONLY)
+    private Integer remaining;
+}
@@ -0,0 +1,24 @@
+package com.quickcommerce.product_service.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Outcome of a stock update; either every line is applied or none is")
+public class StockUpdateResultDTO {
+    @JsonProperty("success")
+    private boolean success;
+
+    @JsonProperty("lines")
+    private List<StockLineDTO> lines;
+}
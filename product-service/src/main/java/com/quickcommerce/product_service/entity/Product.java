@@ -32,7 +32,7 @@ import lombok.NoArgsConstructor;
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
-    @SequenceGenerator(name = "product_seq", sequenceName = "product_sequence", allocationSize = 1)
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_sequence", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -50,6 +50,9 @@ public class Product {
     @Column(nullable = false)
     private Integer quantity;
 
+    @Column(name = "reserved_quantity", insertable = false, updatable = false)
+    private Integer reservedQuantity;
+
     @Column(nullable = false)
     private String category;
 
@@ -0,0 +1,93 @@
+package com.quickcommerce.product_service.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.Keyset;
+
+import lombok.RequiredArgsConstructor;
+
+/** Writes and pages through products_audit. Values are JSON text; the column type is jsonb. */
+@Repository
+@RequiredArgsConstructor
+public class ProductAuditRepository {
+
+    private static final String INSERT_BATCH = """
+            INSERT INTO products_audit (product_id, action, old_values, new_values, changed_at)
+            SELECT product_id, action, old_values::jsonb, new_values::jsonb, changed_at
+            FROM unnest(?, ?, ?, ?, ?) AS e(product_id, action, old_values, new_values, changed_at)
+            """;
+
+    private static final String PAGE = """
+            SELECT id, product_id, action, old_values::text AS old_values, new_values::text AS new_values,
+                   changed_at, changed_at::text AS sort_key
+            FROM products_audit
+            WHERE product_id = ? AND changed_at >= ? AND changed_at < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Inserts the whole batch in one multi-row statement. */
+    public int insertBatch(List<AuditEntry> entries) {
+        return jdbcTemplate.update((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_BATCH);
+            statement.setArray(1, connection.createArrayOf("bigint",
+                    entries.stream().map(AuditEntry::productId).toArray()));
+            statement.setArray(2, connection.createArrayOf("varchar",
+                    entries.stream().map(AuditEntry::action).toArray()));
+            statement.setArray(3, connection.createArrayOf("text",
+                    entries.stream().map(AuditEntry::oldValues).toArray()));
+            statement.setArray(4, connection.createArrayOf("text",
+                    entries.stream().map(AuditEntry::newValues).toArray()));
+            statement.setArray(5, connection.createArrayOf("timestamp",
+                    entries.stream().map(entry -> Timestamp.valueOf(entry.changedAt())).toArray()));
+            return statement;
+        });
+    }
+
+    /** A product's changes in [from, to), newest first, seeking past {@code before} on (changed_at, id). */
+    public AuditPage findPage(long productId, LocalDateTime from, LocalDateTime to, Keyset before, int limit) {
+        StringBuilder sql = new StringBuilder(PAGE);
+        List<Object> args = new ArrayList<>(List.of(productId, Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        if (before != null) {
+            sql.append(" AND (changed_at, id) < (CAST(? AS timestamp), ?)");
+            args.add(before.value());
+            args.add(before.id());
+        }
+        sql.append(" ORDER BY changed_at DESC, id DESC LIMIT ?");
+        args.add(limit + 1);
+
+        List<AuditRecord> items = new ArrayList<>(limit + 1);
+        List<String> keys = new ArrayList<>(limit + 1);
+        jdbcTemplate.query(sql.toString(), (ResultSet rs) -> {
+            items.add(new AuditRecord(rs.getLong("id"), rs.getLong("product_id"), rs.getString("action"),
+                    rs.getString("old_values"), rs.getString("new_values"),
+                    rs.getTimestamp("changed_at").toLocalDateTime()));
+            keys.add(rs.getString("sort_key"));
+        }, args.toArray());
+        if (items.size() <= limit) {
+            return new AuditPage(items, null);
+        }
+        items.remove(limit);
+        return new AuditPage(items, new Keyset(items.get(limit - 1).id(), keys.get(limit - 1)));
+    }
+
+    public record AuditEntry(Long productId, String action, String oldValues, String newValues,
+            LocalDateTime changedAt) {
+    }
+
+    public record AuditRecord(Long id, Long productId, String action, String oldValues, String newValues,
+            LocalDateTime changedAt) {
+    }
+
+    public record AuditPage(List<AuditRecord> items, Keyset next) {
+    }
+}
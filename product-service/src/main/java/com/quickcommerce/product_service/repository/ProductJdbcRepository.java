@@ -0,0 +1,370 @@
+package com.quickcommerce.product_service.repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.quickcommerce.product_service.dto.ProductDTO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Set-based stock and reservation statements that Spring Data cannot express.
+ * Each call is a single round trip, and the stock check happens inside the
+ * UPDATE itself so concurrent writers can never take a product below zero or
+ * sell stock that is held by a reservation. Catalog reads that must stream
+ * or seek rather than load whole result sets live here too.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductJdbcRepository {
+
+    private static final String DECREMENT_STOCK = """
+            WITH locked AS (
+                SELECT id FROM products WHERE id = ANY(?) ORDER BY id FOR UPDATE
+            )
+            UPDATE products p
+            SET quantity = p.quantity - l.quantity, updated_at = CURRENT_TIMESTAMP
+            FROM locked k JOIN unnest(?, ?) AS l(id, quantity) ON l.id = k.id
+            WHERE p.id = k.id AND p.quantity - p.reserved_quantity >= l.quantity
+            RETURNING p.id, p.sku, p.name, p.category, p.quantity
+            """;
+
+    private static final String RESERVE = """
+            WITH held AS (
+                UPDATE products SET reserved_quantity = reserved_quantity + ?
+                WHERE id = ? AND quantity - reserved_quantity >= ?
+                RETURNING id
+            )
+            INSERT INTO stock_reservations (product_id, quantity, expires_at)
+            SELECT id, ?, ? FROM held
+            RETURNING id, product_id, quantity, status, expires_at, created_at
+            """;
+
+    private static final String CONFIRM = """
+            WITH confirmed AS (
+                UPDATE stock_reservations SET status = 'CONFIRMED', updated_at = CURRENT_TIMESTAMP
+                WHERE id = ? AND status = 'ACTIVE'
+                RETURNING product_id, quantity
+            )
+            UPDATE products p
+            SET quantity = p.quantity - c.quantity, reserved_quantity = p.reserved_quantity - c.quantity,
+                updated_at = CURRENT_TIMESTAMP
+            FROM confirmed c
+            WHERE p.id = c.product_id
+            RETURNING p.id, p.sku, p.name, p.category, p.quantity
+            """;
+
+    private static final String RELEASE = """
+            WITH released AS (
+                UPDATE stock_reservations SET status = ?, updated_at = CURRENT_TIMESTAMP
+                WHERE id = ? AND status = 'ACTIVE'
+                RETURNING product_id, quantity
+            )
+            UPDATE products p
+            SET reserved_quantity = p.reserved_quantity - r.quantity
+            FROM released r
+            WHERE p.id = r.product_id
+            RETURNING p.id
+            """;
+
+    private static final String RELEASE_OVERDUE = """
+            WITH released AS (
+                UPDATE stock_reservations SET status = 'EXPIRED', updated_at = CURRENT_TIMESTAMP
+                WHERE status = 'ACTIVE' AND expires_at < ?
+                RETURNING product_id, quantity
+            ),
+            totals AS (
+                SELECT product_id, SUM(quantity) AS quantity FROM released GROUP BY product_id
+            )
+            UPDATE products p
+            SET reserved_quantity = p.reserved_quantity - t.quantity
+            FROM totals t
+            WHERE p.id = t.product_id
+            """;
+
+    /** product_sequence's increment since V5: each nextval reserves the 50 ids up to the value it returns. */
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String UPSERT = """
+            WITH input AS (
+                SELECT * FROM unnest(?, ?, ?, ?, ?, ?)
+                    WITH ORDINALITY AS i(sku, name, description, price, quantity, category, n)
+            ),
+            known AS (
+                SELECT i.n, p.id FROM input i JOIN products p ON p.sku = i.sku
+            ),
+            fresh AS (
+                SELECT i.n, row_number() OVER (ORDER BY i.n) - 1 AS k FROM input i
+                WHERE NOT EXISTS (SELECT 1 FROM known WHERE known.n = i.n)
+            ),
+            blocks AS (
+                SELECT b, nextval('product_sequence') AS hi
+                FROM generate_series(0, (SELECT (count(*) + %1$d - 1) / %1$d - 1 FROM fresh)) AS b
+            )
+            INSERT INTO products AS p (id, sku, name, description, price, quantity, category)
+            SELECT COALESCE(known.id, blocks.hi - %1$d + 1 + fresh.k %% %1$d),
+                i.sku, i.name, i.description, i.price, i.quantity, i.category
+            FROM input i
+            LEFT JOIN known ON known.n = i.n
+            LEFT JOIN fresh ON fresh.n = i.n
+            LEFT JOIN blocks ON blocks.b = fresh.k / %1$d
+            ORDER BY i.n
+            ON CONFLICT (sku) DO UPDATE SET
+                name = EXCLUDED.name,
+                description = EXCLUDED.description,
+                price = EXCLUDED.price,
+                quantity = CASE WHEN EXISTS (SELECT 1 FROM product_stock_shards s WHERE s.product_id = p.id)
+                                THEN p.quantity ELSE EXCLUDED.quantity END,
+                category = EXCLUDED.category,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE EXCLUDED.quantity >= p.reserved_quantity
+                OR EXISTS (SELECT 1 FROM product_stock_shards s WHERE s.product_id = p.id)
+            RETURNING p.id, p.sku, p.status, (p.xmax = 0) AS inserted,
+                p.quantity + COALESCE((SELECT SUM(s.quantity) FROM product_stock_shards s WHERE s.product_id = p.id), 0)
+                    AS quantity
+            """.formatted(ID_BLOCK_SIZE);
+
+    private static final String PRODUCT_COLUMNS = """
+            p.id, p.sku, p.name, p.description, p.price, p.category, p.status, p.created_at, p.updated_at,
+            p.reserved_quantity,
+            p.quantity + COALESCE((SELECT SUM(s.quantity) FROM product_stock_shards s WHERE s.product_id = p.id), 0)
+                AS quantity""";
+
+    private static final String EXPORT = "SELECT " + PRODUCT_COLUMNS + " FROM products p ORDER BY p.id";
+
+    private static final RowMapper<ProductDTO> PRODUCT = (rs, rowNum) -> {
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        int quantity = rs.getInt("quantity");
+        int reserved = rs.getInt("reserved_quantity");
+        return ProductDTO.builder()
+                .id(rs.getLong("id"))
+                .sku(rs.getString("sku"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .price(rs.getBigDecimal("price"))
+                .quantity(quantity)
+                .reservedQuantity(reserved)
+                .availableQuantity(quantity - reserved)
+                .category(rs.getString("category"))
+                .status(rs.getString("status"))
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                .build();
+    };
+
+    private static final RowMapper<StockLevel> STOCK_LEVEL = (rs, rowNum) -> new StockLevel(
+            rs.getLong("id"), rs.getString("sku"), rs.getString("name"), rs.getString("category"),
+            rs.getInt("quantity"));
+
+    private static final RowMapper<Reservation> RESERVATION = (rs, rowNum) -> new Reservation(
+            rs.getLong("id"), rs.getLong("product_id"), rs.getInt("quantity"), rs.getString("status"),
+            rs.getTimestamp("expires_at").toLocalDateTime(), rs.getTimestamp("created_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Subtracts each quantity from its product only where enough stock
+     * remains, and returns the new levels of the rows that were changed.
+     * The rows are locked with {@code SELECT ... ORDER BY id FOR UPDATE}
+     * before they are updated; an {@code UPDATE ... FROM} join alone locks in
+     * whatever order the plan visits rows, so overlapping baskets could
+     * deadlock.
+     */
+    public List<StockLevel> decrementStock(Map<Long, Integer> lines) {
+        TreeMap<Long, Integer> sorted = new TreeMap<>(lines);
+        return jdbcTemplate.query((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement(DECREMENT_STOCK);
+            Array ids = connection.createArrayOf("bigint", sorted.keySet().toArray());
+            Array quantities = connection.createArrayOf("integer", sorted.values().toArray());
+            statement.setArray(1, ids);
+            statement.setArray(2, ids);
+            statement.setArray(3, quantities);
+            return statement;
+        }, STOCK_LEVEL);
+    }
+
+    /** Holds stock for a reservation when enough of it is neither sold nor already held. */
+    public Optional<Reservation> reserve(long productId, int quantity, LocalDateTime expiresAt) {
+        return jdbcTemplate.query(RESERVE, RESERVATION, quantity, productId, quantity, quantity,
+                Timestamp.valueOf(expiresAt)).stream().findFirst();
+    }
+
+    /** Turns an active reservation into a sale, returning the product's new stock level. */
+    public Optional<StockLevel> confirmReservation(long reservationId) {
+        return jdbcTemplate.query(CONFIRM, STOCK_LEVEL, reservationId).stream().findFirst();
+    }
+
+    /** Gives an active reservation's stock back, returning its product; empty if it was no longer active. */
+    public Optional<Long> releaseReservation(long reservationId, String status) {
+        return jdbcTemplate.queryForList(RELEASE, Long.class, status, reservationId).stream().findFirst();
+    }
+
+    public int releaseOverdueReservations(LocalDateTime cutoff) {
+        return jdbcTemplate.update(RELEASE_OVERDUE, Timestamp.valueOf(cutoff));
+    }
+
+    public Optional<Reservation> findReservation(long reservationId) {
+        return jdbcTemplate.query(
+                "SELECT id, product_id, quantity, status, expires_at, created_at FROM stock_reservations WHERE id = ?",
+                RESERVATION, reservationId).stream().findFirst();
+    }
+
+    public List<Reservation> findActiveReservations() {
+        return jdbcTemplate.query(
+                "SELECT id, product_id, quantity, status, expires_at, created_at FROM stock_reservations WHERE status = 'ACTIVE'",
+                RESERVATION);
+    }
+
+    /**
+     * Inserts new SKUs and updates existing ones in one statement. SKUs must
+     * be unique within the batch. New SKUs take their ids in blocks, one
+     * nextval per 50 of them, the way Hibernate's pooled optimizer does, and
+     * SKUs that already exist keep theirs, so updates use up no ids.
+     * Sharded products keep their quantity.
+     * An existing product whose new quantity would fall below the stock held
+     * by its reservations is left untouched and missing from the result.
+     */
+    public List<UpsertedProduct> upsertProducts(List<ProductDTO> products) {
+        return jdbcTemplate.query((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement(UPSERT);
+            statement.setArray(1, connection.createArrayOf("varchar",
+                    products.stream().map(ProductDTO::getSku).toArray()));
+            statement.setArray(2, connection.createArrayOf("varchar",
+                    products.stream().map(ProductDTO::getName).toArray()));
+            statement.setArray(3, connection.createArrayOf("text",
+                    products.stream().map(ProductDTO::getDescription).toArray()));
+            statement.setArray(4, connection.createArrayOf("numeric",
+                    products.stream().map(ProductDTO::getPrice).toArray()));
+            statement.setArray(5, connection.createArrayOf("integer",
+                    products.stream().map(ProductDTO::getQuantity).toArray()));
+            statement.setArray(6, connection.createArrayOf("varchar",
+                    products.stream().map(ProductDTO::getCategory).toArray()));
+            return statement;
+        }, (rs, rowNum) -> new UpsertedProduct(rs.getLong("id"), rs.getString("sku"),
+                rs.getString("status"), rs.getBoolean("inserted"), rs.getInt("quantity")));
+    }
+
+    /**
+     * Hands every product to {@code consumer} in id order without holding
+     * more than {@code fetchSize} rows at once. Postgres only uses a cursor
+     * when auto-commit is off, so this must run inside a transaction.
+     */
+    public void streamProducts(int fetchSize, Consumer<ProductDTO> consumer) {
+        jdbcTemplate.query((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (ResultSet rs) -> {
+            consumer.accept(PRODUCT.mapRow(rs, 0));
+        });
+    }
+
+    public ProductPage findByCategory(String category, ProductSort sort, Keyset after, int limit) {
+        return findPage("p.category = ?", category, sort, after, limit);
+    }
+
+    public ProductPage findByStatus(String status, ProductSort sort, Keyset after, int limit) {
+        return findPage("p.status = ?", status, sort, after, limit);
+    }
+
+    /**
+     * Products whose stock, shards included, is below the threshold, lowest
+     * first. Shards only ever add to {@code products.quantity}, so the index
+     * range on that column bounds the candidates before their shard sums are
+     * read; the page is then sought and ordered on the summed quantity.
+     */
+    public ProductPage findLowStock(int threshold, Keyset after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT l.*, l.quantity::text AS sort_key FROM (SELECT ")
+                .append(PRODUCT_COLUMNS).append(" FROM products p WHERE p.quantity < ?) l WHERE l.quantity < ?");
+        List<Object> args = new ArrayList<>(List.of(threshold, threshold));
+        if (after != null) {
+            sql.append(" AND (l.quantity, l.id) > (CAST(? AS integer), ?)");
+            args.add(after.value());
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY l.quantity, l.id LIMIT ?");
+        args.add(limit + 1);
+        return page(sql.toString(), args, limit);
+    }
+
+    /** Every product whose own counter is below {@code threshold}, with shard sums folded in. */
+    public List<StockLevel> findStockBelow(int threshold) {
+        return jdbcTemplate.query("""
+                SELECT p.id, p.sku, p.name, p.category,
+                       p.quantity + COALESCE((SELECT SUM(s.quantity) FROM product_stock_shards s WHERE s.product_id = p.id), 0)
+                           AS quantity
+                FROM products p
+                WHERE p.quantity < ?
+                """, STOCK_LEVEL, threshold);
+    }
+
+    /**
+     * Seeks past {@code after} on (sort key, id) rather than skipping rows
+     * with OFFSET, so every page costs one index range scan of
+     * {@code limit + 1} entries however deep it is.
+     */
+    private ProductPage findPage(String filter, Object filterValue, ProductSort sort, Keyset after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(PRODUCT_COLUMNS)
+                .append(", p.").append(sort.column).append("::text AS sort_key FROM products p WHERE ")
+                .append(filter);
+        List<Object> args = new ArrayList<>();
+        args.add(filterValue);
+        if (after != null) {
+            sql.append(" AND (p.").append(sort.column).append(", p.id) > (CAST(? AS ")
+                    .append(sort.sqlType).append("), ?)");
+            args.add(after.value());
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY p.").append(sort.column).append(", p.id LIMIT ?");
+        args.add(limit + 1);
+        return page(sql.toString(), args, limit);
+    }
+
+    /** Runs a query for {@code limit + 1} rows with a {@code sort_key} column and cuts it into a page. */
+    private ProductPage page(String sql, List<Object> args, int limit) {
+        List<ProductDTO> items = new ArrayList<>(limit + 1);
+        List<String> keys = new ArrayList<>(limit + 1);
+        jdbcTemplate.query(sql, (ResultSet rs) -> {
+            items.add(PRODUCT.mapRow(rs, items.size()));
+            keys.add(rs.getString("sort_key"));
+        }, args.toArray());
+        if (items.size() <= limit) {
+            return new ProductPage(items, null);
+        }
+        items.remove(limit);
+        ProductDTO last = items.get(limit - 1);
+        return new ProductPage(items, new Keyset(last.getId(), keys.get(limit - 1)));
+    }
+
+    public record StockLevel(Long productId, String sku, String name, String category, int quantity) {
+    }
+
+    /** Position of the last row on a page: its sort key, as text, and its id. */
+    public record Keyset(long id, String value) {
+    }
+
+    public record UpsertedProduct(Long id, String sku, String status, boolean inserted, int quantity) {
+    }
+
+    public record ProductPage(List<ProductDTO> items, Keyset next) {
+    }
+
+    public record Reservation(Long id, Long productId, int quantity, String status,
+            LocalDateTime expiresAt, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.quickcommerce.product_service.repository;
+
+/**
+ * Orderings available to keyset-paginated product lists. Every ordering ends
+ * in the id so it is total, and each one is backed by a composite index.
+ */
+public enum ProductSort {
+    CREATED_AT("created_at", "timestamp"),
+    PRICE("price", "numeric"),
+    NAME("name", "text"),
+    QUANTITY("quantity", "integer");
+
+    final String column;
+    final String sqlType;
+
+    ProductSort(String column, String sqlType) {
+        this.column = column;
+        this.sqlType = sqlType;
+    }
+
+    public static ProductSort fromParam(String param) {
+        if (param == null || param.isBlank()) {
+            return CREATED_AT;
+        }
+        return switch (param.trim().toLowerCase()) {
+            case "createdat", "created_at", "created" -> CREATED_AT;
+            case "price" -> PRICE;
+            case "name" -> NAME;
+            default -> throw new RuntimeException("Unsupported sort: " + param);
+        };
+    }
+}
@@ -14,8 +14,6 @@ public interface Productrepository extends JpaRepository<Product, Long> {
 
         Optional<Product> findBySku(String sku);
 
-        List<Product> findByCategory(String category);
-
         @Query("SELECT p from Product p WHERE " +
                         "(:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword,'%')) OR " +
                         "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword,'%'))) AND " +
@@ -24,9 +22,4 @@ public interface Productrepository extends JpaRepository<Product, Long> {
         List<Product> searchProducts(
                         @Param("keyword") String keyword,
                         @Param("category") String category);
-
-        List<Product> findByStatus(Product.ProductStatus status);
-
-        @Query("SELECT p FROM Product p WHERE p.quantity < :threshold")
-        List<Product> findLowStockProducts(@Param("threshold") Integer threshold);
 }
@@ -0,0 +1,126 @@
+package com.quickcommerce.product_service.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Stock sub-counters for hot SKUs. The decrement and rebalance statements are
+ * self-contained and atomic on their own; {@link #split} must run inside the
+ * caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockShardRepository {
+
+    private static final String SPLIT = """
+            INSERT INTO product_stock_shards (product_id, shard, quantity)
+            SELECT ?, s, ? / ? + CASE WHEN s < ? % ? THEN 1 ELSE 0 END
+            FROM generate_series(0, ? - 1) AS s
+            """;
+
+    private static final String MERGE = """
+            WITH removed AS (
+                DELETE FROM product_stock_shards WHERE product_id = ? RETURNING quantity
+            )
+            UPDATE products SET quantity = quantity + (SELECT COALESCE(SUM(quantity), 0) FROM removed)
+            WHERE id = ?
+            """;
+
+    private static final String DECREMENT_SHARD = """
+            UPDATE product_stock_shards SET quantity = quantity - ?
+            WHERE product_id = ? AND shard = ? AND quantity >= ?
+            """;
+
+    private static final String DECREMENT_ACROSS_SHARDS = """
+            WITH locked AS (
+                SELECT shard, quantity FROM product_stock_shards
+                WHERE product_id = ? ORDER BY shard FOR UPDATE
+            ),
+            plan AS (
+                SELECT shard, quantity,
+                       SUM(quantity) OVER (ORDER BY shard) - quantity AS prior_total,
+                       SUM(quantity) OVER () AS total
+                FROM locked
+            )
+            UPDATE product_stock_shards s
+            SET quantity = s.quantity - LEAST(plan.quantity, GREATEST(0, ? - plan.prior_total))
+            FROM plan
+            WHERE s.product_id = ? AND s.shard = plan.shard AND plan.total >= ?
+            """;
+
+    private static final String REBALANCE = """
+            WITH locked AS (
+                SELECT shard, quantity FROM product_stock_shards
+                WHERE product_id = ? FOR UPDATE
+            ),
+            agg AS (
+                SELECT SUM(quantity) AS total, COUNT(*) AS shards FROM locked
+            )
+            UPDATE product_stock_shards s
+            SET quantity = (agg.total / agg.shards + CASE WHEN s.shard < agg.total % agg.shards THEN 1 ELSE 0 END)::int
+            FROM agg
+            WHERE s.product_id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Moves the product's whole quantity into {@code shards} evenly sized counters. */
+    public void split(long productId, int shards) {
+        Integer quantity = jdbcTemplate.queryForObject(
+                "SELECT quantity FROM products WHERE id = ? FOR UPDATE", Integer.class, productId);
+        replace(productId, shards, Math.max(0, quantity != null ? quantity : 0));
+        jdbcTemplate.update("UPDATE products SET quantity = 0 WHERE id = ?", productId);
+    }
+
+    /** Discards the current shards and spreads {@code total} over {@code shards} new ones. */
+    public void replace(long productId, int shards, int total) {
+        jdbcTemplate.update("DELETE FROM product_stock_shards WHERE product_id = ?", productId);
+        jdbcTemplate.update(SPLIT, productId, total, shards, total, shards, shards);
+    }
+
+    /** Folds every shard back into products.quantity and drops the shards. */
+    public void merge(long productId) {
+        jdbcTemplate.update(MERGE, productId, productId);
+    }
+
+    public boolean decrementShard(long productId, int shard, int quantity) {
+        return jdbcTemplate.update(DECREMENT_SHARD, quantity, productId, shard, quantity) > 0;
+    }
+
+    /** Takes the quantity from as many shards as needed, or from none if their sum is too small. */
+    public boolean decrementAcrossShards(long productId, int quantity) {
+        return jdbcTemplate.update(DECREMENT_ACROSS_SHARDS, productId, quantity, productId, quantity) > 0;
+    }
+
+    public void rebalance(long productId) {
+        jdbcTemplate.update(REBALANCE, productId, productId);
+    }
+
+    public int total(long productId) {
+        Integer total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0)::int FROM product_stock_shards WHERE product_id = ?",
+                Integer.class, productId);
+        return total != null ? total : 0;
+    }
+
+    public int shardCount(long productId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*)::int FROM product_stock_shards WHERE product_id = ?", Integer.class, productId);
+        return count != null ? count : 0;
+    }
+
+    public Map<Long, Integer> shardCounts() {
+        Map<Long, Integer> counts = new HashMap<>();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT product_id, COUNT(*)::int AS shards FROM product_stock_shards GROUP BY product_id");
+        rows.forEach(row -> counts.put(((Number) row.get("product_id")).longValue(),
+                ((Number) row.get("shards")).intValue()));
+        return counts;
+    }
+}
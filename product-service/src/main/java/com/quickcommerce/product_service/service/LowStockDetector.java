@@ -0,0 +1,192 @@
+package com.quickcommerce.product_service.service;
+
+import static com.quickcommerce.product_service.service.TransactionCallbacks.afterCommit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.quickcommerce.product_service.repository.ProductJdbcRepository;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.StockLevel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Live set of products below their category's stock threshold, kept in
+ * quantity order. Writers report each new quantity as they change it, so
+ * the set is maintained incrementally instead of rescanning the table, and
+ * reading a page of it walks only that page.
+ * <p>
+ * The instance that makes a change publishes {@code LowStock} when a product
+ * drops below its threshold and {@code LowStockCleared} when it recovers;
+ * nothing is published while a product stays on the same side. Other
+ * instances apply those events, and the quantities in ordinary inventory
+ * events, to their own copy of the set.
+ */
+@Component
+@Slf4j
+public class LowStockDetector {
+
+    private static final Comparator<LowStockEntry> BY_QUANTITY =
+            Comparator.comparingInt(LowStockEntry::quantity).thenComparingLong(LowStockEntry::productId);
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductEventPublisher eventPublisher;
+    private final int defaultThreshold;
+    private final Map<String, Integer> categoryThresholds;
+    private final ConcurrentHashMap<Long, LowStockEntry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<LowStockEntry> byQuantity = new ConcurrentSkipListSet<>(BY_QUANTITY);
+    private volatile boolean ready;
+
+    public LowStockDetector(
+            ProductJdbcRepository productJdbcRepository,
+            ProductEventPublisher eventPublisher,
+            @Value("${product.low-stock.default-threshold:10}") int defaultThreshold,
+            @Value("${product.low-stock.category-thresholds:}") String categoryThresholds) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.defaultThreshold = defaultThreshold;
+        this.categoryThresholds = parseThresholds(categoryThresholds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        int highest = categoryThresholds.values().stream().reduce(defaultThreshold, Math::max);
+        for (StockLevel level : productJdbcRepository.findStockBelow(highest)) {
+            apply(level.productId(), level.sku(), level.name(), level.category(), level.quantity(), false);
+        }
+        ready = true;
+        log.info("Low-stock set loaded with {} products", entries.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int threshold(String category) {
+        return category != null ? categoryThresholds.getOrDefault(category, defaultThreshold) : defaultThreshold;
+    }
+
+    /** Reports a product's new total quantity; takes effect once the current transaction commits. */
+    public void record(Long productId, String sku, String name, String category, int quantity) {
+        afterCommit(() -> apply(productId, sku, name, category, quantity, true));
+    }
+
+    public void record(StockLevel level) {
+        record(level.productId(), level.sku(), level.name(), level.category(), level.quantity());
+    }
+
+    public void forget(Long productId) {
+        afterCommit(() -> remove(productId));
+    }
+
+    /** Applies a crossing published by another instance. */
+    void applyRemote(LowStockEntry entry, boolean low) {
+        entries.compute(entry.productId(), (id, current) -> {
+            if (current != null) {
+                byQuantity.remove(current);
+            }
+            if (low) {
+                byQuantity.add(entry);
+                return entry;
+            }
+            return null;
+        });
+    }
+
+    /** Moves a tracked product to its new quantity after a change made on another instance. */
+    void updateIfTracked(Long productId, int quantity) {
+        entries.computeIfPresent(productId, (id, current) -> {
+            byQuantity.remove(current);
+            if (quantity >= current.threshold()) {
+                return null;
+            }
+            LowStockEntry moved = new LowStockEntry(id, current.sku(), current.name(), current.category(),
+                    quantity, current.threshold());
+            byQuantity.add(moved);
+            return moved;
+        });
+    }
+
+    void remove(Long productId) {
+        LowStockEntry removed = entries.remove(productId);
+        if (removed != null) {
+            byQuantity.remove(removed);
+        }
+    }
+
+    /** Up to {@code limit} entries after the (quantity, id) position, lowest stock first. */
+    public List<LowStockEntry> page(Integer afterQuantity, Long afterId, int limit) {
+        NavigableSet<LowStockEntry> tail = afterId == null ? byQuantity
+                : byQuantity.tailSet(new LowStockEntry(afterId, null, null, null, afterQuantity, 0), false);
+        List<LowStockEntry> page = new ArrayList<>(limit);
+        for (LowStockEntry entry : tail) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(entry);
+        }
+        return page;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void apply(Long productId, String sku, String name, String category, int quantity, boolean publish) {
+        int threshold = threshold(category);
+        LowStockEntry next = quantity < threshold
+                ? new LowStockEntry(productId, sku, name, category, quantity, threshold)
+                : null;
+        boolean[] crossed = { false };
+        entries.compute(productId, (id, current) -> {
+            if (current != null) {
+                byQuantity.remove(current);
+            }
+            if (next != null) {
+                byQuantity.add(next);
+            }
+            crossed[0] = (current == null) != (next == null);
+            return next;
+        });
+        if (publish && crossed[0]) {
+            if (next != null) {
+                log.info("Product {} is low on stock: {} < {}", productId, quantity, threshold);
+                eventPublisher.publishStockAlert("LowStock", next);
+            } else {
+                eventPublisher.publishStockAlert("LowStockCleared",
+                        new LowStockEntry(productId, sku, name, category, quantity, threshold));
+            }
+        }
+    }
+
+    /** Parses {@code Category:threshold} pairs separated by commas. */
+    private static Map<String, Integer> parseThresholds(String spec) {
+        Map<String, Integer> thresholds = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return thresholds;
+        }
+        for (String pair : spec.split(",")) {
+            int separator = pair.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("Invalid low-stock threshold: " + pair);
+            }
+            thresholds.put(pair.substring(0, separator).trim(), Integer.parseInt(pair.substring(separator + 1).trim()));
+        }
+        return thresholds;
+    }
+
+    public record LowStockEntry(Long productId, String sku, String name, String category, int quantity,
+            int threshold) {
+    }
+}
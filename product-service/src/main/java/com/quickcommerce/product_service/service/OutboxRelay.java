@@ -0,0 +1,261 @@
+package com.quickcommerce.product_service.service;
+
+import static com.quickcommerce.product_service.service.TransactionCallbacks.afterCommit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import com.quickcommerce.product_service.repository.OutboxRepository;
+import com.quickcommerce.product_service.repository.OutboxRepository.NewEvent;
+import com.quickcommerce.product_service.repository.OutboxRepository.OutboxEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transactional outbox. {@link #enqueue} writes the event to outbox_events in
+ * the caller's transaction, so it is only ever sent for a committed change
+ * and is not lost if the broker is down. A single background thread, on
+ * whichever instance holds the relay lock, reads pending events in id order a
+ * batch at a time, sends them to Kafka and deletes what the broker
+ * acknowledged. No transaction is open while it waits for acknowledgements.
+ * <p>
+ * Events with different keys are sent concurrently, but each key's events go
+ * one at a time, the next only after the previous one was acknowledged, so
+ * they reach Kafka in order. When a send fails, that event and the rest of its
+ * key stay in the outbox and the key is held back for a growing delay, while
+ * other keys carry on. An event that has failed {@code max-attempts} times is
+ * parked in outbox_parked_events and its key moves on without it. Delivery is
+ * at least once: a send that timed out may still have reached the broker.
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private static final long MAX_RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final OutboxRepository outboxRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalNanos;
+    private final long retryBackoffMs;
+    private final long sendTimeoutMs;
+    private final int maxAttempts;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter parked;
+    private final Timer batchTimer;
+    private volatile boolean running;
+    private Thread relay;
+
+    public OutboxRelay(
+            OutboxRepository outboxRepository,
+            KafkaTemplate<String, String> kafkaTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${product.outbox.enabled:true}") boolean enabled,
+            @Value("${product.outbox.batch-size:500}") int batchSize,
+            @Value("${product.outbox.poll-interval-ms:100}") long pollIntervalMs,
+            @Value("${product.outbox.retry-backoff-ms:1000}") long retryBackoffMs,
+            @Value("${product.outbox.send-timeout-ms:30000}") long sendTimeoutMs,
+            @Value("${product.outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+        this.retryBackoffMs = retryBackoffMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        Gauge.builder("outbox.relay.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age of the oldest event still waiting to be relayed")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.sent = Counter.builder("outbox.events").tag("outcome", "sent").register(meterRegistry);
+        this.failed = Counter.builder("outbox.events").tag("outcome", "failed").register(meterRegistry);
+        this.parked = Counter.builder("outbox.events").tag("outcome", "parked").register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        relay = new Thread(this::relayLoop, "product-outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        senders.shutdown();
+        if (relay == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(relay);
+        relay.join(TimeUnit.SECONDS.toMillis(10));
+        outboxRepository.unlock();
+    }
+
+    /** Adds an event to the outbox in the current transaction; it is relayed once that commits. */
+    public void enqueue(String topic, String key, String payload) {
+        outboxRepository.append(topic, key, payload);
+        afterCommit(() -> LockSupport.unpark(relay));
+    }
+
+    /** Adds several events to the outbox in one batch; they are relayed in list order. */
+    public void enqueueAll(List<NewEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        outboxRepository.appendAll(events);
+        afterCommit(() -> LockSupport.unpark(relay));
+    }
+
+    /**
+     * Sends one batch and deletes what the broker acknowledged. Returns the
+     * number of events sent, or -1 if sends failed and none got through.
+     */
+    int relayOnce() {
+        long start = System.nanoTime();
+        try {
+            if (!outboxRepository.tryLock()) {
+                return 0;
+            }
+            lagMillis.set(outboxRepository.oldestCreatedAt()
+                    .map(createdAt -> Math.max(0, Duration.between(createdAt, LocalDateTime.now()).toMillis()))
+                    .orElse(0L));
+            List<OutboxEvent> batch = outboxRepository.findBatch(batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, List<OutboxEvent>> byKey = new LinkedHashMap<>();
+            for (OutboxEvent event : batch) {
+                byKey.computeIfAbsent(event.key(), key -> new ArrayList<>()).add(event);
+            }
+            List<Future<KeyResult>> results = new ArrayList<>(byKey.size());
+            for (List<OutboxEvent> events : byKey.values()) {
+                results.add(senders.submit(() -> sendInOrder(events)));
+            }
+            List<Long> delivered = new ArrayList<>(batch.size());
+            int failures = 0;
+            for (Future<KeyResult> result : results) {
+                KeyResult keyResult = join(result);
+                delivered.addAll(keyResult.delivered());
+                if (keyResult.failedEvent() != null) {
+                    failures++;
+                    retryOrPark(keyResult.failedEvent(), keyResult.error());
+                }
+            }
+            outboxRepository.delete(delivered);
+            sent.increment(delivered.size());
+            failed.increment(failures);
+            return failures > 0 && delivered.isEmpty() ? -1 : delivered.size();
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Sends one key's events one at a time, stopping at the first failure so nothing overtakes it. */
+    private KeyResult sendInOrder(List<OutboxEvent> events) {
+        List<Long> delivered = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            String error = send(event);
+            if (error != null) {
+                return new KeyResult(delivered, event, error);
+            }
+            delivered.add(event.id());
+        }
+        return new KeyResult(delivered, null, null);
+    }
+
+    /** Returns null once the broker has acknowledged the event, otherwise why it was not. */
+    private String send(OutboxEvent event) {
+        try {
+            CompletableFuture<?> send = kafkaTemplate.send(event.topic(), event.key(), event.payload());
+            send.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (ExecutionException e) {
+            return String.valueOf(e.getCause());
+        } catch (Exception e) {
+            return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+    }
+
+    private KeyResult join(Future<KeyResult> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while relaying outbox events", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Outbox send task failed", e.getCause());
+        }
+    }
+
+    private void retryOrPark(OutboxEvent event, String error) {
+        int attempts = event.attempts() + 1;
+        if (attempts >= maxAttempts) {
+            log.error("Parking outbox event {} for {} key {} after {} failed sends: {}",
+                    event.id(), event.topic(), event.key(), attempts, error);
+            outboxRepository.park(event.id(), error);
+            parked.increment();
+            return;
+        }
+        long delayMs = Math.min(MAX_RETRY_DELAY_MS, retryBackoffMs << Math.min(event.attempts(), 20));
+        log.warn("Failed to relay outbox event {} to {} (attempt {}), retrying key {} in {}ms: {}",
+                event.id(), event.topic(), attempts, event.key(), delayMs, error);
+        outboxRepository.retryLater(event.id(), delayMs, error);
+    }
+
+    private void relayLoop() {
+        while (running) {
+            int relayed;
+            try {
+                relayed = relayOnce();
+            } catch (Exception e) {
+                log.error("Outbox relay failed", e);
+                relayed = -1;
+            }
+            if (relayed < 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryBackoffMs));
+            } else if (relayed < batchSize) {
+                // A short batch means the outbox is drained; wait for the next commit or poll
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+    }
+
+    private record KeyResult(List<Long> delivered, OutboxEvent failedEvent, String error) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.quickcommerce.product_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.Keyset;
+import com.quickcommerce.product_service.repository.ProductSort;
+
+/**
+ * Opaque continuation tokens for keyset pages. A token carries the sort or
+ * listing it was issued for, so it cannot be replayed against another one.
+ */
+final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    static String encode(ProductSort sort, Keyset keyset) {
+        return encode(sort.name(), keyset);
+    }
+
+    static Keyset decode(ProductSort sort, String token) {
+        return decode(sort.name(), token);
+    }
+
+    static String encode(String scope, Keyset keyset) {
+        if (keyset == null) {
+            return null;
+        }
+        String raw = scope + ":" + keyset.id() + ":" + keyset.value();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Keyset decode(String scope, String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 3);
+            if (parts.length == 3 && parts[0].equals(scope)) {
+                return new Keyset(Long.parseLong(parts[1]), parts[2]);
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through to the error below
+        }
+        throw new RuntimeException("Invalid page cursor: " + token);
+    }
+}
@@ -0,0 +1,239 @@
+package com.quickcommerce.product_service.service;
+
+import static com.quickcommerce.product_service.service.TransactionCallbacks.afterCommit;
+
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.product_service.dto.ProductAuditDTO;
+import com.quickcommerce.product_service.dto.ProductAuditPageDTO;
+import com.quickcommerce.product_service.dto.ProductDTO;
+import com.quickcommerce.product_service.repository.ProductAuditRepository;
+import com.quickcommerce.product_service.repository.ProductAuditRepository.AuditEntry;
+import com.quickcommerce.product_service.repository.ProductAuditRepository.AuditPage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Product audit history, kept off the request's transaction. Changes are
+ * diffed once the transaction commits and queued in an {@link AuditBuffer};
+ * a single background thread drains the buffer and writes multi-row batches
+ * to products_audit.
+ * <p>
+ * When the buffer is full, the recording thread waits for the writer to make
+ * room, up to {@code product.audit.offer-timeout-ms}. Only after that is the
+ * entry dropped and counted.
+ */
+@Service
+@Slf4j
+public class ProductAuditService {
+
+    private static final String HISTORY_SCOPE = "AUDIT";
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FAR_FUTURE = LocalDateTime.of(9999, 1, 1, 0, 0);
+    private static final Map<String, Function<ProductDTO, Object>> AUDITED_FIELDS = auditedFields();
+
+    private final ProductAuditRepository auditRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final AuditBuffer<AuditEntry> buffer;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Timer flushTimer;
+    private volatile boolean running;
+    private Thread writer;
+
+    @Value("${product.pagination.default-limit:50}")
+    private int defaultPageSize;
+
+    @Value("${product.pagination.max-limit:500}")
+    private int maxPageSize;
+
+    public ProductAuditService(
+            ProductAuditRepository auditRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${product.audit.enabled:true}") boolean enabled,
+            @Value("${product.audit.buffer-capacity:8192}") int bufferCapacity,
+            @Value("${product.audit.batch-size:500}") int batchSize,
+            @Value("${product.audit.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${product.audit.offer-timeout-ms:1000}") long offerTimeoutMs) {
+        this.auditRepository = auditRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        this.buffer = new AuditBuffer<>(bufferCapacity);
+        Gauge.builder("product.audit.queue.depth", buffer, AuditBuffer::size)
+                .description("Audit entries waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("product.audit.queue.capacity", buffer, AuditBuffer::capacity)
+                .register(meterRegistry);
+        this.written = Counter.builder("product.audit.entries").tag("outcome", "written").register(meterRegistry);
+        this.dropped = Counter.builder("product.audit.entries").tag("outcome", "dropped").register(meterRegistry);
+        this.failed = Counter.builder("product.audit.entries").tag("outcome", "failed").register(meterRegistry);
+        this.flushTimer = Timer.builder("product.audit.flush").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "product-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Records the fields that differ between {@code before} and {@code after}
+     * once the current transaction commits. Either side may be null for a
+     * product that was created or deleted.
+     */
+    public void record(Long productId, String action, ProductDTO before, ProductDTO after) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            Map<String, Object> oldValues = new LinkedHashMap<>();
+            Map<String, Object> newValues = new LinkedHashMap<>();
+            AUDITED_FIELDS.forEach((field, getter) -> {
+                Object previous = before != null ? getter.apply(before) : null;
+                Object current = after != null ? getter.apply(after) : null;
+                if (!Objects.equals(previous, current)) {
+                    if (before != null) {
+                        oldValues.put(field, previous);
+                    }
+                    if (after != null) {
+                        newValues.put(field, current);
+                    }
+                }
+            });
+            if (!oldValues.isEmpty() || !newValues.isEmpty()) {
+                enqueue(productId, action, before != null ? oldValues : null, after != null ? newValues : null);
+            }
+        });
+    }
+
+    public void recordStockChange(Long productId, int before, int after) {
+        if (!enabled || before == after) {
+            return;
+        }
+        afterCommit(() -> enqueue(productId, "STOCK_CHANGED", Map.of("quantity", before), Map.of("quantity", after)));
+    }
+
+    public ProductAuditPageDTO getHistory(Long productId, LocalDateTime from, LocalDateTime to, String cursor,
+            Integer limit) {
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        AuditPage page = auditRepository.findPage(productId, from != null ? from : EPOCH,
+                to != null ? to : FAR_FUTURE, PageCursor.decode(HISTORY_SCOPE, cursor), size);
+        return ProductAuditPageDTO.builder()
+                .items(page.items().stream().map(ProductAuditDTO::from).collect(Collectors.toList()))
+                .nextCursor(PageCursor.encode(HISTORY_SCOPE, page.next()))
+                .build();
+    }
+
+    private void enqueue(Long productId, String action, Map<String, Object> oldValues, Map<String, Object> newValues) {
+        AuditEntry entry;
+        try {
+            entry = new AuditEntry(productId, action,
+                    oldValues != null ? objectMapper.writeValueAsString(oldValues) : null,
+                    newValues != null ? objectMapper.writeValueAsString(newValues) : null,
+                    LocalDateTime.now());
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize audit entry for product {}", productId, e);
+            return;
+        }
+        long deadline = System.nanoTime() + offerTimeoutNanos;
+        while (!buffer.offer(entry)) {
+            LockSupport.unpark(writer);
+            if (System.nanoTime() - deadline >= 0) {
+                dropped.increment();
+                log.warn("Audit buffer full, dropped {} entry for product {}", action, productId);
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+        }
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0) {
+            buffer.drainTo(batch, batchSize);
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+            // A short batch means the buffer is empty; give it a flush interval to refill.
+            if (batch.size() < batchSize && running) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+            batch.clear();
+        }
+    }
+
+    private void flush(List<AuditEntry> batch) {
+        long start = System.nanoTime();
+        try {
+            auditRepository.insertBatch(batch);
+            written.increment(batch.size());
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.error("Failed to write {} audit entries", batch.size(), e);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Map<String, Function<ProductDTO, Object>> auditedFields() {
+        Map<String, Function<ProductDTO, Object>> fields = new LinkedHashMap<>();
+        fields.put("sku", ProductDTO::getSku);
+        fields.put("name", ProductDTO::getName);
+        fields.put("description", ProductDTO::getDescription);
+        // Compare prices at the column's scale so 10 and 10.00 are not a change
+        fields.put("price", product -> product.getPrice() != null
+                ? product.getPrice().setScale(2, RoundingMode.HALF_UP) : null);
+        fields.put("quantity", ProductDTO::getQuantity);
+        fields.put("category", ProductDTO::getCategory);
+        fields.put("status", ProductDTO::getStatus);
+        return fields;
+    }
+}
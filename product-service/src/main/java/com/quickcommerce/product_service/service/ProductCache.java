@@ -0,0 +1,109 @@
+package com.quickcommerce.product_service.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.quickcommerce.product_service.dto.ProductDTO;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded read-through cache for single-product lookups. Entries are keyed by
+ * id; a SKU index points at the same entry so both lookups share it. Caffeine
+ * gives frequency-aware (W-TinyLFU) admission plus size and TTL eviction.
+ * <p>
+ * {@link ProductDTO} is mutable, so callers always get their own copy and
+ * the cached instance is never handed out.
+ */
+@Component
+@Slf4j
+public class ProductCache {
+
+    private final boolean enabled;
+    private final Cache<Long, ProductDTO> products;
+    private final Map<String, Long> skuIndex = new ConcurrentHashMap<>();
+    private final ConcurrentStatsCounter stats = new ConcurrentStatsCounter();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(
+            @Value("${product.cache.enabled:true}") boolean enabled,
+            @Value("${product.cache.maximum-size:10000}") long maximumSize,
+            @Value("${product.cache.ttl-seconds:300}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .executor(Runnable::run)
+                .removalListener((Long id, ProductDTO product, RemovalCause cause) -> {
+                    if (product != null) {
+                        skuIndex.remove(product.getSku(), id);
+                    }
+                })
+                .recordStats(() -> stats)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "products");
+    }
+
+    public ProductDTO getById(Long id, Function<Long, ProductDTO> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        ProductDTO product = products.get(id, key -> copy(loader.apply(key)));
+        skuIndex.put(product.getSku(), id);
+        return copy(product);
+    }
+
+    public ProductDTO getBySku(String sku, Function<String, ProductDTO> loader) {
+        if (!enabled) {
+            return loader.apply(sku);
+        }
+        Long id = skuIndex.get(sku);
+        ProductDTO cached = id != null ? products.getIfPresent(id) : null;
+        if (cached != null && sku.equals(cached.getSku())) {
+            return copy(cached);
+        }
+        if (id == null) {
+            stats.recordMisses(1);
+        }
+        long generation = invalidations.get();
+        ProductDTO product = loader.apply(sku);
+        // Skip the insert if anything was invalidated while loading; the row may be stale.
+        if (invalidations.get() == generation) {
+            products.put(product.getId(), copy(product));
+            skuIndex.put(sku, product.getId());
+        }
+        return product;
+    }
+
+    public void invalidate(Long id) {
+        invalidations.incrementAndGet();
+        products.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        products.invalidateAll();
+        skuIndex.clear();
+    }
+
+    public long size() {
+        return products.estimatedSize();
+    }
+
+    private static ProductDTO copy(ProductDTO product) {
+        return product == null ? null : product.toBuilder().build();
+    }
+}
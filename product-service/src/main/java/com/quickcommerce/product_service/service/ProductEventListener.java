@@ -0,0 +1,64 @@
+package com.quickcommerce.product_service.service;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.product_service.service.LowStockDetector.LowStockEntry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps per-instance state coherent across instances. Each instance
+ * consumes {@code product-events} in its own consumer group, starting from
+ * the latest offset: it drops its {@link ProductCache} copy of whichever
+ * product changed, and brings its {@link LowStockDetector} set up to date.
+ * <p>
+ * The group id must be unique per instance but stable across restarts, so
+ * a restart rejoins its old group instead of leaving one more abandoned
+ * group on the broker. It defaults to the container's host name.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ProductEventListener {
+    private final ProductCache productCache;
+    private final LowStockDetector lowStockDetector;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = "product-events",
+            groupId = "${product.events.instance-group-id:product-instance-${HOSTNAME:local}}",
+            properties = "auto.offset.reset=latest")
+    public void onProductEvent(String message) {
+        try {
+            JsonNode event = objectMapper.readTree(message);
+            JsonNode productIds = event.get("productIds");
+            if (productIds != null) {
+                productIds.forEach(id -> productCache.invalidate(id.asLong()));
+            }
+            JsonNode productId = event.get("productId");
+            if (productId == null || !productId.canConvertToLong()) {
+                return;
+            }
+            long id = productId.asLong();
+            productCache.invalidate(id);
+            String eventType = event.path("eventType").asText();
+            switch (eventType) {
+                case "LowStock", "LowStockCleared" -> lowStockDetector.applyRemote(new LowStockEntry(id,
+                        event.path("sku").asText(), event.path("name").asText(), event.path("category").asText(),
+                        event.path("quantity").asInt(), event.path("threshold").asInt()),
+                        eventType.equals("LowStock"));
+                case "ProductDeleted" -> lowStockDetector.remove(id);
+                default -> {
+                    if (event.hasNonNull("quantity")) {
+                        lowStockDetector.updateIfTracked(id, event.get("quantity").asInt());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable product event: {}", message, e);
+        }
+    }
+}
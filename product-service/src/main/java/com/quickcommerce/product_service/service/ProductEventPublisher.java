@@ -0,0 +1,105 @@
+package com.quickcommerce.product_service.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.quickcommerce.product_service.dto.ProductDTO;
+import com.quickcommerce.product_service.entity.Product;
+import com.quickcommerce.product_service.repository.OutboxRepository.NewEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds product-events messages and queues them in the outbox, so they are
+ * sent only if the caller's transaction commits.
+ * <p>
+ * Changes to what other services replicate (price and status) also go to
+ * the compacted {@value #CATALOG_TOPIC} topic as the product's full state,
+ * keyed by product id, so its latest record per key is the whole catalog.
+ * A deleted product gets a tombstone, a record with no value, so compaction
+ * drops the product from the topic altogether.
+ */
+@Component
+@Slf4j
+public class ProductEventPublisher {
+    public static final String CATALOG_TOPIC = "product-catalog";
+
+    private final OutboxRelay outboxRelay;
+    private final TransactionTemplate newTransaction;
+
+    public ProductEventPublisher(OutboxRelay outboxRelay, PlatformTransactionManager transactionManager) {
+        this.outboxRelay = outboxRelay;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void publish(String eventType, Product product) {
+        publish(eventType, product.getId(), product.getSku(), product.getName(), product.getQuantity());
+    }
+
+    public void publish(String eventType, Long productId, String sku, String name, Integer quantity) {
+        String message = String.format(
+                "{\"eventType\":\"%s\",\"productId\":%d,\"sku\":\"%s\",\"name\":\"%s\",\"quantity\":%d}",
+                eventType, productId, sku, name, quantity);
+        outboxRelay.enqueue("product-events", productId.toString(), message);
+        log.info("Queued {} event for product: {}", eventType, productId);
+    }
+
+    /**
+     * Callers run after their transaction has committed, while its connection
+     * is still bound, so the event is queued in a transaction of its own.
+     */
+    public void publishStockAlert(String eventType, LowStockDetector.LowStockEntry entry) {
+        String message = String.format(
+                "{\"eventType\":\"%s\",\"productId\":%d,\"sku\":\"%s\",\"name\":\"%s\",\"category\":\"%s\",\"quantity\":%d,\"threshold\":%d}",
+                eventType, entry.productId(), entry.sku(), entry.name(), entry.category(), entry.quantity(),
+                entry.threshold());
+        newTransaction.executeWithoutResult(
+                status -> outboxRelay.enqueue("product-events", entry.productId().toString(), message));
+        log.info("Queued {} event for product: {}", eventType, entry.productId());
+    }
+
+    /** One message for a whole batch of changed products, keyed by the batch rather than a product. */
+    public void publishBatch(String eventType, String batchKey, List<Long> productIds, long inserted, long updated) {
+        String message = String.format(
+                "{\"eventType\":\"%s\",\"batch\":\"%s\",\"productIds\":[%s],\"inserted\":%d,\"updated\":%d}",
+                eventType, batchKey,
+                productIds.stream().map(String::valueOf).collect(Collectors.joining(",")),
+                inserted, updated);
+        outboxRelay.enqueue("product-events", batchKey, message);
+        log.info("Queued {} event for {} products", eventType, productIds.size());
+    }
+
+    public void publishCatalog(Long productId, String sku, BigDecimal price, String status) {
+        NewEvent record = catalogRecord(productId, sku, price, status);
+        outboxRelay.enqueue(record.topic(), record.key(), record.payload());
+    }
+
+    /** Removes a deleted product from the catalog topic. */
+    public void publishCatalogTombstone(Long productId) {
+        outboxRelay.enqueue(CATALOG_TOPIC, productId.toString(), null);
+    }
+
+    /** Catalog records for several products, appended to the outbox in one batch. */
+    public void publishCatalog(List<ProductDTO> products) {
+        List<NewEvent> records = new ArrayList<>(products.size());
+        for (ProductDTO product : products) {
+            records.add(catalogRecord(product.getId(), product.getSku(), product.getPrice(), product.getStatus()));
+        }
+        outboxRelay.enqueueAll(records);
+    }
+
+    private static NewEvent catalogRecord(Long productId, String sku, BigDecimal price, String status) {
+        String message = String.format(
+                "{\"productId\":%d,\"sku\":\"%s\",\"price\":%s,\"status\":\"%s\"}",
+                productId, sku, price != null ? price.toPlainString() : "null", status);
+        return new NewEvent(CATALOG_TOPIC, productId.toString(), message);
+    }
+}
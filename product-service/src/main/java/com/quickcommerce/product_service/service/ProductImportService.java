@@ -0,0 +1,456 @@
+package com.quickcommerce.product_service.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.product_service.dto.ProductDTO;
+import com.quickcommerce.product_service.dto.ProductImportJobDTO;
+import com.quickcommerce.product_service.entity.Product;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.UpsertedProduct;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk catalog import. The upload is spooled to a temporary file and the
+ * request returns straight away; the file is then run through three stages
+ * on their own threads, joined by bounded queues so a slow writer holds the
+ * parser back instead of letting rows pile up in memory:
+ * <ol>
+ * <li>parse CSV or NDJSON into rows,</li>
+ * <li>validate them and drop duplicate SKUs within a batch,</li>
+ * <li>upsert each batch by SKU in a single statement and queue one
+ * {@code product-events} message for it in the same transaction.</li>
+ * </ol>
+ * Job progress is kept in memory on the instance that runs the import: other
+ * instances answer "not found" for it, and a restart loses both the job and
+ * the rest of its file. Batches already written stay written, and because
+ * rows are upserted by SKU the same file can simply be imported again.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int MAX_RETAINED_JOBS = 100;
+    private static final List<ImportRow> END = List.of();
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductEventPublisher eventPublisher;
+    private final ProductSearchIndex searchIndex;
+    private final ProductCache productCache;
+    private final LowStockDetector lowStockDetector;
+    private final ObjectMapper objectMapper;
+    private final TransactionOperations transactions;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final Semaphore slots;
+    private final ExecutorService executor;
+    private final Map<String, ImportJob> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+                    return size() > MAX_RETAINED_JOBS && eldest.getValue().finishedAt != null;
+                }
+            });
+
+    public ProductImportService(
+            ProductJdbcRepository productJdbcRepository,
+            ProductEventPublisher eventPublisher,
+            ProductSearchIndex searchIndex,
+            ProductCache productCache,
+            LowStockDetector lowStockDetector,
+            ObjectMapper objectMapper,
+            TransactionOperations transactions,
+            @Value("${product.import.batch-size:1000}") int batchSize,
+            @Value("${product.import.queue-capacity:4}") int queueCapacity,
+            @Value("${product.import.max-concurrent-jobs:2}") int maxConcurrentJobs) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.searchIndex = searchIndex;
+        this.productCache = productCache;
+        this.lowStockDetector = lowStockDetector;
+        this.objectMapper = objectMapper;
+        this.transactions = transactions;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.slots = new Semaphore(maxConcurrentJobs);
+        this.executor = Executors.newFixedThreadPool(maxConcurrentJobs * 3);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Spools the upload and starts importing it; empty if too many imports are already running. */
+    public Optional<ProductImportJobDTO> startImport(InputStream body, Format format) throws IOException {
+        if (!slots.tryAcquire()) {
+            return Optional.empty();
+        }
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("product-import-", "." + format.name().toLowerCase());
+            Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            if (spool != null) {
+                Files.deleteIfExists(spool);
+            }
+            throw e;
+        }
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), format);
+        jobs.put(job.id, job);
+        log.info("Starting product import {} ({}, {} bytes)", job.id, format, Files.size(spool));
+        Path file = spool;
+        executor.execute(() -> run(job, file));
+        return Optional.of(job.toDTO());
+    }
+
+    public ProductImportJobDTO getJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Import job not found: " + jobId);
+        }
+        return job.toDTO();
+    }
+
+    private void run(ImportJob job, Path file) {
+        BlockingQueue<List<ImportRow>> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<List<ImportRow>> validated = new ArrayBlockingQueue<>(queueCapacity);
+        Future<?> parser = executor.submit(() -> stage(job, parsed, () -> parse(job, file, parsed)));
+        Future<?> validator = executor.submit(() -> stage(job, validated, () -> validate(job, parsed, validated)));
+        try {
+            write(job, validated);
+        } catch (Exception e) {
+            job.fail(e);
+        } finally {
+            // Stops upstream stages left blocked on a full queue once nothing downstream reads it.
+            parser.cancel(true);
+            validator.cancel(true);
+            job.finish();
+            slots.release();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete import spool {}", file, e);
+            }
+            log.info("Product import {} {}: {} read, {} inserted, {} updated, {} rejected",
+                    job.id, job.status(), job.rowsRead.get(), job.inserted.get(), job.updated.get(),
+                    job.rejected.get());
+        }
+    }
+
+    /** Runs one stage and always hands the end marker downstream, even when the stage fails. */
+    private void stage(ImportJob job, BlockingQueue<List<ImportRow>> out, StageBody body) {
+        try {
+            body.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            job.fail(e);
+        } finally {
+            try {
+                out.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void parse(ImportJob job, Path file, BlockingQueue<List<ImportRow>> out)
+            throws IOException, InterruptedException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<ImportRow> batch = new ArrayList<>(batchSize);
+            RowSource source = job.format == Format.CSV ? csvRows(reader) : ndjsonRows(reader);
+            for (ImportRow row = source.next(); row != null; row = source.next()) {
+                job.rowsRead.incrementAndGet();
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    out.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                out.put(batch);
+            }
+        }
+    }
+
+    private void validate(ImportJob job, BlockingQueue<List<ImportRow>> in, BlockingQueue<List<ImportRow>> out)
+            throws InterruptedException {
+        for (List<ImportRow> batch = in.take(); batch != END; batch = in.take()) {
+            // Postgres refuses to upsert the same key twice in one statement; the last row for a SKU wins.
+            Map<String, ImportRow> unique = new LinkedHashMap<>();
+            for (ImportRow row : batch) {
+                String error = row.error() != null ? row.error() : check(row.product());
+                if (error != null) {
+                    job.reject(row.line(), error);
+                } else {
+                    unique.put(row.product().getSku(), row);
+                }
+            }
+            if (!unique.isEmpty()) {
+                out.put(new ArrayList<>(unique.values()));
+            }
+        }
+    }
+
+    private void write(ImportJob job, BlockingQueue<List<ImportRow>> in) throws InterruptedException {
+        for (List<ImportRow> batch = in.take(); batch != END; batch = in.take()) {
+            Map<String, ImportRow> rows = batch.stream()
+                    .collect(Collectors.toMap(row -> row.product().getSku(), row -> row));
+            Map<String, ProductDTO> bySku = batch.stream()
+                    .collect(Collectors.toMap(row -> row.product().getSku(), ImportRow::product));
+            String batchKey = job.id + "-" + job.batches.incrementAndGet();
+            // The batch and its event commit together
+            List<UpsertedProduct> written = transactions.execute(status -> {
+                List<UpsertedProduct> upserted = productJdbcRepository.upsertProducts(new ArrayList<>(bySku.values()));
+                long inserted = upserted.stream().filter(UpsertedProduct::inserted).count();
+                eventPublisher.publishBatch("ProductsImported", batchKey,
+                        upserted.stream().map(UpsertedProduct::id).collect(Collectors.toList()),
+                        inserted, upserted.size() - inserted);
+                eventPublisher.publishCatalog(upserted.stream()
+                        .map(product -> ProductDTO.builder()
+                                .id(product.id())
+                                .sku(product.sku())
+                                .price(bySku.get(product.sku()).getPrice())
+                                .status(product.status())
+                                .build())
+                        .collect(Collectors.toList()));
+                return upserted;
+            });
+            long inserted = written.stream().filter(UpsertedProduct::inserted).count();
+            job.inserted.addAndGet(inserted);
+            job.updated.addAndGet(written.size() - inserted);
+            if (written.size() < rows.size()) {
+                written.forEach(product -> rows.remove(product.sku()));
+                rows.values().forEach(row -> job.reject(row.line(),
+                        "quantity is below the stock held by active reservations"));
+            }
+
+            for (UpsertedProduct product : written) {
+                ProductDTO row = bySku.get(product.sku());
+                searchIndex.index(toProduct(product, row));
+                lowStockDetector.record(product.id(), row.getSku(), row.getName(), row.getCategory(),
+                        product.quantity());
+                if (!product.inserted()) {
+                    productCache.invalidate(product.id());
+                }
+            }
+        }
+    }
+
+    private RowSource csvRows(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return () -> null;
+        }
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(), i);
+        }
+        for (String required : List.of("sku", "name", "price", "quantity", "category")) {
+            if (!columns.containsKey(required)) {
+                throw new RuntimeException("CSV header is missing column: " + required);
+            }
+        }
+        AtomicLong line = new AtomicLong(1);
+        return () -> {
+            List<String> fields = csv.next();
+            if (fields == null) {
+                return null;
+            }
+            long number = line.incrementAndGet();
+            try {
+                return new ImportRow(number, ProductDTO.builder()
+                        .sku(field(fields, columns, "sku"))
+                        .name(field(fields, columns, "name"))
+                        .description(field(fields, columns, "description"))
+                        .price(new BigDecimal(field(fields, columns, "price")))
+                        .quantity(Integer.valueOf(field(fields, columns, "quantity")))
+                        .category(field(fields, columns, "category"))
+                        .build(), null);
+            } catch (NumberFormatException | NullPointerException e) {
+                return new ImportRow(number, null, "price and quantity must be numbers");
+            }
+        };
+    }
+
+    private RowSource ndjsonRows(BufferedReader reader) {
+        AtomicLong line = new AtomicLong();
+        return () -> {
+            String json;
+            do {
+                json = reader.readLine();
+                line.incrementAndGet();
+            } while (json != null && json.isBlank());
+            if (json == null) {
+                return null;
+            }
+            try {
+                return new ImportRow(line.get(), objectMapper.readValue(json, ProductDTO.class), null);
+            } catch (IOException e) {
+                return new ImportRow(line.get(), null, "not a product JSON object");
+            }
+        };
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /** Mirrors the products table constraints; returns why a row is unusable, or null. */
+    private static String check(ProductDTO product) {
+        if (isBlank(product.getSku()) || product.getSku().length() > 100) {
+            return "sku is required and at most 100 characters";
+        }
+        if (isBlank(product.getName()) || product.getName().length() > 255) {
+            return "name is required and at most 255 characters";
+        }
+        if (isBlank(product.getCategory()) || product.getCategory().length() > 100) {
+            return "category is required and at most 100 characters";
+        }
+        if (product.getPrice() == null || product.getPrice().signum() < 0
+                || product.getPrice().scale() > 2 || product.getPrice().precision() - product.getPrice().scale() > 8) {
+            return "price must be between 0 and 99999999.99 with at most 2 decimals";
+        }
+        if (product.getQuantity() == null || product.getQuantity() < 0) {
+            return "quantity must be zero or more";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static Product toProduct(UpsertedProduct written, ProductDTO row) {
+        return Product.builder()
+                .id(written.id())
+                .sku(row.getSku())
+                .name(row.getName())
+                .description(row.getDescription())
+                .price(row.getPrice())
+                .quantity(row.getQuantity())
+                .category(row.getCategory())
+                .status(Product.ProductStatus.valueOf(written.status()))
+                .build();
+    }
+
+    private record ImportRow(long line, ProductDTO product, String error) {
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        ImportRow next() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    private static final class ImportJob {
+        private final String id;
+        private final Format format;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile String failure;
+        private volatile LocalDateTime finishedAt;
+
+        private ImportJob(String id, Format format) {
+            this.id = id;
+            this.format = format;
+        }
+
+        void reject(long line, String reason) {
+            if (rejected.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+                errors.add("line " + line + ": " + reason);
+            }
+        }
+
+        void fail(Exception e) {
+            if (failure == null) {
+                failure = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                log.error("Product import {} failed", id, e);
+            }
+        }
+
+        void finish() {
+            finishedAt = LocalDateTime.now();
+        }
+
+        String status() {
+            if (finishedAt == null) {
+                return "RUNNING";
+            }
+            return failure == null ? "COMPLETED" : "FAILED";
+        }
+
+        ProductImportJobDTO toDTO() {
+            List<String> reported;
+            synchronized (errors) {
+                reported = new ArrayList<>(errors);
+            }
+            if (failure != null) {
+                reported.add(failure);
+            }
+            return ProductImportJobDTO.builder()
+                    .id(id)
+                    .format(format.name())
+                    .status(status())
+                    .rowsRead(rowsRead.get())
+                    .inserted(inserted.get())
+                    .updated(updated.get())
+                    .rejected(rejected.get())
+                    .errors(reported)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.quickcommerce.product_service.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.quickcommerce.product_service.entity.Product;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory inverted index over product name and description. Every word is
+ * indexed whole and as overlapping trigrams, so a keyword that occurs anywhere
+ * inside a word is found without scanning the catalog.
+ * <p>
+ * Matching follows the JPQL search it replaces: the keyword, case-insensitive,
+ * must occur as a substring of the name or the description, and the category
+ * is an exact filter. The postings only narrow the candidates; every candidate
+ * is checked against the full text before it is ranked.
+ * <p>
+ * Documents are addressed by an internal ordinal that only grows, which keeps
+ * every posting list sorted without re-sorting. Updates and deletes leave a
+ * tombstone behind; the postings are compacted once tombstones dominate.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Map<String, Postings> words = new HashMap<>();
+    private final Map<String, Postings> grams = new HashMap<>();
+    private volatile boolean ready;
+
+    /**
+     * Replaces the index with the products returned by {@code loader}. The
+     * loader runs under the write lock, so an {@link #index} or {@link #remove}
+     * issued while the snapshot is being read waits and is applied on top of
+     * it instead of being overwritten by the older snapshot.
+     */
+    public void rebuild(Supplier<? extends Iterable<Product>> loader) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Product product : loader.get()) {
+                add(Document.of(product));
+            }
+            ready = true;
+            log.info("Product search index built with {} products, {} words, {} grams",
+                    ordinals.size(), words.size(), grams.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        Document document = Document.of(product);
+        lock.writeLock().lock();
+        try {
+            tombstone(document.id());
+            add(document);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            tombstone(productId);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of active products whose name or description contains
+     * the keyword, best match first. Matches in the name outrank the
+     * description; whole-word and prefix matches outrank infix matches.
+     */
+    public List<Long> search(String keyword, String category, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        String phrase = keyword == null ? null : keyword.toLowerCase(Locale.ROOT);
+        List<String> terms = tokenize(keyword);
+        lock.readLock().lock();
+        try {
+            PriorityQueue<ScoredId> top = new PriorityQueue<>(ScoredId.WORST_FIRST);
+            Postings candidates = terms.isEmpty() ? null : candidates(terms);
+            int count = candidates == null ? documents.size() : candidates.size;
+            for (int i = 0; i < count; i++) {
+                Document document = documents.get(candidates == null ? i : candidates.ordinals[i]);
+                if (document == null || !document.active()
+                        || (category != null && !category.equals(document.category()))
+                        || (phrase != null && !document.contains(phrase))) {
+                    continue;
+                }
+                double score = score(document, terms);
+                top.offer(new ScoredId(document.id(), score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<ScoredId> ranked = new ArrayList<>(top);
+            ranked.sort(ScoredId.WORST_FIRST.reversed());
+            return ranked.stream().map(ScoredId::id).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Postings candidates(List<String> terms) {
+        List<Postings> lists = new ArrayList<>();
+        for (String term : terms) {
+            if (term.length() < GRAM_LENGTH) {
+                lists.add(shortTermPostings(term));
+                continue;
+            }
+            for (String gram : grams(term)) {
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    return Postings.EMPTY;
+                }
+                lists.add(postings);
+            }
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+        Postings result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.size > 0; i++) {
+            result = result.intersect(lists.get(i));
+        }
+        return result;
+    }
+
+    private Postings shortTermPostings(String term) {
+        Postings result = Postings.EMPTY;
+        for (Map.Entry<String, Postings> entry : words.entrySet()) {
+            if (entry.getKey().contains(term)) {
+                result = result.union(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static double score(Document document, List<String> terms) {
+        double total = 1;
+        for (String term : terms) {
+            total += NAME_WEIGHT * match(document.name(), term)
+                    + DESCRIPTION_WEIGHT * match(document.description(), term);
+        }
+        return total;
+    }
+
+    private static double match(String[] fieldWords, String term) {
+        double best = 0;
+        for (String word : fieldWords) {
+            if (word.equals(term)) {
+                return 2.0;
+            } else if (word.startsWith(term)) {
+                best = Math.max(best, 1.5);
+            } else if (word.contains(term)) {
+                best = Math.max(best, 1.0);
+            }
+        }
+        return best;
+    }
+
+    private void add(Document document) {
+        int ordinal = documents.size();
+        documents.add(document);
+        ordinals.put(document.id(), ordinal);
+        for (String word : document.allWords()) {
+            words.computeIfAbsent(word, k -> new Postings()).append(ordinal);
+            for (String gram : grams(word)) {
+                grams.computeIfAbsent(gram, k -> new Postings()).append(ordinal);
+            }
+        }
+    }
+
+    private void tombstone(Long productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal != null) {
+            documents.set(ordinal, null);
+        }
+    }
+
+    private void compactIfSparse() {
+        if (documents.size() > 1024 && ordinals.size() < documents.size() / 2) {
+            List<Document> live = documents.stream().filter(d -> d != null).toList();
+            clear();
+            live.forEach(this::add);
+            log.debug("Compacted product search index to {} products", live.size());
+        }
+    }
+
+    private void clear() {
+        documents.clear();
+        ordinals.clear();
+        words.clear();
+        grams.clear();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    private static Set<String> grams(String word) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+            result.add(word.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    /** Sorted, append-only list of document ordinals. */
+    private static final class Postings {
+        static final Postings EMPTY = new Postings(new int[0], 0);
+
+        int[] ordinals;
+        int size;
+
+        Postings() {
+            this(new int[4], 0);
+        }
+
+        Postings(int[] ordinals, int size) {
+            this.ordinals = ordinals;
+            this.size = size;
+        }
+
+        void append(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        Postings intersect(Postings other) {
+            int[] result = new int[Math.min(size, other.size)];
+            int n = 0;
+            for (int i = 0, j = 0; i < size && j < other.size;) {
+                if (ordinals[i] < other.ordinals[j]) {
+                    i++;
+                } else if (ordinals[i] > other.ordinals[j]) {
+                    j++;
+                } else {
+                    result[n++] = ordinals[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new Postings(result, n);
+        }
+
+        Postings union(Postings other) {
+            int[] result = new int[size + other.size];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                int next;
+                if (j >= other.size || (i < size && ordinals[i] < other.ordinals[j])) {
+                    next = ordinals[i++];
+                } else if (i >= size || other.ordinals[j] < ordinals[i]) {
+                    next = other.ordinals[j++];
+                } else {
+                    next = ordinals[i++];
+                    j++;
+                }
+                result[n++] = next;
+            }
+            return new Postings(result, n);
+        }
+    }
+
+    private record Document(Long id, String category, boolean active,
+            String nameText, String descriptionText, String[] name, String[] description) {
+
+        static Document of(Product product) {
+            return new Document(
+                    product.getId(),
+                    product.getCategory(),
+                    product.getStatus() == Product.ProductStatus.ACTIVE,
+                    lowerCase(product.getName()),
+                    lowerCase(product.getDescription()),
+                    tokenize(product.getName()).toArray(String[]::new),
+                    tokenize(product.getDescription()).toArray(String[]::new));
+        }
+
+        private static String lowerCase(String text) {
+            return text == null ? null : text.toLowerCase(Locale.ROOT);
+        }
+
+        boolean contains(String phrase) {
+            return (nameText != null && nameText.contains(phrase))
+                    || (descriptionText != null && descriptionText.contains(phrase));
+        }
+
+        Set<String> allWords() {
+            Set<String> all = new LinkedHashSet<>();
+            all.addAll(Arrays.asList(name));
+            all.addAll(Arrays.asList(description));
+            return all;
+        }
+    }
+
+    private record ScoredId(Long id, double score) {
+        static final Comparator<ScoredId> WORST_FIRST = Comparator.comparingDouble(ScoredId::score)
+                .thenComparing(ScoredId::id, Comparator.reverseOrder());
+    }
+}
@@ -1,15 +1,47 @@
 package com.quickcommerce.product_service.service;
 
+import static com.quickcommerce.product_service.service.TransactionCallbacks.afterCommit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.quickcommerce.product_service.dto.ProductDTO;
+import com.quickcommerce.product_service.dto.ProductPageDTO;
+import com.quickcommerce.product_service.dto.StockLineDTO;
+import com.quickcommerce.product_service.dto.StockUpdateResultDTO;
 import com.quickcommerce.product_service.entity.Product;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.Keyset;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.ProductPage;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.StockLevel;
+import com.quickcommerce.product_service.repository.ProductSort;
 import com.quickcommerce.product_service.repository.Productrepository;
+import com.quickcommerce.product_service.service.LowStockDetector.LowStockEntry;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,8 +51,40 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 @Transactional
 public class ProductService {
+    private static final String LOW_STOCK_SCOPE = "LOW_STOCK";
+
     private final Productrepository productRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductEventPublisher eventPublisher;
+    private final ProductSearchIndex searchIndex;
+    private final ShardedInventoryService shardedInventory;
+    private final ProductCache productCache;
+    private final ObjectMapper objectMapper;
+    private final ProductAuditService auditService;
+    private final LowStockDetector lowStockDetector;
+
+    @Value("${product.search.index-enabled:true}")
+    private boolean searchIndexEnabled;
+
+    @Value("${product.search.default-limit:100}")
+    private int defaultSearchLimit;
+
+    @Value("${product.pagination.default-limit:50}")
+    private int defaultPageSize;
+
+    @Value("${product.pagination.max-limit:500}")
+    private int maxPageSize;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.fetch_size:500}")
+    private int exportFetchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildSearchIndex() {
+        if (searchIndexEnabled) {
+            searchIndex.rebuild(productRepository::findAll);
+        }
+    }
 
     public ProductDTO createProduct(ProductDTO productDTO) {
 
@@ -37,89 +101,324 @@ public class ProductService {
 
         Product saved = productRepository.save(product);
         log.info("Product created with ID: {}", saved.getId());
-        publishProductEvent("Product Created", saved);
-        return ProductDTO.from(saved);
+        afterCommit(() -> searchIndex.index(saved));
+        eventPublisher.publish("Product Created", saved);
+        eventPublisher.publishCatalog(saved.getId(), saved.getSku(), saved.getPrice(), saved.getStatus().name());
+        ProductDTO created = toDTO(saved);
+        auditService.record(saved.getId(), "CREATED", null, created);
+        lowStockDetector.record(saved.getId(), saved.getSku(), saved.getName(), saved.getCategory(),
+                created.getQuantity());
+        return created;
 
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public ProductDTO getProduct(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Product not found: " + id));
-        return ProductDTO.from(product);
+        return productCache.getById(id, productId -> toDTO(productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found: " + productId))));
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public ProductDTO getProductBySku(String sku) {
-        Product product = productRepository.findBySku(sku)
-                .orElseThrow(() -> new RuntimeException("Product not found: " + sku));
-        return ProductDTO.from(product);
+        return productCache.getBySku(sku, key -> toDTO(productRepository.findBySku(key)
+                .orElseThrow(() -> new RuntimeException("Product not found: " + key))));
     }
 
     @Transactional(readOnly = true)
     public List<ProductDTO> getAllProducts() {
         return productRepository.findAll().stream()
-                .map(ProductDTO::from)
+                .map(this::toDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Writes the whole catalog to {@code out} as newline-delimited JSON, one
+     * product per line, straight from a database cursor. Returns the number
+     * of products written.
+     */
     @Transactional(readOnly = true)
-    public List<ProductDTO> searchProducts(String keyword, String category) {
-        return productRepository.searchProducts(keyword, category).stream()
-                .map(ProductDTO::from)
-                .collect(Collectors.toList());
+    public long exportProducts(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(ProductDTO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long[] written = { 0 };
+        try {
+            productJdbcRepository.streamProducts(exportFetchSize, product -> {
+                try {
+                    writer.writeValue(out, product);
+                    out.write('\n');
+                    written[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        log.info("Exported {} products", written[0]);
+        return written[0];
+    }
+
+    /**
+     * Writes a catalog record for every product, for consumers that replicate
+     * the catalog from a topic that never had them, such as after it is first
+     * created. Runs as one transaction; records are appended in batches.
+     * Returns the number of products published.
+     */
+    public long republishCatalog() {
+        List<ProductDTO> chunk = new ArrayList<>(exportFetchSize);
+        long[] published = { 0 };
+        productJdbcRepository.streamProducts(exportFetchSize, product -> {
+            chunk.add(product);
+            if (chunk.size() == exportFetchSize) {
+                eventPublisher.publishCatalog(chunk);
+                published[0] += chunk.size();
+                chunk.clear();
+            }
+        });
+        eventPublisher.publishCatalog(chunk);
+        published[0] += chunk.size();
+        log.info("Republished {} products to {}", published[0], ProductEventPublisher.CATALOG_TOPIC);
+        return published[0];
     }
 
     @Transactional(readOnly = true)
-    public List<ProductDTO> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category).stream()
-                .map(ProductDTO::from)
+    public List<ProductDTO> searchProducts(String keyword, String category, Integer limit) {
+        // clamped like a page, so the index and the fallback query treat a bad limit the same way
+        int max = limit == null ? defaultSearchLimit : Math.max(1, Math.min(limit, maxPageSize));
+        if (!searchIndexEnabled || !searchIndex.isReady()) {
+            return productRepository.searchProducts(keyword, category).stream()
+                    .limit(max)
+                    .map(this::toDTO)
+                    .collect(Collectors.toList());
+        }
+        List<Long> ids = searchIndex.search(keyword, category, max);
+        Map<Long, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .map(this::toDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public ProductPageDTO getProductsByCategory(String category, String sort, String cursor, Integer limit) {
+        ProductSort order = ProductSort.fromParam(sort);
+        return toPage(order, productJdbcRepository.findByCategory(
+                category, order, PageCursor.decode(order, cursor), pageSize(limit)));
+    }
+
+    @Transactional(readOnly = true)
+    public ProductPageDTO getProductsByStatus(String status, String sort, String cursor, Integer limit) {
+        Product.ProductStatus productStatus;
+        try {
+            productStatus = Product.ProductStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown product status: " + status);
+        }
+        ProductSort order = ProductSort.fromParam(sort);
+        return toPage(order, productJdbcRepository.findByStatus(
+                productStatus.name(), order, PageCursor.decode(order, cursor), pageSize(limit)));
+    }
+
+    /**
+     * Without an explicit threshold the page comes from the live low-stock
+     * set, which applies per-category thresholds and costs the same however
+     * large the catalog is. An explicit threshold falls back to an index seek.
+     */
+    @Transactional(readOnly = true)
+    public ProductPageDTO getLowStockProducts(Integer threshold, String cursor, Integer limit) {
+        if (threshold != null || !lowStockDetector.isReady()) {
+            int below = threshold != null ? threshold : lowStockDetector.threshold(null);
+            return toPage(ProductSort.QUANTITY, productJdbcRepository.findLowStock(
+                    below, PageCursor.decode(ProductSort.QUANTITY, cursor), pageSize(limit)));
+        }
+        Keyset after = PageCursor.decode(LOW_STOCK_SCOPE, cursor);
+        int size = pageSize(limit);
+        List<LowStockEntry> entries = lowStockDetector.page(
+                after != null ? Integer.valueOf(after.value()) : null, after != null ? after.id() : null, size + 1);
+        Keyset next = null;
+        if (entries.size() > size) {
+            entries = entries.subList(0, size);
+            LowStockEntry last = entries.get(size - 1);
+            next = new Keyset(last.productId(), String.valueOf(last.quantity()));
+        }
+        List<Long> ids = entries.stream().map(LowStockEntry::productId).collect(Collectors.toList());
+        Map<Long, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ProductPageDTO.builder()
+                .items(ids.stream().map(products::get).filter(Objects::nonNull).map(this::toDTO)
+                        .collect(Collectors.toList()))
+                .nextCursor(PageCursor.encode(LOW_STOCK_SCOPE, next))
+                .build();
+    }
+
     public ProductDTO updateProduct(Long id, ProductDTO productDTO) {
         log.info("Updating product: {}", id);
 
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found: " + id));
 
+        ProductDTO before = toDTO(product);
+        boolean sharded = shardedInventory.isSharded(id)
+                && shardedInventory.resetQuantity(id, productDTO.getQuantity());
         product.setName(productDTO.getName());
         product.setDescription(productDTO.getDescription());
         product.setPrice(productDTO.getPrice());
-        product.setQuantity(productDTO.getQuantity());
+        if (!sharded) {
+            product.setQuantity(productDTO.getQuantity());
+        }
         product.setCategory(productDTO.getCategory());
 
         Product updated = productRepository.save(product);
-        publishProductEvent("ProductUpdated", updated);
-        return ProductDTO.from(updated);
+        afterCommit(() -> {
+            searchIndex.index(updated);
+            productCache.invalidate(id);
+        });
+        ProductDTO result = toDTO(updated);
+        eventPublisher.publish("ProductUpdated", id, updated.getSku(), updated.getName(), result.getQuantity());
+        eventPublisher.publishCatalog(id, updated.getSku(), updated.getPrice(), updated.getStatus().name());
+        auditService.record(id, "UPDATED", before, result);
+        lowStockDetector.record(id, updated.getSku(), updated.getName(), updated.getCategory(), result.getQuantity());
+        return result;
     }
 
     public void deleteProduct(Long id) {
         log.info("Deleting product: {}", id);
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found: " + id));
+        ProductDTO before = toDTO(product);
         productRepository.delete(product);
-        publishProductEvent("ProductDeleted", product);
+        afterCommit(() -> {
+            searchIndex.remove(id);
+            shardedInventory.forget(id);
+            productCache.invalidate(id);
+        });
+        eventPublisher.publish("ProductDeleted", product);
+        eventPublisher.publishCatalogTombstone(id);
+        auditService.record(id, "DELETED", before, null);
+        lowStockDetector.forget(id);
     }
 
-    public void updateStock(Long productId, Integer quantity) {
+    public StockUpdateResultDTO updateStock(Long productId, Integer quantity) {
         log.info("Updating stock for product: {} with quantity: {}", productId, quantity);
+        return updateStock(List.of(StockLineDTO.builder().productId(productId).quantity(quantity).build()));
+    }
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
+    public StockUpdateResultDTO updateStock(List<StockLineDTO> lines) {
+        for (StockLineDTO line : lines) {
+            if (line == null || line.getProductId() == null || line.getQuantity() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Every stock line needs a productId and a quantity");
+            }
+        }
+        Map<Long, Integer> requested = lines.stream()
+                .collect(Collectors.toMap(StockLineDTO::getProductId, StockLineDTO::getQuantity,
+                        Integer::sum, LinkedHashMap::new));
+        Map<Long, Integer> unsharded = new LinkedHashMap<>();
+        Map<Long, StockLevel> levels = new HashMap<>();
+        requested.forEach((productId, quantity) -> {
+            if (shardedInventory.isSharded(productId)) {
+                decrementSharded(productId, quantity, levels);
+            } else {
+                unsharded.put(productId, quantity);
+            }
+        });
+        if (!unsharded.isEmpty()) {
+            productJdbcRepository.decrementStock(unsharded).forEach(level -> levels.put(level.productId(), level));
+            unsharded.forEach((productId, quantity) -> {
+                if (!levels.containsKey(productId) && shardedInventory.refresh(productId)) {
+                    decrementSharded(productId, quantity, levels);
+                }
+            });
+        }
 
-        product.setQuantity(product.getQuantity() - quantity);
-        productRepository.save(product);
-        publishProductEvent("InventoryChanged", product);
+        boolean success = levels.size() == requested.size();
+        if (success) {
+            afterCommit(() -> levels.keySet().forEach(productCache::invalidate));
+            levels.values().forEach(level -> {
+                eventPublisher.publish("InventoryChanged",
+                        level.productId(), level.sku(), level.name(), level.quantity());
+                auditService.recordStockChange(level.productId(),
+                        level.quantity() + requested.get(level.productId()), level.quantity());
+                lowStockDetector.record(level);
+            });
+        } else {
+            Set<Long> insufficient = new HashSet<>(requested.keySet());
+            insufficient.removeAll(levels.keySet());
+            Set<Long> existing = productRepository.findAllById(insufficient).stream()
+                    .map(Product::getId)
+                    .collect(Collectors.toSet());
+            insufficient.stream().filter(id -> !existing.contains(id)).findFirst().ifPresent(id -> {
+                throw new RuntimeException("Product not found: " + id);
+            });
+            log.warn("Insufficient stock for products: {}", insufficient);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+
+        List<StockLineDTO> results = requested.entrySet().stream()
+                .map(line -> StockLineDTO.builder()
+                        .productId(line.getKey())
+                        .quantity(line.getValue())
+                        .applied(success)
+                        .remaining(success ? levels.get(line.getKey()).quantity() : null)
+                        .build())
+                .collect(Collectors.toList());
+        return StockUpdateResultDTO.builder().success(success).lines(results).build();
     }
 
-    private void publishProductEvent(String eventType, Product product) {
-        String message = String.format(
-                "{\"eventType\":\"%s\",\"productId\":%d,\"sku\":\"%s\",\"name\":\"%s\",\"quantity\":%d}",
-                eventType, product.getId(), product.getSku(), product.getName(), product.getQuantity());
-        try {
-            kafkaTemplate.send("product-events", product.getId().toString(), message);
-            log.info("Published {} event for product: {}", eventType, product.getId());
-        } catch (Exception e) {
-            log.error("Failed to publish event", e);
+    public void shardStock(Long id, Integer shards) {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found: " + id));
+        if (product.getReservedQuantity() != null && product.getReservedQuantity() > 0) {
+            throw new RuntimeException("Product has active reservations: " + id);
+        }
+        shardedInventory.shard(id, shards);
+        afterCommit(() -> productCache.invalidate(id));
+    }
+
+    public void unshardStock(Long id) {
+        if (!productRepository.existsById(id)) {
+            throw new RuntimeException("Product not found: " + id);
+        }
+        shardedInventory.unshard(id);
+        afterCommit(() -> productCache.invalidate(id));
+    }
+
+    private void decrementSharded(Long productId, int quantity, Map<Long, StockLevel> levels) {
+        if (shardedInventory.decrement(productId, quantity)) {
+            productRepository.findById(productId).ifPresent(product -> levels.put(productId, new StockLevel(
+                    productId, product.getSku(), product.getName(), product.getCategory(),
+                    product.getQuantity() + shardedInventory.shardedQuantity(productId))));
+        } else if (!shardedInventory.isSharded(productId)) {
+            // merged by another instance since the caller checked
+            productJdbcRepository.decrementStock(Map.of(productId, quantity))
+                    .forEach(level -> levels.put(level.productId(), level));
+        }
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    private ProductPageDTO toPage(ProductSort sort, ProductPage page) {
+        return ProductPageDTO.builder()
+                .items(page.items())
+                .nextCursor(PageCursor.encode(sort, page.next()))
+                .build();
+    }
+
+    private ProductDTO toDTO(Product product) {
+        ProductDTO dto = ProductDTO.from(product);
+        if (shardedInventory.isSharded(product.getId())) {
+            dto.setQuantity(product.getQuantity() + shardedInventory.shardedQuantity(product.getId()));
+            dto.setAvailableQuantity(dto.getQuantity() - dto.getReservedQuantity());
         }
+        return dto;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,175 @@
+package com.quickcommerce.product_service.service;
+
+import static com.quickcommerce.product_service.service.TransactionCallbacks.afterCommit;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.quickcommerce.product_service.dto.ReservationDTO;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository;
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.Reservation;
+import com.quickcommerce.product_service.repository.Productrepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Time-bounded stock holds. A reservation raises products.reserved_quantity,
+ * so available stock is read from the product row itself; confirming turns
+ * the hold into a sale and releasing or expiring gives it back.
+ * <p>
+ * Expiry runs on an in-memory {@link TimingWheel} rather than by polling the
+ * reservations table. Active holds are reloaded into the wheel on start-up,
+ * and a slow sweep releases holds whose owning instance went away.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Transactional
+public class ReservationService {
+    private final Productrepository productRepository;
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ShardedInventoryService shardedInventory;
+    private final ProductEventPublisher eventPublisher;
+    private final ProductCache productCache;
+    private final LowStockDetector lowStockDetector;
+    private final Map<Long, TimingWheel.Timeout<Long>> timeouts = new ConcurrentHashMap<>();
+    private TimingWheel<Long> wheel;
+
+    @Value("${product.inventory.reservations.tick-ms:100}")
+    private long tickMs;
+
+    @Value("${product.inventory.reservations.wheel-size:64}")
+    private int wheelSize;
+
+    @Value("${product.inventory.reservations.default-ttl-seconds:900}")
+    private long defaultTtlSeconds;
+
+    @Value("${product.inventory.reservations.max-ttl-seconds:86400}")
+    private long maxTtlSeconds;
+
+    @Value("${product.inventory.reservations.sweep-interval-ms:300000}")
+    private long sweepIntervalMs;
+
+    @PostConstruct
+    void createWheel() {
+        wheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadActiveReservations() {
+        productJdbcRepository.findActiveReservations().forEach(this::schedule);
+        log.info("Scheduled expiry for {} active reservations", timeouts.size());
+    }
+
+    public Optional<ReservationDTO> reserve(Long productId, int quantity, Long ttlSeconds) {
+        log.info("Reserving {} of product {}", quantity, productId);
+        if (quantity <= 0) {
+            throw new RuntimeException("Reservation quantity must be positive: " + quantity);
+        }
+        if (shardedInventory.isSharded(productId)) {
+            throw new RuntimeException("Reservations are not supported for sharded product: " + productId);
+        }
+        long ttl = Math.min(ttlSeconds != null && ttlSeconds > 0 ? ttlSeconds : defaultTtlSeconds, maxTtlSeconds);
+        Optional<Reservation> reservation = productJdbcRepository.reserve(
+                productId, quantity, LocalDateTime.now().plusSeconds(ttl));
+        if (reservation.isEmpty() && !productRepository.existsById(productId)) {
+            throw new RuntimeException("Product not found: " + productId);
+        }
+        reservation.ifPresent(held -> afterCommit(() -> {
+            schedule(held);
+            productCache.invalidate(productId);
+        }));
+        return reservation.map(ReservationDTO::from);
+    }
+
+    public boolean confirm(Long reservationId) {
+        log.info("Confirming reservation: {}", reservationId);
+        return productJdbcRepository.confirmReservation(reservationId)
+                .map(level -> {
+                    afterCommit(() -> {
+                        cancelExpiry(reservationId);
+                        productCache.invalidate(level.productId());
+                    });
+                    eventPublisher.publish("InventoryChanged",
+                            level.productId(), level.sku(), level.name(), level.quantity());
+                    lowStockDetector.record(level);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    public boolean release(Long reservationId) {
+        log.info("Releasing reservation: {}", reservationId);
+        Optional<Long> productId = productJdbcRepository.releaseReservation(reservationId, "RELEASED");
+        productId.ifPresent(id -> afterCommit(() -> {
+            cancelExpiry(reservationId);
+            productCache.invalidate(id);
+        }));
+        return productId.isPresent();
+    }
+
+    @Transactional(readOnly = true)
+    public ReservationDTO getReservation(Long reservationId) {
+        return productJdbcRepository.findReservation(reservationId)
+                .map(ReservationDTO::from)
+                .orElseThrow(() -> new RuntimeException("Reservation not found: " + reservationId));
+    }
+
+    public int activeReservations() {
+        return wheel.size();
+    }
+
+    @Scheduled(fixedRateString = "${product.inventory.reservations.tick-ms:100}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void expireDueReservations() {
+        for (Long reservationId : wheel.advance(System.currentTimeMillis())) {
+            timeouts.remove(reservationId);
+            try {
+                productJdbcRepository.releaseReservation(reservationId, "EXPIRED").ifPresent(productId -> {
+                    productCache.invalidate(productId);
+                    log.debug("Reservation {} expired", reservationId);
+                });
+            } catch (Exception e) {
+                log.error("Failed to expire reservation {}", reservationId, e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.inventory.reservations.sweep-interval-ms:300000}",
+            initialDelayString = "${product.inventory.reservations.sweep-interval-ms:300000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void releaseOrphanedReservations() {
+        int released = productJdbcRepository.releaseOverdueReservations(
+                LocalDateTime.now().minusNanos(sweepIntervalMs * 1_000_000));
+        if (released > 0) {
+            productCache.invalidateAll();
+            log.warn("Released {} overdue reservations missed by the expiry wheel", released);
+        }
+    }
+
+    private void schedule(Reservation reservation) {
+        long expiresAt = reservation.expiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        timeouts.put(reservation.id(), wheel.schedule(reservation.id(), expiresAt));
+    }
+
+    private void cancelExpiry(Long reservationId) {
+        TimingWheel.Timeout<Long> timeout = timeouts.remove(reservationId);
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+}
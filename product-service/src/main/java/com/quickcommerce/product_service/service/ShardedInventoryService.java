@@ -0,0 +1,178 @@
+package com.quickcommerce.product_service.service;
+
+import static com.quickcommerce.product_service.service.TransactionCallbacks.afterCommit;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.quickcommerce.product_service.repository.StockShardRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Optional sharded inventory for flash-sale SKUs. A sharded product keeps its
+ * stock in N sub-counters so concurrent decrements lock different rows;
+ * reads sum the shards. Shards drift apart under load and are evened out
+ * again once a product's decrement rate drops.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ShardedInventoryService {
+
+    private final StockShardRepository stockShardRepository;
+    private final Map<Long, Integer> shardCounts = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> recentDecrements = new ConcurrentHashMap<>();
+    private final Set<Long> unbalanced = ConcurrentHashMap.newKeySet();
+
+    @Value("${product.inventory.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${product.inventory.sharding.default-shards:8}")
+    private int defaultShards = 8;
+
+    @Value("${product.inventory.sharding.neighbour-probes:2}")
+    private int neighbourProbes = 2;
+
+    @Value("${product.inventory.sharding.idle-decrements:10}")
+    private long idleDecrements = 10;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadShardedProducts() {
+        if (enabled) {
+            shardCounts.putAll(stockShardRepository.shardCounts());
+            log.info("Loaded {} sharded products", shardCounts.size());
+        }
+    }
+
+    public boolean isSharded(Long productId) {
+        return enabled && shardCounts.containsKey(productId);
+    }
+
+    /** Re-reads the shard count of a product another instance may have sharded. */
+    public boolean refresh(Long productId) {
+        if (!enabled) {
+            return false;
+        }
+        int shards = stockShardRepository.shardCount(productId);
+        if (shards > 0) {
+            shardCounts.put(productId, shards);
+        } else {
+            shardCounts.remove(productId);
+        }
+        return shards > 0;
+    }
+
+    @Transactional
+    public void shard(Long productId, Integer shardCount) {
+        int shards = shardCount != null ? shardCount : defaultShards;
+        if (!enabled) {
+            throw new RuntimeException("Sharded inventory is disabled");
+        }
+        if (shards < 1) {
+            throw new RuntimeException("Shard count must be positive: " + shards);
+        }
+        log.info("Sharding stock of product {} into {} counters", productId, shards);
+        stockShardRepository.merge(productId);
+        stockShardRepository.split(productId, shards);
+        afterCommit(() -> shardCounts.put(productId, shards));
+    }
+
+    @Transactional
+    public void unshard(Long productId) {
+        log.info("Merging stock shards of product {}", productId);
+        stockShardRepository.merge(productId);
+        afterCommit(() -> forget(productId));
+    }
+
+    /**
+     * Replaces the sharded stock of a product with a new total, keeping its
+     * shard count. Returns false, changing nothing, if the product is no
+     * longer sharded.
+     */
+    public boolean resetQuantity(Long productId, int total) {
+        int shards = shardCount(productId);
+        if (shards == 0) {
+            return false;
+        }
+        stockShardRepository.replace(productId, shards, Math.max(0, total));
+        return true;
+    }
+
+    public void forget(Long productId) {
+        shardCounts.remove(productId);
+        recentDecrements.remove(productId);
+        unbalanced.remove(productId);
+    }
+
+    /**
+     * Takes the quantity from a random shard, then from its neighbours, and
+     * only when they are all short from the shards combined.
+     */
+    public boolean decrement(Long productId, int quantity) {
+        int shards = shardCount(productId);
+        if (shards == 0) {
+            return false;
+        }
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        int probes = Math.min(shards, neighbourProbes + 1);
+        boolean decremented = false;
+        for (int i = 0; i < probes && !decremented; i++) {
+            decremented = stockShardRepository.decrementShard(productId, (start + i) % shards, quantity);
+        }
+        if (!decremented) {
+            decremented = stockShardRepository.decrementAcrossShards(productId, quantity);
+        }
+        if (decremented) {
+            recentDecrements.computeIfAbsent(productId, id -> new LongAdder()).increment();
+            unbalanced.add(productId);
+        }
+        return decremented;
+    }
+
+    /**
+     * The cached shard count. A rebalance may drop the entry between a
+     * caller's {@link #isSharded} check and its use, so a missing entry is
+     * re-read and put back rather than unboxed; zero means not sharded.
+     */
+    private int shardCount(Long productId) {
+        Integer cached = shardCounts.get(productId);
+        if (cached != null) {
+            return cached;
+        }
+        return refresh(productId) ? shardCounts.getOrDefault(productId, 0) : 0;
+    }
+
+    public int shardedQuantity(Long productId) {
+        return isSharded(productId) ? stockShardRepository.total(productId) : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${product.inventory.sharding.rebalance-interval-ms:10000}")
+    public void rebalanceIdleProducts() {
+        if (!enabled) {
+            return;
+        }
+        for (Long productId : unbalanced) {
+            LongAdder decrements = recentDecrements.remove(productId);
+            if (decrements == null || decrements.sum() < idleDecrements) {
+                stockShardRepository.rebalance(productId);
+                unbalanced.remove(productId);
+                log.debug("Rebalanced stock shards of product {}", productId);
+            }
+        }
+        Map<Long, Integer> current = stockShardRepository.shardCounts();
+        shardCounts.keySet().retainAll(current.keySet());
+        shardCounts.putAll(current);
+    }
+}
@@ -0,0 +1,188 @@
+package com.quickcommerce.product_service.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Scheduling and cancelling are O(1); each level
+ * covers {@code wheelSize} times the span of the level below it, and entries
+ * cascade down one level at a time as their expiry comes into range, so
+ * expiring an entry costs O(1) amortised however many are pending.
+ * <p>
+ * The wheel does not keep time itself: callers drive it with
+ * {@link #advance(long)}, which returns every payload that has come due.
+ */
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final Level root;
+    private final List<T> due = new ArrayList<>();
+    private int size;
+
+    TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.root = new Level(tickMs, wheelSize, startMs);
+    }
+
+    /** Schedules a payload to come due on the first tick at or after {@code expiresAtMs}. */
+    synchronized Timeout<T> schedule(T payload, long expiresAtMs) {
+        Timeout<T> timeout = new Timeout<>(payload, expiresAtMs, expiresAtMs + tickMs - 1);
+        if (!root.add(timeout)) {
+            due.add(payload);
+        } else {
+            size++;
+        }
+        return timeout;
+    }
+
+    synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+        return true;
+    }
+
+    synchronized List<T> advance(long nowMs) {
+        root.advanceTo(nowMs);
+        List<T> expired = new ArrayList<>(due);
+        due.clear();
+        return expired;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    static final class Timeout<T> {
+        private final T payload;
+        private final long expiresAtMs;
+        private final long deadlineMs;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T payload, long expiresAtMs, long deadlineMs) {
+            this.payload = payload;
+            this.expiresAtMs = expiresAtMs;
+            this.deadlineMs = deadlineMs;
+        }
+
+        T payload() {
+            return payload;
+        }
+
+        long expiresAtMs() {
+            return expiresAtMs;
+        }
+    }
+
+    private final class Level {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long intervalMs;
+        private final List<Bucket<T>> buckets;
+        private long currentTimeMs;
+        private Level overflow;
+
+        Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.intervalMs = tickMs * wheelSize;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new Bucket<>());
+            }
+            this.currentTimeMs = startMs - (startMs % tickMs);
+        }
+
+        /** Returns false when the timeout is already due. */
+        boolean add(Timeout<T> timeout) {
+            long deadline = timeout.deadlineMs;
+            if (deadline < currentTimeMs + tickMs) {
+                return false;
+            }
+            if (deadline < currentTimeMs + intervalMs) {
+                buckets.get((int) ((deadline / tickMs) % wheelSize)).add(timeout);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(intervalMs, wheelSize, currentTimeMs);
+            }
+            return overflow.add(timeout);
+        }
+
+        void advanceTo(long nowMs) {
+            long target = nowMs - (nowMs % tickMs);
+            if (target > currentTimeMs) {
+                long ticks = (target - currentTimeMs) / tickMs;
+                if (ticks >= wheelSize) {
+                    currentTimeMs = target;
+                    for (Bucket<T> bucket : buckets) {
+                        flush(bucket);
+                    }
+                } else {
+                    for (long i = 0; i < ticks; i++) {
+                        currentTimeMs += tickMs;
+                        flush(buckets.get((int) ((currentTimeMs / tickMs) % wheelSize)));
+                    }
+                }
+            }
+            if (overflow != null) {
+                overflow.advanceTo(nowMs);
+            }
+        }
+
+        private void flush(Bucket<T> bucket) {
+            for (Timeout<T> timeout = bucket.drain(); timeout != null;) {
+                Timeout<T> next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                if (!root.add(timeout)) {
+                    size--;
+                    due.add(timeout.payload);
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /** Detaches and returns the whole chain. */
+        Timeout<T> drain() {
+            Timeout<T> chain = head;
+            head = null;
+            for (Timeout<T> timeout = chain; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+            }
+            return chain;
+        }
+    }
+}
@@ -0,0 +1,3 @@
+-- Ids are handed out in blocks of 50 ending at each nextval, by Hibernate and by the bulk import alike.
+-- A fresh sequence would first return 1, whose block would start below 1, so start it past the first block.
+SELECT setval('product_sequence', GREATEST(50, (SELECT last_value FROM product_sequence)));
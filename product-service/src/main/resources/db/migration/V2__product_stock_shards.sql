@@ -0,0 +1,7 @@
+-- Sub-counters for hot SKUs; a sharded product's stock is products.quantity plus the sum of its shards
+CREATE TABLE product_stock_shards (
+    product_id BIGINT NOT NULL REFERENCES products (id) ON DELETE CASCADE,
+    shard INTEGER NOT NULL,
+    quantity INTEGER NOT NULL DEFAULT 0 CHECK (quantity >= 0),
+    PRIMARY KEY (product_id, shard)
+);
@@ -0,0 +1,17 @@
+-- Stock held by unexpired reservations; available stock is quantity - reserved_quantity
+ALTER TABLE products ADD COLUMN reserved_quantity INTEGER NOT NULL DEFAULT 0;
+
+-- Create stock reservations table
+CREATE TABLE stock_reservations (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL REFERENCES products (id) ON DELETE CASCADE,
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    status VARCHAR(50) NOT NULL DEFAULT 'ACTIVE',
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_stock_reservations_product_id ON stock_reservations (product_id);
+
+CREATE INDEX idx_stock_reservations_active_expires_at ON stock_reservations (expires_at) WHERE status = 'ACTIVE';
@@ -0,0 +1,14 @@
+-- Composite indexes for keyset pagination; each ends in id so (sort key, id) seeks land on one entry
+CREATE INDEX idx_products_category_created_at ON products (category, created_at, id);
+
+CREATE INDEX idx_products_category_price ON products (category, price, id);
+
+CREATE INDEX idx_products_category_name ON products (category, name, id);
+
+CREATE INDEX idx_products_status_created_at ON products (status, created_at, id);
+
+CREATE INDEX idx_products_status_price ON products (status, price, id);
+
+CREATE INDEX idx_products_status_name ON products (status, name, id);
+
+CREATE INDEX idx_products_quantity ON products (quantity, id);
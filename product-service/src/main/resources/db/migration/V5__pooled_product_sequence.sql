@@ -0,0 +1,2 @@
+-- Hibernate now takes product ids 50 at a time (pooled optimizer); the increment must match allocationSize
+ALTER SEQUENCE product_sequence INCREMENT BY 50;
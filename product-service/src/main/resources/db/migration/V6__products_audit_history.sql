@@ -0,0 +1,14 @@
+-- Audit rows outlive the product they describe, so they cannot reference it
+ALTER TABLE products_audit DROP CONSTRAINT IF EXISTS products_audit_product_id_fkey;
+
+-- Own id sequence rather than sharing product_sequence, which now hands out blocks of 50
+CREATE SEQUENCE products_audit_sequence START WITH 1 INCREMENT BY 1 OWNED BY products_audit.id;
+
+SELECT setval('products_audit_sequence', COALESCE((SELECT MAX(id) FROM products_audit), 0) + 1, false);
+
+ALTER TABLE products_audit ALTER COLUMN id SET DEFAULT nextval('products_audit_sequence');
+
+-- History is paged per product, newest first
+CREATE INDEX idx_products_audit_product_changed_at ON products_audit (product_id, changed_at, id);
+
+DROP INDEX idx_products_audit_product_id;
@@ -0,0 +1,5 @@
+-- A null payload is relayed as a tombstone, which removes the key from a
+-- compacted topic
+ALTER TABLE outbox_events ALTER COLUMN payload DROP NOT NULL;
+
+ALTER TABLE outbox_parked_events ALTER COLUMN payload DROP NOT NULL;
@@ -0,0 +1,178 @@
+package com.quickcommerce.product_service.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.quickcommerce.product_service.dto.ProductDTO;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Peak heap of the cursor-backed NDJSON export against building the whole
+ * catalog as a list and serializing it, as {@code GET /products} does. Seeds
+ * a million products, so it only runs with
+ * {@code -Dbenchmark=true -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_product}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class ProductExportHeapTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int FETCH_SIZE = 500;
+    private static final String SKU_PREFIX = "EXPORT-" + System.nanoTime() + "-";
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate readOnly;
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @BeforeAll
+    static void seed() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+        jdbcTemplate.update("""
+                INSERT INTO products (sku, name, description, price, quantity, category)
+                SELECT ? || g, 'Export product ' || g, 'Seeded for the export heap test', 9.99, g % 100, 'Export'
+                FROM generate_series(1, ?) AS g
+                """, SKU_PREFIX, ROWS);
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        jdbcTemplate.update("DELETE FROM products WHERE sku LIKE ?", SKU_PREFIX + "%");
+        dataSource.close();
+    }
+
+    @Test
+    void streamingExportKeepsHeapFlat() throws Exception {
+        ProductJdbcRepository repository = new ProductJdbcRepository(jdbcTemplate);
+        ObjectWriter rowWriter = objectMapper.writerFor(ProductDTO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        CountingOutputStream materializedOut = new CountingOutputStream();
+        long materializedPeak = peakHeapDuring(() -> readOnly.executeWithoutResult(status -> {
+            List<ProductDTO> products = new ArrayList<>();
+            repository.streamProducts(FETCH_SIZE, products::add);
+            write(() -> objectMapper.writeValue(materializedOut, products));
+        }));
+
+        CountingOutputStream streamedOut = new CountingOutputStream();
+        AtomicLong rows = new AtomicLong();
+        long streamingPeak = peakHeapDuring(() -> readOnly.executeWithoutResult(status ->
+                repository.streamProducts(FETCH_SIZE, product -> write(() -> {
+                    rowWriter.writeValue(streamedOut, product);
+                    streamedOut.write('\n');
+                    rows.incrementAndGet();
+                }))));
+
+        System.out.printf("materialized list: peak +%d MB for %d bytes%n", materializedPeak >> 20, materializedOut.count);
+        System.out.printf("streamed ndjson:   peak +%d MB for %d bytes, %d rows%n",
+                streamingPeak >> 20, streamedOut.count, rows.get());
+        assertTrue(rows.get() >= ROWS);
+        assertEquals(rows.get(), streamedOut.newlines);
+        assertTrue(streamingPeak * 4 < materializedPeak,
+                "streaming peak " + streamingPeak + " vs materialized " + materializedPeak);
+    }
+
+    /**
+     * Samples the heap left live after each collection while {@code action}
+     * runs, and returns the peak above the starting level. Garbage that a
+     * young collection would reclaim does not count.
+     */
+    private static long peakHeapDuring(Runnable action) throws InterruptedException {
+        System.gc();
+        long baseline = liveHeap();
+        AtomicLong peak = new AtomicLong(baseline);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(liveHeap(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        try {
+            action.run();
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+        return peak.get() - baseline;
+    }
+
+    private static long liveHeap() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null) {
+                used += pool.getCollectionUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static void write(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+        private long newlines;
+
+        @Override
+        public void write(int b) {
+            count++;
+            if (b == '\n') {
+                newlines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
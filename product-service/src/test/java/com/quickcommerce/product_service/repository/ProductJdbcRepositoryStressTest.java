@@ -0,0 +1,127 @@
+package com.quickcommerce.product_service.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Hammers one hot SKU from hundreds of threads. Needs a migrated product
+ * database, e.g. the docker-compose one:
+ * {@code -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_product}.
+ */
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class ProductJdbcRepositoryStressTest {
+
+    private static final int THREADS = 300;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+    private static final int INITIAL_STOCK = 1_000;
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void connect() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(10);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void close() {
+        dataSource.close();
+    }
+
+    @Test
+    void conditionalDecrementNeverOversells() throws InterruptedException {
+        ProductJdbcRepository repository = new ProductJdbcRepository(jdbcTemplate);
+        long productId = createHotProduct();
+        AtomicInteger sold = new AtomicInteger();
+
+        long elapsed = hammer(() -> {
+            if (!repository.decrementStock(Map.of(productId, 1)).isEmpty()) {
+                sold.incrementAndGet();
+            }
+        });
+
+        int remaining = quantity(productId);
+        System.out.printf("conditional UPDATE: %d decrements in %dms (%.0f/s), sold=%d remaining=%d%n",
+                THREADS * ATTEMPTS_PER_THREAD, elapsed, THREADS * ATTEMPTS_PER_THREAD * 1000.0 / elapsed,
+                sold.get(), remaining);
+        assertEquals(INITIAL_STOCK, sold.get());
+        assertEquals(0, remaining);
+        deleteProduct(productId);
+    }
+
+    @Test
+    void loadModifySaveLosesUpdates() throws InterruptedException {
+        long productId = createHotProduct();
+        AtomicInteger sold = new AtomicInteger();
+
+        long elapsed = hammer(() -> {
+            int current = quantity(productId);
+            if (current >= 1) {
+                jdbcTemplate.update("UPDATE products SET quantity = ? WHERE id = ?", current - 1, productId);
+                sold.incrementAndGet();
+            }
+        });
+
+        int remaining = quantity(productId);
+        System.out.printf("load-modify-save: %d decrements in %dms (%.0f/s), sold=%d remaining=%d%n",
+                THREADS * ATTEMPTS_PER_THREAD, elapsed, THREADS * ATTEMPTS_PER_THREAD * 1000.0 / elapsed,
+                sold.get(), remaining);
+        assertTrue(sold.get() > INITIAL_STOCK - remaining,
+                "expected overwritten decrements: sold " + sold.get() + " but stock only fell by "
+                        + (INITIAL_STOCK - remaining));
+        deleteProduct(productId);
+    }
+
+    private static long hammer(Runnable attempt) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    attempt.run();
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
+    private static long createHotProduct() {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO products (sku, name, price, quantity, category) VALUES (?, 'Hot SKU', 1, ?, 'Test') RETURNING id",
+                Long.class, "HOT-" + System.nanoTime(), INITIAL_STOCK);
+    }
+
+    private static int quantity(long productId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private static void deleteProduct(long productId) {
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", productId);
+    }
+}
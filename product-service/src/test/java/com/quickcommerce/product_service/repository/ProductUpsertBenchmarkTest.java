@@ -0,0 +1,83 @@
+package com.quickcommerce.product_service.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.quickcommerce.product_service.dto.ProductDTO;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Bulk import write path: a million SKUs upserted in batches, then the same
+ * SKUs again as updates, which must use up no ids. Runs with
+ * {@code -Dbenchmark=true -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_product}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class ProductUpsertBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int BATCH = 1_000;
+    private static final String SKU_PREFIX = "IMPORT-" + System.nanoTime() + "-";
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void connect() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        jdbcTemplate.update("DELETE FROM products WHERE sku LIKE ?", SKU_PREFIX + "%");
+        dataSource.close();
+    }
+
+    @Test
+    void upsertsAMillionProducts() {
+        ProductJdbcRepository repository = new ProductJdbcRepository(jdbcTemplate);
+        for (boolean firstPass : new boolean[] { true, false }) {
+            long inserted = 0;
+            long sequenceBefore = sequenceValue();
+            long begin = System.nanoTime();
+            for (int start = 0; start < ROWS; start += BATCH) {
+                List<ProductDTO> batch = new ArrayList<>(BATCH);
+                for (int i = start; i < start + BATCH; i++) {
+                    batch.add(ProductDTO.builder()
+                            .sku(SKU_PREFIX + i)
+                            .name("Imported product " + i)
+                            .description("Supplier catalog row " + i)
+                            .price(BigDecimal.valueOf(i % 10_000, 2))
+                            .quantity(i % 500)
+                            .category("Import " + (i % 50))
+                            .build());
+                }
+                inserted += repository.upsertProducts(batch).stream().filter(ProductJdbcRepository.UpsertedProduct::inserted).count();
+            }
+            long elapsedMs = Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+            System.out.printf("%s: %d rows in %dms (%.0f rows/s)%n", firstPass ? "insert" : "update",
+                    ROWS, elapsedMs, ROWS * 1000.0 / elapsedMs);
+            assertEquals(firstPass ? ROWS : 0, inserted);
+            // one 50-id block per 50 new SKUs, and none for updates
+            assertEquals(firstPass ? ROWS : 0, sequenceValue() - sequenceBefore);
+        }
+    }
+
+    private static long sequenceValue() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM product_sequence", Long.class);
+    }
+}
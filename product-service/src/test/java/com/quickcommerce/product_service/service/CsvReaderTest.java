@@ -0,0 +1,31 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CsvReaderTest {
+
+    @Test
+    void readsQuotedFieldsWithCommasQuotesAndLineBreaks() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(
+                "sku,name,description\r\nA-1,\"Cable, USB-C\",\"2m \"\"braided\"\"\nblack\"\n\nB-2,Plug,\n"));
+
+        assertEquals(List.of("sku", "name", "description"), csv.next());
+        assertEquals(List.of("A-1", "Cable, USB-C", "2m \"braided\"\nblack"), csv.next());
+        assertEquals(List.of("B-2", "Plug", ""), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void lastRecordNeedNotEndWithNewline() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("A-1,1.50"));
+        assertEquals(List.of("A-1", "1.50"), csv.next());
+        assertNull(csv.next());
+    }
+}
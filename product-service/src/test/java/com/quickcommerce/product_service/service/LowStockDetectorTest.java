@@ -0,0 +1,69 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.quickcommerce.product_service.service.LowStockDetector.LowStockEntry;
+
+class LowStockDetectorTest {
+
+    private final ProductEventPublisher publisher = mock(ProductEventPublisher.class);
+    private final LowStockDetector detector = new LowStockDetector(null, publisher, 10, "Grocery:50, Electronics:5");
+
+    @Test
+    void publishesOnlyWhenAThresholdIsCrossed() {
+        detector.record(1L, "MILK", "Milk", "Grocery", 60);
+        detector.record(1L, "MILK", "Milk", "Grocery", 40);
+        detector.record(1L, "MILK", "Milk", "Grocery", 30);
+        detector.record(1L, "MILK", "Milk", "Grocery", 55);
+
+        verify(publisher).publishStockAlert(eq("LowStock"), any());
+        verify(publisher).publishStockAlert(eq("LowStockCleared"), any());
+        verifyNoMoreInteractions(publisher);
+    }
+
+    @Test
+    void appliesPerCategoryThresholds() {
+        detector.record(1L, "PHONE", "Phone", "Electronics", 7);
+        detector.record(2L, "BREAD", "Bread", "Grocery", 7);
+        detector.record(3L, "PEN", "Pen", "Stationery", 7);
+
+        assertEquals(List.of(2L, 3L), ids(detector.page(null, null, 10)));
+        verify(publisher, times(2)).publishStockAlert(eq("LowStock"), any());
+    }
+
+    @Test
+    void pagesInQuantityOrderFromAKeyset() {
+        for (long id = 1; id <= 6; id++) {
+            detector.record(id, "SKU-" + id, "Product " + id, "Stationery", (int) (10 - id) / 2);
+        }
+        List<LowStockEntry> first = detector.page(null, null, 4);
+        assertEquals(List.of(5L, 6L, 3L, 4L), ids(first));
+        LowStockEntry last = first.get(3);
+        assertEquals(List.of(1L, 2L), ids(detector.page(last.quantity(), last.productId(), 4)));
+    }
+
+    @Test
+    void followsRemoteChanges() {
+        detector.applyRemote(new LowStockEntry(9L, "TEA", "Tea", "Grocery", 20, 50), true);
+        detector.updateIfTracked(9L, 12);
+        assertEquals(12, detector.page(null, null, 1).get(0).quantity());
+
+        detector.updateIfTracked(9L, 80);
+        assertEquals(0, detector.size());
+        verifyNoMoreInteractions(publisher);
+    }
+
+    private static List<Long> ids(List<LowStockEntry> entries) {
+        return entries.stream().map(LowStockEntry::productId).toList();
+    }
+}
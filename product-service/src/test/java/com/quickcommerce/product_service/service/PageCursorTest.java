@@ -0,0 +1,33 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.quickcommerce.product_service.repository.ProductJdbcRepository.Keyset;
+import com.quickcommerce.product_service.repository.ProductSort;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripsKeysWithSeparators() {
+        Keyset keyset = new Keyset(42, "Cable: USB-C: 2m");
+        String token = PageCursor.encode(ProductSort.NAME, keyset);
+        assertEquals(keyset, PageCursor.decode(ProductSort.NAME, token));
+    }
+
+    @Test
+    void missingCursorMeansFirstPage() {
+        assertNull(PageCursor.encode(ProductSort.PRICE, null));
+        assertNull(PageCursor.decode(ProductSort.PRICE, null));
+    }
+
+    @Test
+    void rejectsTokensForAnotherSortOrGarbage() {
+        String token = PageCursor.encode(ProductSort.PRICE, new Keyset(7, "19.99"));
+        assertThrows(RuntimeException.class, () -> PageCursor.decode(ProductSort.NAME, token));
+        assertThrows(RuntimeException.class, () -> PageCursor.decode(ProductSort.PRICE, "not a cursor!"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.product_service.dto.ProductDTO;
+import com.quickcommerce.product_service.repository.ProductAuditRepository;
+import com.quickcommerce.product_service.repository.ProductAuditRepository.AuditEntry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProductAuditServiceTest {
+
+    private final List<List<AuditEntry>> batches = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProductAuditService audit = new ProductAuditService(new ProductAuditRepository(null) {
+        @Override
+        public int insertBatch(List<AuditEntry> entries) {
+            batches.add(List.copyOf(entries));
+            return entries.size();
+        }
+    }, new ObjectMapper(), registry, true, 1024, 100, 10, 1000);
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        audit.stop();
+    }
+
+    @Test
+    void recordsOnlyChangedFields() throws InterruptedException {
+        audit.start();
+        ProductDTO before = product("999.99", 50);
+        ProductDTO after = product("949.990", 50);
+        after.setName("Dell XPS 13 (2024)");
+
+        audit.record(1L, "UPDATED", before, after);
+        audit.record(1L, "UPDATED", before, product("999.990", 50));
+
+        AuditEntry entry = awaitEntries(1).get(0);
+        assertEquals("UPDATED", entry.action());
+        assertEquals("{\"name\":\"Dell XPS 13\",\"price\":999.99}", entry.oldValues());
+        assertEquals("{\"name\":\"Dell XPS 13 (2024)\",\"price\":949.99}", entry.newValues());
+    }
+
+    @Test
+    void batchesEntriesAndCountsThem() throws InterruptedException {
+        for (int i = 0; i < 250; i++) {
+            audit.recordStockChange((long) i, 10, 9);
+        }
+        audit.record(7L, "CREATED", null, product("1.00", 1));
+        audit.start();
+
+        List<AuditEntry> entries = awaitEntries(251);
+        assertTrue(batches.size() <= 3, "expected multi-row batches, got " + batches.size());
+        assertNull(entries.get(250).oldValues());
+        assertEquals(251.0, registry.get("product.audit.entries").tag("outcome", "written").counter().count());
+    }
+
+    private List<AuditEntry> awaitEntries(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batches.stream().mapToInt(List::size).sum() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        List<AuditEntry> entries = batches.stream().flatMap(List::stream).toList();
+        assertEquals(expected, entries.size());
+        return entries;
+    }
+
+    private static ProductDTO product(String price, int quantity) {
+        return ProductDTO.builder()
+                .sku("LAPTOP-001")
+                .name("Dell XPS 13")
+                .price(new BigDecimal(price))
+                .quantity(quantity)
+                .category("Electronics")
+                .status("ACTIVE")
+                .build();
+    }
+}
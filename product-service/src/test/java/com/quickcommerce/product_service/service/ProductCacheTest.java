@@ -0,0 +1,74 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.quickcommerce.product_service.dto.ProductDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProductCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProductCache cache = new ProductCache(true, 100, 300, registry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ProductDTO load(Long id) {
+        loads.incrementAndGet();
+        return ProductDTO.builder().id(id).sku("SKU-" + id).name("Product " + id).build();
+    }
+
+    @Test
+    void idAndSkuLookupsShareOneEntry() {
+        ProductDTO byId = cache.getById(1L, this::load);
+        ProductDTO bySku = cache.getBySku("SKU-1", sku -> load(1L));
+
+        assertEquals(byId, bySku);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void callersCannotChangeTheCachedProduct() {
+        ProductDTO first = cache.getById(5L, this::load);
+        first.setName("changed by caller");
+        ProductDTO second = cache.getBySku("SKU-5", sku -> load(5L));
+
+        assertNotSame(first, second);
+        assertEquals("Product 5", second.getName());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidationDropsBothKeys() {
+        cache.getBySku("SKU-2", sku -> load(2L));
+        cache.invalidate(2L);
+
+        cache.getBySku("SKU-2", sku -> load(2L));
+        cache.getById(2L, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        ProductCache disabled = new ProductCache(false, 100, 300, new SimpleMeterRegistry());
+        disabled.getById(3L, this::load);
+        disabled.getById(3L, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void exposesHitAndMissMetrics() {
+        cache.getById(4L, this::load);
+        cache.getById(4L, this::load);
+
+        assertNotNull(registry.find("cache.gets").tag("cache", "products").tag("result", "hit").functionCounter());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+}
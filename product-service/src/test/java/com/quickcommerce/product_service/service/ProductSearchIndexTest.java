@@ -0,0 +1,152 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.quickcommerce.product_service.entity.Product;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.rebuild(() -> List.of(
+                product(1L, "Dell XPS 13", "High-performance ultrabook", "Electronics"),
+                product(2L, "iPhone 14", "Latest Apple smartphone", "Electronics"),
+                product(3L, "Samsung Galaxy S23", "Premium Android phone", "Electronics"),
+                product(4L, "Phone Case", "Protective case for your phone", "Accessories")));
+    }
+
+    @Test
+    void findsInfixMatchesLikeTheLikeQuery() {
+        assertEquals(Set.of(2L, 3L, 4L), Set.copyOf(index.search("hone", null, 10)));
+        assertEquals(List.of(1L), index.search("xp", null, 10));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        assertEquals(4L, index.search("phone", null, 10).get(0));
+    }
+
+    @Test
+    void matchesTheKeywordAsOnePhraseAndAppliesCategoryAndLimit() {
+        assertEquals(List.of(4L), index.search("phone case", null, 10));
+        assertEquals(List.of(1L), index.search("Performance Ultra", null, 10));
+        assertTrue(index.search("case phone", null, 10).isEmpty());
+        assertEquals(List.of(4L), index.search("phone", "Accessories", 10));
+        assertEquals(1, index.search(null, "Electronics", 1).size());
+        assertTrue(index.search(null, null, 0).isEmpty());
+    }
+
+    @Test
+    void doesNotMatchTheKeywordAgainstTheCategory() {
+        assertTrue(index.search("electronics", null, 10).isEmpty());
+        assertEquals(Set.of(1L, 2L, 3L, 4L), Set.copyOf(index.search(null, null, 10)));
+    }
+
+    @Test
+    void keepsUpdatesMadeWhileTheSnapshotIsLoading() throws InterruptedException {
+        Thread writer = new Thread(() -> index.index(product(9L, "Kindle", "E-reader", "Electronics")));
+        index.rebuild(() -> {
+            writer.start();
+            while (writer.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+            return List.of(product(1L, "Dell XPS 13", "High-performance ultrabook", "Electronics"));
+        });
+        writer.join();
+
+        assertEquals(List.of(9L), index.search("kindle", null, 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void staysCurrentOnUpdateAndDelete() {
+        index.index(product(1L, "Dell Latitude", "Business laptop", "Electronics"));
+        assertTrue(index.search("xps", null, 10).isEmpty());
+        assertEquals(List.of(1L), index.search("latitude", null, 10));
+
+        index.remove(1L);
+        assertTrue(index.search("latitude", null, 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void skipsInactiveProducts() {
+        Product discontinued = product(5L, "Nokia 3310", "Classic phone", "Electronics");
+        discontinued.setStatus(Product.ProductStatus.DISCONTINUED);
+        index.index(discontinued);
+        assertTrue(index.search("nokia", null, 10).isEmpty());
+    }
+
+    /**
+     * Run with {@code -Dbenchmark=true}. Compares the index with a linear
+     * scan that mirrors the {@code LOWER(..) LIKE '%kw%'} JPQL predicate;
+     * the scan runs in memory, so it is a lower bound for the database query.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAgainstLinearLikeScan() {
+        String[] vocabulary = { "laptop", "phone", "tablet", "camera", "charger", "cable", "speaker",
+                "monitor", "keyboard", "mouse", "router", "watch", "headset", "printer", "drive" };
+        String[] keywords = { "lapt", "cam", "xyz", "boar", "4711", "router 42" };
+        String sizes = System.getProperty("benchmark.sizes", "10000,100000,1000000");
+        for (String sizeValue : sizes.split(",")) {
+            int size = Integer.parseInt(sizeValue.trim());
+            Random random = new Random(size);
+            List<Product> catalog = new ArrayList<>(size);
+            for (long id = 1; id <= size; id++) {
+                String name = vocabulary[random.nextInt(vocabulary.length)] + " model " + random.nextInt(100_000);
+                String description = vocabulary[random.nextInt(vocabulary.length)] + " compatible accessory";
+                catalog.add(product(id, name, description, "Category" + random.nextInt(20)));
+            }
+            index.rebuild(() -> catalog);
+
+            for (String keyword : keywords) {
+                String phrase = keyword.toLowerCase(Locale.ROOT);
+                long start = System.nanoTime();
+                index.search(keyword, null, 50);
+                long indexNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Set<Long> scanned = catalog.stream()
+                        .filter(p -> p.getName().toLowerCase(Locale.ROOT).contains(phrase)
+                                || p.getDescription().toLowerCase(Locale.ROOT).contains(phrase))
+                        .map(Product::getId)
+                        .collect(Collectors.toSet());
+                long scanNanos = System.nanoTime() - start;
+
+                assertEquals(scanned, Set.copyOf(index.search(keyword, null, Integer.MAX_VALUE)));
+                System.out.printf("catalog=%d keyword='%s' matches=%d index=%.2fms scan=%.2fms%n",
+                        size, keyword, scanned.size(), indexNanos / 1e6, scanNanos / 1e6);
+            }
+        }
+    }
+
+    private static Product product(Long id, String name, String description, String category) {
+        return Product.builder()
+                .id(id)
+                .sku("SKU-" + id)
+                .name(name)
+                .description(description)
+                .category(category)
+                .price(BigDecimal.TEN)
+                .quantity(10)
+                .status(Product.ProductStatus.ACTIVE)
+                .build();
+    }
+}
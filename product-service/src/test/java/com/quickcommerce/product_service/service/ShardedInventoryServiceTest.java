@@ -0,0 +1,57 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.quickcommerce.product_service.repository.StockShardRepository;
+
+class ShardedInventoryServiceTest {
+
+    private StockShardRepository repository;
+    private ShardedInventoryService inventory;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(StockShardRepository.class);
+        inventory = new ShardedInventoryService(repository);
+        ReflectionTestUtils.setField(inventory, "enabled", true);
+        when(repository.shardCounts()).thenReturn(Map.of(1L, 4));
+        inventory.loadShardedProducts();
+    }
+
+    @Test
+    void decrementRereadsAShardCountDroppedByARebalance() {
+        assertTrue(inventory.isSharded(1L));
+        when(repository.shardCounts()).thenReturn(Map.of());
+        inventory.rebalanceIdleProducts();
+        when(repository.shardCount(1L)).thenReturn(4);
+        when(repository.decrementShard(eq(1L), anyInt(), eq(2))).thenReturn(true);
+
+        assertTrue(inventory.decrement(1L, 2));
+        assertTrue(inventory.isSharded(1L));
+    }
+
+    @Test
+    void decrementAndResetLeaveAProductMergedMeanwhileAlone() {
+        when(repository.shardCounts()).thenReturn(Map.of());
+        inventory.rebalanceIdleProducts();
+
+        assertFalse(inventory.decrement(1L, 2));
+        assertFalse(inventory.resetQuantity(1L, 10));
+        verify(repository, never()).decrementShard(anyLong(), anyInt(), anyInt());
+        verify(repository, never()).replace(anyLong(), anyInt(), anyInt());
+    }
+}
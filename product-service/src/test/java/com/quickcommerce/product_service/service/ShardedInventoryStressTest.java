@@ -0,0 +1,97 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.quickcommerce.product_service.repository.StockShardRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Decrement throughput on a single SKU as the shard count grows. Needs a
+ * migrated product database, e.g.
+ * {@code -Dit.datasource.url=jdbc:postgresql://localhost:5432/quickcommerce_product}.
+ */
+@EnabledIfSystemProperty(named = "it.datasource.url", matches = ".+")
+class ShardedInventoryStressTest {
+
+    private static final int THREADS = 200;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+    private static final int INITIAL_STOCK = THREADS * ATTEMPTS_PER_THREAD * 4 / 5;
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void connect() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("it.datasource.url"));
+        dataSource.setUsername(System.getProperty("it.datasource.username", "quickcommerce_user"));
+        dataSource.setPassword(System.getProperty("it.datasource.password", "quickcommerce_pass123"));
+        dataSource.setMaximumPoolSize(10);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void close() {
+        dataSource.close();
+    }
+
+    @Test
+    void throughputGrowsWithShardCountWithoutOverselling() throws InterruptedException {
+        StockShardRepository repository = new StockShardRepository(jdbcTemplate);
+        ShardedInventoryService inventory = new ShardedInventoryService(repository);
+        ReflectionTestUtils.setField(inventory, "enabled", true);
+
+        for (int shards : new int[] { 1, 2, 4, 8, 16 }) {
+            long productId = jdbcTemplate.queryForObject(
+                    "INSERT INTO products (sku, name, price, quantity, category) VALUES (?, 'Hot SKU', 1, ?, 'Test') RETURNING id",
+                    Long.class, "HOT-" + System.nanoTime(), INITIAL_STOCK);
+            inventory.shard(productId, shards);
+            AtomicInteger sold = new AtomicInteger();
+
+            long elapsed = hammer(() -> {
+                if (inventory.decrement(productId, 1)) {
+                    sold.incrementAndGet();
+                }
+            });
+
+            System.out.printf("shards=%2d: %d attempts in %dms (%.0f/s), sold=%d remaining=%d%n",
+                    shards, THREADS * ATTEMPTS_PER_THREAD, elapsed,
+                    THREADS * ATTEMPTS_PER_THREAD * 1000.0 / elapsed, sold.get(), repository.total(productId));
+            assertEquals(INITIAL_STOCK, sold.get());
+            assertEquals(0, repository.total(productId));
+            jdbcTemplate.update("DELETE FROM products WHERE id = ?", productId);
+        }
+    }
+
+    private static long hammer(Runnable attempt) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    attempt.run();
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+}
@@ -0,0 +1,80 @@
+package com.quickcommerce.product_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+    private static final long TICK = 100;
+
+    @Test
+    void firesWithinOneTickOfExpiry() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 0);
+        wheel.schedule("soon", 250);
+        wheel.schedule("later", 5_000);
+
+        assertTrue(wheel.advance(200).isEmpty());
+        assertEquals(List.of("soon"), wheel.advance(300));
+        assertTrue(wheel.advance(4_900).isEmpty());
+        assertEquals(List.of("later"), wheel.advance(5_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void alreadyDueEntriesFireOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 1_000);
+        wheel.schedule("late", 900);
+        assertEquals(List.of("late"), wheel.advance(1_000));
+    }
+
+    @Test
+    void cancelledEntriesNeverFire() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 0);
+        TimingWheel.Timeout<String> timeout = wheel.schedule("cancelled", 10_000);
+        assertTrue(wheel.cancel(timeout));
+        assertFalse(wheel.cancel(timeout));
+        assertTrue(wheel.advance(20_000).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void expiresHundredThousandHoldsAcrossLevelsOnTime() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 64, 0);
+        Random random = new Random(42);
+        Map<Integer, Long> expiries = new HashMap<>();
+        List<TimingWheel.Timeout<Integer>> cancelled = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            long expiresAt = 1 + random.nextInt(2 * 60 * 60 * 1000);
+            TimingWheel.Timeout<Integer> timeout = wheel.schedule(i, expiresAt);
+            if (i % 10 == 0) {
+                cancelled.add(timeout);
+            } else {
+                expiries.put(i, expiresAt);
+            }
+        }
+        cancelled.forEach(wheel::cancel);
+        assertEquals(90_000, wheel.size());
+
+        int fired = 0;
+        for (long now = 0; now <= 2 * 60 * 60 * 1000 + TICK; now += TICK) {
+            for (Integer id : wheel.advance(now)) {
+                long expiresAt = expiries.remove(id);
+                assertTrue(expiresAt <= now && now - expiresAt < TICK,
+                        "hold " + id + " due at " + expiresAt + " fired at " + now);
+                fired++;
+            }
+        }
+        assertEquals(90_000, fired);
+        assertTrue(expiries.isEmpty());
+        assertEquals(0, wheel.size());
+    }
+}